@@ -16,13 +16,15 @@ public class FilteringTerms {
   private Handover beaconHandovers;
 
   public FilteringTerms(Database database) {
-    database.tx(
-        db -> {
-          this.meta = new DatasetsMeta("../beaconFilteringTermsResponse.json", "filteringterms");
-          this.response = new FilteringTermsResponse(database);
-          this.responseSummary = new ResponseSummary();
-          this.beaconHandovers = new Handover();
-        });
+    this(database, 0, Integer.MAX_VALUE);
+  }
+
+  /** not in a transaction, so terms can be taken from the shared index */
+  public FilteringTerms(Database database, int skip, int limit) {
+    this.meta = new DatasetsMeta("../beaconFilteringTermsResponse.json", "filteringterms");
+    this.response = new FilteringTermsResponse(database, skip, limit);
+    this.responseSummary = new ResponseSummary();
+    this.beaconHandovers = new Handover();
   }
 
   public DatasetsMeta getMeta() {
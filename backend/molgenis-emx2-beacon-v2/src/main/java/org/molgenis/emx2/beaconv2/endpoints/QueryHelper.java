@@ -2,14 +2,18 @@ package org.molgenis.emx2.beaconv2.endpoints;
 
 import static org.molgenis.emx2.SelectColumn.s;
 
+import graphql.ExecutionResult;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.jooq.tools.StringUtils;
 import org.molgenis.emx2.Column;
 import org.molgenis.emx2.Query;
+import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.SelectColumn;
 import org.molgenis.emx2.Table;
+import org.molgenis.emx2.graphql.GraphqlApiFactory;
+import org.molgenis.emx2.graphql.GraphqlSchemaCache;
 import org.molgenis.emx2.utils.TypeUtils;
 
 // todo: do we still need this if we use retrieveRows?
@@ -51,6 +55,23 @@ public class QueryHelper {
     return query;
   }
 
+  /**
+   * Execute GraphQL query on the schema, reusing the graphql that is cached for users with the same
+   * roles. Pass values as variables instead of concatenating them into the query, so the parsed
+   * query is reused as well.
+   *
+   * @param schema
+   * @param query
+   * @param variables
+   * @return
+   */
+  public static ExecutionResult queryGraphql(
+      Schema schema, String query, Map<String, Object> variables) {
+    return GraphqlSchemaCache.getInstance()
+        .getGraphqlForSchema(schema, null)
+        .execute(GraphqlApiFactory.newExecutionInput(query, schema).variables(variables));
+  }
+
   /**
    * Convert list of maps to an array of ontology terms
    *
@@ -1,10 +1,10 @@
 package org.molgenis.emx2.beaconv2.endpoints.datasets;
 
+import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.queryGraphql;
 import static org.molgenis.emx2.rdf.RDFService.*;
 import static org.molgenis.emx2.rdf.RDFUtils.*;
 
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -12,7 +12,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.molgenis.emx2.Table;
-import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.utils.TypeUtils;
 import spark.Request;
 
@@ -37,9 +36,9 @@ public class Queries {
     for (Table table : tables) {
       List<DatasetsResultSetsItem> datasetsItemList = new ArrayList<>();
 
-      GraphQL grapql = new GraphqlApiFactory().createGraphqlForSchema(table.getSchema());
       ExecutionResult executionResult =
-          grapql.execute(
+          queryGraphql(
+              table.getSchema(),
               "{Dataset"
                   + "(filter: { _and: [ "
                   + concatFilters
@@ -73,7 +72,8 @@ public class Queries {
                   + "qualifiedAttribution,"
                   + "mg_insertedOn,"
                   + "mg_updatedOn"
-                  + "}}");
+                  + "}}",
+              Map.of());
 
       Map<String, Object> result = executionResult.toSpecification();
 
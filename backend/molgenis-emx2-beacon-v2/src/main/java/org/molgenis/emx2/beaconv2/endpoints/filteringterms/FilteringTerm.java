@@ -1,10 +1,16 @@
 package org.molgenis.emx2.beaconv2.endpoints.filteringterms;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import java.util.Comparator;
 import java.util.Objects;
 
 @JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY)
-public class FilteringTerm {
+public class FilteringTerm implements Comparable<FilteringTerm> {
+  private static final Comparator<FilteringTerm> ORDER =
+      Comparator.comparing((FilteringTerm t) -> t.type, Comparator.nullsFirst(String::compareTo))
+          .thenComparing(t -> t.id, Comparator.nullsFirst(String::compareTo))
+          .thenComparing(t -> t.scope, Comparator.nullsFirst(String::compareTo))
+          .thenComparing(t -> t.label, Comparator.nullsFirst(String::compareTo));
 
   private String type;
   private String id;
@@ -24,6 +30,19 @@ public class FilteringTerm {
     this.scope = Character.toLowerCase(scope.charAt(0)) + scope.substring(1);
   }
 
+  public String getType() {
+    return type;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int compareTo(FilteringTerm other) {
+    return ORDER.compare(this, other);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -0,0 +1,141 @@
+package org.molgenis.emx2.beaconv2.endpoints.filteringterms;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.molgenis.emx2.*;
+import org.molgenis.emx2.sql.SqlDatabase;
+
+/**
+ * Filtering terms per schema and beacon table, shared between all sessions. The terms of a table
+ * are queried once and kept until its schema metadata changes, or until rows of the table or of the
+ * ontologies it refers to change, see {@link FilteringTermsTableListener}. Schemas of which the
+ * metadata is not current in the database of the caller are queried on each request.
+ */
+public class FilteringTermsIndex {
+  private static final Map<String, SchemaTerms> schemas = new ConcurrentHashMap<>();
+
+  private FilteringTermsIndex() {
+    // hide constructor
+  }
+
+  private record TableId(String schemaName, String tableName) {}
+
+  /** the terms of one table and the tables they were queried from */
+  private record TableTerms(List<FilteringTerm> terms, Set<TableId> sources) {}
+
+  private static class SchemaTerms {
+    private final long version;
+    private final Map<String, TableTerms> tables = new ConcurrentHashMap<>();
+    // increased on each change, so terms queried during a change are not kept
+    private final AtomicLong changes = new AtomicLong();
+
+    private SchemaTerms(long version) {
+      this.version = version;
+    }
+  }
+
+  /** filtering terms of a beacon table in the schema, empty if the schema has no such table */
+  public static List<FilteringTerm> getFilteringTerms(Schema schema, String tableName) {
+    Long version =
+        schema.getDatabase() instanceof SqlDatabase database
+            ? database.getSchemaVersion(schema.getName())
+            : null;
+    if (version == null) {
+      return queryFilteringTerms(schema, tableName).terms();
+    }
+    SchemaTerms schemaTerms =
+        schemas.compute(
+            schema.getName(),
+            (name, current) ->
+                current != null && current.version == version ? current : new SchemaTerms(version));
+    TableTerms tableTerms = schemaTerms.tables.get(tableName);
+    if (tableTerms == null) {
+      long changes = schemaTerms.changes.get();
+      tableTerms = queryFilteringTerms(schema, tableName);
+      if (schemaTerms.changes.get() == changes) {
+        schemaTerms.tables.put(tableName, tableTerms);
+      }
+    }
+    return tableTerms.terms();
+  }
+
+  /** removes the terms that were queried from the changed table */
+  static void tableChanged(String schemaName, String tableName) {
+    TableId changed = new TableId(schemaName, tableName);
+    for (Map.Entry<String, SchemaTerms> entry : schemas.entrySet()) {
+      SchemaTerms schemaTerms = entry.getValue();
+      boolean sameSchema = entry.getKey().equals(schemaName);
+      if (sameSchema
+          || schemaTerms.tables.values().stream().anyMatch(t -> t.sources().contains(changed))) {
+        schemaTerms.changes.incrementAndGet();
+        schemaTerms.tables.values().removeIf(t -> t.sources().contains(changed));
+      }
+    }
+  }
+
+  /**
+   * Add non-referencing terms immediately, launch native SQL query for ontology columns and loop
+   * over rows
+   */
+  private static TableTerms queryFilteringTerms(Schema schema, String tableName) {
+    Set<FilteringTerm> terms = new LinkedHashSet<>();
+    Set<TableId> sources = new HashSet<>();
+    sources.add(new TableId(schema.getName(), tableName));
+    if (!schema.getTableNames().contains(tableName)) {
+      return new TableTerms(List.of(), sources);
+    }
+    TableMetadata metadata = schema.getTable(tableName).getMetadata();
+    // todo: now extended columns are ignored because make the query super complicated
+    for (Column column : metadata.getLocalColumns()) {
+      if (column.getColumnType().isAtomicType() && !column.getIdentifier().startsWith("mg_")) {
+        terms.add(new FilteringTerm("alphanumeric", column.getName(), tableName));
+      } else if (column.isOntology()) {
+        String schemaName = metadata.getSchemaName();
+        String refSchema = column.getRefTable().getSchemaName();
+        sources.add(new TableId(refSchema, column.getRefTableName()));
+        String q =
+            "SELECT DISTINCT name,codesystem,code FROM \""
+                + schemaName
+                + "\".\""
+                + tableName
+                + "\" INNER JOIN \""
+                + refSchema
+                + "\".\""
+                + column.getRefTableName()
+                + "\" ON \""
+                + refSchema
+                + "\".\""
+                + column.getRefTableName()
+                + (column.isArray()
+                    ? "\".\"name\" = ANY(\""
+                        + schemaName
+                        + "\".\""
+                        + tableName
+                        + "\".\""
+                        + column.getName()
+                        + "\")"
+                    : "\".\"name\" = \""
+                        + schemaName
+                        + "\".\""
+                        + tableName
+                        + "\".\""
+                        + column.getName()
+                        + "\"");
+        for (Row row : schema.retrieveSql(q)) {
+          String codesystem = row.getString("codesystem");
+          codesystem = codesystem == null || codesystem.isBlank() ? "NULL" : codesystem;
+          String code = row.getString("code");
+          code = code == null || code.isBlank() ? "NULL" : code;
+          terms.add(
+              new FilteringTerm(
+                  "ontology", codesystem + ":" + code, row.getString("name"), tableName));
+        }
+      } else {
+        // ignore any non-atomic, non-ontology fields, which are headings, files and regular
+        // (non-ontological) references
+      }
+    }
+    return new TableTerms(List.copyOf(terms), Set.copyOf(sources));
+  }
+}
@@ -30,107 +30,30 @@ public class FilteringTermsResponse {
    * @param database
    */
   public FilteringTermsResponse(Database database) {
-    this.filteringTerms = new FilteringTerm[] {};
-    Set<FilteringTerm> filteringTermsSet = new HashSet<>();
-    for (String schemaName : database.getSchemaNames()) {
-      getFilteringTermsFromTables(database, BEACON_TABLES, filteringTermsSet, schemaName);
-    }
-    this.filteringTerms = filteringTermsSet.toArray(new FilteringTerm[0]);
-  }
-
-  /**
-   * Loop over all tables in a schema and query each for filtering terms
-   *
-   * @param database
-   * @param tableNames
-   * @param filteringTermsSet
-   * @param schemaName
-   */
-  private void getFilteringTermsFromTables(
-      Database database,
-      List<String> tableNames,
-      Set<FilteringTerm> filteringTermsSet,
-      String schemaName) {
-    for (String tableToQuery : tableNames) {
-      Collection<String> tableNamesInSchema = database.getSchema(schemaName).getTableNames();
-      getFilteringTermsFromOneTable(
-          database, filteringTermsSet, schemaName, tableToQuery, tableNamesInSchema);
-    }
+    this(database, 0, Integer.MAX_VALUE);
   }
 
   /**
-   * Check of a table is present in schema, add non-referencing terms immediately, launch native SQL
-   * query for others and loop over rows
+   * Page of the filtering terms of all schemas, ordered by type, id, scope and label
    *
    * @param database
-   * @param filteringTermsSet
-   * @param schemaName
-   * @param tableToQuery
-   * @param tableNamesInSchema
+   * @param skip number of terms to skip
+   * @param limit maximum number of terms
    */
-  private void getFilteringTermsFromOneTable(
-      Database database,
-      Set<FilteringTerm> filteringTermsSet,
-      String schemaName,
-      String tableToQuery,
-      Collection<String> tableNamesInSchema) {
-    if (tableNamesInSchema.contains(tableToQuery)) {
-      TableMetadata metadata = database.getSchema(schemaName).getTable(tableToQuery).getMetadata();
-      // todo: now extended columns are ignored because make the query super complicated
-      for (Column column : metadata.getLocalColumns()) {
-        if (column.getColumnType().isAtomicType() && !column.getIdentifier().startsWith("mg_")) {
-          FilteringTerm filteringTerm =
-              new FilteringTerm("alphanumeric", column.getName(), tableToQuery);
-          filteringTermsSet.add(filteringTerm);
-        } else if (column.isOntology()) {
-          String schema = metadata.getSchemaName();
-          String refSchema = column.getRefTable().getSchemaName();
-          List<Row> rows;
-          String q =
-              "SELECT DISTINCT name,codesystem,code FROM \""
-                  + schema
-                  + "\".\""
-                  + tableToQuery
-                  + "\" INNER JOIN \""
-                  + refSchema
-                  + "\".\""
-                  + column.getRefTableName()
-                  + "\" ON \""
-                  + refSchema
-                  + "\".\""
-                  + column.getRefTableName()
-                  + (column.isArray()
-                      ? "\".\"name\" = ANY(\""
-                          + schema
-                          + "\".\""
-                          + tableToQuery
-                          + "\".\""
-                          + column.getName()
-                          + "\")"
-                      : "\".\"name\" = \""
-                          + schema
-                          + "\".\""
-                          + tableToQuery
-                          + "\".\""
-                          + column.getName()
-                          + "\"");
-          rows = database.getSchema(schemaName).retrieveSql(q);
-          for (Row row : rows) {
-            String codesystem = row.getString("codesystem");
-            codesystem = codesystem == null || codesystem.isBlank() ? "NULL" : codesystem;
-            String code = row.getString("code");
-            code = code == null || code.isBlank() ? "NULL" : code;
-            FilteringTerm filteringTerm =
-                new FilteringTerm(
-                    "ontology", codesystem + ":" + code, row.getString("name"), tableToQuery);
-            filteringTermsSet.add(filteringTerm);
-          }
-        } else {
-          // ignore any non-atomic, non-ontology fields, which are headings, files and regular
-          // (non-ontological) references
-        }
+  public FilteringTermsResponse(Database database, int skip, int limit) {
+    Set<FilteringTerm> filteringTermsSet = new HashSet<>();
+    for (String schemaName : database.getSchemaNames()) {
+      Schema schema = database.getSchema(schemaName);
+      for (String tableName : BEACON_TABLES) {
+        filteringTermsSet.addAll(FilteringTermsIndex.getFilteringTerms(schema, tableName));
       }
     }
+    this.filteringTerms =
+        filteringTermsSet.stream()
+            .sorted()
+            .skip(Math.max(skip, 0))
+            .limit(Math.max(limit, 0))
+            .toArray(FilteringTerm[]::new);
   }
 
   /**
@@ -0,0 +1,48 @@
+package org.molgenis.emx2.beaconv2.endpoints.filteringterms;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.TableListener;
+
+/**
+ * Listens to all tables, because the terms of a beacon table also depend on the ontologies it
+ * refers to, and removes outdated terms from the {@link FilteringTermsIndex} on commit.
+ */
+public class FilteringTermsTableListener extends TableListener {
+  // the action is added for each row, but only the first one needs to update the index
+  private final AtomicBoolean changed = new AtomicBoolean();
+  private final Runnable tableChanged;
+
+  public FilteringTermsTableListener() {
+    super(null, null);
+    this.tableChanged = () -> {};
+  }
+
+  private FilteringTermsTableListener(
+      FilteringTermsTableListener parent, String schemaName, String tableName) {
+    super(parent, schemaName, tableName);
+    this.tableChanged =
+        () -> {
+          if (changed.getAndSet(false)) {
+            FilteringTermsIndex.tableChanged(schemaName, tableName);
+          }
+        };
+  }
+
+  @Override
+  public TableListener forTable(String schemaName, String tableName) {
+    return new FilteringTermsTableListener(this, schemaName, tableName);
+  }
+
+  @Override
+  protected Runnable afterSave(Row saved) {
+    changed.set(true);
+    return tableChanged;
+  }
+
+  @Override
+  protected Runnable afterDelete(Row deleted) {
+    changed.set(true);
+    return tableChanged;
+  }
+}
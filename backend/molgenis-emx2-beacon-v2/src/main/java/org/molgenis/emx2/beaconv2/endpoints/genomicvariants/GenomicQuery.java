@@ -1,22 +1,54 @@
 package org.molgenis.emx2.beaconv2.endpoints.genomicvariants;
 
-import static org.molgenis.emx2.beaconv2.endpoints.genomicvariants.GenomicQueryType.*;
-import static org.molgenis.emx2.beaconv2.endpoints.genomicvariants.GenomicQueryType.BRACKET;
+import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.queryGraphql;
 
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.molgenis.emx2.Table;
-import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.utils.TypeUtils;
 
 public class GenomicQuery {
 
   public static final String GENOMIC_VARIATIONS_TABLE_NAME = "GenomicVariations";
 
+  // values are passed as variables, so the parsed query can be reused between requests
+  private static final String QUERY =
+      "query GenomicVariations($filter: GenomicVariationsFilter) {"
+          + GENOMIC_VARIATIONS_TABLE_NAME
+          + "(filter: $filter)"
+          + "{"
+          + "variantInternalId,"
+          + "variantType,"
+          + "referenceBases,"
+          + "alternateBases,"
+          + "position_assemblyId,"
+          + "position_refseqId,"
+          + "position_start,"
+          + "position_end,"
+          + "geneId,"
+          + "genomicHGVSId,"
+          + "proteinHGVSIds,"
+          + "transcriptHGVSIds,"
+          + "clinicalInterpretations{"
+          + "   category{name,codesystem,code,ontologyTermURI},"
+          + "   clinicalRelevance{name,codesystem,code,ontologyTermURI},"
+          + "   conditionId,"
+          + "   effect{name,codesystem,code,ontologyTermURI}"
+          + "},"
+          + "caseLevelData{"
+          + "   individualId{id},"
+          + "   clinicalInterpretations{"
+          + "      category{name,codesystem,code,ontologyTermURI},"
+          + "      clinicalRelevance{name,codesystem,code,ontologyTermURI},"
+          + "      conditionId,"
+          + "      effect{name,codesystem,code,ontologyTermURI}"
+          + "    }"
+          + "  }"
+          + "}}";
+
   public static List<GenomicVariantsResultSets> genomicQuery(
       Table table,
       GenomicQueryType genomicQueryType,
@@ -27,97 +59,18 @@ public class GenomicQuery {
       String qReferenceBases,
       String qAlternateBases) {
     List<GenomicVariantsResultSets> resultSetsList = new ArrayList<>();
-    GraphQL grapql = new GraphqlApiFactory().createGraphqlForSchema(table.getSchema());
-    ExecutionResult executionResult =
-        grapql.execute(
-            "{"
-                + GENOMIC_VARIATIONS_TABLE_NAME
-                + ""
-
-                // todo optional parameter: variantType OR alternateBases OR aminoacidChange
-                // todo optional parameter: variantMinLength
-                // todo optional parameter: variantMaxLength
-                + (genomicQueryType == GENEID
-                    ? "(filter:{geneId: {equals:\"" + qGeneId + "\"}})"
-                    : "")
-
-                // todo optional parameter: datasetIds
-                // todo optional parameter: filters
-                // fixme 'like' is greedy but allows case insensitivity...
-                + (genomicQueryType == SEQUENCE
-                    ? "(filter: { _and: [ { position_start: {equals:"
-                        + qStart[0]
-                        + "}}, {position_refseqId: {equals:\""
-                        + qReferenceName
-                        + "\"}}, {referenceBases: {like: \""
-                        + qReferenceBases
-                        + "\"}}, {alternateBases: {like: \""
-                        + qAlternateBases
-                        + "\"}}]}) "
-                    : "")
-
-                // todo optional parameter: variantType OR alternateBases OR aminoacidChange
-                // todo optional parameter: variantMinLength
-                // todo optional parameter: variantMaxLength
-                + (genomicQueryType == RANGE
-                    ? "(filter: { _or: [ { _and: [{ position_refseqId: { equals:\""
-                        + qReferenceName
-                        + "\"}}, { position_start: { between: ["
-                        + qStart[0]
-                        + ","
-                        + qEnd[0]
-                        + "]}}]}, { _and: [{ position_refseqId: { equals:\""
-                        + qReferenceName
-                        + "\"}} ,{ position_end: { between: ["
-                        + qStart[0]
-                        + ","
-                        + qEnd[0]
-                        + "]}}]}]})"
-                    : "")
-
-                // todo optional parameter: variantType
-                + (genomicQueryType == BRACKET
-                    ? "(filter: { _and: [{position_refseqId: { equals:\""
-                        + qReferenceName
-                        + "\"}},{position_start: { between: ["
-                        + qStart[0]
-                        + ","
-                        + qStart[1]
-                        + "]}},{position_end: { between: ["
-                        + qEnd[0]
-                        + ","
-                        + qEnd[1]
-                        + "]}}]})"
-                    : "")
-                + "{"
-                + "variantInternalId,"
-                + "variantType,"
-                + "referenceBases,"
-                + "alternateBases,"
-                + "position_assemblyId,"
-                + "position_refseqId,"
-                + "position_start,"
-                + "position_end,"
-                + "geneId,"
-                + "genomicHGVSId,"
-                + "proteinHGVSIds,"
-                + "transcriptHGVSIds,"
-                + "clinicalInterpretations{"
-                + "   category{name,codesystem,code,ontologyTermURI},"
-                + "   clinicalRelevance{name,codesystem,code,ontologyTermURI},"
-                + "   conditionId,"
-                + "   effect{name,codesystem,code,ontologyTermURI}"
-                + "},"
-                + "caseLevelData{"
-                + "   individualId{id},"
-                + "   clinicalInterpretations{"
-                + "      category{name,codesystem,code,ontologyTermURI},"
-                + "      clinicalRelevance{name,codesystem,code,ontologyTermURI},"
-                + "      conditionId,"
-                + "      effect{name,codesystem,code,ontologyTermURI}"
-                + "    }"
-                + "  }"
-                + "}}");
+    Map<String, Object> variables = new HashMap<>();
+    variables.put(
+        "filter",
+        createFilter(
+            genomicQueryType,
+            qReferenceName,
+            qGeneId,
+            qStart,
+            qEnd,
+            qReferenceBases,
+            qAlternateBases));
+    ExecutionResult executionResult = queryGraphql(table.getSchema(), QUERY, variables);
     // todo case insensitive matching needed! (e.g. C -> c/G and c -> c/G)
 
     Map<String, Object> result = executionResult.toSpecification();
@@ -177,4 +130,54 @@ public class GenomicQuery {
     }
     return resultSetsList;
   }
+
+  private static Map<String, Object> createFilter(
+      GenomicQueryType genomicQueryType,
+      String qReferenceName,
+      String qGeneId,
+      Long[] qStart,
+      Long[] qEnd,
+      String qReferenceBases,
+      String qAlternateBases) {
+    return switch (genomicQueryType) {
+        // todo optional parameter: variantType OR alternateBases OR aminoacidChange
+        // todo optional parameter: variantMinLength
+        // todo optional parameter: variantMaxLength
+      case GENEID -> Map.of("geneId", Map.of("equals", qGeneId));
+        // todo optional parameter: datasetIds
+        // todo optional parameter: filters
+        // fixme 'like' is greedy but allows case insensitivity...
+      case SEQUENCE -> Map.of(
+          "_and",
+          List.of(
+              Map.of("position_start", Map.of("equals", qStart[0])),
+              Map.of("position_refseqId", Map.of("equals", qReferenceName)),
+              Map.of("referenceBases", Map.of("like", qReferenceBases)),
+              Map.of("alternateBases", Map.of("like", qAlternateBases))));
+        // todo optional parameter: variantType OR alternateBases OR aminoacidChange
+        // todo optional parameter: variantMinLength
+        // todo optional parameter: variantMaxLength
+      case RANGE -> Map.of(
+          "_or",
+          List.of(
+              Map.of(
+                  "_and",
+                  List.of(
+                      Map.of("position_refseqId", Map.of("equals", qReferenceName)),
+                      Map.of("position_start", Map.of("between", List.of(qStart[0], qEnd[0]))))),
+              Map.of(
+                  "_and",
+                  List.of(
+                      Map.of("position_refseqId", Map.of("equals", qReferenceName)),
+                      Map.of("position_end", Map.of("between", List.of(qStart[0], qEnd[0])))))));
+        // todo optional parameter: variantType
+      case BRACKET -> Map.of(
+          "_and",
+          List.of(
+              Map.of("position_refseqId", Map.of("equals", qReferenceName)),
+              Map.of("position_start", Map.of("between", List.of(qStart[0], qStart[1]))),
+              Map.of("position_end", Map.of("between", List.of(qEnd[0], qEnd[1])))));
+      default -> null;
+    };
+  }
 }
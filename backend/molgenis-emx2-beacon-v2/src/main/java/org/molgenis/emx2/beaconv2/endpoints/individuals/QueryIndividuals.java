@@ -2,10 +2,10 @@ package org.molgenis.emx2.beaconv2.endpoints.individuals;
 
 import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.mapListToOntologyTerms;
 import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.mapToOntologyTerm;
+import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.queryGraphql;
 import static org.molgenis.emx2.beaconv2.endpoints.individuals.IndividualsFields.*;
 
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,7 +13,6 @@ import java.util.Map;
 import org.molgenis.emx2.Table;
 import org.molgenis.emx2.beaconv2.common.AgeAndAgeGroup;
 import org.molgenis.emx2.beaconv2.endpoints.genomicvariants.CaseLevelData;
-import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.utils.TypeUtils;
 
 public class QueryIndividuals {
@@ -45,9 +44,9 @@ public class QueryIndividuals {
     for (Table table : tables) {
       List<IndividualsResultSetsItem> individualsItemList = new ArrayList<>();
 
-      GraphQL grapql = new GraphqlApiFactory().createGraphqlForSchema(table.getSchema());
       ExecutionResult executionResult =
-          grapql.execute(
+          queryGraphql(
+              table.getSchema(),
               "{Individuals"
                   + "(filter: { _and: [ "
                   + concatFilters
@@ -99,7 +98,8 @@ public class QueryIndividuals {
                   + "   effect{name,codesystem,code}"
                   + "},"
                   + "}"
-                  + "}}");
+                  + "}}",
+              Map.of());
 
       Map<String, Object> result = executionResult.toSpecification();
 
@@ -1,23 +1,22 @@
 package org.molgenis.emx2.beaconv2.endpoints.individuals.ejp_rd_vp;
 
 import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.findColumnPath;
-import static org.molgenis.emx2.beaconv2.endpoints.individuals.QueryIndividuals.queryIndividuals;
+import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.queryGraphql;
+import static org.molgenis.emx2.beaconv2.endpoints.individuals.IndividualsFields.AGEATDIAGNOSIS_AGE_ISO8601DURATION;
+import static org.molgenis.emx2.beaconv2.endpoints.individuals.IndividualsFields.AGEOFONSET_AGE_ISO8601DURATION;
+import static org.molgenis.emx2.beaconv2.endpoints.individuals.IndividualsFields.AGE_AGE_ISO8601DURATION;
 import static org.molgenis.emx2.json.JsonUtil.getWriter;
 import static org.molgenis.emx2.rdf.RDFUtils.extractHost;
 import static org.molgenis.emx2.rdf.RDFUtils.getURI;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionResult;
 import java.net.URI;
-import java.time.Period;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 import org.molgenis.emx2.Table;
 import org.molgenis.emx2.beaconv2.endpoints.ColumnPath;
 import org.molgenis.emx2.beaconv2.endpoints.QueryHelper;
-import org.molgenis.emx2.beaconv2.endpoints.individuals.Diseases;
-import org.molgenis.emx2.beaconv2.endpoints.individuals.IndividualsResultSets;
-import org.molgenis.emx2.beaconv2.endpoints.individuals.IndividualsResultSetsItem;
 import org.molgenis.emx2.beaconv2.requests.BeaconRequestBody;
 import org.molgenis.emx2.beaconv2.requests.Filter;
 import org.molgenis.emx2.beaconv2.responses.BeaconCountResponse;
@@ -38,6 +37,8 @@ public class EJP_VP_IndividualsQuery {
   public static final String AGE_THIS_YEAR = "NCIT_C83164";
   public static final String AGE_OF_ONSET = "NCIT_C124353";
   public static final String AGE_AT_DIAG = "NCIT_C156420";
+  // upper bound for 'older than' age queries
+  private static final int MAX_AGE = 150;
 
   public EJP_VP_IndividualsQuery(Request request, Response response, List<Table> tables) {
     this.request = request;
@@ -60,8 +61,6 @@ public class EJP_VP_IndividualsQuery {
     BeaconRequestBody beaconRequestBody =
         new ObjectMapper().readValue(request.body(), BeaconRequestBody.class);
 
-    List<Filter> ageQueries = new ArrayList<>();
-
     List<String> filters = new ArrayList<>();
     for (Filter filter : beaconRequestBody.getQuery().getFilters()) {
 
@@ -115,7 +114,13 @@ public class EJP_VP_IndividualsQuery {
       boolean isAgeQuery =
           id.endsWith(AGE_THIS_YEAR) || id.endsWith(AGE_OF_ONSET) || id.endsWith(AGE_AT_DIAG);
       if (isAgeQuery) {
-        ageQueries.add(filter);
+        String ageFilter = ageFilter(id, operator, values);
+        if (ageFilter == null) {
+          // no age can match
+          return getWriter()
+              .writeValueAsString(new BeaconCountResponse(host, beaconRequestBody, false, 0));
+        }
+        filters.add(ageFilter);
       }
 
       /** Sex (i.e. GenderAtBirth) but requires a mapping NCIT to GSSO */
@@ -167,37 +172,8 @@ public class EJP_VP_IndividualsQuery {
       }
     }
 
-    // execute query with all filters combined
-    List<IndividualsResultSets> resultSetsList =
-        queryIndividuals(tables, filters.toArray(new String[0]));
-
-    // only works because we only do AND queries, so one unmatched filter means no hit
-    List<String> removeIndividualIDs = removeIndividualIDs(ageQueries, resultSetsList);
-
-    // use list of 'removed' individuals to rebuild the result set
-    List<IndividualsResultSets> filteredResultSetsList = new ArrayList<>();
-    for (IndividualsResultSets resultSet : resultSetsList) {
-      List<IndividualsResultSetsItem> filteredIndividuals = new ArrayList<>();
-      for (IndividualsResultSetsItem individual : resultSet.getResults()) {
-        String currentId = resultSet.getId() + "@" + individual.getId();
-        if (!removeIndividualIDs.contains(currentId)) {
-          filteredIndividuals.add(individual);
-        }
-      }
-      if (filteredIndividuals.size() > 0) {
-        IndividualsResultSetsItem[] filteredIndividualsArr =
-            filteredIndividuals.toArray(new IndividualsResultSetsItem[0]);
-        IndividualsResultSets filteredResultSet =
-            new IndividualsResultSets(resultSet.getId(), filteredIndividualsArr);
-        filteredResultSetsList.add(filteredResultSet);
-      }
-    }
-
-    // each table results in one IndividualsResultSets, add up the result counts
-    int totalCount = 0;
-    for (IndividualsResultSets individualsResultSets : filteredResultSetsList) {
-      totalCount += individualsResultSets.getResultsCount();
-    }
+    // count in the database, all filters combined
+    int totalCount = countIndividuals(filters);
 
     // return the individual counts
     return getWriter()
@@ -206,109 +182,70 @@ public class EJP_VP_IndividualsQuery {
                 host, beaconRequestBody, totalCount > 0 ? true : false, totalCount));
   }
 
-  private List<String> removeIndividualIDs(
-      List<Filter> ageQueries, List<IndividualsResultSets> resultSetsList) throws Exception {
-    List<String> removeIndividualIDs = new ArrayList<>();
-    for (Filter ageQuery : ageQueries) {
-      for (IndividualsResultSets resultSet : resultSetsList) {
-        for (IndividualsResultSetsItem individual : resultSet.getResults()) {
-          List<String> ageStr = new ArrayList<>();
-          if (ageQuery.getIds()[0].endsWith(AGE_THIS_YEAR)) {
-            if (individual.getAge().getAge().getIso8601duration() != null) {
-              ageStr.add(individual.getAge().getAge().getIso8601duration());
-            }
-          } else if (ageQuery.getIds()[0].endsWith(AGE_OF_ONSET)) {
-            if (individual.getDiseases() != null) {
-              for (Diseases diseases : individual.getDiseases()) {
-                if (diseases.getAgeOfOnset().getAge().getIso8601duration() != null) {
-                  ageStr.add(diseases.getAgeOfOnset().getAge().getIso8601duration());
-                }
-              }
-            }
-          } else if (ageQuery.getIds()[0].endsWith(AGE_AT_DIAG)) {
-            if (individual.getDiseases() != null) {
-              for (Diseases diseases : individual.getDiseases()) {
-                if (diseases.getAgeAtDiagnosis().getAge().getIso8601duration() != null) {
-                  ageStr.add(diseases.getAgeAtDiagnosis().getAge().getIso8601duration());
-                }
-              }
-            }
-          } else {
-            throw new Exception("Bad age query: " + ageQuery);
-          }
-          int[] ageYears = iso8601StringToIntYears(ageStr);
-          boolean ageQueryPositiveMatch = false;
-          for (String valueStr : ageQuery.getValues()) {
-            int age = Integer.parseInt(valueStr);
-            ageQueryPositiveMatch = evalAgeQuery(age, ageYears, ageQuery.getOperator());
-            if (ageQueryPositiveMatch) {
-              break;
-            }
-          }
-          if (!ageQueryPositiveMatch) {
-            removeIndividualIDs.add(resultSet.getId() + "@" + individual.getId());
-          }
-        }
-      }
+  private int countIndividuals(List<String> filters) {
+    int totalCount = 0;
+    for (Table table : tables) {
+      ExecutionResult executionResult =
+          queryGraphql(
+              table.getSchema(),
+              "{Individuals_agg(filter: { _and: [ " + String.join(",", filters) + " ] }){count}}",
+              Map.of());
+      Map<String, Object> data = executionResult.getData();
+      totalCount += (Integer) ((Map<String, Object>) data.get("Individuals_agg")).get("count");
     }
-    return removeIndividualIDs;
+    return totalCount;
   }
 
   /**
-   * Helper function to apply age queries
-   *
-   * @param queryValue
-   * @param databaseValues
-   * @param operator
-   * @return
+   * Filter on the years of the ISO8601 durations (e.g. P32Y6M1D) of the age, age of onset or age at
+   * diagnosis, evaluated by the database. Matches individuals with at least one such age that
+   * satisfies the operator for one of the values. Equality allows for one year difference. Returns
+   * null if no age can match.
    */
-  private boolean evalAgeQuery(int queryValue, int[] databaseValues, String operator) {
-    if (operator.equals("=")) {
-      for (int i = 0; i < databaseValues.length; i++) {
-        if (queryValue == databaseValues[i]
-            || queryValue == (databaseValues[i] - 1)
-            || queryValue == (databaseValues[i] + 1)) {
-          return true;
-        }
-      }
-      return false;
-    } else if (operator.contains(">")) {
-      for (int i = 0; i < databaseValues.length; i++) {
-        if (databaseValues[i] > queryValue) {
-          return true;
-        }
-        if (operator.equals(">=") && databaseValues[i] == queryValue) {
-          return true;
-        }
-      }
-      return false;
-    } else if (operator.contains("<")) {
-      for (int i = 0; i < databaseValues.length; i++) {
-        if (databaseValues[i] < queryValue) {
-          return true;
-        }
-        if (operator.equals("<=") && databaseValues[i] == queryValue) {
-          return true;
+  private static String ageFilter(String id, String operator, String[] values) {
+    Set<Integer> years = new TreeSet<>();
+    for (String value : values) {
+      int age = Integer.parseInt(value);
+      for (int year = 0; year <= MAX_AGE; year++) {
+        boolean matches =
+            switch (operator) {
+              case "=" -> Math.abs(year - age) <= 1;
+              case ">" -> year > age;
+              case ">=" -> year >= age;
+              case "<" -> year < age;
+              case "<=" -> year <= age;
+              default -> false;
+            };
+        if (matches) {
+          years.add(year);
         }
       }
-      return false;
     }
-    return false;
-  }
+    if (years.isEmpty()) {
+      return null;
+    }
 
-  /**
-   * Helper function to convert ISO8601 duration to number of years as integer
-   *
-   * @param ageStr
-   * @return
-   */
-  private int[] iso8601StringToIntYears(List<String> ageStr) {
-    int[] result = new int[ageStr.size()];
-    for (int i = 0; i < ageStr.size(); i++) {
-      Period period = Period.parse(ageStr.get(i));
-      result[i] = period.getYears();
+    String column =
+        id.endsWith(AGE_THIS_YEAR)
+            ? AGE_AGE_ISO8601DURATION
+            : id.endsWith(AGE_OF_ONSET)
+                ? AGEOFONSET_AGE_ISO8601DURATION
+                : AGEATDIAGNOSIS_AGE_ISO8601DURATION;
+    // 'P' only occurs at the start, so like 'P3Y' doesn't match P33Y
+    List<String> conditions = new ArrayList<>();
+    conditions.add(
+        "{"
+            + column
+            + ": {like: ["
+            + years.stream().map(year -> "\"P" + year + "Y\"").collect(Collectors.joining(","))
+            + "]}}");
+    if (years.contains(0)) {
+      // durations without years, e.g. P6M
+      conditions.add(
+          "{_and: [{" + column + ": {like: \"P\"}}, {" + column + ": {not_like: \"Y\"}}]}");
     }
-    return result;
+    String filter = "{ _or: [" + String.join(",", conditions) + "] }";
+    return id.endsWith(AGE_THIS_YEAR) ? filter : "{diseases: " + filter + "}";
   }
 
   /**
@@ -1,18 +1,17 @@
 package org.molgenis.emx2.beaconv2.endpoints.runs;
 
 import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.mapToOntologyTerm;
+import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.queryGraphql;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.molgenis.emx2.Table;
-import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.utils.TypeUtils;
 import spark.Request;
 
@@ -23,6 +22,21 @@ public class RunsResponse {
   @JsonInclude(JsonInclude.Include.ALWAYS)
   private RunsResultSets[] resultSets;
 
+  private static final String QUERY =
+      "query Runs($filter: RunsFilter) {Runs(filter: $filter)"
+          + "{"
+          + "id,"
+          + "biosampleId{id},"
+          + "individualId{id},"
+          + "runDate,"
+          + "librarySource{name,codesystem,code},"
+          + "librarySelection,"
+          + "libraryStrategy{name,codesystem,code},"
+          + "libraryLayout,"
+          + "platform{name,codesystem,code},"
+          + "platformModel{name,codesystem,code}"
+          + "}}";
+
   // query parameters, ignore from output
   @JsonIgnore private String idForQuery;
 
@@ -34,23 +48,11 @@ public class RunsResponse {
     for (Table table : tables) {
       List<RunsResultSetsItem> runsItemList = new ArrayList<>();
 
-      GraphQL grapql = new GraphqlApiFactory().createGraphqlForSchema(table.getSchema());
-      ExecutionResult executionResult =
-          grapql.execute(
-              "{Runs"
-                  + (idForQuery != null ? "(filter:{id: {equals:\"" + idForQuery + "\"}})" : "")
-                  + "{"
-                  + "id,"
-                  + "biosampleId{id},"
-                  + "individualId{id},"
-                  + "runDate,"
-                  + "librarySource{name,codesystem,code},"
-                  + "librarySelection,"
-                  + "libraryStrategy{name,codesystem,code},"
-                  + "libraryLayout,"
-                  + "platform{name,codesystem,code},"
-                  + "platformModel{name,codesystem,code}"
-                  + "}}");
+      Map<String, Object> variables = new HashMap<>();
+      if (idForQuery != null) {
+        variables.put("filter", Map.of("id", Map.of("equals", idForQuery)));
+      }
+      ExecutionResult executionResult = queryGraphql(table.getSchema(), QUERY, variables);
 
       Map<String, Object> result = executionResult.toSpecification();
       List<Map<String, Object>> runsListFromJSON =
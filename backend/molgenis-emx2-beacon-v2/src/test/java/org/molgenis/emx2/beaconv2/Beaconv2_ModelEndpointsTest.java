@@ -3,8 +3,14 @@ package org.molgenis.emx2.beaconv2;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.ONTOLOGY;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import graphql.ExecutionResult;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Tag;
@@ -13,10 +19,20 @@ import org.molgenis.emx2.Database;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.Table;
 import org.molgenis.emx2.beaconv2.endpoints.*;
+import org.molgenis.emx2.beaconv2.endpoints.filteringterms.FilteringTerm;
+import org.molgenis.emx2.beaconv2.endpoints.filteringterms.FilteringTermsIndex;
+import org.molgenis.emx2.beaconv2.endpoints.filteringterms.FilteringTermsResponse;
+import org.molgenis.emx2.beaconv2.endpoints.filteringterms.FilteringTermsTableListener;
+import org.molgenis.emx2.beaconv2.endpoints.genomicvariants.GenomicQuery;
+import org.molgenis.emx2.beaconv2.endpoints.genomicvariants.GenomicQueryType;
+import org.molgenis.emx2.beaconv2.endpoints.genomicvariants.GenomicVariantsResultSets;
 import org.molgenis.emx2.beaconv2.endpoints.individuals.ejp_rd_vp.EJP_VP_IndividualsQuery;
 import org.molgenis.emx2.datamodels.ProfileLoader;
+import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.json.JsonUtil;
+import org.molgenis.emx2.sql.SqlDatabase;
 import org.molgenis.emx2.sql.TestDatabaseFactory;
+import org.molgenis.emx2.utils.StopWatch;
 import spark.Request;
 import spark.Response;
 
@@ -51,6 +67,53 @@ public class Beaconv2_ModelEndpointsTest {
     assertTrue(json.contains("\"scope\" : \"runs\""));
   }
 
+  @Test
+  void testFilteringTermsPaging() {
+    FilteringTerm[] all = new FilteringTermsResponse(database).getFilteringTerms();
+    FilteringTerm[] page = new FilteringTermsResponse(database, 2, 3).getFilteringTerms();
+    assertArrayEquals(Arrays.copyOfRange(all, 2, 5), page);
+    assertEquals(0, new FilteringTermsResponse(database, all.length, 3).getFilteringTerms().length);
+  }
+
+  @Test
+  void testFilteringTermsIndexIsUpdatedOnCommit() {
+    SqlDatabase db = (SqlDatabase) TestDatabaseFactory.getTestDatabase();
+    db.addTableListener(new FilteringTermsTableListener());
+    Schema schema = db.dropCreateSchema("Beaconv2FilteringTermsIndex");
+    schema.create(
+        table(
+            "Individuals",
+            column("id").setPkey(),
+            column("sex").setType(ONTOLOGY).setRefTable("Sex")));
+    schema
+        .getTable("Sex")
+        .insert(
+            row("name", "female", "codesystem", "NCIT", "code", "C16576"),
+            row("name", "male", "codesystem", "NCIT", "code", "C20197"));
+    schema.getTable("Individuals").insert(row("id", "1", "sex", "female"));
+    // otherwise the index isn't used
+    assertNotNull(db.getSchemaVersion(schema.getName()));
+    assertEquals(List.of("NCIT:C16576"), ontologyTermIds(schema));
+
+    schema.getTable("Individuals").insert(row("id", "2", "sex", "male"));
+    assertEquals(List.of("NCIT:C16576", "NCIT:C20197"), ontologyTermIds(schema));
+
+    // terms also depend on the ontology
+    schema.getTable("Sex").update(row("name", "female", "codesystem", "NCIT", "code", "C46110"));
+    assertEquals(List.of("NCIT:C20197", "NCIT:C46110"), ontologyTermIds(schema));
+
+    schema.getTable("Individuals").delete(row("id", "2"));
+    assertEquals(List.of("NCIT:C46110"), ontologyTermIds(schema));
+  }
+
+  private static List<String> ontologyTermIds(Schema schema) {
+    return FilteringTermsIndex.getFilteringTerms(schema, "Individuals").stream()
+        .sorted()
+        .filter(term -> term.getType().equals("ontology"))
+        .map(FilteringTerm::getId)
+        .toList();
+  }
+
   @Test
   public void testGenomicVariants_NoParams() throws Exception {
     Request request = mock(Request.class);
@@ -86,6 +149,36 @@ public class Beaconv2_ModelEndpointsTest {
     assertTrue(json.contains("\"resultsCount\" : 1,"));
   }
 
+  @Test
+  public void benchmarkGenomicVariants_SequenceQuery() {
+    int requests = 100;
+    Table table = beaconSchema.getTable("GenomicVariations");
+
+    // before: each request created its own graphql and parsed its own query
+    StopWatch.start("genomic query, graphql created per request");
+    for (int i = 0; i < requests; i++) {
+      ExecutionResult result =
+          new GraphqlApiFactory()
+              .createGraphqlForSchema(beaconSchema)
+              .execute(
+                  "{GenomicVariations(filter:{_and:[{position_start:{equals:2447955}},"
+                      + "{position_refseqId:{equals:\"20\"}},{referenceBases:{like:\"c\"}},"
+                      + "{alternateBases:{like:\"G\"}}]}){variantInternalId}}");
+      assertTrue(result.getErrors().isEmpty());
+    }
+    StopWatch.print("graphql created per request", requests);
+
+    // after: cached graphql and parsed query, only the variables differ
+    StopWatch.start("genomic query, cached graphql and query");
+    for (int i = 0; i < requests; i++) {
+      List<GenomicVariantsResultSets> result =
+          GenomicQuery.genomicQuery(
+              table, GenomicQueryType.SEQUENCE, "20", null, new Long[] {2447955L}, null, "c", "G");
+      assertEquals(1, result.size());
+    }
+    StopWatch.print("cached graphql and query", requests);
+  }
+
   @Test
   public void testGenomicVariants_NoHits() throws Exception {
     Request request = mock(Request.class);
@@ -2,11 +2,11 @@ package org.molgenis.emx2.fairdatapoint;
 
 import static org.eclipse.rdf4j.model.util.Values.iri;
 import static org.eclipse.rdf4j.model.util.Values.literal;
+import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.queryGraphql;
 import static org.molgenis.emx2.rdf.RDFService.*;
 import static org.molgenis.emx2.rdf.RDFUtils.*;
 
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import java.io.StringWriter;
 import java.net.URI;
 import java.util.*;
@@ -20,7 +20,6 @@ import org.eclipse.rdf4j.rio.WriterConfig;
 import org.eclipse.rdf4j.rio.helpers.BasicWriterSettings;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.Table;
-import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.utils.TypeUtils;
 import spark.Request;
 
@@ -57,11 +56,14 @@ public class FAIRDataPointCatalog {
   }
 
   public static List<Map<String, Object>> getFDPCatalogRecords(Schema schema, String id) {
-    GraphQL grapql = new GraphqlApiFactory().createGraphqlForSchema(schema);
+    Map<String, Object> variables = new HashMap<>();
+    if (id != null) {
+      variables.put("filter", Map.of("id", Map.of("equals", id)));
+    }
     ExecutionResult executionResult =
-        grapql.execute(
-            "{Catalog"
-                + (id != null ? "(filter:{id: {equals:\"" + id + "\"}})" : "")
+        queryGraphql(
+            schema,
+            "query Catalog($filter: CatalogFilter) {Catalog(filter: $filter)"
                 + "{"
                 + "id,"
                 + "title,"
@@ -75,7 +77,8 @@ public class FAIRDataPointCatalog {
                 + "dataset{id},"
                 + "mg_insertedOn,"
                 + "mg_updatedOn"
-                + "}}");
+                + "}}",
+            variables);
     Map<String, Object> result = executionResult.toSpecification();
     if (result.containsKey("data")) {
       return (List<Map<String, Object>>)
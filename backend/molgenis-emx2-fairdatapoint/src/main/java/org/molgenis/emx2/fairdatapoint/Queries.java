@@ -1,25 +1,21 @@
 package org.molgenis.emx2.fairdatapoint;
 
-import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.finalizeFilter;
+import static org.molgenis.emx2.beaconv2.endpoints.QueryHelper.queryGraphql;
 
 import graphql.ExecutionResult;
-import graphql.GraphQL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.molgenis.emx2.Schema;
-import org.molgenis.emx2.graphql.GraphqlApiFactory;
 
 public class Queries {
 
   public static List<Map<String, Object>> queryDataset(Schema schema, String idField, String id) {
-    GraphQL grapql = new GraphqlApiFactory().createGraphqlForSchema(schema);
     ExecutionResult executionResult =
-        grapql.execute(
-            "{Dataset("
-                + finalizeFilter("filter:{" + idField + ": {equals:\"" + id + "\"")
-                + "){"
+        queryGraphql(
+            schema,
+            "query Dataset($filter: DatasetFilter) {Dataset(filter: $filter){"
                 + "id,"
                 + "distribution{name,description, type{name,codesystem,code,ontologyTermURI,definition}, files{identifier,md5checksum,name,server,path, format{name,codesystem,code,ontologyTermURI,definition}}},"
                 + "accrualPeriodicity,"
@@ -50,7 +46,8 @@ public class Queries {
                 + "propertyValue,"
                 + "mg_insertedOn,"
                 + "mg_updatedOn"
-                + "}}");
+                + "}}",
+            Map.of("filter", createFilter(idField, id)));
     Map<String, Object> result = executionResult.toSpecification();
     if (result.get("data") == null
         || ((HashMap<String, Object>) result.get("data")).get("Dataset") == null) {
@@ -62,12 +59,10 @@ public class Queries {
 
   public static List<Map<String, Object>> queryDistribution(
       Schema schema, String idField, String id) {
-    GraphQL grapql = new GraphqlApiFactory().createGraphqlForSchema(schema);
     ExecutionResult executionResult =
-        grapql.execute(
-            "{Distribution("
-                + finalizeFilter("filter:{" + idField + ": {equals:\"" + id + "\"")
-                + "){"
+        queryGraphql(
+            schema,
+            "query Distribution($filter: DistributionFilter) {Distribution(filter: $filter){"
                 + "name,"
                 + "description,"
                 + "type{name,codesystem,code,ontologyTermURI,definition},"
@@ -88,7 +83,8 @@ public class Queries {
                 + "propertyValue,"
                 + "mg_insertedOn,"
                 + "mg_updatedOn"
-                + "}}");
+                + "}}",
+            Map.of("filter", createFilter(idField, id)));
     Map<String, Object> result = executionResult.toSpecification();
     if (result.get("data") == null
         || ((HashMap<String, Object>) result.get("data")).get("Distribution") == null) {
@@ -97,4 +93,17 @@ public class Queries {
     return (List<Map<String, Object>>)
         ((HashMap<String, Object>) result.get("data")).get("Distribution");
   }
+
+  /**
+   * Create filter on a field, or on a field of a reference when using the 'ref:{field' notation,
+   * e.g. "files:{identifier". Passed as variable so the query itself is the same for each id.
+   */
+  private static Map<String, Object> createFilter(String idField, String id) {
+    Map<String, Object> filter = Map.of("equals", id);
+    String[] path = idField.split(":\\{");
+    for (int i = path.length - 1; i >= 0; i--) {
+      filter = Map.of(path[i].trim(), filter);
+    }
+    return filter;
+  }
 }
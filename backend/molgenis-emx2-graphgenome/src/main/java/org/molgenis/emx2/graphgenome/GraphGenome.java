@@ -11,6 +11,7 @@ import java.util.*;
 import org.eclipse.rdf4j.model.util.ModelBuilder;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
 import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Table;
 import org.molgenis.emx2.beaconv2.endpoints.genomicvariants.*;
@@ -113,7 +114,8 @@ public class GraphGenome extends RDFService {
       String apiContext = getBaseURL() + graphGenomeApiLocation;
       ModelBuilder builder = new ModelBuilder();
       // todo, can this be done in superclass so describe root doesn't need to be public
-      describeRoot(builder);
+      // the model of the builder collects the statements of the root
+      describeRoot(new StatementCollector(builder.build()));
       host = getBaseURL();
 
       String apiContextGene =
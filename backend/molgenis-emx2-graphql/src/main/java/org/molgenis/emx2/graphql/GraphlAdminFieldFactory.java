@@ -1,5 +1,6 @@
 package org.molgenis.emx2.graphql;
 
+import static graphql.scalars.ExtendedScalars.GraphQLLong;
 import static org.molgenis.emx2.Constants.SETTINGS;
 import static org.molgenis.emx2.graphql.GraphqlConstants.*;
 import static org.molgenis.emx2.graphql.GraphqlSchemaFieldFactory.outputSettingsType;
@@ -13,6 +14,8 @@ import org.molgenis.emx2.Database;
 import org.molgenis.emx2.User;
 
 public class GraphlAdminFieldFactory {
+  private static final String GRAPHQL_CACHE = "graphqlCache";
+
   private GraphlAdminFieldFactory() {
     // hide constructor
   }
@@ -33,7 +36,15 @@ public class GraphlAdminFieldFactory {
                   .build())
           .build();
 
-  // retrieve user list, user count
+  private static GraphQLOutputType graphqlCacheType =
+      GraphQLObjectType.newObject()
+          .name("_AdminGraphqlCacheType")
+          .field(GraphQLFieldDefinition.newFieldDefinition().name("hits").type(GraphQLLong))
+          .field(GraphQLFieldDefinition.newFieldDefinition().name("misses").type(GraphQLLong))
+          .field(GraphQLFieldDefinition.newFieldDefinition().name("size").type(Scalars.GraphQLInt))
+          .build();
+
+  // retrieve user list, user count, cache statistics
   public static GraphQLFieldDefinition queryAdminField(Database db) {
     GraphQLOutputType adminType =
         GraphQLObjectType.newObject()
@@ -51,6 +62,11 @@ public class GraphlAdminFieldFactory {
                     .name("userCount")
                     .type(Scalars.GraphQLInt)
                     .build())
+            .field(
+                GraphQLFieldDefinition.newFieldDefinition()
+                    .name(GRAPHQL_CACHE)
+                    .type(graphqlCacheType)
+                    .build())
             .build();
 
     return GraphQLFieldDefinition.newFieldDefinition()
@@ -67,6 +83,18 @@ public class GraphlAdminFieldFactory {
                 if (selectedField.getName().equals("userCount")) {
                   result.put("userCount", db.countUsers());
                 }
+                if (selectedField.getName().equals(GRAPHQL_CACHE)) {
+                  GraphqlSchemaCache cache = GraphqlSchemaCache.getInstance();
+                  result.put(
+                      GRAPHQL_CACHE,
+                      Map.of(
+                          "hits",
+                          cache.getHitCount(),
+                          "misses",
+                          cache.getMissCount(),
+                          "size",
+                          cache.getSize()));
+                }
               }
               return result;
             })
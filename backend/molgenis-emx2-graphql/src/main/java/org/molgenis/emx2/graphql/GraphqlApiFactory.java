@@ -3,10 +3,11 @@ package org.molgenis.emx2.graphql;
 import static org.molgenis.emx2.Privileges.VIEWER;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.ExecutionInput;
 import graphql.ExecutionResult;
 import graphql.GraphQL;
 import graphql.execution.AsyncExecutionStrategy;
+import graphql.schema.DataFetchingEnvironment;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
 import java.io.IOException;
@@ -19,6 +20,47 @@ import org.slf4j.LoggerFactory;
 
 public class GraphqlApiFactory {
   private static Logger logger = LoggerFactory.getLogger(GraphqlApiFactory.class);
+  // keys used to bind the schema and database of the active user in the graphql context
+  static final String CONTEXT_SCHEMA = "molgenisSchema";
+  static final String CONTEXT_DATABASE = "molgenisDatabase";
+  // key to allow table queries to return the json of the database as is
+  static final String CONTEXT_RAW_JSON = "molgenisRawJson";
+
+  /**
+   * Creates execution input that binds the schema, and thereby the database and active user, of the
+   * caller. Must be used when executing a graphql that is shared between users, see {@link
+   * GraphqlSchemaCache}.
+   */
+  public static ExecutionInput.Builder newExecutionInput(String query, Schema schema) {
+    return ExecutionInput.newExecutionInput(query)
+        .graphQLContext(Map.of(CONTEXT_SCHEMA, schema, CONTEXT_DATABASE, schema.getDatabase()));
+  }
+
+  /** Creates execution input that binds the database, and thereby the active user, of caller. */
+  public static ExecutionInput.Builder newExecutionInput(String query, Database database) {
+    return ExecutionInput.newExecutionInput(query)
+        .graphQLContext(Map.of(CONTEXT_DATABASE, database));
+  }
+
+  /**
+   * Allows table queries to put the json produced by the database into the result as is, see {@link
+   * GraphqlRawJson}. Only use when the result is serialized using {@link
+   * #convertExecutionResultToJson}.
+   */
+  public static ExecutionInput.Builder withRawJson(ExecutionInput.Builder input) {
+    return input.graphQLContext(Map.of(CONTEXT_RAW_JSON, true));
+  }
+
+  /** Returns the schema bound at execution time, or the schema the graphql was created for */
+  static Schema getActiveSchema(DataFetchingEnvironment dataFetchingEnvironment, Schema schema) {
+    return dataFetchingEnvironment.getGraphQlContext().getOrDefault(CONTEXT_SCHEMA, schema);
+  }
+
+  /** Returns the database bound at execution time, or the database the graphql was created for */
+  static Database getActiveDatabase(
+      DataFetchingEnvironment dataFetchingEnvironment, Database database) {
+    return dataFetchingEnvironment.getGraphQlContext().getOrDefault(CONTEXT_DATABASE, database);
+  }
 
   public static String convertExecutionResultToJson(ExecutionResult executionResult)
       throws JsonProcessingException {
@@ -27,13 +69,13 @@ public class GraphqlApiFactory {
     return JsonUtil.getWriter().writeValueAsString(toSpecificationResult);
   }
 
-  /** bit unfortunate that we have to convert from json to map and back */
+  /**
+   * bit unfortunate that we have to convert from json to map and back, which is avoided where
+   * possible using {@link GraphqlRawJson}
+   */
   static Object transform(String json) throws IOException {
-    // benchmark shows this only takes a few ms so not a large performance issue
-    // alternatively, we should change the SQL to result escaped results but that is a nightmare to
-    // build
     if (json != null) {
-      return new ObjectMapper().readValue(json, Map.class);
+      return JsonUtil.getMapReader().readValue(json);
     } else {
       return null;
     }
@@ -154,6 +196,7 @@ public class GraphqlApiFactory {
                     .query(queryBuilder.build())
                     .mutation(mutationBuilder.build())
                     .build())
+            .queryExecutionStrategy(new GraphqlQueryExecutionStrategy())
             .mutationExecutionStrategy(
                 new AsyncExecutionStrategy(new GraphqlCustomExceptionHandler()))
             .build();
@@ -39,6 +39,7 @@ public class GraphqlConstants {
   public static final String DETAIL = "detail";
   public static final String LIMIT = "limit";
   public static final String OFFSET = "offset";
+  public static final String AFTER = "after";
   public static final String SEARCH = "search";
   public static final String ORDERBY = "orderby";
   public static final String KEYS = "keys";
@@ -64,6 +65,10 @@ public class GraphqlConstants {
   public static final String TABLENAME = "tableName";
   public static final String OLD_ROW_DATA = "oldRowData";
   public static final String NEW_ROW_DATA = "newRowData";
+  public static final String SINCE = "since";
+  public static final String UNTIL = "until";
+  public static final String AFTER_STAMP = "afterStamp";
+  public static final String AFTER_ID = "afterId";
   public static final String REF_SCHEMA_NAME = "refSchemaName";
   public static final String REF_TABLE_NAME = "refTableName";
   public static final String REF_LINK_NAME = "refLinkName";
@@ -1,5 +1,7 @@
 package org.molgenis.emx2.graphql;
 
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getActiveDatabase;
+
 import graphql.Scalars;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLObjectType;
@@ -22,7 +24,9 @@ public class GraphqlManifesFieldFactory {
               Map<String, Object> result = new HashMap<>();
               result.put(IMPLEMENTATION_VERSION, Version.getImplementationVersion());
               result.put(SPECIFICATION_VERSION, Version.getSpecificationVersion());
-              result.put(DATABASE_VERSION, db.getDatabaseVersion());
+              result.put(
+                  DATABASE_VERSION,
+                  getActiveDatabase(dataFetchingEnvironment, db).getDatabaseVersion());
               return result;
             })
         .type(
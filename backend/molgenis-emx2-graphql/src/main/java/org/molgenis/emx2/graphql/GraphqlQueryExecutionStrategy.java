@@ -0,0 +1,104 @@
+package org.molgenis.emx2.graphql;
+
+import graphql.ExecutionResult;
+import graphql.ExecutionResultImpl;
+import graphql.GraphQLContext;
+import graphql.execution.AsyncExecutionStrategy;
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStrategyParameters;
+import graphql.execution.FieldValueInfo;
+import graphql.execution.NonNullableFieldWasNullException;
+import graphql.schema.DataFetchingEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.molgenis.emx2.Query;
+import org.molgenis.emx2.sql.SqlQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Query execution that retrieves the table queries of the top level fields, e.g. 'Pet', 'Pet_agg'
+ * and 'Order', using one statement once all fields are fetched, see {@link #retrieveJSON}. Takes
+ * {@link GraphqlRawJson} fetched for a field as its complete value, instead of resolving the
+ * selected fields from it.
+ */
+class GraphqlQueryExecutionStrategy extends AsyncExecutionStrategy {
+  private static final Logger logger = LoggerFactory.getLogger(GraphqlQueryExecutionStrategy.class);
+  // key of the queries of the top level fields in the graphql context
+  private static final String CONTEXT_QUERY_BATCH = "molgenisQueryBatch";
+
+  private record BatchedQuery(Query query, CompletableFuture<String> json) {}
+
+  /**
+   * The json of the query, see {@link Query#retrieveJSONWithoutNulls()}. When fetching top level
+   * fields using this strategy, it is retrieved together with the queries of the other fields.
+   */
+  static CompletableFuture<String> retrieveJSON(
+      DataFetchingEnvironment dataFetchingEnvironment, Query query) {
+    List<BatchedQuery> batch = dataFetchingEnvironment.getGraphQlContext().get(CONTEXT_QUERY_BATCH);
+    if (batch == null) {
+      return CompletableFuture.completedFuture(query.retrieveJSONWithoutNulls());
+    }
+    CompletableFuture<String> json = new CompletableFuture<>();
+    batch.add(new BatchedQuery(query, json));
+    return json;
+  }
+
+  @Override
+  public CompletableFuture<ExecutionResult> execute(
+      ExecutionContext executionContext, ExecutionStrategyParameters parameters)
+      throws NonNullableFieldWasNullException {
+    if (!parameters.getPath().isRootPath()) {
+      return super.execute(executionContext, parameters);
+    }
+    List<BatchedQuery> batch = new ArrayList<>();
+    GraphQLContext context = executionContext.getGraphQLContext();
+    context.put(CONTEXT_QUERY_BATCH, batch);
+    CompletableFuture<ExecutionResult> result;
+    try {
+      // fetches the fields, which adds their queries to the batch
+      result = super.execute(executionContext, parameters);
+    } finally {
+      context.delete(CONTEXT_QUERY_BATCH);
+    }
+    retrieveBatch(batch);
+    return result;
+  }
+
+  private static void retrieveBatch(List<BatchedQuery> batch) {
+    if (batch.size() > 1) {
+      try {
+        List<String> json =
+            SqlQuery.retrieveJSONWithoutNulls(batch.stream().map(BatchedQuery::query).toList());
+        for (int i = 0; i < batch.size(); i++) {
+          batch.get(i).json().complete(json.get(i));
+        }
+        return;
+      } catch (Exception e) {
+        // retrieve separately, so the error is reported for the field that caused it
+        logger.debug("retrieving queries in one statement failed: {}", e.getMessage());
+      }
+    }
+    for (BatchedQuery batchedQuery : batch) {
+      try {
+        batchedQuery.json().complete(batchedQuery.query().retrieveJSONWithoutNulls());
+      } catch (Exception e) {
+        batchedQuery.json().completeExceptionally(e);
+      }
+    }
+  }
+
+  @Override
+  protected FieldValueInfo completeValue(
+      ExecutionContext executionContext, ExecutionStrategyParameters parameters) {
+    if (parameters.getSource() instanceof GraphqlRawJson rawJson) {
+      return FieldValueInfo.newFieldValueInfo(FieldValueInfo.CompleteValueType.SCALAR)
+          .fieldValue(
+              CompletableFuture.completedFuture(
+                  new ExecutionResultImpl(rawJson, executionContext.getErrors())))
+          .build();
+    }
+    return super.completeValue(executionContext, parameters);
+  }
+}
@@ -0,0 +1,50 @@
+package org.molgenis.emx2.graphql;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import java.io.IOException;
+
+/**
+ * Json of a query result as produced by the database. It is written into the response as is, see
+ * {@link GraphqlApiFactory#convertExecutionResultToJson}, instead of being parsed into maps for
+ * graphql to walk and serialized again.
+ */
+class GraphqlRawJson extends JsonSerializable.Base {
+  private final String json;
+
+  private GraphqlRawJson(String json) {
+    this.json = json;
+  }
+
+  /**
+   * the value of the single field of a json object, i.e. '[...]' of '{"Pet": [...]}', or null if
+   * the object is empty
+   */
+  static GraphqlRawJson ofRootField(String json) {
+    // the field name is a table identifier, so doesn't contain ':'
+    int colon = json != null ? json.indexOf(':') : -1;
+    if (colon < 0) {
+      return null;
+    }
+    return new GraphqlRawJson(json.substring(colon + 1, json.lastIndexOf('}')).trim());
+  }
+
+  @Override
+  public void serialize(JsonGenerator generator, SerializerProvider provider) throws IOException {
+    generator.writeRawValue(json);
+  }
+
+  @Override
+  public void serializeWithType(
+      JsonGenerator generator, SerializerProvider provider, TypeSerializer typeSerializer)
+      throws IOException {
+    serialize(generator, provider);
+  }
+
+  @Override
+  public String toString() {
+    return json;
+  }
+}
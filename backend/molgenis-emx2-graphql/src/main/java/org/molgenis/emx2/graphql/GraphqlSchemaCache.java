@@ -0,0 +1,199 @@
+package org.molgenis.emx2.graphql;
+
+import static org.molgenis.emx2.ColumnType.INT;
+import static org.molgenis.emx2.Constants.MOLGENIS_GRAPHQL_CACHE_SIZE;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.CONTEXT_SCHEMA;
+
+import graphql.ExecutionInput;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecutionParameters;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.sql.SqlDatabase;
+import org.molgenis.emx2.tasks.TaskService;
+import org.molgenis.emx2.utils.EnvironmentProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of graphql per schema, shared between all sessions. A graphql for a schema only depends on
+ * the schema metadata and the roles of the user, therefore it is cached per (schema, metadata
+ * version, roles) and the active user is bound at execution time through the graphql context, see
+ * {@link GraphqlApiFactory#newExecutionInput(String, Schema)}. Least recently used graphql are
+ * evicted when the cache is full.
+ *
+ * <p>Each cached graphql also caches its parsed and validated queries, so callers that execute the
+ * same query with different variables skip parsing and validation altogether.
+ */
+public class GraphqlSchemaCache {
+  private static final Logger logger = LoggerFactory.getLogger(GraphqlSchemaCache.class);
+  private static final int DEFAULT_MAX_SIZE = 100;
+  private static final int MAX_DOCUMENTS_PER_GRAPHQL = 100;
+  private static final GraphqlSchemaCache instance =
+      new GraphqlSchemaCache(
+          (Integer)
+              EnvironmentProperty.getParameter(MOLGENIS_GRAPHQL_CACHE_SIZE, DEFAULT_MAX_SIZE, INT));
+
+  private final Map<Key, GraphQL> cache;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private record Key(
+      String schemaName,
+      long version,
+      List<String> roles,
+      boolean admin,
+      boolean anonymous,
+      TaskService taskService) {}
+
+  public GraphqlSchemaCache(int maxSize) {
+    this.cache =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Key, GraphQL> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /** the cache shared by all sessions */
+  public static GraphqlSchemaCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns graphql for the schema and roles of its active user. Must be executed using {@link
+   * GraphqlApiFactory#newExecutionInput(String, Schema)}.
+   */
+  public GraphQL getGraphqlForSchema(Schema schema, TaskService taskService) {
+    // the metadata of the schema object might be outdated, so get current from its database
+    Schema current = schema.getDatabase().getSchema(schema.getName());
+    Key key = current != null ? createKey(current, taskService) : null;
+    if (key == null) {
+      // e.g. uncommitted metadata in a transaction, cannot be shared
+      misses.incrementAndGet();
+      return new GraphqlApiFactory().createGraphqlForSchema(schema, taskService);
+    }
+    synchronized (cache) {
+      GraphQL graphql = cache.get(key);
+      if (graphql != null) {
+        hits.incrementAndGet();
+        return graphql;
+      }
+    }
+    // create outside lock because it can take a while for large schemas
+    misses.incrementAndGet();
+    GraphQL graphql =
+        new GraphqlApiFactory()
+            .createGraphqlForSchema(current, taskService)
+            .transform(
+                builder ->
+                    builder
+                        .instrumentation(new RequireSchemaInContext())
+                        .preparsedDocumentProvider(new DocumentCache()));
+    synchronized (cache) {
+      cache.put(key, graphql);
+    }
+    if (logger.isInfoEnabled()) {
+      logger.info(
+          "cached graphql for schema '{}' and roles {} (hits={}, misses={}, size={})",
+          key.schemaName(),
+          key.roles(),
+          getHitCount(),
+          getMissCount(),
+          getSize());
+    }
+    return graphql;
+  }
+
+  private static Key createKey(Schema schema, TaskService taskService) {
+    if (!(schema.getDatabase() instanceof SqlDatabase database)) {
+      return null;
+    }
+    Long version = database.getSchemaVersion(schema.getName());
+    if (version == null) {
+      return null;
+    }
+    return new Key(
+        schema.getName(),
+        version,
+        List.copyOf(schema.getInheritedRolesForActiveUser()),
+        database.isAdmin(),
+        database.isAnonymous(),
+        taskService);
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public int getSize() {
+    synchronized (cache) {
+      return cache.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (cache) {
+      cache.clear();
+    }
+  }
+
+  /** Caches parsed and validated queries, which only depend on the graphql schema */
+  private static class DocumentCache implements PreparsedDocumentProvider {
+    private final Map<String, PreparsedDocumentEntry> documents =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, PreparsedDocumentEntry> eldest) {
+            return size() > MAX_DOCUMENTS_PER_GRAPHQL;
+          }
+        };
+
+    @Override
+    public PreparsedDocumentEntry getDocument(
+        ExecutionInput executionInput,
+        Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+      String query = executionInput.getQuery();
+      synchronized (documents) {
+        PreparsedDocumentEntry entry = documents.get(query);
+        if (entry != null) {
+          return entry;
+        }
+      }
+      PreparsedDocumentEntry entry = parseAndValidateFunction.apply(executionInput);
+      if (!entry.hasErrors()) {
+        synchronized (documents) {
+          documents.put(query, entry);
+        }
+      }
+      return entry;
+    }
+  }
+
+  /** Prevents that a shared graphql is executed on behalf of the user that happened to create it */
+  private static class RequireSchemaInContext extends SimplePerformantInstrumentation {
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecution(
+        InstrumentationExecutionParameters parameters, InstrumentationState state) {
+      if (!parameters.getGraphQLContext().hasKey(CONTEXT_SCHEMA)) {
+        throw new GraphqlException(
+            "Internal error: shared graphql must be executed with schema bound in its context");
+      }
+      return super.beginExecution(parameters, state);
+    }
+  }
+}
@@ -2,6 +2,7 @@ package org.molgenis.emx2.graphql;
 
 import static org.molgenis.emx2.Constants.*;
 import static org.molgenis.emx2.graphql.GraphlAdminFieldFactory.mapSettingsToGraphql;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getActiveSchema;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.Status.SUCCESS;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.typeForMutationResult;
 import static org.molgenis.emx2.graphql.GraphqlConstants.*;
@@ -9,10 +10,12 @@ import static org.molgenis.emx2.graphql.GraphqlConstants.INHERITED;
 import static org.molgenis.emx2.graphql.GraphqlConstants.KEY;
 import static org.molgenis.emx2.json.JsonUtil.jsonToSchema;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import graphql.Scalars;
 import graphql.schema.*;
 import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -20,8 +23,10 @@ import java.util.Map;
 import java.util.stream.Stream;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.json.JsonUtil;
+import org.molgenis.emx2.sql.ReportCache;
 import org.molgenis.emx2.sql.SqlDatabase;
 import org.molgenis.emx2.sql.SqlSchemaMetadata;
+import org.molgenis.emx2.utils.TypeUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -93,6 +98,7 @@ public class GraphqlSchemaFieldFactory {
               GraphQLFieldDefinition.newFieldDefinition()
                   .name(NEW_ROW_DATA)
                   .type(Scalars.GraphQLString))
+          .field(GraphQLFieldDefinition.newFieldDefinition().name(ID).type(Scalars.GraphQLString))
           .build();
 
   private static final GraphQLInputObjectType inputDropColumnType =
@@ -481,12 +487,13 @@ public class GraphqlSchemaFieldFactory {
     // hide constructor
   }
 
-  private static DataFetcher<?> queryFetcher(Schema schema) {
+  private static DataFetcher<?> queryFetcher(Schema defaultSchema) {
     return dataFetchingEnvironment -> {
+      Schema schema = getActiveSchema(dataFetchingEnvironment, defaultSchema);
 
       // add tables
       String json = JsonUtil.schemaToJson(schema.getMetadata(), false);
-      Map<String, Object> result = new ObjectMapper().readValue(json, Map.class);
+      Map<String, Object> result = JsonUtil.getMapReader().readValue(json);
 
       // add members
       List<Map<String, String>> members = new ArrayList<>();
@@ -514,8 +521,9 @@ public class GraphqlSchemaFieldFactory {
     };
   }
 
-  private static DataFetcher<?> dropFetcher(Schema schema) {
+  private static DataFetcher<?> dropFetcher(Schema defaultSchema) {
     return dataFetchingEnvironment -> {
+      Schema schema = getActiveSchema(dataFetchingEnvironment, defaultSchema);
       StringBuilder message = new StringBuilder();
       schema
           .getDatabase()
@@ -536,8 +544,9 @@ public class GraphqlSchemaFieldFactory {
     };
   }
 
-  private static DataFetcher<?> truncateFetcher(Schema schema) {
+  private static DataFetcher<?> truncateFetcher(Schema defaultSchema) {
     return dataFetchingEnvironment -> {
+      Schema schema = getActiveSchema(dataFetchingEnvironment, defaultSchema);
       StringBuilder message = new StringBuilder();
       schema
           .getDatabase()
@@ -633,16 +642,35 @@ public class GraphqlSchemaFieldFactory {
         .dataFetcher(
             dataFetchingEnvironment -> {
               int limit = dataFetchingEnvironment.getArgumentOrDefault("limit", 100);
-              return schema.getChanges(limit);
+              return getActiveSchema(dataFetchingEnvironment, schema)
+                  .getChanges(
+                      dataFetchingEnvironment.getArgument(TABLENAME),
+                      toTimestamp(dataFetchingEnvironment.getArgument(SINCE)),
+                      toTimestamp(dataFetchingEnvironment.getArgument(UNTIL)),
+                      toTimestamp(dataFetchingEnvironment.getArgument(AFTER_STAMP)),
+                      TypeUtils.toLong(dataFetchingEnvironment.getArgument(AFTER_ID)),
+                      limit);
             })
-        .argument(GraphQLArgument.newArgument().name(LIMIT).type(Scalars.GraphQLInt));
+        .argument(GraphQLArgument.newArgument().name(LIMIT).type(Scalars.GraphQLInt))
+        .argument(GraphQLArgument.newArgument().name(TABLENAME).type(Scalars.GraphQLString))
+        .argument(GraphQLArgument.newArgument().name(SINCE).type(Scalars.GraphQLString))
+        .argument(GraphQLArgument.newArgument().name(UNTIL).type(Scalars.GraphQLString))
+        .argument(GraphQLArgument.newArgument().name(AFTER_STAMP).type(Scalars.GraphQLString))
+        .argument(GraphQLArgument.newArgument().name(AFTER_ID).type(Scalars.GraphQLString));
+  }
+
+  private static Timestamp toTimestamp(String value) {
+    LocalDateTime dateTime = TypeUtils.toDateTime(value);
+    return dateTime != null ? Timestamp.valueOf(dateTime) : null;
   }
 
   public GraphQLFieldDefinition.Builder changeLogCountQuery(Schema schema) {
     return GraphQLFieldDefinition.newFieldDefinition()
         .name("_changesCount")
         .type(Scalars.GraphQLInt)
-        .dataFetcher(dataFetchingEnvironment -> schema.getChangesCount());
+        .dataFetcher(
+            dataFetchingEnvironment ->
+                getActiveSchema(dataFetchingEnvironment, schema).getChangesCount());
   }
 
   public GraphQLFieldDefinition.Builder settingsQuery(Schema schema) {
@@ -659,9 +687,10 @@ public class GraphqlSchemaFieldFactory {
                   dataFetchingEnvironment.getArgumentOrDefault(KEYS, new ArrayList<>());
               final boolean includePages =
                   selectedKeys.stream().anyMatch(selectedKey -> selectedKey.startsWith("page."));
+              final Schema activeSchema = getActiveSchema(dataFetchingEnvironment, schema);
 
               return Stream.concat(
-                      schema.getMetadata().getSettings().entrySet().stream()
+                      activeSchema.getMetadata().getSettings().entrySet().stream()
                           .filter(
                               setting ->
                                   selectedKeys.isEmpty()
@@ -673,7 +702,7 @@ public class GraphqlSchemaFieldFactory {
                               "key",
                               IS_OIDC_ENABLED,
                               VALUE,
-                              String.valueOf(schema.getDatabase().isOidcEnabled()))))
+                              String.valueOf(activeSchema.getDatabase().isOidcEnabled()))))
                   .toList();
             });
   }
@@ -702,8 +731,9 @@ public class GraphqlSchemaFieldFactory {
         .build();
   }
 
-  private DataFetcher<?> changeFetcher(Schema schema) {
+  private DataFetcher<?> changeFetcher(Schema defaultSchema) {
     return dataFetchingEnvironment -> {
+      Schema schema = getActiveSchema(dataFetchingEnvironment, defaultSchema);
       schema
           .getDatabase()
           .tx(
@@ -862,8 +892,9 @@ public class GraphqlSchemaFieldFactory {
             dataFetchingEnvironment -> {
               Integer id = null;
               Map<String, Object> result = new LinkedHashMap<>();
+              Schema activeSchema = getActiveSchema(dataFetchingEnvironment, schema);
               try {
-                String reportsJson = schema.getMetadata().getSetting("reports");
+                String reportsJson = activeSchema.getMetadata().getSetting("reports");
                 logger.info("REPORT value: " + reportsJson);
                 if (reportsJson != null) {
                   id = dataFetchingEnvironment.getArgument(ID);
@@ -871,16 +902,26 @@ public class GraphqlSchemaFieldFactory {
                   Integer limit = dataFetchingEnvironment.getArgumentOrDefault(LIMIT, 10);
                   Map<String, String> parameters =
                       convertKeyValueListToMap(dataFetchingEnvironment.getArgument(PARAMETERS));
-                  List<Map<String, Object>> reportList =
-                      new ObjectMapper().readValue(reportsJson, List.class);
-                  Map<String, Object> report = reportList.get(id);
-                  String sql = report.get("sql") + " LIMIT " + limit + " OFFSET " + offset;
-                  String countSql =
-                      String.format("select count(*) from (%s) as count", report.get("sql"));
-                  result.put(DATA, convertToJson(schema.retrieveSql(sql, parameters)));
+                  ReportCache cache = ReportCache.getInstance();
+                  Map<String, Object> report = cache.getReports(reportsJson).get(id);
+                  String reportSql = (String) report.get("sql");
+                  if (Boolean.TRUE.equals(report.get("materialized"))) {
+                    reportSql = cache.materialize(activeSchema, id, reportSql);
+                  }
+                  // optional time to live of cached results, in seconds
+                  Duration ttl =
+                      Duration.ofSeconds(
+                          report.get("ttl") instanceof Number seconds ? seconds.longValue() : 0);
+                  String sql = reportSql + " LIMIT " + limit + " OFFSET " + offset;
+                  String countSql = String.format("select count(*) from (%s) as count", reportSql);
+                  result.put(
+                      DATA, convertToJson(cache.retrieveSql(activeSchema, sql, parameters, ttl)));
                   result.put(
                       COUNT,
-                      schema.retrieveSql(countSql, parameters).get(0).get("count", Integer.class));
+                      cache
+                          .retrieveSql(activeSchema, countSql, parameters, ttl)
+                          .get(0)
+                          .get("count", Integer.class));
                 }
                 return result;
               } catch (Exception e) {
@@ -896,7 +937,7 @@ public class GraphqlSchemaFieldFactory {
       for (Row row : rows) {
         result.add(row.getValueMap());
       }
-      return new ObjectMapper().writeValueAsString(result);
+      return JsonUtil.getJsonMapper().writeValueAsString(result);
     } catch (Exception e) {
       throw new MolgenisException("Cannot convert sql result set to json", e);
     }
@@ -2,6 +2,8 @@ package org.molgenis.emx2.graphql;
 
 import static org.molgenis.emx2.Constants.SETTINGS;
 import static org.molgenis.emx2.graphql.GraphlAdminFieldFactory.mapSettingsToGraphql;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getActiveDatabase;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getActiveSchema;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.Status.FAILED;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.Status.SUCCESS;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.typeForMutationResult;
@@ -30,8 +32,9 @@ public class GraphqlSessionFieldFactory {
         .type(GraphqlApiMutationResult.typeForMutationResult)
         .dataFetcher(
             dataFetchingEnvironment -> {
-              String user = database.getActiveUser();
-              database.setActiveUser(GraphqlConstants.ANONYMOUS);
+              Database activeDatabase = getActiveDatabase(dataFetchingEnvironment, database);
+              String user = activeDatabase.getActiveUser();
+              activeDatabase.setActiveUser(GraphqlConstants.ANONYMOUS);
               return new GraphqlApiMutationResult(
                   GraphqlApiMutationResult.Status.SUCCESS, "User '%s' has signed out", user);
             })
@@ -54,10 +57,11 @@ public class GraphqlSessionFieldFactory {
               if (passWord.length() < 8) {
                 return new GraphqlApiMutationResult(FAILED, "Password too short");
               }
-              if (database.hasUser(userName)) {
+              Database activeDatabase = getActiveDatabase(dataFetchingEnvironment, database);
+              if (activeDatabase.hasUser(userName)) {
                 return new GraphqlApiMutationResult(FAILED, "Email already exists");
               }
-              database.tx(
+              activeDatabase.tx(
                   db -> {
                     // uplift permissions
                     String activeUser = db.getActiveUser();
@@ -87,12 +91,14 @@ public class GraphqlSessionFieldFactory {
               String userName = dataFetchingEnvironment.getArgument(EMAIL);
               String passWord = dataFetchingEnvironment.getArgument(PASSWORD);
 
-              if (database.hasUser(userName) && database.checkUserPassword(userName, passWord)) {
-                database.setActiveUser(userName);
+              Database activeDatabase = getActiveDatabase(dataFetchingEnvironment, database);
+              if (activeDatabase.hasUser(userName)
+                  && activeDatabase.checkUserPassword(userName, passWord)) {
+                activeDatabase.setActiveUser(userName);
                 GraphqlApiMutationResultWithToken result =
                     new GraphqlApiMutationResultWithToken(
                         GraphqlApiMutationResult.Status.SUCCESS,
-                        JWTgenerator.createTemporaryToken(database, userName),
+                        JWTgenerator.createTemporaryToken(activeDatabase, userName),
                         "Signed in as '%s'",
                         userName);
                 return result;
@@ -132,18 +138,27 @@ public class GraphqlSessionFieldFactory {
                         .type(Scalars.GraphQLString)))
         .dataFetcher(
             dataFetchingEnvironment -> {
+              Database activeDatabase = getActiveDatabase(dataFetchingEnvironment, database);
               Map<String, Object> result = new LinkedHashMap<>();
               result.put(
-                  EMAIL, database.getActiveUser() != null ? database.getActiveUser() : "anonymous");
+                  EMAIL,
+                  activeDatabase.getActiveUser() != null
+                      ? activeDatabase.getActiveUser()
+                      : "anonymous");
               if (schema != null) {
-                result.put(ROLES, schema.getInheritedRolesForActiveUser());
+                result.put(
+                    ROLES,
+                    getActiveSchema(dataFetchingEnvironment, schema)
+                        .getInheritedRolesForActiveUser());
               }
-              result.put(SCHEMAS, database.getSchemaNames());
-              User user = database.getUser(database.getActiveUser());
+              result.put(SCHEMAS, activeDatabase.getSchemaNames());
+              User user = activeDatabase.getUser(activeDatabase.getActiveUser());
               result.put(
                   SETTINGS, user != null ? mapSettingsToGraphql(user.getSettings()) : Map.of());
               result.put(
-                  TOKEN, JWTgenerator.createTemporaryToken(database, database.getActiveUser()));
+                  TOKEN,
+                  JWTgenerator.createTemporaryToken(
+                      activeDatabase, activeDatabase.getActiveUser()));
               return result;
             })
         .build();
@@ -161,13 +176,14 @@ public class GraphqlSessionFieldFactory {
             dataFetchingEnvironment -> {
               String tokenId = dataFetchingEnvironment.getArgument(TOKEN_NAME);
               String userName = dataFetchingEnvironment.getArgument(EMAIL);
-              if (!database.isAdmin() && !userName.equals(database.getActiveUser())) {
+              Database activeDatabase = getActiveDatabase(dataFetchingEnvironment, database);
+              if (!activeDatabase.isAdmin() && !userName.equals(activeDatabase.getActiveUser())) {
                 throw new MolgenisException(
                     "Create token failed: Only admins can create tokens for other users");
               }
               return new GraphqlApiMutationResultWithToken(
                   GraphqlApiMutationResult.Status.SUCCESS,
-                  JWTgenerator.createNamedTokenForUser(database, userName, tokenId),
+                  JWTgenerator.createNamedTokenForUser(activeDatabase, userName, tokenId),
                   "Token '%s' created for user '%s'",
                   tokenId,
                   userName);
@@ -189,11 +205,12 @@ public class GraphqlSessionFieldFactory {
             dataFetchingEnvironment -> {
               String password = dataFetchingEnvironment.getArgument(PASSWORD);
               String username = dataFetchingEnvironment.getArgument(EMAIL);
+              Database activeDatabase = getActiveDatabase(dataFetchingEnvironment, database);
               if (username == null) {
-                username = database.getActiveUser();
+                username = activeDatabase.getActiveUser();
               }
               if (password != null) {
-                database.setUserPassword(username, password);
+                activeDatabase.setUserPassword(username, password);
                 return new GraphqlApiMutationResult(SUCCESS, "Password changed");
               } else {
                 return new GraphqlApiMutationResult(FAILED, "Password not changed: empty");
@@ -1,8 +1,12 @@
 package org.molgenis.emx2.graphql;
 
 import static graphql.scalars.ExtendedScalars.GraphQLLong;
+import static org.molgenis.emx2.Constants.MG_CURSOR;
+import static org.molgenis.emx2.Constants.SEARCH_SCORE;
 import static org.molgenis.emx2.FilterBean.*;
 import static org.molgenis.emx2.Privileges.VIEWER;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.CONTEXT_RAW_JSON;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.getActiveSchema;
 import static org.molgenis.emx2.graphql.GraphqlApiFactory.transform;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.Status.SUCCESS;
 import static org.molgenis.emx2.graphql.GraphqlApiMutationResult.typeForMutationResult;
@@ -11,6 +15,7 @@ import static org.molgenis.emx2.sql.SqlQuery.*;
 
 import graphql.Scalars;
 import graphql.schema.*;
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.molgenis.emx2.*;
@@ -41,6 +46,29 @@ public class GraphqlTableFieldFactory {
               GraphQLFieldDefinition.newFieldDefinition().name("url").type(Scalars.GraphQLString))
           .build();
   final List<String> agg_fields = List.of("max", "min", SUM_FIELD, "avg");
+  // types of which the json of the database equals the graphql result
+  private static final Set<ColumnType> RAW_JSON_TYPES =
+      EnumSet.of(
+          ColumnType.BOOL,
+          ColumnType.BOOL_ARRAY,
+          ColumnType.STRING,
+          ColumnType.STRING_ARRAY,
+          ColumnType.TEXT,
+          ColumnType.TEXT_ARRAY,
+          ColumnType.EMAIL,
+          ColumnType.EMAIL_ARRAY,
+          ColumnType.HYPERLINK,
+          ColumnType.HYPERLINK_ARRAY,
+          ColumnType.UUID,
+          ColumnType.UUID_ARRAY,
+          ColumnType.DATE,
+          ColumnType.DATE_ARRAY,
+          ColumnType.DATETIME,
+          ColumnType.DATETIME_ARRAY,
+          ColumnType.INT,
+          ColumnType.INT_ARRAY,
+          ColumnType.DECIMAL,
+          ColumnType.DECIMAL_ARRAY);
   private final Schema schema;
 
   // cache so we can reuse types between tables
@@ -95,6 +123,11 @@ public class GraphqlTableFieldFactory {
                 .name(GraphqlConstants.OFFSET)
                 .type(Scalars.GraphQLInt)
                 .build())
+        .argument(
+            GraphQLArgument.newArgument()
+                .name(GraphqlConstants.AFTER)
+                .type(Scalars.GraphQLString)
+                .build())
         .argument(
             GraphQLArgument.newArgument()
                 .name(GraphqlConstants.ORDERBY)
@@ -246,6 +279,11 @@ public class GraphqlTableFieldFactory {
                               .name(GraphqlConstants.OFFSET)
                               .type(Scalars.GraphQLInt)
                               .build())
+                      .argument(
+                          GraphQLArgument.newArgument()
+                              .name(GraphqlConstants.AFTER)
+                              .type(Scalars.GraphQLString)
+                              .build())
                       .argument(
                           GraphQLArgument.newArgument()
                               .name(GraphqlConstants.ORDERBY)
@@ -276,6 +314,14 @@ public class GraphqlTableFieldFactory {
                 "Not yet implemented type " + col.getColumnType());
         }
       }
+      // opaque cursor for keyset pagination using 'after'
+      tableBuilder.field(
+          GraphQLFieldDefinition.newFieldDefinition().name(MG_CURSOR).type(Scalars.GraphQLString));
+      // rank of the row when using 'search', otherwise null
+      tableBuilder.field(
+          GraphQLFieldDefinition.newFieldDefinition()
+              .name(SEARCH_SCORE)
+              .type(Scalars.GraphQLFloat));
       tableTypes.put(tableObjectType, tableBuilder.build());
     }
     return tableTypes.get(tableObjectType);
@@ -455,6 +501,8 @@ public class GraphqlTableFieldFactory {
                 .name(col.getIdentifier())
                 .type(orderByEnum));
       }
+      orderByBuilder.field(
+          GraphQLInputObjectField.newInputObjectField().name(SEARCH_SCORE).type(orderByEnum));
       tableOrderByInputTypes.put(tableOrderByInputType, orderByBuilder.build());
     }
     return tableOrderByInputTypes.get(tableOrderByInputType);
@@ -644,6 +692,9 @@ public class GraphqlTableFieldFactory {
             if (args.containsKey(GraphqlConstants.OFFSET)) {
               sc.setOffset((int) args.get(GraphqlConstants.OFFSET));
             }
+            if (args.containsKey(GraphqlConstants.AFTER)) {
+              sc.setAfter((String) args.get(GraphqlConstants.AFTER));
+            }
             if (args.containsKey(GraphqlConstants.ORDERBY)) {
               TableMetadata orderByTable =
                   column.get().isReference() ? column.get().getRefTable() : column.get().getTable();
@@ -660,6 +711,33 @@ public class GraphqlTableFieldFactory {
     return result.toArray(new SelectColumn[result.size()]);
   }
 
+  /**
+   * True if graphql would return the json of the database unchanged, i.e. the selection has no
+   * aliases and only columns that graphql doesn't convert, unlike for example LONG that is returned
+   * as string or FILE that gets an url.
+   */
+  private static boolean isRawJsonSelection(
+      TableMetadata aTable, DataFetchingFieldSelectionSet selection) {
+    for (SelectedField s : selection.getImmediateFields()) {
+      if (s.getAlias() != null && !s.getAlias().equals(s.getName())) {
+        return false;
+      }
+      Optional<Column> column = findColumnById(aTable, s.getName());
+      if (column.isEmpty()) {
+        if (!s.getName().equals(MG_CURSOR) && !s.getName().equals(SEARCH_SCORE)) {
+          return false;
+        }
+      } else if (column.get().isReference()) {
+        if (!isRawJsonSelection(column.get().getRefTable(), s.getSelectionSet())) {
+          return false;
+        }
+      } else if (!RAW_JSON_TYPES.contains(column.get().getColumnType().getBaseType())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private static Optional<Column> findColumnById(TableMetadata aTable, String id) {
     if (aTable != null) {
       return aTable.getColumns().stream()
@@ -676,7 +754,8 @@ public class GraphqlTableFieldFactory {
 
   private DataFetcher fetcherForTableQueryField(TableMetadata aTable) {
     return dataFetchingEnvironment -> {
-      Table table = aTable.getTable();
+      Table table =
+          getActiveSchema(dataFetchingEnvironment, schema).getTable(aTable.getTableName());
       Query q = table.query();
       String fieldName = dataFetchingEnvironment.getField().getName();
       if (fieldName.endsWith("_agg")) {
@@ -698,6 +777,9 @@ public class GraphqlTableFieldFactory {
       if (args.containsKey(GraphqlConstants.OFFSET)) {
         q.offset((int) args.get(GraphqlConstants.OFFSET));
       }
+      if (args.containsKey(GraphqlConstants.AFTER)) {
+        q.after((String) args.get(GraphqlConstants.AFTER));
+      }
       if (args.containsKey(GraphqlConstants.ORDERBY)) {
         q.orderBy(convertOrderByIdsToNames(aTable, args));
       }
@@ -707,16 +789,28 @@ public class GraphqlTableFieldFactory {
         q.search(search);
       }
 
-      Object result = transform(q.retrieveJSON());
-      // bit silly, we have to remove root field here. Some refactoring makes this look nicer
-      if (result != null) {
-        return ((Map<String, Object>) result).get(fieldName);
-      } else {
-        return null;
-      }
+      boolean rawJson =
+          Boolean.TRUE.equals(dataFetchingEnvironment.getGraphQlContext().get(CONTEXT_RAW_JSON))
+              && !fieldName.endsWith("_agg")
+              && !fieldName.endsWith("_groupBy")
+              && isRawJsonSelection(aTable, dataFetchingEnvironment.getSelectionSet());
+      // nulls can be left out, because graphql returns null for fields that are missing
+      return GraphqlQueryExecutionStrategy.retrieveJSON(dataFetchingEnvironment, q)
+          .thenApply(
+              json -> rawJson ? GraphqlRawJson.ofRootField(json) : getRootField(json, fieldName));
     };
   }
 
+  private static Object getRootField(String json, String fieldName) {
+    try {
+      Map<String, Object> result = (Map<String, Object>) transform(json);
+      // bit silly, we have to remove root field here. Some refactoring makes this look nicer
+      return result != null ? result.get(fieldName) : null;
+    } catch (IOException e) {
+      throw new MolgenisException("Parse of query result failed", e);
+    }
+  }
+
   private Map<String, Order> convertOrderByIdsToNames(
       TableMetadata aTable, Map<String, Object> args) {
     Map<String, Order> orderBy = (Map<String, Order>) args.get(ORDERBY);
@@ -725,6 +819,8 @@ public class GraphqlTableFieldFactory {
       Optional<Column> column = findColumnById(aTable, entry.getKey());
       if (column.isPresent()) {
         unescapedMap.put(column.get().getName(), entry.getValue());
+      } else if (SEARCH_SCORE.equals(entry.getKey())) {
+        unescapedMap.put(SEARCH_SCORE, entry.getValue());
       } else {
         throw new MolgenisException("Unknown order by column id: " + entry.getKey());
       }
@@ -784,8 +880,9 @@ public class GraphqlTableFieldFactory {
     return fieldBuilder.build();
   }
 
-  private DataFetcher fetcher(Schema schema, MutationType mutationType) {
+  private DataFetcher fetcher(Schema defaultSchema, MutationType mutationType) {
     return dataFetchingEnvironment -> {
+      Schema schema = getActiveSchema(dataFetchingEnvironment, defaultSchema);
       StringBuilder result = new StringBuilder();
       boolean any = false;
       for (TableMetadata tableMetadata : schema.getMetadata().getTables()) {
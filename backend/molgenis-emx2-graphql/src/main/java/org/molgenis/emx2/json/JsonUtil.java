@@ -5,11 +5,13 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.util.DefaultIndenter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.Map;
 import org.jooq.DSLContext;
 import org.molgenis.emx2.SchemaMetadata;
 import org.molgenis.emx2.TableMetadata;
@@ -23,9 +25,12 @@ public class JsonUtil {
 
   private static ObjectWriter writer;
   private static ObjectWriter yamlWriter;
+  // configured once, so can be shared between threads
+  private static final ObjectMapper jsonMapper = new ObjectMapper();
+  private static final ObjectReader mapReader = jsonMapper.readerFor(Map.class);
 
   public static org.molgenis.emx2.Column jsonToColumn(String json) throws IOException {
-    Column column = new ObjectMapper().readValue(json, Column.class);
+    Column column = jsonMapper.readValue(json, Column.class);
     return column.getColumnMetadata(null);
   }
 
@@ -35,7 +40,7 @@ public class JsonUtil {
   }
 
   public static SchemaMetadata jsonToSchema(String json) throws IOException {
-    Schema s = new ObjectMapper().readValue(json, Schema.class);
+    Schema s = jsonMapper.readValue(json, Schema.class);
     return s.getSchemaMetadata();
   }
 
@@ -57,6 +62,16 @@ public class JsonUtil {
     return out.toString();
   }
 
+  /** mapper for plain json, without the mixins of {@link #getWriter()} */
+  public static ObjectMapper getJsonMapper() {
+    return jsonMapper;
+  }
+
+  /** reader of json objects into maps */
+  public static ObjectReader getMapReader() {
+    return mapReader;
+  }
+
   public static ObjectWriter getYamlWriter() {
 
     if (yamlWriter == null) {
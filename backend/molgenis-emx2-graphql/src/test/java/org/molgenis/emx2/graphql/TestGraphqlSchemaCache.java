@@ -0,0 +1,81 @@
+package org.molgenis.emx2.graphql;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.TableMetadata.table;
+import static org.molgenis.emx2.graphql.GraphqlApiFactory.convertExecutionResultToJson;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import graphql.ExecutionResult;
+import graphql.GraphQL;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.molgenis.emx2.Database;
+import org.molgenis.emx2.Privileges;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.sql.SqlDatabase;
+import org.molgenis.emx2.sql.TestDatabaseFactory;
+
+public class TestGraphqlSchemaCache {
+  private static final String SCHEMA_NAME = TestGraphqlSchemaCache.class.getSimpleName();
+  private static final String VIEWER1 = "graphqlcache_viewer1";
+  private static final String VIEWER2 = "graphqlcache_viewer2";
+  private static final String MANAGER = "graphqlcache_manager";
+  private static Database database;
+
+  @BeforeAll
+  public static void setup() {
+    database = TestDatabaseFactory.getTestDatabase();
+    Schema schema = database.dropCreateSchema(SCHEMA_NAME);
+    schema.create(table("Pet", column("name").setPkey()));
+    schema.addMember(VIEWER1, Privileges.VIEWER.toString());
+    schema.addMember(VIEWER2, Privileges.VIEWER.toString());
+    schema.addMember(MANAGER, Privileges.MANAGER.toString());
+  }
+
+  private static Schema getSchemaAs(String user) {
+    Database db = new SqlDatabase(false);
+    db.setActiveUser(user);
+    return db.getSchema(SCHEMA_NAME);
+  }
+
+  @Test
+  public void testSharedBetweenUsersWithSameRoles() throws JsonProcessingException {
+    GraphqlSchemaCache cache = new GraphqlSchemaCache(10);
+    Schema viewer1 = getSchemaAs(VIEWER1);
+    Schema viewer2 = getSchemaAs(VIEWER2);
+
+    GraphQL graphql = cache.getGraphqlForSchema(viewer1, null);
+    assertSame(graphql, cache.getGraphqlForSchema(viewer2, null));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+
+    // other roles result in other graphql
+    assertNotSame(graphql, cache.getGraphqlForSchema(getSchemaAs(MANAGER), null));
+    assertEquals(2, cache.getSize());
+
+    // user is bound at execution time
+    ExecutionResult result =
+        graphql.execute(GraphqlApiFactory.newExecutionInput("{_session{email}}", viewer2));
+    assertTrue(convertExecutionResultToJson(result).contains(VIEWER2));
+
+    // shared graphql cannot be executed without binding the schema
+    assertThrows(GraphqlException.class, () -> graphql.execute("{_session{email}}"));
+  }
+
+  @Test
+  public void testMetadataChangeAndEviction() {
+    GraphqlSchemaCache cache = new GraphqlSchemaCache(1);
+    Schema viewer1 = getSchemaAs(VIEWER1);
+    GraphQL graphql = cache.getGraphqlForSchema(viewer1, null);
+
+    // metadata change results in new graphql, also for schema retrieved before the change
+    database.getSchema(SCHEMA_NAME).getTable("Pet").getMetadata().add(column("species"));
+    GraphQL changed = cache.getGraphqlForSchema(viewer1, null);
+    assertNotSame(graphql, changed);
+
+    // old one is evicted
+    assertEquals(1, cache.getSize());
+    assertSame(changed, cache.getGraphqlForSchema(getSchemaAs(VIEWER2), null));
+  }
+}
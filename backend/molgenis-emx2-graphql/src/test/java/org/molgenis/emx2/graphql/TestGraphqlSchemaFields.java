@@ -14,6 +14,7 @@ import static org.molgenis.emx2.utils.TypeUtils.convertToPascalCase;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import graphql.ExecutionInput;
+import graphql.ExecutionResult;
 import graphql.GraphQL;
 import java.io.IOException;
 import java.util.LinkedHashMap;
@@ -24,6 +25,9 @@ import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.datamodels.PetStoreLoader;
+import org.molgenis.emx2.sql.ReportCache;
+import org.molgenis.emx2.sql.ReportCacheTableListener;
+import org.molgenis.emx2.sql.SqlDatabase;
 import org.molgenis.emx2.sql.TestDatabaseFactory;
 import org.molgenis.emx2.tasks.Task;
 import org.molgenis.emx2.tasks.TaskService;
@@ -250,6 +254,11 @@ public class TestGraphqlSchemaFields {
             .at("/Pet/0/name")
             .textValue());
 
+    // search results have a score, and can be ordered by it
+    JsonNode scored = execute("{Pet(search:\"spike\",orderby:{_score:ASC}){name,_score}}");
+    assertTrue(scored.at("/Pet/0/_score").doubleValue() > 0);
+    assertFalse(execute("{Pet(limit:1){_score}}").at("/Pet/0/_score").isNumber());
+
     // or you can also search via filter
     assertEquals(
         "pooky",
@@ -261,6 +270,17 @@ public class TestGraphqlSchemaFields {
     assertEquals(
         "jerry", execute("{Pet(offset:1,orderby:{name:ASC}){name}}").at("/Pet/0/name").textValue());
 
+    // after, using the cursor of the previous page
+    String cursor =
+        execute("{Pet(limit:1,orderby:{name:ASC}){name,mg_cursor}}")
+            .at("/Pet/0/mg_cursor")
+            .textValue();
+    assertEquals(
+        "jerry",
+        execute("{Pet(limit:1,after:\"" + cursor + "\",orderby:{name:ASC}){name}}")
+            .at("/Pet/0/name")
+            .textValue());
+
     // limit
     assertEquals(1, execute("{Pet(limit:1){name}}").at("/Pet").size());
 
@@ -535,6 +555,10 @@ public class TestGraphqlSchemaFields {
   }
 
   private JsonNode execute(String query) throws IOException {
+    return execute(grapql, query);
+  }
+
+  private static JsonNode execute(GraphQL grapql, String query) throws IOException {
     String result = convertExecutionResultToJson(grapql.execute(query));
     JsonNode node = new ObjectMapper().readTree(result);
     if (node.get("errors") != null) {
@@ -842,4 +866,101 @@ public class TestGraphqlSchemaFields {
     assertTrue(result.at("/_reports/data").textValue().contains("spike"));
     assertEquals(1, result.at("/_reports/count").intValue());
   }
+
+  @Test
+  public void testRawJson() throws IOException {
+    String query =
+        "{Pet(orderby:{name:ASC}){name,status,category{name},tags{name,order},orders{orderId,complete}}}";
+    ExecutionResult raw =
+        grapql.execute(
+            GraphqlApiFactory.withRawJson(GraphqlApiFactory.newExecutionInput(query, schema)));
+    assertInstanceOf(GraphqlRawJson.class, ((Map<String, Object>) raw.getData()).get("Pet"));
+    ObjectMapper mapper = new ObjectMapper();
+    JsonNode rawResult = mapper.readTree(convertExecutionResultToJson(raw)).get("data");
+    // same values, though fields are in the order of the database
+    assertEquals(execute(query).at("/Pet"), rawResult.at("/Pet"));
+    assertEquals(8, rawResult.at("/Pet").size());
+
+    // graphql must change the json when using aliases or converted types
+    for (String fallback :
+        List.of(
+            "{Pet{name,label:name}}",
+            "{Pet{name,orders{quantity}}}",
+            "{User{username,pets_agg{count}}}",
+            "{Pet_agg{count}}")) {
+      ExecutionResult result =
+          grapql.execute(
+              GraphqlApiFactory.withRawJson(GraphqlApiFactory.newExecutionInput(fallback, schema)));
+      assertEquals(List.of(), result.getErrors());
+      assertFalse(
+          ((Map<String, Object>) result.getData()).values().iterator().next()
+              instanceof GraphqlRawJson,
+          fallback);
+    }
+  }
+
+  @Test
+  public void testBatchedQueries() throws IOException {
+    JsonNode result = execute("{Pet{name} Pet_agg{count} Order{orderId} Tag_groupBy{count}}");
+    assertEquals(8, result.at("/Pet").size());
+    assertEquals(8, result.at("/Pet_agg/count").intValue());
+    assertEquals(execute("{Order{orderId}}").at("/Order"), result.at("/Order"));
+    assertEquals(execute("{Tag_groupBy{count}}").at("/Tag_groupBy"), result.at("/Tag_groupBy"));
+
+    // error is reported for the field that caused it, the other fields are still retrieved
+    ExecutionResult withError = grapql.execute("{Pet(after:\"garbage\"){name} Tag{name}}");
+    assertEquals(1, withError.getErrors().size());
+    assertEquals(List.of("Pet"), withError.getErrors().get(0).getPath());
+    assertFalse(withError.getErrors().get(0).getMessage().contains("CompletionException"));
+    assertNotNull(((Map<String, Object>) withError.getData()).get("Tag"));
+  }
+
+  @Test
+  public void testReportCache() throws IOException, InterruptedException {
+    SqlDatabase db = (SqlDatabase) TestDatabaseFactory.getTestDatabase();
+    db.addTableListener(new ReportCacheTableListener());
+    Schema reportSchema = db.dropCreateSchema(schemaName + "Reports");
+    new PetStoreLoader().load(reportSchema, true);
+    reportSchema
+        .getMetadata()
+        .setSetting(
+            "reports",
+            "[{\"id\":0,\"name\":\"cached\",\"sql\":\"select count(*) as pets from \\\"Pet\\\"\",\"ttl\":3600},"
+                + "{\"id\":1,\"name\":\"materialized\",\"sql\":\"select name from \\\"Pet\\\"\",\"materialized\":true}]");
+    GraphQL graphql = new GraphqlApiFactory().createGraphqlForSchema(reportSchema, taskService);
+    ReportCache cache = ReportCache.getInstance();
+    String query = "{_reports(id:0){data,count}}";
+
+    // results are only cached once the schema metadata version is known
+    assertEquals("[{\"pets\":8}]", execute(graphql, query).at("/_reports/data").textValue());
+    assertEquals("[{\"pets\":8}]", execute(graphql, query).at("/_reports/data").textValue());
+    long hits = cache.getHitCount();
+    assertEquals("[{\"pets\":8}]", execute(graphql, query).at("/_reports/data").textValue());
+    assertEquals(hits + 2, cache.getHitCount());
+
+    // changing the table the report reads from removes the cached result
+    reportSchema.getTable("Pet").insert(row("name", "felix", "category", "cat", "weight", 4.2));
+    assertEquals("[{\"pets\":9}]", execute(graphql, query).at("/_reports/data").textValue());
+
+    // materialized report is rebuilt in the background
+    query = "{_reports(id:1){data,count}}";
+    assertEquals(9, execute(graphql, query).at("/_reports/count").intValue());
+    reportSchema.getTable("Pet").insert(row("name", "garfield", "category", "cat", "weight", 8.1));
+    int count = 0;
+    for (int i = 0; i < 50 && count != 10; i++) {
+      Thread.sleep(100);
+      count = execute(graphql, query).at("/_reports/count").intValue();
+    }
+    assertEquals(10, count);
+
+    // can be read by viewers, and doesn't block schema changes
+    db.setActiveUser(ANONYMOUS);
+    graphql =
+        new GraphqlApiFactory()
+            .createGraphqlForSchema(db.getSchema(reportSchema.getName()), taskService);
+    assertEquals(10, execute(graphql, query).at("/_reports/count").intValue());
+    db.becomeAdmin();
+    reportSchema.getTable("Pet").getMetadata().dropColumn("status");
+    db.dropSchema(reportSchema.getName());
+  }
 }
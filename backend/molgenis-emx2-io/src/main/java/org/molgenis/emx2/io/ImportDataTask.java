@@ -1,19 +1,28 @@
 package org.molgenis.emx2.io;
 
 import java.util.*;
-import org.molgenis.emx2.Schema;
-import org.molgenis.emx2.Table;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.molgenis.emx2.*;
 import org.molgenis.emx2.io.tablestore.TableStore;
 import org.molgenis.emx2.tasks.Task;
+import org.molgenis.emx2.utils.TableSort;
 
 /**
  * Task to import schema from a table store, i.e., will run ImportMetadataTask and for each table a
  * ImportTableTask.
  */
 public class ImportDataTask extends Task {
+  private static final int PARALLEL_THREADS =
+      Math.min(4, Runtime.getRuntime().availableProcessors());
   private final TableStore tableStore;
   private final Schema schema;
   private Set<String> includeTableNames;
+  private boolean bulk = false;
+  private Supplier<Database> parallelDatabases;
 
   public ImportDataTask(
       String description,
@@ -37,23 +46,48 @@ public class ImportDataTask extends Task {
     this("Import from store", store, schema, strict, includeTableNames);
   }
 
+  /** use copy instead of batched upserts, faster for large tables */
+  public ImportDataTask setBulk(boolean bulk) {
+    this.bulk = bulk;
+    return this;
+  }
+
+  /**
+   * Import tables that don't depend on each other concurrently, each using its own database from
+   * the supplier. Each table is imported in its own transaction, and tables are only started when
+   * all tables they depend on (via foreign keys or inheritance) are committed. When a table fails,
+   * no further tables are started and the import fails, but tables already committed stay
+   * committed. Therefore cannot be used within a transaction.
+   */
+  public ImportDataTask setParallel(Supplier<Database> parallelDatabases) {
+    this.parallelDatabases = parallelDatabases;
+    return this;
+  }
+
   @Override
   public void run() {
     this.start();
 
-    // create a task for each table
-    boolean skipped = true;
-
     // create task for the import, including subtasks for each sheet
-    for (Table table : schema.getTablesSorted()) {
-      if (tableStore.containsTable(table.getName())
-          && (includeTableNames == null || includeTableNames.contains(table.getName()))) {
-        ImportTableTask importTableTask = new ImportTableTask(tableStore, table, isStrict());
+    List<Table> tables =
+        schema.getTablesSorted().stream()
+            .filter(
+                table ->
+                    tableStore.containsTable(table.getName())
+                        && (includeTableNames == null
+                            || includeTableNames.contains(table.getName())))
+            .toList();
+    if (parallelDatabases != null) {
+      runParallel(tables);
+    } else {
+      for (Table table : tables) {
+        ImportTableTask importTableTask =
+            new ImportTableTask(tableStore, table, isStrict()).setBulk(bulk);
         this.addSubTask(importTableTask);
         importTableTask.run();
-        skipped = false;
       }
     }
+    boolean skipped = tables.isEmpty();
 
     // check what files we skipped
     Collection<String> tableNames = schema.getTableNames();
@@ -79,4 +113,62 @@ public class ImportDataTask extends Task {
     }
     this.complete();
   }
+
+  private void runParallel(List<Table> tables) {
+    if (schema.getDatabase().inTx()) {
+      throw new MolgenisException(
+          "Import failed: parallel import cannot run in a transaction, because the other databases cannot see its changes");
+    }
+    String user = schema.getDatabase().getActiveUser();
+    List<TableMetadata> metadata = tables.stream().map(Table::getMetadata).toList();
+    AtomicReference<String> error = new AtomicReference<>();
+    Map<String, CompletableFuture<Void>> imported = new HashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_THREADS);
+    try {
+      // tables are sorted by dependency, so the tables they depend on are already scheduled
+      for (Table table : tables) {
+        CompletableFuture<?>[] dependencies =
+            TableSort.getDependencies(table.getMetadata(), metadata).stream()
+                .map(dependency -> imported.get(dependency.getTableName()))
+                .toArray(CompletableFuture[]::new);
+        imported.put(
+            table.getName(),
+            CompletableFuture.allOf(dependencies)
+                .thenRunAsync(() -> importTable(table.getName(), user, error), executor));
+      }
+      CompletableFuture.allOf(imported.values().toArray(CompletableFuture[]::new)).join();
+    } finally {
+      executor.shutdown();
+    }
+    if (error.get() != null) {
+      this.setError("Import failed: " + error.get());
+      throw new MolgenisException("Import failed: " + error.get());
+    }
+  }
+
+  private void importTable(String tableName, String user, AtomicReference<String> error) {
+    if (error.get() != null) {
+      this.addSubTask("Skipped table " + tableName + ": import of other table failed").setSkipped();
+      return;
+    }
+    AtomicReference<Task> task = new AtomicReference<>();
+    try {
+      Database database = parallelDatabases.get();
+      database.setActiveUser(user);
+      database.tx(
+          db -> {
+            Table table = db.getSchema(schema.getName()).getTable(tableName);
+            task.set(new ImportTableTask(tableStore, table, isStrict()).setBulk(bulk));
+            this.addSubTask(task.get());
+            task.get().run();
+          });
+    } catch (Exception e) {
+      error.compareAndSet(null, "table " + tableName + ": " + e.getMessage());
+      if (task.get() == null) {
+        task.set(new Task("Import table " + tableName));
+        this.addSubTask(task.get());
+      }
+      task.get().setError("Import of table " + tableName + " failed: " + e.getMessage());
+    }
+  }
 }
@@ -1,6 +1,8 @@
 package org.molgenis.emx2.io;
 
 import java.util.Objects;
+import java.util.function.Supplier;
+import org.molgenis.emx2.Database;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.io.tablestore.TableStore;
 import org.molgenis.emx2.tasks.Task;
@@ -10,6 +12,8 @@ public class ImportSchemaTask<T extends ImportSchemaTask> extends Task<T> {
   private Schema schema;
   private String[] includeTableNames;
   private Filter filter = Filter.ALL;
+  private boolean bulk = false;
+  private Supplier<Database> parallelDatabases;
 
   public enum Filter {
     METADATA_ONLY,
@@ -42,8 +46,27 @@ public class ImportSchemaTask<T extends ImportSchemaTask> extends Task<T> {
     return this;
   }
 
+  /** use copy instead of batched upserts to import data, faster for large tables */
+  public ImportSchemaTask setBulk(boolean bulk) {
+    this.bulk = bulk;
+    return this;
+  }
+
+  /**
+   * import tables concurrently, each in its own transaction using a database from the supplier.
+   * Metadata is committed before the data is imported, see {@link ImportDataTask#setParallel}
+   */
+  public ImportSchemaTask setParallel(Supplier<Database> parallelDatabases) {
+    this.parallelDatabases = parallelDatabases;
+    return this;
+  }
+
   @Override
   public void run() {
+    if (parallelDatabases != null) {
+      runParallel();
+      return;
+    }
     this.start();
     Task commit = new Task("Committing");
     try {
@@ -59,7 +82,8 @@ public class ImportSchemaTask<T extends ImportSchemaTask> extends Task<T> {
             }
 
             if (!filter.equals(Filter.METADATA_ONLY)) {
-              Task dataTask = new ImportDataTask(s, tableStore, isStrict(), includeTableNames);
+              Task dataTask =
+                  new ImportDataTask(s, tableStore, isStrict(), includeTableNames).setBulk(bulk);
               this.addSubTask(dataTask);
               dataTask.run();
             }
@@ -74,4 +98,31 @@ public class ImportSchemaTask<T extends ImportSchemaTask> extends Task<T> {
     commit.complete();
     this.complete();
   }
+
+  private void runParallel() {
+    this.start();
+    try {
+      if (!filter.equals(Filter.DATA_ONLY)) {
+        schema.tx(
+            db -> {
+              Task metadataTask =
+                  new ImportMetadataTask(db.getSchema(schema.getName()), tableStore, isStrict());
+              this.addSubTask(metadataTask);
+              metadataTask.run();
+            });
+      }
+      if (!filter.equals(Filter.METADATA_ONLY)) {
+        Task dataTask =
+            new ImportDataTask(schema, tableStore, isStrict(), includeTableNames)
+                .setBulk(bulk)
+                .setParallel(parallelDatabases);
+        this.addSubTask(dataTask);
+        dataTask.run();
+      }
+    } catch (Exception e) {
+      this.setError("Import failed: " + e.getMessage());
+      throw e;
+    }
+    this.complete();
+  }
 }
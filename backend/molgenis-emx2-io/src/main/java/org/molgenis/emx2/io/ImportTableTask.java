@@ -1,6 +1,7 @@
 package org.molgenis.emx2.io;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.jooq.Field;
 import org.molgenis.emx2.*;
@@ -13,6 +14,7 @@ import org.molgenis.emx2.tasks.TaskStatus;
 public class ImportTableTask extends Task {
   private Table table;
   private TableStore source;
+  private boolean bulk = false;
 
   public ImportTableTask(TableStore source, Table table, boolean strict) {
     super("Import table " + table.getName(), strict);
@@ -22,19 +24,32 @@ public class ImportTableTask extends Task {
     this.source = source;
   }
 
+  /** use copy instead of batched upserts, faster for large tables */
+  public ImportTableTask setBulk(boolean bulk) {
+    this.bulk = bulk;
+    return this;
+  }
+
   @Override
   public void run() {
     this.start();
 
-    // validate uniqueness of the keys in the set
-    this.setDescription(
-        "Table " + table.getName() + ": Counting rows & checking that all key columns are unique");
-    source.processTable(table.getName(), new ValidatePkeyProcessor(table.getMetadata(), this));
-
-    // execute the actual loading, we can use index to find the size
-    this.setTotal(this.getProgress());
+    // single pass: keys are validated while importing, imports run in a transaction so errors
+    // roll back the rows already imported
     this.setDescription("Importing rows into " + table.getName());
-    source.processTable(table.getName(), new ImportRowProcesssor(table, this));
+    KeyValidator validator = new KeyValidator(table.getMetadata(), this);
+    ImportRowProcesssor importer = new ImportRowProcesssor(table, this, validator);
+    source.processTable(table.getName(), importer);
+
+    if (validator.hasSuspects()) {
+      // only hashes of the keys are kept, so check the actual keys in case of possible duplicates
+      source.processTable(table.getName(), validator::findDuplicates);
+      validator.throwErrors();
+      // no duplicates after all, only a hash collision, so import the remaining rows
+      importer.resume();
+      source.processTable(table.getName(), importer);
+    }
+    validator.throwErrors();
 
     // done
     if (getProgress() > 0) {
@@ -44,23 +59,23 @@ public class ImportTableTask extends Task {
     }
   }
 
-  public static class ValidatePkeyProcessor implements RowProcessor {
-
-    Set<String> duplicates = new HashSet<>();
-    Set<String> keys = new HashSet<>();
-    TableMetadata metadata;
-    Task task;
-    Set<String> warningColumns = new HashSet<>();
-    boolean hasEmptyKeys = false;
-    List<Column> primaryKeyColumns = new ArrayList<>();
+  /**
+   * Validates that keys are present and unique while the rows stream by. Instead of all keys only
+   * 64 bit hashes are kept; rows whose hash was seen before are checked in a second pass.
+   */
+  static class KeyValidator {
+    private final TableMetadata metadata;
+    private final Task task;
+    private final List<Column> primaryKeyColumns = new ArrayList<>();
+    private final LongHashSet hashes = new LongHashSet();
+    private final LongHashSet suspects = new LongHashSet();
+    private final Set<String> duplicates = new HashSet<>();
+    private String errorMessage = null;
+    private int line = 0;
 
-    public ValidatePkeyProcessor(TableMetadata metadata, Task task) {
+    KeyValidator(TableMetadata metadata, Task task) {
       this.metadata = metadata;
       this.task = task;
-      this.processColumns();
-    }
-
-    private void processColumns() {
       for (Column column : metadata.getPrimaryKeyColumns()) {
         if (column.isReference()) {
           for (Reference ref : column.getReferences()) {
@@ -72,127 +87,230 @@ public class ImportTableTask extends Task {
       }
     }
 
-    @Override
-    public void process(Iterator<Row> iterator, TableStore source) {
-
-      task.setProgress(0);
-      int index = 0;
-      String errorMessage = null;
-      while (iterator.hasNext() && errorMessage == null) {
-        Row row = iterator.next();
+    /** returns true if the row can be imported, i.e. no errors or possible duplicates so far */
+    boolean validate(Row row) {
+      if (errorMessage != null) {
+        // stop at first missing key
+        return false;
+      }
+      if (line++ == 0) {
+        checkColumns(row);
+      }
 
-        // column warning
-        if (task.getProgress() == 0) {
-          List<String> columnNames =
-              metadata.getDownloadColumnNames().stream().map(Column::getName).toList();
-          warningColumns =
-              row.getColumnNames().stream()
-                  .filter(name -> !columnNames.contains(name))
-                  .collect(Collectors.toSet());
-          if (!warningColumns.isEmpty()) {
-            if (task.isStrict()) {
-              throw new MolgenisException(
-                  "Found unknown columns "
-                      + warningColumns
-                      + " in sheet "
-                      + metadata.getTableName());
-            } else {
-              task.addSubTask(
-                  "Found unknown columns "
-                      + warningColumns
-                      + " in sheet "
-                      + metadata.getTableName(),
-                  TaskStatus.WARNING);
-            }
+      // primary key(s)
+      StringJoiner compoundKey = new StringJoiner(",");
+      for (Column column : primaryKeyColumns) {
+        if (!row.containsName(column.getName())) {
+          if (column.getColumnType() != ColumnType.AUTO_ID) {
+            task.addSubTask("No value provided for key " + column.getName() + " at line " + line)
+                .setError();
+            errorMessage = "missing value for key column '" + column.getName() + "'. Row: " + row;
           }
+        } else {
+          compoundKey.add(row.getString(column.getName()));
+        }
+      }
+
+      String keyValue = compoundKey.toString();
+      if (!keyValue.isEmpty() && !hashes.add(hash(keyValue))) {
+        suspects.add(hash(keyValue));
+      }
+      return errorMessage == null && suspects.isEmpty();
+    }
+
+    private void checkColumns(Row row) {
+      List<String> columnNames =
+          metadata.getDownloadColumnNames().stream().map(Column::getName).toList();
+      Set<String> warningColumns =
+          row.getColumnNames().stream()
+              .filter(name -> !columnNames.contains(name))
+              .collect(Collectors.toSet());
+      if (!warningColumns.isEmpty()) {
+        String message =
+            "Found unknown columns " + warningColumns + " in sheet " + metadata.getTableName();
+        if (task.isStrict()) {
+          throw new MolgenisException(message);
+        } else {
+          task.addSubTask(message, TaskStatus.WARNING);
         }
+      }
+    }
 
-        // primary key(s)
+    boolean hasSuspects() {
+      return !suspects.isEmpty();
+    }
+
+    /** second pass over the validated rows, to find the actual duplicates among the suspects */
+    void findDuplicates(Iterator<Row> iterator, TableStore source) {
+      String keyFields =
+          metadata.getPrimaryKeyFields().stream()
+              .map(Field::getName)
+              .collect(Collectors.joining(","));
+      Set<String> keys = new HashSet<>();
+      for (int i = 0; i < line && iterator.hasNext(); i++) {
+        Row row = iterator.next();
         StringJoiner compoundKey = new StringJoiner(",");
         for (Column column : primaryKeyColumns) {
-          if (!row.containsName(column.getName())) {
-            if (column.getColumnType() != ColumnType.AUTO_ID) {
-              task.addSubTask(
-                      "No value provided for key " + column.getName() + " at line " + (index + 1))
-                  .setError();
-              hasEmptyKeys = true;
-              errorMessage = "missing value for key column '" + column.getName() + "'. Row: " + row;
-            }
-          } else {
-            String keyValue = row.getString(column.getName());
-            compoundKey.add(keyValue);
+          if (row.containsName(column.getName())) {
+            compoundKey.add(row.getString(column.getName()));
           }
         }
-
         String keyValue = compoundKey.toString();
-        if (keys.contains(keyValue)) {
+        if (suspects.contains(hash(keyValue)) && !keys.add(keyValue)) {
           duplicates.add(keyValue);
-          String keyFields =
-              metadata.getPrimaryKeyFields().stream()
-                  .map(Field::getName)
-                  .collect(Collectors.joining(","));
           task.addSubTask("Found duplicate Key (" + keyFields + ")=(" + keyValue + ")").setError();
-        } else if (!keyValue.isEmpty()) {
-          keys.add(keyValue);
         }
-        task.setProgress(++index);
       }
+    }
+
+    void throwErrors() {
       if (!duplicates.isEmpty()) {
         task.completeWithError(
             "Duplicate keys found in table " + metadata.getTableName() + ": " + duplicates);
       }
-      if (hasEmptyKeys)
+      if (errorMessage != null) {
         task.completeWithError(
             "Missing keys found in table '" + metadata.getTableName() + "': " + errorMessage);
+      }
+    }
+
+    private static long hash(String key) {
+      // FNV-1a
+      long hash = 0xcbf29ce484222325L;
+      for (int i = 0; i < key.length(); i++) {
+        hash ^= key.charAt(i);
+        hash *= 0x100000001b3L;
+      }
+      return hash;
     }
   }
 
-  /** executes the import */
+  /** executes the import of the rows that passed validation */
   private static class ImportRowProcesssor implements RowProcessor {
     private final Table table;
     private final ImportTableTask task;
+    private final KeyValidator validator;
+    // rows already imported and validated, when resuming
+    private int skip = -1;
 
-    public ImportRowProcesssor(Table table, ImportTableTask task) {
+    public ImportRowProcesssor(Table table, ImportTableTask task, KeyValidator validator) {
       this.table = table;
       this.task = task;
+      this.validator = validator;
+    }
+
+    void resume() {
+      this.skip = task.getProgress();
     }
 
     @Override
-    public void process(Iterator<Row> iterator, TableStore source) {
-      task.setProgress(0); // for the progress monitoring
-      int index = 0;
-      List<Row> batch = new ArrayList<>();
-      List<Column> columns = table.getMetadata().getColumns();
-      while (iterator.hasNext()) {
-        Row row = iterator.next();
-        // add file attachments, if applicable
-        for (Column c : columns) {
-          if (c.isFile()
-              && source instanceof TableAndFileStore
-              && row.getValueMap().get(c.getName()) != null) {
-            BinaryFileWrapper wrapper =
-                ((TableAndFileStore) source).getBinaryFileWrapper(row.getString(c.getName()));
-            if (row.containsName(c.getName() + "_filename")) {
-              wrapper.setFileName(row.getString(c.getName() + "_filename"));
+    public void process(Iterator<Row> source, TableStore store) {
+      if (skip >= 0) {
+        for (int i = 0; i < skip && source.hasNext(); i++) {
+          source.next();
+        }
+        importRows(source, store, skip);
+      } else {
+        task.setProgress(0); // for the progress monitoring
+        importRows(validated(source), store, 0);
+        // validate the rows after the first error, to report all errors
+        while (source.hasNext()) {
+          validator.validate(source.next());
+        }
+      }
+    }
+
+    /** stops at the first row that doesn't pass validation */
+    private Iterator<Row> validated(Iterator<Row> source) {
+      return new Iterator<>() {
+        private Row next = null;
+
+        @Override
+        public boolean hasNext() {
+          if (next == null && source.hasNext()) {
+            Row row = source.next();
+            if (validator.validate(row)) {
+              next = row;
             }
-            row.setBinary(c.getName(), wrapper);
           }
+          return next != null;
+        }
+
+        @Override
+        public Row next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          Row row = next;
+          next = null;
+          return row;
         }
+      };
+    }
+
+    private void importRows(Iterator<Row> iterator, TableStore source, int start) {
+      List<Column> columns = table.getMetadata().getColumns();
+      if (task.bulk) {
+        // stream all rows, copyIn does its own batching
+        AtomicInteger index = new AtomicInteger(start);
+        table.copyIn(
+            () ->
+                new Iterator<>() {
+                  @Override
+                  public boolean hasNext() {
+                    return iterator.hasNext();
+                  }
+
+                  @Override
+                  public Row next() {
+                    Row row = addFileAttachments(iterator.next(), columns, source);
+                    if (index.incrementAndGet() % 1000 == 0) {
+                      updateProgress(index.get());
+                    }
+                    return row;
+                  }
+                });
+        updateProgress(index.get());
+        return;
+      }
+      int index = start;
+      List<Row> batch = new ArrayList<>();
+      while (iterator.hasNext()) {
+        Row row = addFileAttachments(iterator.next(), columns, source);
         batch.add(row);
         index++;
         if (batch.size() >= 100) {
           table.save(batch);
-          task.setProgress(index);
-          task.setDescription("Imported " + task.getProgress() + " rows into " + table.getName());
+          updateProgress(index);
           batch.clear();
         }
       }
       // remaining
       if (!batch.isEmpty()) {
         table.save(batch);
-        task.setProgress(index);
-        task.setDescription("Imported " + task.getProgress() + " rows into " + table.getName());
+        updateProgress(index);
+      }
+    }
+
+    private void updateProgress(int index) {
+      task.setProgress(index);
+      task.setDescription("Imported " + task.getProgress() + " rows into " + table.getName());
+    }
+
+    private static Row addFileAttachments(Row row, List<Column> columns, TableStore source) {
+      for (Column c : columns) {
+        if (c.isFile()
+            && source instanceof TableAndFileStore
+            && row.getValueMap().get(c.getName()) != null) {
+          BinaryFileWrapper wrapper =
+              ((TableAndFileStore) source).getBinaryFileWrapper(row.getString(c.getName()));
+          if (row.containsName(c.getName() + "_filename")) {
+            wrapper.setFileName(row.getString(c.getName() + "_filename"));
+          }
+          row.setBinary(c.getName(), wrapper);
+        }
       }
+      return row;
     }
   }
 }
@@ -0,0 +1,61 @@
+package org.molgenis.emx2.io;
+
+/** Set of primitive longs using open addressing, to keep millions of key hashes compact. */
+class LongHashSet {
+  private static final long EMPTY = 0L;
+  // zero marks empty slots, so it is stored separately
+  private boolean containsEmpty = false;
+  private long[] values = new long[1024];
+  private int size = 0;
+
+  /** returns false if the value was already present */
+  boolean add(long value) {
+    if (value == EMPTY) {
+      boolean added = !containsEmpty;
+      containsEmpty = true;
+      return added;
+    }
+    if (size * 4 >= values.length * 3) {
+      grow();
+    }
+    int index = find(values, value);
+    if (values[index] == value) {
+      return false;
+    }
+    values[index] = value;
+    size++;
+    return true;
+  }
+
+  boolean contains(long value) {
+    if (value == EMPTY) {
+      return containsEmpty;
+    }
+    return values[find(values, value)] == value;
+  }
+
+  boolean isEmpty() {
+    return size == 0 && !containsEmpty;
+  }
+
+  private void grow() {
+    long[] grown = new long[values.length * 2];
+    for (long value : values) {
+      if (value != EMPTY) {
+        grown[find(grown, value)] = value;
+      }
+    }
+    values = grown;
+  }
+
+  /** index of the value, or of the empty slot where it should go */
+  private static int find(long[] values, long value) {
+    int mask = values.length - 1;
+    // spread the bits, the values are hashes but the low bits should vary
+    int index = (int) ((value ^ (value >>> 32)) * 0x9E3779B97F4A7C15L >>> 32) & mask;
+    while (values[index] != EMPTY && values[index] != value) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+}
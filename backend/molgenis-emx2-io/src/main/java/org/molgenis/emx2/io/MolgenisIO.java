@@ -7,8 +7,12 @@ import static org.molgenis.emx2.io.emx2.Emx2Settings.outputSettings;
 import static org.molgenis.emx2.io.emx2.Emx2Tables.outputTable;
 import static org.molgenis.emx2.io.emx2.Emx2Tables.outputTableWithSystemColumns;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.Table;
 import org.molgenis.emx2.TableType;
@@ -40,15 +44,49 @@ public class MolgenisIO {
   }
 
   public static void toZipFile(Path zipFile, Schema schema, boolean includeSystemColumns) {
-    outputAll(new TableStoreForCsvInZipFile(zipFile), schema, includeSystemColumns);
+    try (OutputStream outputStream = Files.newOutputStream(zipFile)) {
+      toZipOutputStream(outputStream, schema, includeSystemColumns);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  /** Writes the zip in one pass, e.g. directly into a http response */
+  public static void toZipOutputStream(
+      OutputStream outputStream, Schema schema, boolean includeSystemColumns) {
+    try (TableStoreForCsvInZipStream store = new TableStoreForCsvInZipStream(outputStream)) {
+      outputAll(store, schema, includeSystemColumns);
+    }
   }
 
   public static void toExcelFile(Path excelFile, Schema schema, boolean includeSystemColumns) {
-    outputAll(new TableStoreForXlsxFile(excelFile), schema, includeSystemColumns);
+    try (OutputStream outputStream = Files.newOutputStream(excelFile)) {
+      toExcelOutputStream(outputStream, schema, includeSystemColumns);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  /** Writes all sheets into one streaming workbook, e.g. directly into a http response */
+  public static void toExcelOutputStream(
+      OutputStream outputStream, Schema schema, boolean includeSystemColumns) {
+    try (TableStoreForXlsxStream store = new TableStoreForXlsxStream(outputStream)) {
+      outputAll(store, schema, includeSystemColumns);
+    }
   }
 
   public static void toEmx1ExcelFile(Path excelFile, Schema schema) {
-    executeEmx1Export(new TableStoreForXlsxFile(excelFile), schema);
+    try (OutputStream outputStream = Files.newOutputStream(excelFile)) {
+      toEmx1ExcelOutputStream(outputStream, schema);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  public static void toEmx1ExcelOutputStream(OutputStream outputStream, Schema schema) {
+    try (TableStoreForXlsxStream store = new TableStoreForXlsxStream(outputStream)) {
+      executeEmx1Export(store, schema);
+    }
   }
 
   private static void executeEmx1Export(TableStore store, Schema schema) {
@@ -64,11 +102,33 @@ public class MolgenisIO {
   }
 
   public static void toZipFile(Path zipFile, Table table, boolean includeSystemColumns) {
-    writeTableToStore(new TableStoreForCsvInZipFile(zipFile), table, includeSystemColumns);
+    try (OutputStream outputStream = Files.newOutputStream(zipFile)) {
+      toZipOutputStream(outputStream, table, includeSystemColumns);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  public static void toZipOutputStream(
+      OutputStream outputStream, Table table, boolean includeSystemColumns) {
+    try (TableStoreForCsvInZipStream store = new TableStoreForCsvInZipStream(outputStream)) {
+      writeTableToStore(store, table, includeSystemColumns);
+    }
   }
 
   public static void toExcelFile(Path excelFile, Table table, boolean includeSystemColumns) {
-    writeTableToStore(new TableStoreForXlsxFile(excelFile), table, includeSystemColumns);
+    try (OutputStream outputStream = Files.newOutputStream(excelFile)) {
+      toExcelOutputStream(outputStream, table, includeSystemColumns);
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  public static void toExcelOutputStream(
+      OutputStream outputStream, Table table, boolean includeSystemColumns) {
+    try (TableStoreForXlsxStream store = new TableStoreForXlsxStream(outputStream)) {
+      writeTableToStore(store, table, includeSystemColumns);
+    }
   }
 
   public static void toCsvFile(Path csvFile, Table table, boolean includeSystemColumns) {
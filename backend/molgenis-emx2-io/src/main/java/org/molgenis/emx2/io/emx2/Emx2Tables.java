@@ -4,6 +4,7 @@ import static org.molgenis.emx2.Constants.MG_TABLECLASS;
 import static org.molgenis.emx2.FilterBean.f;
 
 import java.util.*;
+import java.util.stream.Stream;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.io.tablestore.TableAndFileStore;
 import org.molgenis.emx2.io.tablestore.TableStore;
@@ -41,21 +42,14 @@ public class Emx2Tables {
     SelectColumn[] select =
         downloadColumnNames.stream().map(SelectColumn::s).toArray(SelectColumn[]::new);
 
+    Query query = table.query().select(select);
     if (table.getMetadata().getColumnNames().contains(MG_TABLECLASS)) {
-      store.writeTable(
-          table.getName(),
-          downloadColumnNames,
-          table
-              .query()
-              .select(select)
-              .where(
-                  f(
-                      MG_TABLECLASS,
-                      Operator.EQUALS,
-                      table.getSchema().getName() + "." + table.getName()))
-              .retrieveRows());
-    } else {
-      store.writeTable(table.getName(), downloadColumnNames, table.select(select).retrieveRows());
+      query.where(
+          f(MG_TABLECLASS, Operator.EQUALS, table.getSchema().getName() + "." + table.getName()));
+    }
+    // stream from database cursor so large tables don't need to fit in memory
+    try (Stream<Row> rows = query.retrieveRowStream()) {
+      store.writeTable(table.getName(), downloadColumnNames, rows::iterator);
     }
 
     // in case of zip file we include the attached files
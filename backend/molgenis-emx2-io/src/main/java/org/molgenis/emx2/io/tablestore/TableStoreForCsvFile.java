@@ -5,6 +5,7 @@ import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.molgenis.emx2.MolgenisException;
@@ -24,8 +25,9 @@ public class TableStoreForCsvFile implements TableStore {
   public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
     try {
       Writer writer = Files.newBufferedWriter(csvFile);
-      if (rows.iterator().hasNext()) {
-        CsvTableWriter.write(rows, columnNames, writer, ',');
+      Iterator<Row> iterator = rows.iterator();
+      if (iterator.hasNext()) {
+        CsvTableWriter.write(() -> iterator, columnNames, writer, ',');
       } else {
         // only header in case no rows provided
         writer.write(columnNames.stream().collect(Collectors.joining(",")));
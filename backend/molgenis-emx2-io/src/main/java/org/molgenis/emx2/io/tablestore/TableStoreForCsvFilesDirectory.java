@@ -5,6 +5,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -35,8 +36,9 @@ public class TableStoreForCsvFilesDirectory implements TableAndFileStore {
     Path relativePath = directoryPath.resolve(name + CSV_EXTENSION);
     try {
       Writer writer = Files.newBufferedWriter(relativePath);
-      if (rows.iterator().hasNext()) {
-        CsvTableWriter.write(rows, columnNames, writer, separator);
+      Iterator<Row> iterator = rows.iterator();
+      if (iterator.hasNext()) {
+        CsvTableWriter.write(() -> iterator, columnNames, writer, separator);
       } else {
         // only header in case no rows provided
         writer.write(columnNames.stream().collect(Collectors.joining("" + separator)));
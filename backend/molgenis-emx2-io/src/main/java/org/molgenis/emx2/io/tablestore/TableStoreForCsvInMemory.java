@@ -29,18 +29,10 @@ public class TableStoreForCsvInMemory implements TableStore {
       Writer bufferedWriter = new BufferedWriter(writer);
       String existing = "";
       if (store.containsKey(name)) existing = store.get(name);
-      // make sure first row has all columnNames
-      Iterator iterator = rows.iterator();
+      Iterator<Row> iterator = rows.iterator();
       if (iterator.hasNext()) {
-        Row row = rows.iterator().next();
-        for (String columnName : columnNames) {
-          if (!row.getColumnNames().contains(columnName)) {
-            row.set(columnName, null);
-          }
-        }
-      }
-      if (rows.iterator().hasNext()) {
-        CsvTableWriter.write(rows, columnNames, bufferedWriter, separator);
+        // missing values are written as empty
+        CsvTableWriter.write(() -> iterator, columnNames, bufferedWriter, separator);
       } else {
         // only header in case no rows provided
         writer.write(columnNames.stream().collect(Collectors.joining("" + separator)));
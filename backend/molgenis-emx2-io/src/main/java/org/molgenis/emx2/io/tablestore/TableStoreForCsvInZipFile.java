@@ -77,8 +77,9 @@ public class TableStoreForCsvInZipFile implements TableAndFileStore {
     try (FileSystem zipfs = open()) {
       Path pathInZipfile = zipfs.getPath(File.separator + name + CSV_EXTENSION);
       Writer writer = Files.newBufferedWriter(pathInZipfile);
-      if (rows.iterator().hasNext()) {
-        CsvTableWriter.write(rows, columnNames, writer, COMMA);
+      Iterator<Row> iterator = rows.iterator();
+      if (iterator.hasNext()) {
+        CsvTableWriter.write(() -> iterator, columnNames, writer, COMMA);
       } else {
         // only header in case no rows provided
         writer.write(columnNames.stream().collect(Collectors.joining("" + COMMA)));
@@ -0,0 +1,108 @@
+package org.molgenis.emx2.io.tablestore;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.molgenis.emx2.BinaryFileWrapper;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.io.readers.CsvTableWriter;
+
+/**
+ * Writes tables as csv files into a zip in one pass, e.g. directly into a http response. Write
+ * only; close to complete the zip. Closing doesn't close the underlying output stream.
+ */
+public class TableStoreForCsvInZipStream implements TableAndFileStore, AutoCloseable {
+  private static final Character COMMA = ',';
+  private final ZipOutputStream zip;
+  private final Set<String> entries = new HashSet<>();
+
+  public TableStoreForCsvInZipStream(OutputStream outputStream) {
+    this.zip = new ZipOutputStream(outputStream);
+  }
+
+  @Override
+  public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    if (columnNames.isEmpty()) {
+      return;
+    }
+    try {
+      putNextEntry(name + TableStoreForCsvInZipFile.CSV_EXTENSION);
+      // don't close, that would close the zip
+      Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+      Iterator<Row> iterator = rows.iterator();
+      if (iterator.hasNext()) {
+        CsvTableWriter.write(() -> iterator, columnNames, writer, COMMA);
+      } else {
+        // only header in case no rows provided
+        writer.write(columnNames.stream().collect(Collectors.joining("" + COMMA)));
+      }
+      writer.flush();
+      zip.closeEntry();
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  @Override
+  public void writeFile(String filePath, byte[] contents) {
+    // files of inherited columns are written for each subclass, but ids are unique
+    if (contents != null && contents.length > 0 && !entries.contains(filePath)) {
+      try {
+        putNextEntry(filePath);
+        zip.write(contents);
+        zip.closeEntry();
+      } catch (IOException ioe) {
+        throw new MolgenisException("File export failed", ioe);
+      }
+    }
+  }
+
+  private void putNextEntry(String name) throws IOException {
+    if (!entries.add(name)) {
+      throw new MolgenisException("Export failed: duplicate entry '" + name + "' in zip");
+    }
+    zip.putNextEntry(new ZipEntry(name));
+  }
+
+  @Override
+  public void close() {
+    try {
+      zip.finish();
+      zip.flush();
+    } catch (IOException ioe) {
+      throw new MolgenisException("Export failed", ioe);
+    }
+  }
+
+  @Override
+  public Iterable<Row> readTable(String name) {
+    throw new UnsupportedOperationException("Cannot read from zip output stream");
+  }
+
+  @Override
+  public void processTable(String name, RowProcessor processor) {
+    throw new UnsupportedOperationException("Cannot read from zip output stream");
+  }
+
+  @Override
+  public boolean containsTable(String name) {
+    return entries.contains(name + TableStoreForCsvInZipFile.CSV_EXTENSION);
+  }
+
+  @Override
+  public Collection<String> getTableNames() {
+    return entries.stream()
+        .filter(entry -> entry.endsWith(TableStoreForCsvInZipFile.CSV_EXTENSION))
+        .map(entry -> entry.substring(0, entry.length() - 4))
+        .toList();
+  }
+
+  @Override
+  public BinaryFileWrapper getBinaryFileWrapper(String name) {
+    throw new UnsupportedOperationException("Cannot read from zip output stream");
+  }
+}
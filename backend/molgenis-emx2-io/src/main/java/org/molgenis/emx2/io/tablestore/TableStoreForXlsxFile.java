@@ -50,8 +50,7 @@ public class TableStoreForXlsxFile implements TableStore {
   public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
     SXSSFWorkbook wb;
     try {
-      if (name.length() > 30)
-        throw new IOException("Excel sheet name '" + name + "' is too long. Maximum 30 characters");
+      checkSheetName(name);
       // streaming workbook
       if (!Files.exists(excelFilePath)) {
         wb = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
@@ -62,11 +61,7 @@ public class TableStoreForXlsxFile implements TableStore {
             Files.move(excelFilePath, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         wb = new SXSSFWorkbook(new XSSFWorkbook(temp.toFile()), ROW_ACCESS_WINDOW_SIZE);
       }
-      if (rows.iterator().hasNext()) {
-        writeRowsToSheet(name, columnNames, rows, wb);
-      } else {
-        writeHeaderOnlyToSheet(name, columnNames, wb);
-      }
+      writeSheet(name, columnNames, rows, wb);
       // write contents to a temp file and overwrite original
       try (FileOutputStream outputStream = new FileOutputStream(excelFilePath.toFile())) {
         wb.write(outputStream);
@@ -78,7 +73,23 @@ public class TableStoreForXlsxFile implements TableStore {
     }
   }
 
-  private void writeHeaderOnlyToSheet(String name, List<String> columnNames, Workbook wb) {
+  static void checkSheetName(String name) throws IOException {
+    if (name.length() > 30)
+      throw new IOException("Excel sheet name '" + name + "' is too long. Maximum 30 characters");
+  }
+
+  static void writeSheet(
+      String name, List<String> columnNames, Iterable<Row> rows, SXSSFWorkbook wb)
+      throws IOException {
+    Iterator<Row> iterator = rows.iterator();
+    if (iterator.hasNext()) {
+      writeRowsToSheet(name, columnNames, () -> iterator, wb);
+    } else {
+      writeHeaderOnlyToSheet(name, columnNames, wb);
+    }
+  }
+
+  private static void writeHeaderOnlyToSheet(String name, List<String> columnNames, Workbook wb) {
     Sheet sheet = wb.createSheet(name);
     org.apache.poi.ss.usermodel.Row excelRow = sheet.createRow(0);
     for (int i = 0; i < columnNames.size(); i++) {
@@ -86,7 +97,7 @@ public class TableStoreForXlsxFile implements TableStore {
     }
   }
 
-  private void writeRowsToSheet(
+  private static void writeRowsToSheet(
       String name, List<String> columnNames, Iterable<Row> rows, SXSSFWorkbook wb)
       throws IOException {
 
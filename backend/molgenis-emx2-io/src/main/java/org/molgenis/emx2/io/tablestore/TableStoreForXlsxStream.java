@@ -0,0 +1,73 @@
+package org.molgenis.emx2.io.tablestore;
+
+import static org.molgenis.emx2.io.tablestore.TableStoreForXlsxFile.ROW_ACCESS_WINDOW_SIZE;
+import static org.molgenis.emx2.io.tablestore.TableStoreForXlsxFile.checkSheetName;
+import static org.molgenis.emx2.io.tablestore.TableStoreForXlsxFile.writeSheet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
+
+/**
+ * Writes tables as sheets of one streaming workbook that is written to the output stream on close,
+ * e.g. directly into a http response. Write only. Closing doesn't close the underlying output
+ * stream.
+ */
+public class TableStoreForXlsxStream implements TableStore, AutoCloseable {
+  private final OutputStream outputStream;
+  private final SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+  private final List<String> sheetNames = new ArrayList<>();
+
+  public TableStoreForXlsxStream(OutputStream outputStream) {
+    this.outputStream = outputStream;
+  }
+
+  @Override
+  public void writeTable(String name, List<String> columnNames, Iterable<Row> rows) {
+    try {
+      checkSheetName(name);
+      writeSheet(name, columnNames, rows, workbook);
+      sheetNames.add(name);
+    } catch (Exception e) {
+      throw new MolgenisException("Writing of excel failed", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      workbook.write(outputStream);
+      outputStream.flush();
+    } catch (IOException ioe) {
+      throw new MolgenisException("Writing of excel failed", ioe);
+    } finally {
+      // removes the temporary files of the flushed rows
+      workbook.dispose();
+    }
+  }
+
+  @Override
+  public Iterable<Row> readTable(String name) {
+    throw new UnsupportedOperationException("Cannot read from excel output stream");
+  }
+
+  @Override
+  public void processTable(String name, RowProcessor processor) {
+    throw new UnsupportedOperationException("Cannot read from excel output stream");
+  }
+
+  @Override
+  public boolean containsTable(String name) {
+    return sheetNames.contains(name);
+  }
+
+  @Override
+  public Collection<String> getTableNames() {
+    return List.copyOf(sheetNames);
+  }
+}
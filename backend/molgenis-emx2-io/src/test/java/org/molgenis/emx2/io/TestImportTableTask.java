@@ -1,14 +1,27 @@
 package org.molgenis.emx2.io;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.REF;
+import static org.molgenis.emx2.ColumnType.REF_ARRAY;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.molgenis.emx2.Database;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.io.tablestore.TableStoreForCsvInMemory;
+import org.molgenis.emx2.sql.SqlDatabase;
 import org.molgenis.emx2.sql.TestDatabaseFactory;
+import org.molgenis.emx2.tasks.Task;
+import org.molgenis.emx2.tasks.TaskStatus;
 
 public class TestImportTableTask {
 
@@ -60,4 +73,89 @@ public class TestImportTableTask {
           e.getMessage());
     }
   }
+
+  @Test
+  public void testDuplicateKeys() {
+    Schema duplicates =
+        schema.getDatabase().dropCreateSchema(TestImportTableTask.class.getSimpleName() + "3");
+    duplicates.create(table("test", column("col1").setPkey(), column("col2")));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add(row("col1", "key" + (i % 600), "col2", "value" + i));
+    }
+    TableStoreForCsvInMemory store = new TableStoreForCsvInMemory();
+    store.writeTable("test", List.of("col1", "col2"), rows);
+
+    ImportSchemaTask task =
+        new ImportSchemaTask(store, duplicates, false).setFilter(ImportSchemaTask.Filter.DATA_ONLY);
+    MolgenisException exception = assertThrows(MolgenisException.class, task::run);
+    assertTrue(exception.getMessage().contains("Duplicate keys found in table test"));
+    Task<?> dataTask = (Task<?>) task.getSubTasks().get(0);
+    List<Task<?>> subTasks = dataTask.getSubTasks().get(0).getSubTasks();
+    assertEquals(400, subTasks.size());
+    assertEquals("Found duplicate Key (col1)=(key0)", subTasks.get(0).getDescription());
+    // rows imported before the duplicate was found are rolled back
+    assertEquals(0, duplicates.getTable("test").retrieveRows().size());
+  }
+
+  @Test
+  public void testParallelImport() {
+    Schema parallel =
+        schema.getDatabase().dropCreateSchema(TestImportTableTask.class.getSimpleName() + "2");
+    parallel.create(
+        table("Tag", column("name").setPkey()),
+        table(
+            "Pet", column("name").setPkey(), column("tags").setType(REF_ARRAY).setRefTable("Tag")),
+        table("Owner", column("name").setPkey(), column("pet").setType(REF).setRefTable("Pet")),
+        table("Unrelated", column("name").setPkey()));
+
+    TableStoreForCsvInMemory store = new TableStoreForCsvInMemory();
+    List<Row> pets = new ArrayList<>();
+    List<Row> owners = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      pets.add(row("name", "pet" + i, "tags", "red,green"));
+      owners.add(row("name", "owner" + i, "pet", "pet" + i));
+    }
+    store.writeTable("Tag", List.of("name"), List.of(row("name", "red"), row("name", "green")));
+    store.writeTable("Pet", List.of("name", "tags"), pets);
+    store.writeTable("Owner", List.of("name", "pet"), owners);
+    store.writeTable("Unrelated", List.of("name"), List.of(row("name", "a")));
+
+    ImportDataTask task =
+        new ImportDataTask(parallel, store, false).setParallel(() -> new SqlDatabase(false));
+    task.run();
+    assertEquals(TaskStatus.COMPLETED, task.getStatus());
+    assertEquals(4, task.getSubTasks().size());
+    assertEquals(100, parallel.getTable("Owner").retrieveRows().size());
+    assertEquals(1, parallel.getTable("Unrelated").retrieveRows().size());
+
+    // on failure dependent tables are skipped, but committed tables stay committed
+    parallel.getTable("Owner").truncate();
+    parallel.getTable("Unrelated").truncate();
+    store.writeTable("Pet", List.of("name", "tags"), List.of(row("name", "x", "tags", "blue")));
+    ImportDataTask failing =
+        new ImportDataTask(parallel, store, false).setParallel(() -> new SqlDatabase(false));
+    assertThrows(MolgenisException.class, failing::run);
+    assertEquals(TaskStatus.ERROR, failing.getStatus());
+    List<Task<?>> subTasks = failing.getSubTasks();
+    Task owner =
+        subTasks.stream()
+            .filter(t -> t.getDescription().contains("Owner"))
+            .findFirst()
+            .orElseThrow();
+    assertEquals(TaskStatus.SKIPPED, owner.getStatus());
+    assertEquals(0, parallel.getTable("Owner").retrieveRows().size());
+
+    // cannot run in a transaction
+    schema
+        .getDatabase()
+        .tx(
+            db ->
+                assertThrows(
+                    MolgenisException.class,
+                    () ->
+                        new ImportDataTask(db.getSchema(parallel.getName()), store, false)
+                            .setParallel(() -> new SqlDatabase(false))
+                            .run()));
+  }
 }
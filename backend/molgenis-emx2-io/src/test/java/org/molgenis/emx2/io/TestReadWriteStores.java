@@ -1,9 +1,11 @@
 package org.molgenis.emx2.io;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
@@ -79,6 +81,67 @@ public class TestReadWriteStores {
           "TMP directory " + tmp + " not deleted. This should never happen.");
   }
 
+  @Test
+  public void testCsvZipStreamStore() throws IOException {
+    Path zipFile = Files.createTempFile("test", ".zip");
+    try {
+      try (OutputStream outputStream = Files.newOutputStream(zipFile);
+          TableStoreForCsvInZipStream store = new TableStoreForCsvInZipStream(outputStream)) {
+        writeStreamed(store);
+      }
+      assertStreamed(new TableStoreForCsvInZipFile(zipFile));
+    } finally {
+      Files.delete(zipFile);
+    }
+  }
+
+  @Test
+  public void testExcelStreamStore() throws IOException {
+    Path excelFile = Files.createTempFile("test", ".xlsx");
+    try {
+      try (OutputStream outputStream = Files.newOutputStream(excelFile);
+          TableStoreForXlsxStream store = new TableStoreForXlsxStream(outputStream)) {
+        writeStreamed(store);
+      }
+      assertStreamed(new TableStoreForXlsxFile(excelFile));
+    } finally {
+      Files.delete(excelFile);
+    }
+  }
+
+  private static void writeStreamed(TableStore store) {
+    List<Row> rows = createRows(10);
+    List<String> columnNames = new ArrayList<>(rows.get(0).getColumnNames());
+    // rows can only be iterated once, like rows streamed from the database
+    store.writeTable("test", columnNames, rows.stream()::iterator);
+    store.writeTable("test2", columnNames, rows.stream()::iterator);
+    store.writeTable("empty", List.of("empty"), new ArrayList<>());
+  }
+
+  private static void assertStreamed(TableStore store) {
+    List<Row> rows = createRows(10);
+    for (String name : List.of("test", "test2")) {
+      CompareTools.assertEquals(
+          rows,
+          StreamSupport.stream(store.readTable(name).spliterator(), false)
+              .collect(Collectors.toList()));
+    }
+    assertTrue(store.containsTable("empty"));
+  }
+
+  private static List<Row> createRows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 1; i <= count; i++) {
+      rows.add(
+          new Row()
+              .setString("stringCol", "test" + i)
+              .setInt("intCol", i)
+              .setStringArray("stringarrayCol", new String[] {"a", "b,including comma,"})
+              .setBool("boolCol", true));
+    }
+    return rows;
+  }
+
   @Test
   public void testCsvStringStore() throws IOException, MolgenisException {
     executeTest(new TableStoreForCsvInMemory());
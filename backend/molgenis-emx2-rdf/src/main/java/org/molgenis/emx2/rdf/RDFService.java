@@ -10,14 +10,19 @@ import com.google.common.net.UrlEscapers;
 import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.stream.Stream;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.base.CoreDatatype;
-import org.eclipse.rdf4j.model.util.ModelBuilder;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.util.Values;
 import org.eclipse.rdf4j.model.vocabulary.*;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
 import org.eclipse.rdf4j.rio.WriterConfig;
 import org.eclipse.rdf4j.rio.helpers.BasicWriterSettings;
@@ -42,6 +47,7 @@ import org.molgenis.emx2.utils.TypeUtils;
 public class RDFService {
   private static final DateTimeFormatter dateTimeFormatter =
       DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+  private static final ValueFactory valueFactory = SimpleValueFactory.getInstance();
   public static final IRI LDP_CONTAINS = Values.iri("http://www.w3.org/ns/ldp#contains");
   public static final String NAMESPACE_RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
   public static final String NAMESPACE_RDFS = "http://www.w3.org/2000/01/rdf-schema#";
@@ -93,6 +99,19 @@ public class RDFService {
    * schemas.
    */
   private final String baseURL;
+  /** Namespaces of the document by prefix, to resolve prefixed names used in semantics. */
+  private final Map<String, Namespace> namespaces = new LinkedHashMap<>();
+
+  /** IRIs of a table that are the same for all of its rows, so they are created only once. */
+  private record TableIRIs(
+      TableMetadata metadata,
+      IRI tableIRI,
+      List<IRI> semantics,
+      String rowIRIPrefix,
+      List<ColumnIRIs> columns) {}
+
+  private record ColumnIRIs(
+      Column column, IRI columnIRI, List<IRI> semantics, String refIRIPrefix) {}
 
   /**
    * Construct an RDF Service.
@@ -147,54 +166,85 @@ public class RDFService {
       final String columnName,
       final Schema... schemas) {
     try {
-      final ModelBuilder builder = new ModelBuilder();
-      builder.setNamespace("rdf", NAMESPACE_RDF);
-      builder.setNamespace("rdfs", NAMESPACE_RDFS);
-      builder.setNamespace("xsd", NAMESPACE_XSD);
-      builder.setNamespace("owl", NAMESPACE_OWL);
-      builder.setNamespace("sio", NAMESPACE_SIO);
-      builder.setNamespace("qb", NAMESPACE_QB);
-      builder.setNamespace("skos", NAMESPACE_SKOS);
-      builder.setNamespace("dcterms", NAMESPACE_DCTERMS);
-      builder.setNamespace("dcat", NAMESPACE_DCAT);
-      builder.setNamespace("foaf", NAMESPACE_FOAF);
-      builder.setNamespace("vcard", NAMESPACE_VCARD);
-      builder.setNamespace("org", NAMESPACE_ORG);
-      builder.setNamespace("fdp-o", NAMESPACE_ORG);
+      // statements are written as they are created, so memory use doesn't depend on the data size
+      final RDFWriter writer = Rio.createWriter(rdfFormat, outputStream);
+      writer.setWriterConfig(config);
+      writer.startRDF();
+      setNamespace(writer, "rdf", NAMESPACE_RDF);
+      setNamespace(writer, "rdfs", NAMESPACE_RDFS);
+      setNamespace(writer, "xsd", NAMESPACE_XSD);
+      setNamespace(writer, "owl", NAMESPACE_OWL);
+      setNamespace(writer, "sio", NAMESPACE_SIO);
+      setNamespace(writer, "qb", NAMESPACE_QB);
+      setNamespace(writer, "skos", NAMESPACE_SKOS);
+      setNamespace(writer, "dcterms", NAMESPACE_DCTERMS);
+      setNamespace(writer, "dcat", NAMESPACE_DCAT);
+      setNamespace(writer, "foaf", NAMESPACE_FOAF);
+      setNamespace(writer, "vcard", NAMESPACE_VCARD);
+      setNamespace(writer, "org", NAMESPACE_ORG);
+      setNamespace(writer, "fdp-o", NAMESPACE_ORG);
+      setNamespace(writer, DC.PREFIX, DC.NAMESPACE);
 
       // Define the schemas at the start of the document.
       for (final Schema schema : schemas) {
         final Namespace ns = getSchemaNamespace(schema);
-        builder.setNamespace(ns);
+        setNamespace(writer, ns.getPrefix(), ns.getName());
       }
 
       if (table == null) {
-        describeRoot(builder);
+        describeRoot(writer);
       }
 
       for (final Schema schema : schemas) {
         if (table == null) {
-          describeSchema(builder, schema);
+          describeSchema(writer, schema);
         }
         final List<Table> tables = table != null ? Arrays.asList(table) : schema.getTablesSorted();
         for (final Table tableToDescribe : tables) {
           if (rowId == null) {
-            describeTable(builder, tableToDescribe);
-            describeColumns(builder, tableToDescribe, columnName);
+            describeTable(writer, tableToDescribe);
+            describeColumns(writer, tableToDescribe, columnName);
           }
           // if a column name is provided then only provide column metadata, no row values
           if (columnName == null) {
-            rowsToRdf(builder, tableToDescribe, rowId);
+            rowsToRdf(writer, tableToDescribe, rowId);
           }
         }
       }
-      Rio.write(builder.build(), outputStream, rdfFormat, config);
+      writer.endRDF();
 
     } catch (Exception e) {
       throw new MolgenisException("RDF export failed due to an exception", e);
     }
   }
 
+  private void setNamespace(final RDFHandler writer, final String prefix, final String name) {
+    namespaces.put(prefix, Values.namespace(prefix, name));
+    writer.handleNamespace(prefix, name);
+  }
+
+  private static void add(
+      final RDFHandler writer, final Resource subject, final IRI predicate, final Value object) {
+    writer.handleStatement(valueFactory.createStatement(subject, predicate, object));
+  }
+
+  private static void add(
+      final RDFHandler writer, final Resource subject, final IRI predicate, final String object) {
+    add(writer, subject, predicate, Values.literal(object));
+  }
+
+  /** Semantics are either a prefixed name using one of the namespaces, or a full IRI. */
+  private IRI getSemanticsIRI(final String semantics) {
+    final int colon = semantics.indexOf(':');
+    if (colon > 0) {
+      final Namespace ns = namespaces.get(semantics.substring(0, colon));
+      if (ns != null) {
+        return Values.iri(ns, semantics.substring(colon + 1));
+      }
+    }
+    return iri(semantics);
+  }
+
   public WriterConfig getConfig() {
     return config;
   }
@@ -214,15 +264,14 @@ public class RDFService {
   /**
    * Describe the MOLGENIS instance as a whole.
    *
-   * @param builder the builder for constructing the final RDF document.
+   * @param writer the handler that writes the RDF document.
    */
-  protected void describeRoot(final ModelBuilder builder) {
-    builder
-        .subject(baseURL)
-        .add(RDF.TYPE, IRI_DATABASE)
-        .add(RDFS.LABEL, "EMX2")
-        .add(DCTERMS.DESCRIPTION, "MOLGENIS EMX2 database at " + baseURL)
-        .add(DCTERMS.CREATOR, IRI_MOLGENIS);
+  protected void describeRoot(final RDFHandler writer) {
+    final IRI subject = iri(baseURL);
+    add(writer, subject, RDF.TYPE, IRI_DATABASE);
+    add(writer, subject, RDFS.LABEL, "EMX2");
+    add(writer, subject, DCTERMS.DESCRIPTION, "MOLGENIS EMX2 database at " + baseURL);
+    add(writer, subject, DCTERMS.CREATOR, IRI_MOLGENIS);
   }
 
   /**
@@ -253,38 +302,36 @@ public class RDFService {
     return Values.iri(ns, table.getIdentifier());
   }
 
-  private void describeSchema(final ModelBuilder builder, final Schema schema) {
+  private void describeSchema(final RDFHandler writer, final Schema schema) {
     // The name from a name space is the IRI.
-    final String subject = getSchemaNamespace(schema).getName();
-    builder
-        .subject(subject)
-        .add(RDFS.LABEL, schema.getName())
-        .add(DCTERMS.IS_PART_OF, Values.iri(baseURL))
-        .add(subject, RDF.TYPE, RDFS.CONTAINER);
+    final IRI subject = iri(getSchemaNamespace(schema).getName());
+    add(writer, subject, RDFS.LABEL, schema.getName());
+    add(writer, subject, DCTERMS.IS_PART_OF, Values.iri(baseURL));
+    add(writer, subject, RDF.TYPE, RDFS.CONTAINER);
     if (schema.getMetadata().getDescription() != null) {
-      builder.subject(subject).add(DCTERMS.DESCRIPTION, schema.getMetadata().getDescription());
+      add(writer, subject, DCTERMS.DESCRIPTION, schema.getMetadata().getDescription());
     }
     for (final Table table : schema.getTablesSorted()) {
       final IRI object = getTableIRI(table);
-      builder.subject(subject).add(LDP_CONTAINS, object);
+      add(writer, subject, LDP_CONTAINS, object);
     }
   }
 
-  private void describeTable(final ModelBuilder builder, final Table table) {
+  private void describeTable(final RDFHandler writer, final Table table) {
     final IRI subject = getTableIRI(table);
-    builder.add(subject, RDF.TYPE, OWL.CLASS);
-    builder.add(subject, RDFS.SUBCLASSOF, IRI_DATASET_CLASS);
+    add(writer, subject, RDF.TYPE, OWL.CLASS);
+    add(writer, subject, RDFS.SUBCLASSOF, IRI_DATASET_CLASS);
     Table parent = table.getInheritedTable();
     // A table is a subclass of owl:Thing or of it's direct parent
     if (parent == null) {
-      builder.add(subject, RDFS.SUBCLASSOF, OWL.THING);
+      add(writer, subject, RDFS.SUBCLASSOF, OWL.THING);
     } else {
-      builder.add(subject, RDFS.SUBCLASSOF, getTableIRI(parent));
+      add(writer, subject, RDFS.SUBCLASSOF, getTableIRI(parent));
     }
     if (table.getMetadata().getSemantics() != null) {
       for (final String tableSemantics : table.getMetadata().getSemantics()) {
         try {
-          builder.add(subject, RDFS.ISDEFINEDBY, iri(tableSemantics));
+          add(writer, subject, RDFS.ISDEFINEDBY, iri(tableSemantics));
         } catch (Exception e) {
           throw new MolgenisException(
               "Table annotation '"
@@ -296,23 +343,23 @@ public class RDFService {
         }
       }
     } else if (table.getMetadata().getTableType() == TableType.ONTOLOGIES) {
-      builder.add(subject, RDFS.ISDEFINEDBY, IRI_CONTROLLED_VOCABULARY);
-      builder.add(subject, RDFS.SUBCLASSOF, SKOS.CONCEPT_SCHEME);
+      add(writer, subject, RDFS.ISDEFINEDBY, IRI_CONTROLLED_VOCABULARY);
+      add(writer, subject, RDFS.SUBCLASSOF, SKOS.CONCEPT_SCHEME);
 
     } else {
-      builder.add(subject, RDFS.ISDEFINEDBY, IRI_OBSERVING);
+      add(writer, subject, RDFS.ISDEFINEDBY, IRI_OBSERVING);
     }
-    builder.add(subject, RDFS.LABEL, table.getName());
+    add(writer, subject, RDFS.LABEL, table.getName());
 
     if (table.getMetadata().getDescriptions() != null) {
       for (final var entry : table.getMetadata().getDescriptions().entrySet()) {
-        builder.add(subject, DCTERMS.DESCRIPTION, Values.literal(entry.getValue(), entry.getKey()));
+        add(writer, subject, DCTERMS.DESCRIPTION, Values.literal(entry.getValue(), entry.getKey()));
       }
     }
   }
 
   private void describeColumns(
-      final ModelBuilder builder, final Table table, final String columnName) {
+      final RDFHandler writer, final Table table, final String columnName) {
     if (table.getMetadata().getTableType() == TableType.DATA) {
       for (final Column column : table.getMetadata().getNonInheritedColumns()) {
         // Exclude the system columns like mg_insertedBy
@@ -320,7 +367,7 @@ public class RDFService {
           continue;
         }
         if (columnName == null || columnName.equals(column.getName())) {
-          describeColumn(builder, column);
+          describeColumn(writer, column);
         }
       }
     } else {
@@ -337,23 +384,23 @@ public class RDFService {
     return Values.iri(ns, tableName + "/column/" + columnName);
   }
 
-  private void describeColumn(final ModelBuilder builder, final Column column) {
+  private void describeColumn(final RDFHandler writer, final Column column) {
     final IRI subject = getColumnIRI(column);
     if (column.isReference()) {
-      builder.add(subject, RDF.TYPE, OWL.OBJECTPROPERTY);
+      add(writer, subject, RDF.TYPE, OWL.OBJECTPROPERTY);
       Table refTable = column.getRefTable().getTable();
-      builder.add(subject, RDFS.RANGE, getTableIRI(refTable));
+      add(writer, subject, RDFS.RANGE, getTableIRI(refTable));
     } else {
       var type = column.getColumnType();
       if (type == ColumnType.HYPERLINK || type == ColumnType.HYPERLINK_ARRAY) {
-        builder.add(subject, RDF.TYPE, OWL.OBJECTPROPERTY);
+        add(writer, subject, RDF.TYPE, OWL.OBJECTPROPERTY);
       } else {
-        builder.add(subject, RDF.TYPE, OWL.DATATYPEPROPERTY);
-        builder.add(subject, RDFS.RANGE, columnTypeToXSD(column.getColumnType()));
+        add(writer, subject, RDF.TYPE, OWL.DATATYPEPROPERTY);
+        add(writer, subject, RDFS.RANGE, columnTypeToXSD(column.getColumnType()).getIri());
       }
     }
-    builder.add(subject, RDFS.LABEL, column.getName());
-    builder.add(subject, RDFS.DOMAIN, getTableIRI(column.getTable().getTable()));
+    add(writer, subject, RDFS.LABEL, column.getName());
+    add(writer, subject, RDFS.DOMAIN, getTableIRI(column.getTable().getTable()));
     if (column.getSemantics() != null) {
       for (String columnSemantics : column.getSemantics()) {
         if (columnSemantics.equals("id")) {
@@ -361,7 +408,7 @@ public class RDFService {
           columnSemantics = SEMANTICS_ID_URL_STRING;
         }
         try {
-          builder.add(subject, RDFS.ISDEFINEDBY, iri(columnSemantics));
+          add(writer, subject, RDFS.ISDEFINEDBY, iri(columnSemantics));
         } catch (Exception e) {
           throw new MolgenisException(
               "Semantic tag '"
@@ -377,7 +424,7 @@ public class RDFService {
     }
     if (column.getDescriptions() != null) {
       for (var entry : column.getDescriptions().entrySet()) {
-        builder.add(subject, DC.DESCRIPTION, Values.literal(entry.getValue(), entry.getKey()));
+        add(writer, subject, DC.DESCRIPTION, Values.literal(entry.getValue(), entry.getKey()));
       }
     }
   }
@@ -417,86 +464,120 @@ public class RDFService {
   /**
    * Write the rows to RDF
    *
-   * @param builder the builder to output RDF
+   * @param writer the handler to output RDF
    * @param table the table for which to fetch the rows
    * @param rowId optional rowId
    */
-  public void rowsToRdf(final ModelBuilder builder, Table table, final String rowId) {
-    final IRI tableIRI = getTableIRI(table);
-    for (final Row row : getRows(table, rowId)) {
-      IRI subject = getIriForRow(row, table.getMetadata());
-
-      if (table.getMetadata().getTableType() == TableType.ONTOLOGIES) {
-        builder.add(subject, RDF.TYPE, IRI_CODED_VALUE_DATATYPE);
-        builder.add(subject, RDF.TYPE, OWL.CLASS);
-        builder.add(subject, RDF.TYPE, SKOS.CONCEPT);
-        builder.add(subject, RDFS.SUBCLASSOF, tableIRI);
-        builder.add(subject, SKOS.IN_SCHEME, tableIRI);
-        if (row.getString("name") != null) {
-          builder.add(subject, RDFS.LABEL, Values.literal(row.getString("name")));
-          builder.add(subject, SKOS.PREF_LABEL, Values.literal(row.getString("name")));
-        }
-        if (row.getString("label") != null) {
-          builder.add(subject, RDFS.LABEL, Values.literal(row.getString("label")));
-          builder.add(subject, SKOS.ALT_LABEL, Values.literal(row.getString("name")));
-        }
-        if (row.getString("code") != null) {
-          builder.add(subject, SKOS.NOTATION, Values.literal(row.getString("code")));
-        }
-        if (row.getString("codesystem") != null) {
-          builder.add(
-              subject, IRI_CONTROLLED_VOCABULARY, Values.literal(row.getString("codesystem")));
-        }
-        if (row.getString("definition") != null) {
-          // builder.add(subject, SKOS.DEFINITION, Values.literal(row.getString("definition")));
-        }
-        if (row.getString(ONTOLOGY_TERM_URI) != null) {
-          builder.add(subject, OWL.SAMEAS, Values.iri(row.getString(ONTOLOGY_TERM_URI)));
-        }
-        if (row.getString("parent") != null) {
-          List<IRI> parents = getIriValue(row, table.getMetadata().getColumn("parent"));
-          for (var parent : parents) {
-            builder.add(subject, RDFS.SUBCLASSOF, parent);
-          }
+  public void rowsToRdf(final RDFHandler writer, Table table, final String rowId) {
+    if (rowId != null) {
+      // via rowId might be subclass, because row IRI point to root tables we need to find actual
+      // subclass table to ensure we get all columns
+      for (final Row row : getRow(table, rowId)) {
+        table = getSubclassTableForRowBasedOnMgTableclass(table, row);
+        rowToRdf(writer, getTableIRIs(table), row);
+      }
+    } else {
+      final TableIRIs tableIRIs = getTableIRIs(table);
+      try (Stream<Row> rows = getRows(table)) {
+        rows.forEach(row -> rowToRdf(writer, tableIRIs, row));
+      }
+    }
+  }
+
+  private TableIRIs getTableIRIs(final Table table) {
+    final TableMetadata metadata = table.getMetadata();
+    final List<IRI> tableSemantics = new ArrayList<>();
+    if (metadata.getSemantics() != null) {
+      for (final String semantics : metadata.getSemantics()) {
+        tableSemantics.add(getSemanticsIRI(semantics));
+      }
+    }
+    final List<ColumnIRIs> columns = new ArrayList<>();
+    for (final Column column : metadata.getColumns()) {
+      // Exclude the system columns like mg_insertedBy
+      if (column.isSystemColumn()) {
+        continue;
+      }
+      final List<IRI> columnSemantics = new ArrayList<>();
+      if (column.getSemantics() != null) {
+        for (final String semantics : column.getSemantics()) {
+          // todo: need to figure out how to better handle 'id' tagging
+          columnSemantics.add(
+              getSemanticsIRI(semantics.equals("id") ? SEMANTICS_ID_URL_STRING : semantics));
         }
-      } else {
-        builder.add(subject, RDF.TYPE, tableIRI);
-        builder.add(subject, RDF.TYPE, IRI_OBSERVATION);
-        if (table.getMetadata().getSemantics() != null) {
-          for (String semantics : table.getMetadata().getSemantics()) {
-            builder.add(subject, RDF.TYPE, semantics);
+      }
+      columns.add(
+          new ColumnIRIs(
+              column,
+              getColumnIRI(column),
+              columnSemantics,
+              column.isReference() ? getRowIRIPrefix(column.getRefTable()) : null));
+    }
+    return new TableIRIs(
+        metadata, getTableIRI(table), tableSemantics, getRowIRIPrefix(metadata), columns);
+  }
+
+  private void rowToRdf(final RDFHandler writer, final TableIRIs table, final Row row) {
+    final IRI tableIRI = table.tableIRI();
+    final IRI subject = getIriForRow(row, table);
+    if (table.metadata().getTableType() == TableType.ONTOLOGIES) {
+      add(writer, subject, RDF.TYPE, IRI_CODED_VALUE_DATATYPE);
+      add(writer, subject, RDF.TYPE, OWL.CLASS);
+      add(writer, subject, RDF.TYPE, SKOS.CONCEPT);
+      add(writer, subject, RDFS.SUBCLASSOF, tableIRI);
+      add(writer, subject, SKOS.IN_SCHEME, tableIRI);
+      if (row.getString("name") != null) {
+        add(writer, subject, RDFS.LABEL, Values.literal(row.getString("name")));
+        add(writer, subject, SKOS.PREF_LABEL, Values.literal(row.getString("name")));
+      }
+      if (row.getString("label") != null) {
+        add(writer, subject, RDFS.LABEL, Values.literal(row.getString("label")));
+        add(writer, subject, SKOS.ALT_LABEL, Values.literal(row.getString("name")));
+      }
+      if (row.getString("code") != null) {
+        add(writer, subject, SKOS.NOTATION, Values.literal(row.getString("code")));
+      }
+      if (row.getString("codesystem") != null) {
+        add(
+            writer,
+            subject,
+            IRI_CONTROLLED_VOCABULARY,
+            Values.literal(row.getString("codesystem")));
+      }
+      if (row.getString("definition") != null) {
+        // add(writer, subject, SKOS.DEFINITION, Values.literal(row.getString("definition")));
+      }
+      if (row.getString(ONTOLOGY_TERM_URI) != null) {
+        add(writer, subject, OWL.SAMEAS, Values.iri(row.getString(ONTOLOGY_TERM_URI)));
+      }
+      if (row.getString("parent") != null) {
+        for (final ColumnIRIs column : table.columns()) {
+          if (column.column().getName().equals("parent")) {
+            for (var parent : getIriValue(row, column)) {
+              add(writer, subject, RDFS.SUBCLASSOF, parent);
+            }
           }
         }
-        builder.add(subject, IRI_DATASET_PREDICATE, tableIRI);
-        builder.add(subject, RDFS.LABEL, Values.literal(getLabelForRow(row, table.getMetadata())));
-        // via rowId might be subclass
-        if (rowId != null) {
-          // because row IRI point to root tables we need to find actual subclass table to ensure we
-          // get all columns
-          table = getSubclassTableForRowBasedOnMgTableclass(table, row);
-        }
-        for (final Column column : table.getMetadata().getColumns()) {
-          // Exclude the system columns like mg_insertedBy
-          if (column.isSystemColumn()) {
-            continue;
+      }
+    } else {
+      add(writer, subject, RDF.TYPE, tableIRI);
+      add(writer, subject, RDF.TYPE, IRI_OBSERVATION);
+      for (final IRI semantics : table.semantics()) {
+        add(writer, subject, RDF.TYPE, semantics);
+      }
+      add(writer, subject, IRI_DATASET_PREDICATE, tableIRI);
+      add(writer, subject, RDFS.LABEL, Values.literal(getLabelForRow(row, table.metadata())));
+      for (final ColumnIRIs column : table.columns()) {
+        for (final Value value : formatValue(row, column)) {
+          for (final IRI semantics : column.semantics()) {
+            add(writer, subject, semantics, value);
           }
-          IRI columnIRI = getColumnIRI(column);
-          for (final Value value : formatValue(row, column)) {
-            if (column.getSemantics() != null) {
-              for (String semantics : column.getSemantics()) {
-                builder.add(subject.stringValue(), semantics, value);
-                //                builder.add(
-                //                    // subject, Values.iri(semantics), value);
-                //                    subject, Values.iri(semantics.split(":")[0],
-                // semantics.split(":")[1]), value);
-              }
-            }
-            builder.add(subject, columnIRI, value);
-            if (column.getColumnType().equals(ColumnType.HYPERLINK)
-                || column.getColumnType().equals(ColumnType.HYPERLINK_ARRAY)) {
-              var resource = Values.iri(value.stringValue());
-              builder.add(resource, RDFS.LABEL, Values.literal(value.stringValue()));
-            }
+          add(writer, subject, column.columnIRI(), value);
+          final ColumnType columnType = column.column().getColumnType();
+          if (columnType.equals(ColumnType.HYPERLINK)
+              || columnType.equals(ColumnType.HYPERLINK_ARRAY)) {
+            var resource = Values.iri(value.stringValue());
+            add(writer, resource, RDFS.LABEL, Values.literal(value.stringValue()));
           }
         }
       }
@@ -530,33 +611,40 @@ public class RDFService {
     return String.join(" ", primaryKeyValues);
   }
 
-  private List<Row> getRows(Table table, final String rowId) {
+  private List<Row> getRow(Table table, final String rowId) {
+    // first find from root table
+    PrimaryKey key = PrimaryKey.makePrimaryKeyFromEncodedKey(rowId);
+    List<Row> oneRow = table.query().where(key.getFilter()).retrieveRows();
+    // if subclass
+    if (oneRow.size() == 1 && oneRow.get(0).getString(MG_TABLECLASS) != null) {
+      Row row = oneRow.get(0);
+      table = getSubclassTableForRowBasedOnMgTableclass(table, row);
+      return table.query().where(key.getFilter()).retrieveRows();
+    }
+    return oneRow;
+  }
+
+  /** Rows from a database cursor, must be closed. */
+  private Stream<Row> getRows(Table table) {
     Query query = table.query();
-    if (rowId != null) {
-      // first find from root table
-      PrimaryKey key = PrimaryKey.makePrimaryKeyFromEncodedKey(rowId);
-      List<Row> oneRow = query.where(key.getFilter()).retrieveRows();
-      // if subclass
-      if (oneRow.size() == 1 && oneRow.get(0).getString(MG_TABLECLASS) != null) {
-        Row row = oneRow.get(0);
-        table = getSubclassTableForRowBasedOnMgTableclass(table, row);
-        return table.query().where(key.getFilter()).retrieveRows();
-      }
-      return oneRow;
-    } else {
-      if (table.getMetadata().getColumnNames().contains(MG_TABLECLASS)) {
-        var tableName = table.getSchema().getName() + "." + table.getName();
-        query.where(f("mg_tableclass", EQUALS, tableName));
-      }
-      return query.retrieveRows();
+    if (table.getMetadata().getColumnNames().contains(MG_TABLECLASS)) {
+      var tableName = table.getSchema().getName() + "." + table.getName();
+      query.where(f("mg_tableclass", EQUALS, tableName));
     }
+    return query.retrieveRowStream();
   }
 
-  private IRI getIriForRow(final Row row, final TableMetadata metadata) {
+  /** Row IRIs point to the root table, followed by the encoded primary key. */
+  private String getRowIRIPrefix(final TableMetadata metadata) {
     final String rootTableName =
         UrlEscapers.urlPathSegmentEscaper().escape(metadata.getRootTable().getIdentifier());
+    final Namespace ns = getSchemaNamespace(metadata.getRootTable().getSchema());
+    return ns.getName() + rootTableName + "?";
+  }
+
+  private IRI getIriForRow(final Row row, final TableIRIs table) {
     final Map<String, String> keyParts = new LinkedHashMap<>();
-    for (final Column column : metadata.getPrimaryKeyColumns()) {
+    for (final Column column : table.metadata().getPrimaryKeyColumns()) {
       if (column.isReference()) {
         for (final Reference reference : column.getReferences()) {
           final String[] values = row.getStringArray(reference.getName());
@@ -568,17 +656,12 @@ public class RDFService {
         keyParts.put(column.getIdentifier(), row.get(column).toString());
       }
     }
-    final Namespace ns = getSchemaNamespace(metadata.getRootTable().getSchema());
     PrimaryKey key = new PrimaryKey(keyParts);
-    return Values.iri(ns, rootTableName + "?" + key.getEncodedValue());
+    return Values.iri(table.rowIRIPrefix() + key.getEncodedValue());
   }
 
-  private List<IRI> getIriValue(final Row row, final Column column) {
-    final TableMetadata target = column.getRefTable();
-    final String rootTableName =
-        UrlEscapers.urlPathSegmentEscaper().escape(target.getRootTable().getIdentifier());
-    final Namespace ns = getSchemaNamespace(target.getRootTable().getSchema());
-
+  private List<IRI> getIriValue(final Row row, final ColumnIRIs columnIRIs) {
+    final Column column = columnIRIs.column();
     final Set<IRI> iris = new HashSet<>();
     final Map<Integer, Map<String, String>> items = new HashMap<>();
     for (final Reference reference : column.getReferences()) {
@@ -605,16 +688,17 @@ public class RDFService {
 
     for (final var item : items.values()) {
       PrimaryKey key = new PrimaryKey(item);
-      iris.add(Values.iri(ns, rootTableName + "?" + key.getEncodedValue()));
+      iris.add(Values.iri(columnIRIs.refIRIPrefix() + key.getEncodedValue()));
     }
     return List.copyOf(iris);
   }
 
-  private List<Value> formatValue(final Row row, final Column column) {
+  private List<Value> formatValue(final Row row, final ColumnIRIs columnIRIs) {
+    final Column column = columnIRIs.column();
     final List<Value> values = new ArrayList<>();
     final ColumnType columnType = column.getColumnType();
     if (columnType.isReference()) {
-      values.addAll(getIriValue(row, column));
+      values.addAll(getIriValue(row, columnIRIs));
     } else if (columnType.equals(ColumnType.FILE)) {
       if (row.getString(column.getName() + "_id") != null) {
         final String schemaPath =
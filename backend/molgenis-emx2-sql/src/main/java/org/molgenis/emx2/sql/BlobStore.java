@@ -0,0 +1,83 @@
+package org.molgenis.emx2.sql;
+
+import static org.molgenis.emx2.ColumnType.STRING;
+import static org.molgenis.emx2.Constants.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.utils.EnvironmentProperty;
+
+/**
+ * Stores the contents of FILE columns outside the data tables. Contents are addressed by their
+ * SHA-256 hash, so identical files are stored once. The file id in the data table then has the form
+ * '&lt;upload id&gt;-&lt;hash&gt;', files with a plain upload id are stored in the '_contents'
+ * column.
+ */
+public interface BlobStore {
+  String HASH_SEPARATOR = "-";
+
+  /** stores the contents under the hash, unless already present */
+  void put(String hash, byte[] contents);
+
+  /**
+   * Copies at most length bytes of the blob, starting at offset, to the output stream.
+   *
+   * @return the number of bytes written, less than length at the end of the blob
+   */
+  long read(String hash, long offset, long length, OutputStream outputStream);
+
+  default byte[] get(String hash) {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    read(hash, 0, Long.MAX_VALUE, result);
+    return result.toByteArray();
+  }
+
+  /** stores the contents and returns the file id to keep in the data table */
+  default String store(String uploadId, byte[] contents) {
+    String hash = sha256(contents);
+    put(hash, contents);
+    return uploadId + HASH_SEPARATOR + hash;
+  }
+
+  /** returns the hash of a file in a blob store, or null if the file is in the data table */
+  static String getHash(String fileId) {
+    int index = fileId.lastIndexOf(HASH_SEPARATOR);
+    return index < 0 ? null : fileId.substring(index + 1);
+  }
+
+  static String sha256(byte[] contents) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contents));
+    } catch (NoSuchAlgorithmException e) {
+      throw new MolgenisException("SHA-256 not available", e);
+    }
+  }
+
+  /**
+   * Creates the blob store configured by MOLGENIS_BLOB_STORE_DIR or MOLGENIS_BLOB_STORE_S3_URL, or
+   * returns null to store files in the database.
+   */
+  static BlobStore fromEnvironment() {
+    String dir = (String) EnvironmentProperty.getParameter(MOLGENIS_BLOB_STORE_DIR, null, STRING);
+    String url =
+        (String) EnvironmentProperty.getParameter(MOLGENIS_BLOB_STORE_S3_URL, null, STRING);
+    if (dir != null) {
+      return new FileSystemBlobStore(Path.of(dir));
+    } else if (url != null) {
+      return new S3BlobStore(
+          url,
+          (String)
+              EnvironmentProperty.getParameter(MOLGENIS_BLOB_STORE_S3_REGION, "us-east-1", STRING),
+          (String)
+              EnvironmentProperty.getParameter(MOLGENIS_BLOB_STORE_S3_ACCESS_KEY, null, STRING),
+          (String)
+              EnvironmentProperty.getParameter(MOLGENIS_BLOB_STORE_S3_SECRET_KEY, null, STRING));
+    }
+    return null;
+  }
+}
@@ -1,83 +1,286 @@
 package org.molgenis.emx2.sql;
 
 import static org.jooq.impl.DSL.field;
+import static org.jooq.impl.DSL.inline;
 import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.row;
 import static org.jooq.impl.DSL.select;
 import static org.jooq.impl.DSL.table;
+import static org.jooq.impl.SQLDataType.BIGINT;
 import static org.jooq.impl.SQLDataType.CHAR;
-import static org.jooq.impl.SQLDataType.JSON;
+import static org.jooq.impl.SQLDataType.JSONB;
 import static org.jooq.impl.SQLDataType.TIMESTAMP;
 import static org.jooq.impl.SQLDataType.VARCHAR;
+import static org.molgenis.emx2.Constants.CHANGELOG_RETENTION_MONTHS;
 import static org.molgenis.emx2.Privileges.EDITOR;
 import static org.molgenis.emx2.Privileges.MANAGER;
 import static org.molgenis.emx2.Privileges.VIEWER;
 import static org.molgenis.emx2.sql.SqlSchemaMetadataExecutor.getRolePrefix;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
-import org.jooq.Record6;
+import org.jooq.Record7;
 import org.jooq.Result;
 import org.molgenis.emx2.Change;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.SchemaMetadata;
 import org.molgenis.emx2.TableMetadata;
+import org.molgenis.emx2.utils.TypeUtils;
 
+/**
+ * The change log of a schema is partitioned by month on stamp, e.g. 'mg_changelog_202401', with a
+ * default partition for changes outside the created partitions, see {@link
+ * #executeMaintainChangeLog}.
+ */
 public class ChangeLogExecutor {
 
   public static final String MG_CHANGLOG = "mg_changelog";
+  private static final String DEFAULT_PARTITION = MG_CHANGLOG + "_default";
+  private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+  // above this estimated number of changes, the count is estimated instead of counted
+  private static final long EXACT_COUNT_LIMIT = 100000;
+  private static final Field<Long> ID = field(name("id"), BIGINT.nullable(false));
   private static final Field<String> OPERATION = field(name("operation"), CHAR(1).nullable(false));
   private static final Field<Timestamp> STAMP = field(name("stamp"), TIMESTAMP.nullable(false));
   private static final Field<String> USERID = field(name("userid"), VARCHAR.nullable(false));
   private static final Field<String> TABLENAME = field(name("tablename"), VARCHAR.nullable(false));
-  private static final Field<org.jooq.JSON> OLD = field(name("old"), JSON.nullable(true));
-  private static final Field<org.jooq.JSON> NEW = field(name("new"), JSON.nullable(true));
+  private static final Field<org.jooq.JSONB> OLD = field(name("old"), JSONB.nullable(true));
+  private static final Field<org.jooq.JSONB> NEW = field(name("new"), JSONB.nullable(true));
 
   private ChangeLogExecutor() {
     // hide
   }
 
   static void enableChangeLog(SqlDatabase db, SchemaMetadata schema) {
-    // Create change log table
-    org.jooq.Table<Record> changelogTable = table(name(schema.getName(), MG_CHANGLOG));
-    db.getJooq()
-        .createTableIfNotExists(changelogTable)
-        .columns(OPERATION, STAMP, USERID, TABLENAME, OLD, NEW)
-        .execute();
+    createChangeLogTable(db.getJooq(), schema.getName());
+    executeMaintainChangeLog(db.getJooq(), schema);
+    createAuditTriggers(db, schema);
+  }
+
+  private static void createChangeLogTable(DSLContext jooq, String schemaName) {
+    org.jooq.Table<Record> changelogTable = table(name(schemaName, MG_CHANGLOG));
+    jooq.execute(
+        "CREATE TABLE IF NOT EXISTS {0} ({1} BIGSERIAL, {2} CHAR(1) NOT NULL,"
+            + " {3} TIMESTAMP NOT NULL, {4} VARCHAR NOT NULL, {5} VARCHAR NOT NULL,"
+            + " {6} JSONB, {7} JSONB) PARTITION BY RANGE ({3})",
+        changelogTable,
+        ID.getUnqualifiedName(),
+        OPERATION.getUnqualifiedName(),
+        STAMP.getUnqualifiedName(),
+        USERID.getUnqualifiedName(),
+        TABLENAME.getUnqualifiedName(),
+        OLD.getUnqualifiedName(),
+        NEW.getUnqualifiedName());
+    jooq.execute(
+        "CREATE INDEX IF NOT EXISTS {0} ON {1} ({2}, {3})",
+        name(MG_CHANGLOG + "_stamp_tablename"),
+        changelogTable,
+        STAMP.getUnqualifiedName(),
+        TABLENAME.getUnqualifiedName());
+    jooq.execute(
+        "CREATE TABLE IF NOT EXISTS {0} PARTITION OF {1} DEFAULT",
+        table(name(schemaName, DEFAULT_PARTITION)), changelogTable);
+    jooq.execute(ChangeLogUtils.buildChangeDiffFunction(schemaName));
 
     // Grant rights to all to insert into change log, only admin and owner can read
-    final String schemaName = schema.getName();
     final String member = getRolePrefix(schemaName) + VIEWER;
     final String editor = getRolePrefix(schemaName) + EDITOR;
     final String manager = getRolePrefix(schemaName) + MANAGER;
 
-    db.getJooq()
-        .execute(
-            "GRANT INSERT ON {0} TO {1}, {2}, {3}",
-            changelogTable, name(editor), name(manager), name(member));
-    db.getJooq().execute("GRANT SELECT ON {0} TO {1}", changelogTable, name(manager));
+    jooq.execute(
+        "GRANT INSERT ON {0} TO {1}, {2}, {3}",
+        changelogTable, name(editor), name(manager), name(member));
+    jooq.execute(
+        "GRANT USAGE ON SEQUENCE {0} TO {1}, {2}, {3}",
+        name(schemaName, MG_CHANGLOG + "_id_seq"), name(editor), name(manager), name(member));
+    jooq.execute("GRANT SELECT ON {0} TO {1}", changelogTable, name(manager));
+    // manager owns the partitions, so can maintain them
+    jooq.execute("ALTER TABLE {0} OWNER TO {1}", changelogTable, name(manager));
+  }
 
+  private static void createAuditTriggers(SqlDatabase db, SchemaMetadata schema) {
     // Setup trigger for each table in schema
     for (TableMetadata table : schema.getTables()) {
       // drop previous version
       db.getJooq()
           .execute(ChangeLogUtils.buildAuditTriggerRemove(schema.getName(), table.getTableName()));
-      // setup trigger processing function
+      // also drops previous statement triggers
       db.getJooq()
           .execute(
-              ChangeLogUtils.buildProcessAuditFunction(schema.getName(), table.getTableName()));
+              ChangeLogUtils.buildProcessAuditFunctionRemove(
+                  schema.getName(), table.getTableName()));
+      createAuditTrigger(db.getJooq(), table);
+    }
+  }
+
+  static void createAuditTrigger(DSLContext jooq, TableMetadata table) {
+    if (SqlDatabase.isStatementTriggers()) {
+      jooq.execute(
+          ChangeLogUtils.buildProcessAuditStatementFunction(
+              table.getSchemaName(), table.getTableName()));
+      jooq.execute(
+          ChangeLogUtils.buildAuditStatementTriggers(table.getSchemaName(), table.getTableName()));
+    } else {
+      // setup trigger processing function
+      jooq.execute(
+          ChangeLogUtils.buildProcessAuditFunction(table.getSchemaName(), table.getTableName()));
 
       // set audit trigger, logs insert, update and delete actions on table
-      db.getJooq()
-          .execute(ChangeLogUtils.buildAuditTrigger(schema.getName(), table.getTableName()));
+      jooq.execute(ChangeLogUtils.buildAuditTrigger(table.getSchemaName(), table.getTableName()));
+    }
+  }
+
+  /**
+   * Creates the partitions of the current and the next month and drops the partitions before the
+   * months to keep according to {@link org.molgenis.emx2.Constants#CHANGELOG_RETENTION_MONTHS}. Run
+   * on startup, when enabling the change log and when changing the retention.
+   */
+  static void executeMaintainChangeLog(DSLContext jooq, SchemaMetadata schema) {
+    if (!hasChangeLogTable(jooq, schema)) {
+      return;
+    }
+    YearMonth month = YearMonth.now();
+    createPartitions(jooq, schema.getName(), month, month.plusMonths(1));
+    Integer retention = TypeUtils.toInt(schema.getSetting(CHANGELOG_RETENTION_MONTHS));
+    if (retention != null) {
+      executeDropChangesBefore(jooq, schema.getName(), month.minusMonths(retention));
+    }
+  }
+
+  /** maintains the change logs of all schemas, see {@link #executeMaintainChangeLog} */
+  static void executeMaintainChangeLogs(SqlDatabase db) {
+    for (String schemaName :
+        db.getJooq()
+            .fetchValues(
+                select(field("table_schema", String.class))
+                    .from(table(name("information_schema", "tables")))
+                    .where(field("table_name").eq(MG_CHANGLOG)))) {
+      executeMaintainChangeLog(db.getJooq(), db.getSchema(schemaName).getMetadata());
+    }
+  }
+
+  /** creates the missing partitions from month 'from' up to and including month 'until' */
+  static void createPartitions(
+      DSLContext jooq, String schemaName, YearMonth from, YearMonth until) {
+    for (YearMonth month = from; !month.isAfter(until); month = month.plusMonths(1)) {
+      if (!hasTable(jooq, schemaName, partitionName(month))) {
+        createPartition(jooq, schemaName, month);
+      }
     }
   }
 
+  private static void createPartition(DSLContext jooq, String schemaName, YearMonth month) {
+    org.jooq.Table<Record> changelogTable = table(name(schemaName, MG_CHANGLOG));
+    org.jooq.Table<Record> partition = table(name(schemaName, partitionName(month)));
+    LocalDate start = month.atDay(1);
+    LocalDate end = month.plusMonths(1).atDay(1);
+    jooq.transaction(
+        config -> {
+          DSLContext j = config.dsl();
+          j.execute("CREATE TABLE {0} (LIKE {1})", partition, changelogTable);
+          // changes that were logged before the partition existed are in the default partition
+          j.execute(
+              "WITH moved AS (DELETE FROM {0} WHERE {1} >= {2} AND {1} < {3} RETURNING *)"
+                  + " INSERT INTO {4} SELECT * FROM moved",
+              table(name(schemaName, DEFAULT_PARTITION)),
+              STAMP.getUnqualifiedName(),
+              inline(start),
+              inline(end),
+              partition);
+          j.execute(
+              "ALTER TABLE {0} ATTACH PARTITION {1} FOR VALUES FROM ({2}) TO ({3})",
+              changelogTable, partition, inline(start), inline(end));
+        });
+  }
+
+  /** drops the changes logged before month, dropping whole partitions where possible */
+  static void executeDropChangesBefore(DSLContext jooq, String schemaName, YearMonth month) {
+    for (String partitionName :
+        jooq.fetchValues(
+            select(field("tablename", String.class))
+                .from(table(name("pg_catalog", "pg_tables")))
+                .where(field("schemaname").eq(schemaName))
+                .and(field("tablename").likeRegex("^" + MG_CHANGLOG + "_[0-9]{6}$")))) {
+      YearMonth partitionMonth =
+          YearMonth.parse(partitionName.substring(MG_CHANGLOG.length() + 1), PARTITION_MONTH);
+      if (partitionMonth.isBefore(month)) {
+        jooq.dropTable(table(name(schemaName, partitionName))).execute();
+      }
+    }
+    jooq.deleteFrom(table(name(schemaName, DEFAULT_PARTITION)))
+        .where(STAMP.lt(Timestamp.valueOf(month.atDay(1).atStartOfDay())))
+        .execute();
+  }
+
+  /**
+   * Converts a change log created before it was partitioned into a partitioned one, and recreates
+   * its audit triggers if the change log is enabled.
+   */
+  static void executePartitionChangeLog(SqlDatabase db, SchemaMetadata schema) {
+    DSLContext jooq = db.getJooq();
+    String schemaName = schema.getName();
+    boolean isPartitioned =
+        jooq.fetchExists(
+            select()
+                .from(table(name("pg_catalog", "pg_partitioned_table")))
+                .where(
+                    field("partrelid")
+                        .eq(
+                            field(
+                                "to_regclass({0})",
+                                inline(jooq.render(table(name(schemaName, MG_CHANGLOG))))))));
+    if (isPartitioned) {
+      return;
+    }
+    org.jooq.Table<Record> unpartitioned = table(name(schemaName, MG_CHANGLOG + "_unpartitioned"));
+    jooq.alterTable(table(name(schemaName, MG_CHANGLOG))).renameTo(unpartitioned).execute();
+    createChangeLogTable(jooq, schemaName);
+    Timestamp first =
+        jooq.select(field("min({0})", Timestamp.class, STAMP))
+            .from(unpartitioned)
+            .fetchOne(0, Timestamp.class);
+    YearMonth month = YearMonth.now();
+    createPartitions(
+        jooq,
+        schemaName,
+        first != null ? YearMonth.from(first.toLocalDateTime()) : month,
+        month.plusMonths(1));
+    jooq.execute(
+        "INSERT INTO {0} ({1}, {2}, {3}, {4}, {5}, {6})"
+            + " SELECT {1}, {2}, {3}, {4}, {5}::jsonb, {6}::jsonb FROM {7} ORDER BY {2}",
+        table(name(schemaName, MG_CHANGLOG)),
+        OPERATION.getUnqualifiedName(),
+        STAMP.getUnqualifiedName(),
+        USERID.getUnqualifiedName(),
+        TABLENAME.getUnqualifiedName(),
+        OLD.getUnqualifiedName(),
+        NEW.getUnqualifiedName(),
+        unpartitioned);
+    jooq.dropTable(unpartitioned).execute();
+    if (ChangeLogUtils.isChangeSchema(db, schemaName)) {
+      createAuditTriggers(db, schema);
+    }
+  }
+
+  private static String partitionName(YearMonth month) {
+    return MG_CHANGLOG + "_" + month.format(PARTITION_MONTH);
+  }
+
   static void executeDropChangeLogTableForSchema(SqlDatabase db, Schema schema) {
     db.getJooq().dropTableIfExists(table(name(schema.getName(), MG_CHANGLOG))).execute();
+    db.getJooq()
+        .execute(
+            "DROP FUNCTION IF EXISTS {0}(JSONB, JSONB, OID)",
+            name(schema.getName(), MG_CHANGLOG + "_diff"));
   }
 
   static void disableChangeLog(SqlDatabase db, SchemaMetadata schema) {
@@ -101,44 +304,88 @@ public class ChangeLogExecutor {
   }
 
   static List<Change> executeGetChanges(DSLContext jooq, SchemaMetadata schema, int limit) {
+    return executeGetChanges(jooq, schema, null, null, null, null, null, limit);
+  }
+
+  static List<Change> executeGetChanges(
+      DSLContext jooq,
+      SchemaMetadata schema,
+      String tableName,
+      Timestamp since,
+      Timestamp until,
+      Timestamp afterStamp,
+      Long afterId,
+      int limit) {
     if (!hasChangeLogTable(jooq, schema)) {
       return Collections.emptyList();
     }
-    Result<Record6<String, Timestamp, String, String, org.jooq.JSON, org.jooq.JSON>> result =
-        jooq.select(OPERATION, STAMP, USERID, TABLENAME, OLD, NEW)
-            .from(table(name(schema.getName(), MG_CHANGLOG)))
-            .orderBy(STAMP.desc())
-            .limit(limit)
-            .fetch();
+    List<Condition> conditions = new ArrayList<>();
+    if (tableName != null) {
+      conditions.add(TABLENAME.eq(tableName));
+    }
+    // only the partitions in the time window are scanned
+    if (since != null) {
+      conditions.add(STAMP.ge(since));
+    }
+    if (until != null) {
+      conditions.add(STAMP.lt(until));
+    }
+    // keyset paging, continuing after the last change of the previous page
+    if (afterStamp != null) {
+      conditions.add(
+          afterId != null ? row(STAMP, ID).lt(afterStamp, afterId) : STAMP.lt(afterStamp));
+    }
+    Result<Record7<Long, String, Timestamp, String, String, org.jooq.JSONB, org.jooq.JSONB>>
+        result =
+            jooq.select(ID, OPERATION, STAMP, USERID, TABLENAME, OLD, NEW)
+                .from(table(name(schema.getName(), MG_CHANGLOG)))
+                .where(conditions)
+                .orderBy(STAMP.desc(), ID.desc())
+                .limit(limit)
+                .fetch();
 
     return result.stream()
         .map(
-            r -> {
-              char operation = r.getValue(OPERATION, char.class);
-              Timestamp stamp = r.getValue(STAMP, Timestamp.class);
-              String userId = r.getValue(USERID, String.class);
-              String tableName = r.getValue(TABLENAME, String.class);
-              String oldRowData = r.getValue(OLD, String.class);
-              String newRowData = r.getValue(NEW, String.class);
-              return new Change(operation, stamp, userId, tableName, oldRowData, newRowData);
-            })
+            r ->
+                new Change(
+                    r.getValue(OPERATION, char.class),
+                    r.getValue(STAMP, Timestamp.class),
+                    r.getValue(USERID, String.class),
+                    r.getValue(TABLENAME, String.class),
+                    r.getValue(OLD, String.class),
+                    r.getValue(NEW, String.class),
+                    r.getValue(ID, long.class)))
         .toList();
   }
 
   static Integer executeGetChangesCount(DSLContext jooq, SchemaMetadata schema) {
-    if (hasChangeLogTable(jooq, schema)) {
-      return jooq.fetchCount(table(name(schema.getName(), MG_CHANGLOG)));
-    } else {
+    if (!hasChangeLogTable(jooq, schema)) {
       // do not query db when changelog table does not exist
       return 0;
     }
+    // counting a large change log takes long, so then use the estimate of the partitions
+    Long estimate =
+        TypeUtils.toLong(
+            jooq.fetchValue(
+                "SELECT sum(greatest(c.reltuples, 0))::bigint FROM pg_catalog.pg_class c"
+                    + " JOIN pg_catalog.pg_namespace n ON n.oid = c.relnamespace"
+                    + " WHERE n.nspname = {0} AND c.relispartition AND c.relname LIKE {1}",
+                inline(schema.getName()), inline(MG_CHANGLOG + "\\_%")));
+    if (estimate != null && estimate > EXACT_COUNT_LIMIT) {
+      return (int) Math.min(estimate, Integer.MAX_VALUE);
+    }
+    return jooq.fetchCount(table(name(schema.getName(), MG_CHANGLOG)));
   }
 
   static boolean hasChangeLogTable(DSLContext jooq, SchemaMetadata schema) {
+    return hasTable(jooq, schema.getName(), MG_CHANGLOG);
+  }
+
+  private static boolean hasTable(DSLContext jooq, String schemaName, String tableName) {
     return jooq.fetchExists(
         select()
             .from(table(name("information_schema", "tables")))
-            .where(field("table_schema").eq(schema.getName()))
-            .and(field("table_name").eq(MG_CHANGLOG)));
+            .where(field("table_schema").eq(schemaName))
+            .and(field("table_name").eq(tableName)));
   }
 }
@@ -17,14 +17,15 @@ public class ChangeLogUtils {
             CREATE OR REPLACE FUNCTION "%1$s"."process_%3$s_audit"() RETURNS TRIGGER AS $%3$s_audit$
                    BEGIN
                        IF (TG_OP = 'DELETE') THEN
-                           INSERT INTO "%1$s".mg_changelog
-                           SELECT 'D', now(), user, TG_TABLE_NAME, row_to_json(OLD.*), row_to_json(NEW.*);
+                           INSERT INTO "%1$s".mg_changelog (operation, stamp, userid, tablename, old, new)
+                           SELECT 'D', now(), user, TG_TABLE_NAME, to_jsonb(OLD.*), NULL;
                        ELSIF (TG_OP = 'UPDATE') THEN
-                           INSERT INTO "%1$s".mg_changelog
-                           SELECT 'U', now(), user, TG_TABLE_NAME, row_to_json(OLD.*), row_to_json(NEW.*);
+                           INSERT INTO "%1$s".mg_changelog (operation, stamp, userid, tablename, old, new)
+                           SELECT 'U', now(), user, TG_TABLE_NAME, d.old, d.new
+                           FROM "%1$s".mg_changelog_diff(to_jsonb(OLD.*), to_jsonb(NEW.*), TG_RELID) d;
                        ELSIF (TG_OP = 'INSERT') THEN
-                           INSERT INTO "%1$s".mg_changelog
-                           SELECT 'I', now(), user, TG_TABLE_NAME, row_to_json(OLD.*), row_to_json(NEW.*);
+                           INSERT INTO "%1$s".mg_changelog (operation, stamp, userid, tablename, old, new)
+                           SELECT 'I', now(), user, TG_TABLE_NAME, NULL, to_jsonb(NEW.*);
                        END IF;
                        RETURN NULL; -- result is ignored since this is an AFTER trigger
                    END;
@@ -36,6 +37,25 @@ public class ChangeLogUtils {
             ChangeLogUtils.buildFunctionName(tableName));
   }
 
+  /**
+   * Function giving the old and new values of the primary key and the changed columns of an updated
+   * row, so updates are logged as a diff. If either row is null, returns the rows as is.
+   */
+  public static String buildChangeDiffFunction(String schemaName) {
+    return """
+            CREATE OR REPLACE FUNCTION "%1$s".mg_changelog_diff(o JSONB, n JSONB, relid OID, OUT old JSONB, OUT new JSONB) AS $$
+                   SELECT CASE WHEN o IS NULL OR n IS NULL THEN o ELSE jsonb_object_agg(f.key, f.value) END,
+                          CASE WHEN o IS NULL OR n IS NULL THEN n ELSE jsonb_object_agg(f.key, n -> f.key) END
+                   FROM jsonb_each(o) f
+                   WHERE f.value IS DISTINCT FROM (n -> f.key) OR f.key IN (
+                       SELECT a.attname::text FROM pg_index i
+                       JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)
+                       WHERE i.indrelid = relid AND i.indisprimary);
+                   $$ LANGUAGE sql STABLE;
+                """
+        .formatted(schemaName);
+  }
+
   public static String buildAuditTrigger(String schemaName, String tableName) {
     return """
             CREATE TRIGGER %3$s_audit
@@ -45,6 +65,61 @@ public class ChangeLogUtils {
         .formatted(schemaName, tableName, ChangeLogUtils.buildFunctionName(tableName));
   }
 
+  /**
+   * Same as {@link #buildProcessAuditFunction} but for {@link #buildAuditStatementTriggers},
+   * logging all rows of a statement at once. Old and new rows of an update are matched on the
+   * current primary key, so an update of the key itself is logged as one change without new and one
+   * without old, both in full.
+   */
+  public static String buildProcessAuditStatementFunction(String schemaName, String tableName) {
+    return """
+            CREATE OR REPLACE FUNCTION "%1$s"."process_%3$s_audit"() RETURNS TRIGGER AS $%3$s_audit$
+                   DECLARE key_join TEXT;
+                   BEGIN
+                       IF (TG_OP = 'DELETE') THEN
+                           INSERT INTO "%1$s".mg_changelog (operation, stamp, userid, tablename, old, new)
+                           SELECT 'D', now(), user, TG_TABLE_NAME, to_jsonb(o.*), NULL FROM oldtab o;
+                       ELSIF (TG_OP = 'UPDATE') THEN
+                           SELECT string_agg(format('o.%%1$I = n.%%1$I', a.attname), ' AND ') INTO key_join
+                           FROM pg_index i JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY (i.indkey)
+                           WHERE i.indrelid = TG_RELID AND i.indisprimary;
+                           EXECUTE format('INSERT INTO "%1$s".mg_changelog (operation, stamp, userid, tablename, old, new)'
+                               ' SELECT ''U'', now(), user, %%L, d.old, d.new FROM oldtab o FULL JOIN newtab n ON %%s,'
+                               ' "%1$s".mg_changelog_diff(to_jsonb(o.*), to_jsonb(n.*), %%s) d',
+                               TG_TABLE_NAME, COALESCE(key_join, 'false'), TG_RELID);
+                       ELSIF (TG_OP = 'INSERT') THEN
+                           INSERT INTO "%1$s".mg_changelog (operation, stamp, userid, tablename, old, new)
+                           SELECT 'I', now(), user, TG_TABLE_NAME, NULL, to_jsonb(n.*) FROM newtab n;
+                       END IF;
+                       RETURN NULL; -- result is ignored since this is an AFTER trigger
+                   END;
+                   $%3$s_audit$ LANGUAGE plpgsql;
+                """
+        .formatted(
+            schemaName,
+            ChangeLogUtils.buildFunctionName(schemaName),
+            ChangeLogUtils.buildFunctionName(tableName));
+  }
+
+  /**
+   * Same as {@link #buildAuditTrigger} but per statement, which needs a trigger for each operation
+   * to get its transition tables. Removed by {@link #buildProcessAuditFunctionRemove}.
+   */
+  public static String buildAuditStatementTriggers(String schemaName, String tableName) {
+    return """
+            CREATE TRIGGER %3$s_audit
+            AFTER INSERT ON "%1$s"."%2$s" REFERENCING NEW TABLE AS newtab
+                FOR EACH STATEMENT EXECUTE FUNCTION "%1$s"."process_%3$s_audit"();
+            CREATE TRIGGER %3$s_audit_update
+            AFTER UPDATE ON "%1$s"."%2$s" REFERENCING OLD TABLE AS oldtab NEW TABLE AS newtab
+                FOR EACH STATEMENT EXECUTE FUNCTION "%1$s"."process_%3$s_audit"();
+            CREATE TRIGGER %3$s_audit_delete
+            AFTER DELETE ON "%1$s"."%2$s" REFERENCING OLD TABLE AS oldtab
+                FOR EACH STATEMENT EXECUTE FUNCTION "%1$s"."process_%3$s_audit"();
+            """
+        .formatted(schemaName, tableName, ChangeLogUtils.buildFunctionName(tableName));
+  }
+
   public static String buildAuditTriggerRemove(String schemaName, String tableName) {
     return """
             DROP TRIGGER IF EXISTS %3$s_audit ON "%1$s"."%2$s" CASCADE
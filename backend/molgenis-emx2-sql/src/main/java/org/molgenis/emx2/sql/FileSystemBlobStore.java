@@ -0,0 +1,77 @@
+package org.molgenis.emx2.sql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import org.molgenis.emx2.MolgenisException;
+
+/** Blob store in a local directory, using the first characters of the hash as subdirectories. */
+public class FileSystemBlobStore implements BlobStore {
+  private final Path directory;
+
+  public FileSystemBlobStore(Path directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public void put(String hash, byte[] contents) {
+    Path path = getPath(hash);
+    if (Files.exists(path)) {
+      return;
+    }
+    try {
+      Files.createDirectories(path.getParent());
+      // write to a temporary file first, so readers never see a partial blob
+      Path temp = Files.createTempFile(path.getParent(), hash, ".tmp");
+      try {
+        Files.write(temp, contents);
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (FileAlreadyExistsException e) {
+      // stored concurrently, which has the same contents
+    } catch (IOException e) {
+      throw new MolgenisException("Store file in " + directory + " failed", e);
+    }
+  }
+
+  @Override
+  public long read(String hash, long offset, long length, OutputStream outputStream) {
+    Path path = getPath(hash);
+    if (!Files.exists(path)) {
+      throw new MolgenisException("Retrieve file failed: blob " + hash + " not found");
+    }
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (offset >= channel.size()) {
+        return 0;
+      }
+      channel.position(offset);
+      InputStream in = Channels.newInputStream(channel);
+      long remaining = Math.min(length, channel.size() - offset);
+      byte[] buffer = new byte[(int) Math.min(remaining, 64 * 1024)];
+      long written = 0;
+      while (written < remaining) {
+        int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining - written));
+        if (read < 0) {
+          break;
+        }
+        outputStream.write(buffer, 0, read);
+        written += read;
+      }
+      return written;
+    } catch (IOException e) {
+      throw new MolgenisException("Retrieve file failed: blob " + hash, e);
+    }
+  }
+
+  private Path getPath(String hash) {
+    if (!hash.matches("[0-9a-f]{64}")) {
+      throw new MolgenisException("Invalid blob hash '" + hash + "'");
+    }
+    return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+  }
+}
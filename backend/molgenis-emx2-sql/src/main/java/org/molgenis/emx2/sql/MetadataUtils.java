@@ -302,6 +302,7 @@ public class MetadataUtils {
           .set(SCHEMA_DESCRIPTION, schema.getDescription())
           .set(SETTINGS, schema.getSettings())
           .execute();
+      schemaMetadataChanged(schema);
     } catch (Exception e) {
       throw new SqlMolgenisException("save of schema metadata failed", e);
     }
@@ -372,6 +373,7 @@ public class MetadataUtils {
           .set(TABLE_TYPE, Objects.toString(table.getTableType(), null))
           .set(SETTINGS, table.getSettings())
           .execute();
+      schemaMetadataChanged(table.getSchema());
     } catch (Exception e) {
       throw new SqlMolgenisException("save of table metadata failed", e);
     }
@@ -382,6 +384,7 @@ public class MetadataUtils {
         .set(TABLE_NAME, newName)
         .where(TABLE_SCHEMA.eq(table.getSchemaName()), TABLE_NAME.eq(table.getTableName()))
         .execute();
+    schemaMetadataChanged(table.getSchema());
   }
 
   protected static List<User> loadUsers(SqlDatabase db, int limit, int offset) {
@@ -478,6 +481,7 @@ public class MetadataUtils {
     jooq.deleteFrom(TABLE_METADATA)
         .where(TABLE_SCHEMA.eq(table.getSchema().getName()), TABLE_NAME.eq(table.getTableName()))
         .execute();
+    schemaMetadataChanged(table.getSchema());
   }
 
   protected static void saveColumnMetadata(DSLContext jooq, Column column) {
@@ -559,6 +563,7 @@ public class MetadataUtils {
         .set(COLUMN_VISIBLE, column.getVisible())
         .set(COLUMN_DEFAULT, column.getDefaultValue())
         .execute();
+    schemaMetadataChanged(column.getTable().getSchema());
   }
 
   protected static void deleteColumn(DSLContext jooq, Column column) {
@@ -568,6 +573,14 @@ public class MetadataUtils {
             TABLE_NAME.eq(column.getTableName()),
             COLUMN_NAME.eq(column.getName()))
         .execute();
+    schemaMetadataChanged(column.getTable().getSchema());
+  }
+
+  // let the other database instances know they must reload, see SchemaMetadataCache
+  private static void schemaMetadataChanged(SchemaMetadata schema) {
+    if (schema != null && schema.getDatabase() instanceof SqlDatabase db) {
+      db.schemaMetadataChanged(schema.getName());
+    }
   }
 
   protected static boolean schemaExists(DSLContext jooq, String name) {
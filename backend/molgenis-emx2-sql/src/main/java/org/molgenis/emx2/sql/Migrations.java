@@ -21,7 +21,7 @@ import org.slf4j.LoggerFactory;
 
 public class Migrations {
   // version the current software needs to work
-  private static final int SOFTWARE_DATABASE_VERSION = 18;
+  private static final int SOFTWARE_DATABASE_VERSION = 20;
   public static final int THREE_MINUTES = 180;
   private static Logger logger = LoggerFactory.getLogger(Migrations.class);
 
@@ -115,6 +115,16 @@ public class Migrations {
                 tdb, "migration18.sql", "add filename to tables contain FILE datatype");
           }
 
+          if (version < 19) {
+            migration19addSearchVector((SqlDatabase) tdb);
+            logger.debug("Updated all tables to have a ranked search vector including labels");
+          }
+
+          if (version < 20) {
+            migration20partitionChangeLog((SqlDatabase) tdb);
+            logger.debug("Partitioned the change logs by month");
+          }
+
           // if success, update version to SOFTWARE_DATABASE_VERSION
           updateDatabaseVersion((SqlDatabase) tdb, SOFTWARE_DATABASE_VERSION);
         });
@@ -195,6 +205,25 @@ public class Migrations {
     MetadataUtils.setVersion(db.getJooq(), newVersion);
   }
 
+  static void migration19addSearchVector(SqlDatabase db) {
+    for (String schemaName : db.getSchemaNames()) {
+      for (TableMetadata table : db.getSchema(schemaName).getMetadata().getTables()) {
+        SqlSearchIndexExecutor.executeUpgradeSearch(db.getJooq(), table);
+        logger.info("migration 19 added search vector for table " + table.getTableName());
+      }
+    }
+  }
+
+  static void migration20partitionChangeLog(SqlDatabase db) {
+    for (String schemaName : db.getSchemaNames()) {
+      SchemaMetadata schema = db.getSchema(schemaName).getMetadata();
+      if (ChangeLogExecutor.hasChangeLogTable(db.getJooq(), schema)) {
+        ChangeLogExecutor.executePartitionChangeLog(db, schema);
+        logger.info("migration 20 partitioned change log of schema " + schemaName);
+      }
+    }
+  }
+
   static void migration5addMgTableclassUpdateTrigger(SqlDatabase db) {
     // should add trigger to all root tables, identfied by having MG_TABLECLASS column
     DSLContext jooq = db.getJooq();
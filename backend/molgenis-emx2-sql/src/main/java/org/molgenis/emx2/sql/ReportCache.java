@@ -0,0 +1,369 @@
+package org.molgenis.emx2.sql;
+
+import static org.jooq.impl.DSL.inline;
+import static org.jooq.impl.DSL.name;
+import static org.molgenis.emx2.ColumnType.INT;
+import static org.molgenis.emx2.Constants.MOLGENIS_REPORT_CACHE_SIZE;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jooq.DSLContext;
+import org.jooq.Name;
+import org.molgenis.emx2.*;
+import org.molgenis.emx2.utils.EnvironmentProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the results of reports, i.e. the sql queries of the 'reports' setting of a schema,
+ * shared between all sessions. Results are cached per schema metadata version, user, query and
+ * parameters for the time to live of the report, and removed when a table the query read from is
+ * changed, see {@link ReportCacheTableListener}. Least recently used results are evicted when the
+ * cache exceeds its size in bytes.
+ *
+ * <p>Reports without parameters can also be materialized, i.e. stored in a materialized view that
+ * is rebuilt in the background when a table it reads from changes. The view is built with the
+ * privileges of the manager role of the schema and can be read by its viewers.
+ */
+public class ReportCache {
+  private static final Logger logger = LoggerFactory.getLogger(ReportCache.class);
+  private static final int DEFAULT_MAX_BYTES = 64 * 1024 * 1024;
+  private static final int MAX_PARSED_REPORTS = 100;
+  private static final String VIEW_PREFIX = "mg_report_";
+  private static final ObjectMapper mapper = new ObjectMapper();
+  private static final ReportCache instance =
+      new ReportCache(
+          (Integer)
+              EnvironmentProperty.getParameter(MOLGENIS_REPORT_CACHE_SIZE, DEFAULT_MAX_BYTES, INT));
+
+  private record TableId(String schemaName, String tableName) {}
+
+  private record Key(
+      String schemaName, long version, String user, String sql, Map<String, ?> parameters) {}
+
+  private record Result(List<Row> rows, Set<TableId> sources, long expires, long bytes) {}
+
+  /** a materialized report, with the tables it was built from */
+  private record View(TableId view, String sql, Set<TableId> sources) {}
+
+  private final long maxBytes;
+  private final Map<Key, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+  private long bytes; // guarded by results
+  // increased on each change, so results queried during a change are not kept
+  private final AtomicLong changes = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private final Map<TableId, View> views = new HashMap<>(); // guarded by views
+  private final Set<TableId> pendingRebuilds = new HashSet<>(); // guarded by views
+  private final ExecutorService rebuilder =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "report-rebuilder");
+            thread.setDaemon(true);
+            return thread;
+          });
+  private SqlDatabase adminDatabase;
+
+  private final Map<String, List<Map<String, Object>>> parsedReports =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Map<String, Object>>> eldest) {
+          return size() > MAX_PARSED_REPORTS;
+        }
+      };
+
+  public ReportCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /** the cache shared by all sessions */
+  public static ReportCache getInstance() {
+    return instance;
+  }
+
+  /** the reports of a 'reports' setting, parsed once per value */
+  public List<Map<String, Object>> getReports(String reportsJson) {
+    synchronized (parsedReports) {
+      List<Map<String, Object>> reports = parsedReports.get(reportsJson);
+      if (reports != null) {
+        return reports;
+      }
+    }
+    try {
+      List<Map<String, Object>> reports =
+          Collections.unmodifiableList(mapper.readValue(reportsJson, List.class));
+      synchronized (parsedReports) {
+        parsedReports.put(reportsJson, reports);
+      }
+      return reports;
+    } catch (JsonProcessingException e) {
+      throw new MolgenisException("Parse of reports setting failed", e);
+    }
+  }
+
+  /**
+   * Rows of the query, from cache if they were retrieved within the time to live and none of the
+   * tables read from changed since. Not cached if the time to live is zero or the schema has
+   * uncommitted changes.
+   */
+  public List<Row> retrieveSql(
+      Schema schema, String sql, Map<String, ?> parameters, Duration timeToLive) {
+    Key key = createKey(schema, sql, parameters);
+    if (key == null || timeToLive.isZero() || timeToLive.isNegative()) {
+      return schema.retrieveSql(sql, parameters);
+    }
+    synchronized (results) {
+      Result result = results.get(key);
+      if (result != null && result.expires() > System.currentTimeMillis()) {
+        hits.incrementAndGet();
+        return result.rows();
+      }
+    }
+    misses.incrementAndGet();
+    long changesBefore = changes.get();
+    List<Row> rows = List.copyOf(schema.retrieveSql(sql, parameters));
+    Set<TableId> sources;
+    try {
+      sources = getSources(schema, sql, parameters);
+    } catch (MolgenisException e) {
+      logger.warn("cannot determine tables read by report, result is not cached", e);
+      return rows;
+    }
+    long size = estimateBytes(sql, rows);
+    if (changes.get() == changesBefore && size <= maxBytes) {
+      synchronized (results) {
+        Result previous =
+            results.put(
+                key,
+                new Result(
+                    rows, sources, System.currentTimeMillis() + timeToLive.toMillis(), size));
+        bytes += size - (previous != null ? previous.bytes() : 0);
+        evict();
+      }
+    }
+    return rows;
+  }
+
+  private static Key createKey(Schema schema, String sql, Map<String, ?> parameters) {
+    if (!(schema.getDatabase() instanceof SqlDatabase database) || database.inTx()) {
+      return null;
+    }
+    Long version = database.getSchemaVersion(schema.getName());
+    if (version == null) {
+      return null;
+    }
+    return new Key(
+        schema.getName(),
+        version,
+        database.getActiveUser(),
+        sql,
+        Collections.unmodifiableMap(new HashMap<>(parameters)));
+  }
+
+  private void evict() {
+    Iterator<Result> iterator = results.values().iterator();
+    while (bytes > maxBytes && iterator.hasNext()) {
+      bytes -= iterator.next().bytes();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Sql to select the rows of a report from its materialized view. The view is built if it doesn't
+   * exist or was built from other sql, and rebuilt in the background when a table it reads from is
+   * changed.
+   */
+  public String materialize(Schema schema, int reportId, String sql) {
+    if (sql.contains("${")) {
+      throw new MolgenisException(
+          "Report " + reportId + " cannot be materialized because it has parameters");
+    }
+    TableId viewId = new TableId(schema.getName(), VIEW_PREFIX + reportId);
+    View view;
+    synchronized (views) {
+      view = views.get(viewId);
+    }
+    if (view == null || !view.sql().equals(sql)) {
+      // build outside the lock, so changes of other tables are not held up
+      View built = buildView(viewId, sql, false);
+      synchronized (views) {
+        views.put(viewId, built);
+      }
+    }
+    return "select * from " + name(viewId.tableName());
+  }
+
+  /** removes the materialized reports of the schema, so the tables they read can be altered */
+  static void dropMaterializedReports(DSLContext jooq, String schemaName) {
+    for (String view :
+        jooq.fetch(
+                "SELECT matviewname FROM pg_matviews WHERE schemaname = {0} AND matviewname LIKE {1}",
+                inline(schemaName), inline(VIEW_PREFIX + "%"))
+            .getValues(0, String.class)) {
+      jooq.execute("DROP MATERIALIZED VIEW IF EXISTS {0}", name(schemaName, view));
+    }
+    synchronized (instance.views) {
+      // will be built again on next use
+      instance.views.keySet().removeIf(v -> v.schemaName().equals(schemaName));
+    }
+  }
+
+  /** removes the results read from the changed table and rebuilds the views read from it */
+  void tableChanged(String schemaName, String tableName) {
+    TableId changed = new TableId(schemaName, tableName);
+    changes.incrementAndGet();
+    synchronized (results) {
+      Iterator<Result> iterator = results.values().iterator();
+      while (iterator.hasNext()) {
+        Result result = iterator.next();
+        if (result.sources().contains(changed)) {
+          bytes -= result.bytes();
+          iterator.remove();
+        }
+      }
+    }
+    synchronized (views) {
+      for (View view : views.values()) {
+        if (view.sources().contains(changed) && pendingRebuilds.add(view.view())) {
+          rebuilder.submit(() -> rebuildView(view));
+        }
+      }
+    }
+  }
+
+  private void rebuildView(View view) {
+    synchronized (views) {
+      pendingRebuilds.remove(view.view());
+      if (views.get(view.view()) != view) {
+        // dropped or replaced in the meantime
+        return;
+      }
+    }
+    try {
+      View rebuilt = buildView(view.view(), view.sql(), true);
+      synchronized (views) {
+        views.replace(view.view(), view, rebuilt);
+      }
+      tableChanged(view.view().schemaName(), view.view().tableName());
+    } catch (Exception e) {
+      logger.error("rebuild of materialized report {} failed", view.view(), e);
+    }
+  }
+
+  /**
+   * Builds the view as the manager role of the schema, unless it exists with the same sql. The new
+   * view replaces the old one at the end, so readers only wait for the swap.
+   */
+  private synchronized View buildView(TableId viewId, String sql, boolean rebuild) {
+    StringBuilder plan = new StringBuilder();
+    getAdminDatabase()
+        .tx(
+            db -> {
+              DSLContext jooq = ((SqlDatabase) db).getJooq();
+              String rolePrefix = SqlSchemaMetadataExecutor.getRolePrefix(viewId.schemaName());
+              jooq.execute("SET LOCAL ROLE {0}", name(rolePrefix + Privileges.MANAGER));
+              jooq.execute("SET LOCAL search_path TO {0}", name(viewId.schemaName()));
+              plan.append(jooq.fetchValue("EXPLAIN (VERBOSE, FORMAT JSON) " + sql));
+              Name view = name(viewId.schemaName(), viewId.tableName());
+              String comment =
+                  (String)
+                      jooq.fetchValue(
+                          "SELECT obj_description(to_regclass({0}), 'pg_class')",
+                          inline(jooq.render(view)));
+              if (!rebuild && sql.equals(comment)) {
+                return;
+              }
+              Name newView = name(viewId.schemaName(), viewId.tableName() + "_new");
+              jooq.execute("DROP MATERIALIZED VIEW IF EXISTS {0}", newView);
+              jooq.execute("CREATE MATERIALIZED VIEW " + jooq.render(newView) + " AS " + sql);
+              jooq.execute("COMMENT ON MATERIALIZED VIEW {0} IS {1}", newView, inline(sql));
+              for (Privileges privilege : List.of(Privileges.AGGREGATOR, Privileges.VIEWER)) {
+                jooq.execute("GRANT SELECT ON {0} TO {1}", newView, name(rolePrefix + privilege));
+              }
+              jooq.execute("DROP MATERIALIZED VIEW IF EXISTS {0}", view);
+              jooq.execute(
+                  "ALTER MATERIALIZED VIEW {0} RENAME TO {1}", newView, name(viewId.tableName()));
+              logger.info("built materialized report {}", viewId);
+            });
+    Set<TableId> sources =
+        parseSources(getAdminDatabase().getSchema(viewId.schemaName()), plan.toString());
+    return new View(viewId, sql, Set.copyOf(sources));
+  }
+
+  private synchronized SqlDatabase getAdminDatabase() {
+    if (adminDatabase == null) {
+      adminDatabase = new SqlDatabase(false);
+      adminDatabase.becomeAdmin();
+    }
+    return adminDatabase;
+  }
+
+  /** the tables read by the query, including subclass tables that also store rows in them */
+  private static Set<TableId> getSources(Schema schema, String sql, Map<String, ?> parameters) {
+    Set<TableId> result = new HashSet<>();
+    for (Row row : schema.retrieveSql("EXPLAIN (VERBOSE, FORMAT JSON) " + sql, parameters)) {
+      result.addAll(parseSources(schema, row.getString("QUERY PLAN")));
+    }
+    return result;
+  }
+
+  private static Set<TableId> parseSources(Schema schema, String plan) {
+    Set<TableId> result = new HashSet<>();
+    try {
+      for (JsonNode relation : mapper.readTree(plan).findParents("Relation Name")) {
+        TableId table =
+            new TableId(relation.get("Schema").asText(), relation.get("Relation Name").asText());
+        result.add(table);
+        // rows saved in a subclass are also stored in the tables of its superclasses
+        Schema tableSchema = schema.getDatabase().getSchema(table.schemaName());
+        if (tableSchema != null) {
+          for (TableMetadata subclass : tableSchema.getMetadata().getTables()) {
+            for (TableMetadata parent = subclass.getInheritedTable();
+                parent != null;
+                parent = parent.getInheritedTable()) {
+              if (parent.getTableName().equals(table.tableName())) {
+                result.add(new TableId(table.schemaName(), subclass.getTableName()));
+              }
+            }
+          }
+        }
+      }
+    } catch (JsonProcessingException e) {
+      throw new MolgenisException("Parse of query plan failed", e);
+    }
+    return result;
+  }
+
+  private static long estimateBytes(String sql, List<Row> rows) {
+    long result = 2L * sql.length();
+    for (Row row : rows) {
+      for (Map.Entry<String, Object> value : row.getValueMap().entrySet()) {
+        // two bytes per character plus some object overhead
+        result += 32 + 2L * (value.getKey().length() + String.valueOf(value.getValue()).length());
+      }
+    }
+    return result;
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public void clear() {
+    synchronized (results) {
+      results.clear();
+      bytes = 0;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package org.molgenis.emx2.sql;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.TableListener;
+
+/**
+ * Listens to all tables, because reports can read from any table, and removes outdated results from
+ * the {@link ReportCache} on commit.
+ */
+public class ReportCacheTableListener extends TableListener {
+  // the action is added for each row, but only the first one needs to update the cache
+  private final AtomicBoolean changed = new AtomicBoolean();
+  private final Runnable tableChanged;
+
+  public ReportCacheTableListener() {
+    super(null, null);
+    this.tableChanged = () -> {};
+  }
+
+  private ReportCacheTableListener(
+      ReportCacheTableListener parent, String schemaName, String tableName) {
+    super(parent, schemaName, tableName);
+    this.tableChanged =
+        () -> {
+          if (changed.getAndSet(false)) {
+            ReportCache.getInstance().tableChanged(schemaName, tableName);
+          }
+        };
+  }
+
+  @Override
+  public TableListener forTable(String schemaName, String tableName) {
+    return new ReportCacheTableListener(this, schemaName, tableName);
+  }
+
+  @Override
+  protected Runnable afterSave(Row saved) {
+    changed.set(true);
+    return tableChanged;
+  }
+
+  @Override
+  protected Runnable afterDelete(Row deleted) {
+    changed.set(true);
+    return tableChanged;
+  }
+}
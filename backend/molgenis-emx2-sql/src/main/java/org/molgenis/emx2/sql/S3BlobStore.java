@@ -0,0 +1,171 @@
+package org.molgenis.emx2.sql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.molgenis.emx2.MolgenisException;
+
+/**
+ * Blob store in a bucket of an S3 compatible object store, addressed path style as
+ * 'http(s)://host/bucket'. Requests are signed using AWS signature version 4.
+ */
+public class S3BlobStore implements BlobStore {
+  private static final String EMPTY_SHA256 = BlobStore.sha256(new byte[0]);
+  private static final DateTimeFormatter AMZ_DATE =
+      DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+  private final URI bucketUrl;
+  private final String region;
+  private final String accessKey;
+  private final String secretKey;
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  public S3BlobStore(String bucketUrl, String region, String accessKey, String secretKey) {
+    this.bucketUrl = URI.create(bucketUrl.endsWith("/") ? bucketUrl : bucketUrl + "/");
+    this.region = region;
+    this.accessKey = accessKey;
+    this.secretKey = secretKey;
+  }
+
+  @Override
+  public void put(String hash, byte[] contents) {
+    // the key is the hash, so existing objects have the same contents
+    if (statusCode(send("HEAD", hash, null, EMPTY_SHA256, HttpRequest.BodyPublishers.noBody()))
+        == 200) {
+      return;
+    }
+    int status =
+        statusCode(send("PUT", hash, null, hash, HttpRequest.BodyPublishers.ofByteArray(contents)));
+    if (status != 200) {
+      throw new MolgenisException("Store file in " + bucketUrl + " failed: status " + status);
+    }
+  }
+
+  private static int statusCode(HttpResponse<InputStream> response) {
+    try (InputStream in = response.body()) {
+      in.transferTo(OutputStream.nullOutputStream());
+      return response.statusCode();
+    } catch (IOException e) {
+      throw new MolgenisException("Request to blob store failed", e);
+    }
+  }
+
+  @Override
+  public long read(String hash, long offset, long length, OutputStream outputStream) {
+    if (length <= 0) {
+      return 0;
+    }
+    long last = offset + length - 1;
+    String range = "bytes=" + offset + "-" + (last < offset ? "" : last);
+    HttpResponse<InputStream> response =
+        send("GET", hash, range, EMPTY_SHA256, HttpRequest.BodyPublishers.noBody());
+    try (InputStream in = response.body()) {
+      if (response.statusCode() == 416) {
+        return 0;
+      } else if (response.statusCode() == 200) {
+        // range not supported, skip to the offset ourselves
+        in.skipNBytes(offset);
+      } else if (response.statusCode() != 206) {
+        throw new MolgenisException(
+            "Retrieve file failed: blob " + hash + " returned status " + response.statusCode());
+      }
+      byte[] buffer = new byte[64 * 1024];
+      long written = 0;
+      int read;
+      while (written < length
+          && (read = in.read(buffer, 0, (int) Math.min(buffer.length, length - written))) >= 0) {
+        outputStream.write(buffer, 0, read);
+        written += read;
+      }
+      return written;
+    } catch (IOException e) {
+      throw new MolgenisException("Retrieve file failed: blob " + hash, e);
+    }
+  }
+
+  private HttpResponse<InputStream> send(
+      String method, String key, String range, String payloadHash, HttpRequest.BodyPublisher body) {
+    URI uri = bucketUrl.resolve(key);
+    Map<String, String> headers = new TreeMap<>();
+    headers.put("x-amz-content-sha256", payloadHash);
+    headers.put("x-amz-date", AMZ_DATE.format(ZonedDateTime.now(ZoneOffset.UTC)));
+    if (range != null) {
+      headers.put("range", range);
+    }
+    HttpRequest.Builder request = HttpRequest.newBuilder(uri).method(method, body);
+    headers.forEach(request::header);
+    request.header(
+        "Authorization", authorization(method, uri.getRawAuthority(), uri.getRawPath(), headers));
+    try {
+      return client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    } catch (IOException e) {
+      throw new MolgenisException("Request to blob store " + bucketUrl + " failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MolgenisException("Request to blob store " + bucketUrl + " interrupted", e);
+    }
+  }
+
+  /** signature version 4 'Authorization' header, the headers must include x-amz-date */
+  String authorization(String method, String host, String path, Map<String, String> headers) {
+    Map<String, String> signed = new TreeMap<>(headers);
+    signed.put("host", host);
+    String signedHeaders = String.join(";", signed.keySet());
+    String canonicalRequest =
+        String.join(
+            "\n",
+            method,
+            path,
+            "",
+            signed.entrySet().stream()
+                .map(e -> e.getKey() + ":" + e.getValue().trim() + "\n")
+                .collect(Collectors.joining()),
+            signedHeaders,
+            headers.get("x-amz-content-sha256"));
+    String amzDate = headers.get("x-amz-date");
+    String scope = amzDate.substring(0, 8) + "/" + region + "/s3/aws4_request";
+    String stringToSign =
+        String.join(
+            "\n",
+            "AWS4-HMAC-SHA256",
+            amzDate,
+            scope,
+            BlobStore.sha256(canonicalRequest.getBytes(StandardCharsets.UTF_8)));
+    byte[] key = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
+    for (String part : scope.split("/")) {
+      key = hmac(key, part);
+    }
+    return "AWS4-HMAC-SHA256 Credential="
+        + accessKey
+        + "/"
+        + scope
+        + ", SignedHeaders="
+        + signedHeaders
+        + ", Signature="
+        + HexFormat.of().formatHex(hmac(key, stringToSign));
+  }
+
+  private static byte[] hmac(byte[] key, String data) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(key, "HmacSHA256"));
+      return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    } catch (GeneralSecurityException e) {
+      throw new MolgenisException("HmacSHA256 not available", e);
+    }
+  }
+}
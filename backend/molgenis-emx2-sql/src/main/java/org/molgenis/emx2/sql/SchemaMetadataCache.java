@@ -0,0 +1,140 @@
+package org.molgenis.emx2.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process wide cache of committed schema metadata, shared between all SqlDatabase instances.
+ *
+ * <p>Each schema has a version that is increased when a transaction that changed its metadata
+ * (tables, columns, settings or members) has committed. Snapshots are loaded as admin, i.e. they
+ * are the same for every user, and are never handed out directly: SqlDatabase creates a private
+ * per-user view from them (see {@link SqlSchemaMetadata#createView}).
+ */
+class SchemaMetadataCache {
+  private static final Logger logger = LoggerFactory.getLogger(SchemaMetadataCache.class);
+  private static final AtomicLong clock = new AtomicLong();
+  private static final Map<String, Long> versions = new ConcurrentHashMap<>();
+  private static final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+  // counts loads from molgenis.table_metadata and column_metadata, for monitoring/benchmarks
+  private static final AtomicLong loadCount = new AtomicLong();
+
+  private SchemaMetadataCache() {
+    // hide constructor
+  }
+
+  /** immutable once created; only the roles per user are filled lazily */
+  static class Snapshot {
+    private final long version;
+    private final SqlSchemaMetadata metadata;
+    private final Map<String, List<String>> rolesPerUser = new ConcurrentHashMap<>();
+
+    private Snapshot(long version, SqlSchemaMetadata metadata) {
+      this.version = version;
+      this.metadata = metadata;
+    }
+
+    long getVersion() {
+      return version;
+    }
+
+    SqlSchemaMetadata getMetadata() {
+      return metadata;
+    }
+
+    /** cached per user, so anonymous users for example don't need to retrieve them */
+    List<String> getInheritedRolesForUser(SqlDatabase db, String user) {
+      return rolesPerUser.computeIfAbsent(
+          user,
+          u -> {
+            List<String> result = new ArrayList<>();
+            db.getJooqAsAdmin(
+                adminJooq ->
+                    result.addAll(
+                        SqlSchemaMetadataExecutor.getInheritedRoleForUser(
+                            adminJooq, metadata.getName(), u)));
+            return List.copyOf(result);
+          });
+    }
+  }
+
+  /** Version of all metadata, changes when any schema is changed, created or dropped */
+  static long getVersion() {
+    return clock.get();
+  }
+
+  /** Version of the committed metadata of a schema, changes on each invalidate */
+  static long getVersion(String schemaName) {
+    return versions.getOrDefault(schemaName, 0L);
+  }
+
+  /**
+   * Returns the snapshot for current version of the schema, loading it if needed. Returns null if
+   * schema doesn't exist.
+   */
+  static Snapshot getSnapshot(SqlDatabase db, String schemaName) {
+    Snapshot snapshot = snapshots.get(schemaName);
+    if (snapshot != null && snapshot.version == getVersion(schemaName)) {
+      return snapshot;
+    }
+    // only one thread loads, others wait and then reuse (loads are rare)
+    synchronized (snapshots) {
+      long version = getVersion(schemaName);
+      snapshot = snapshots.get(schemaName);
+      if (snapshot != null && snapshot.version == version) {
+        return snapshot;
+      }
+      SqlSchemaMetadata metadata = load(db, schemaName);
+      if (metadata == null) {
+        snapshots.remove(schemaName);
+        return null;
+      }
+      snapshot = new Snapshot(version, metadata);
+      // if a commit happened while loading we don't know if we have seen it, so don't keep
+      if (getVersion(schemaName) == version) {
+        snapshots.put(schemaName, snapshot);
+      }
+      return snapshot;
+    }
+  }
+
+  private static SqlSchemaMetadata load(SqlDatabase db, String schemaName) {
+    long start = System.currentTimeMillis();
+    SqlSchemaMetadata[] result = new SqlSchemaMetadata[1];
+    db.getJooqAsAdmin(
+        adminJooq -> {
+          if (MetadataUtils.schemaExists(adminJooq, schemaName)) {
+            result[0] = SqlSchemaMetadata.loadSnapshot(adminJooq, schemaName);
+          }
+        });
+    loadCount.incrementAndGet();
+    if (logger.isInfoEnabled()) {
+      logger.info(
+          "loaded shared metadata snapshot of schema '{}' in {}ms",
+          schemaName,
+          System.currentTimeMillis() - start);
+    }
+    return result[0];
+  }
+
+  /** Should be called after commit of changes to metadata or members of a schema */
+  static void invalidate(String schemaName) {
+    // versions come from one clock so they are never reused, even after drop/create of a schema
+    versions.put(schemaName, clock.incrementAndGet());
+    snapshots.remove(schemaName);
+  }
+
+  /** For changes that may affect all schemas, e.g. removal of users */
+  static void invalidateAll() {
+    snapshots.keySet().forEach(SchemaMetadataCache::invalidate);
+  }
+
+  static long getLoadCount() {
+    return loadCount.get();
+  }
+}
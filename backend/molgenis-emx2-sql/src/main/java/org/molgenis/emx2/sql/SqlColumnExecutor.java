@@ -176,8 +176,9 @@ public class SqlColumnExecutor {
       executeCreateRefArrayIndex(jooq, table, newColumn.getJooqField());
     }
 
-    SqlTableMetadataExecutor.updateSearchIndexTriggerFunction(
+    SqlSearchIndexExecutor.updateSearchIndexTriggerFunction(
         jooq, newColumn.getTable(), newColumn.getTableName());
+    SqlSearchIndexExecutor.updateSearchIndexOfReferringTables(jooq, newColumn.getTable());
   }
 
   static void alterField(
@@ -256,6 +257,10 @@ public class SqlColumnExecutor {
         for (Field<?> f : column.getJooqFileFields()) {
           jooq.alterTable(column.getJooqTable()).addColumn(f).execute();
         }
+        // files are mostly compressed already, and uncompressed they can be read in slices
+        jooq.execute(
+            "ALTER TABLE {0} ALTER COLUMN {1} SET STORAGE EXTERNAL",
+            column.getJooqTable(), field(name(column.getName() + "_contents")));
       } else if (!column.isHeading()) {
         jooq.alterTable(column.getJooqTable()).addColumn(column.getJooqField()).execute();
         executeSetDefaultValue(jooq, column);
@@ -274,7 +279,7 @@ public class SqlColumnExecutor {
       tableMetadata.setSchema(column.getSchema());
 
       // central constraints
-      SqlTableMetadataExecutor.updateSearchIndexTriggerFunction(
+      SqlSearchIndexExecutor.updateSearchIndexTriggerFunction(
           jooq, tableMetadata, column.getTableName());
     } catch (Exception e) {
       if (e.getMessage() != null && e.getMessage().contains("null values")) {
@@ -1,13 +1,18 @@
 package org.molgenis.emx2.sql;
 
 import static org.jooq.impl.DSL.*;
+import static org.molgenis.emx2.Privileges.EDITOR;
+import static org.molgenis.emx2.Privileges.MANAGER;
 import static org.molgenis.emx2.sql.SqlColumnExecutor.validateColumn;
+import static org.molgenis.emx2.sql.SqlSchemaMetadataExecutor.getRolePrefix;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.jooq.DSLContext;
 import org.jooq.Name;
+import org.jooq.Record;
+import org.jooq.Table;
 import org.molgenis.emx2.Column;
 import org.molgenis.emx2.Reference;
 
@@ -16,25 +21,29 @@ import org.molgenis.emx2.Reference;
  * parameters.
  */
 class SqlColumnRefArrayExecutor {
+  static final String MG_DEFERRED_CHECKS = "mg_deferred_checks";
+
   private SqlColumnRefArrayExecutor() {
     // hide
   }
 
   static void createRefArrayConstraints(DSLContext jooq, Column column) {
     validateColumn(column);
-    createReferenceExistsCheck(jooq, column);
-    createReferedCheck(jooq, column);
+    if (SqlDatabase.isStatementTriggers()) {
+      createReferenceExistsStatementCheck(jooq, column);
+      createReferedStatementCheck(jooq, column);
+    } else {
+      createReferenceExistsCheck(jooq, column);
+      createReferedCheck(jooq, column);
+    }
     // createUpdateReferedCheck(jooq, column);
   }
 
   static void removeRefArrayConstraints(DSLContext jooq, Column ref) {
+    // cascades to the row trigger, or to the insert/update/delete statement triggers
     jooq.execute(
-        "DROP TRIGGER {0} ON {1}", name(getReferenceExistsCheckName(ref)), ref.getJooqTable());
-    jooq.execute("DROP FUNCTION {0} ", name(ref.getSchemaName(), getReferenceExistsCheckName(ref)));
-    jooq.execute(
-        "DROP TRIGGER {0} ON {1}",
-        name(getReferedCheckName(ref)), ref.getRefTable().getJooqTable());
-    jooq.execute("DROP FUNCTION {0}", name(ref.getSchemaName(), getReferedCheckName(ref)));
+        "DROP FUNCTION {0} CASCADE", name(ref.getSchemaName(), getReferenceExistsCheckName(ref)));
+    jooq.execute("DROP FUNCTION {0} CASCADE", name(ref.getSchemaName(), getReferedCheckName(ref)));
   }
 
   // this trigger is to check for foreign violations: to prevent that referenced records cannot be
@@ -176,6 +185,126 @@ class SqlColumnRefArrayExecutor {
         keyword(keyColumns));
   }
 
+  /**
+   * same as {@link #createReferedCheck} but checks all deleted or changed keys of a statement at
+   * once, using the transition tables. Keys that are still referenced are checked again via {@link
+   * #createDeferredChecksTable}, i.e. at commit when constraints are deferred.
+   */
+  private static void createReferedStatementCheck(DSLContext jooq, Column ref) {
+    String functionName = getReferedCheckName(ref);
+    Collection<Reference> references = ref.getReferences();
+    Table<Record> deferredChecks =
+        createDeferredChecksTable(jooq, ref.getRefTable().getSchemaName());
+
+    String unnestRefs =
+        references.stream()
+            .map(
+                r -> {
+                  // can be overlapping with non_array reference
+                  if (r.isOverlappingRef()) {
+                    return name(r.getName()) + " AS " + name(r.getRefTo());
+                  } else {
+                    return "UNNEST(" + name(r.getName()) + ") AS " + name(r.getRefTo());
+                  }
+                })
+            .collect(Collectors.joining(","));
+
+    String keyColumns =
+        references.stream()
+            .map(r -> name(r.getRefTo()).toString())
+            .collect(Collectors.joining(","));
+
+    String refEqualsOld =
+        references.stream()
+            .map(r -> "r." + name(r.getRefTo()) + "=o." + name(r.getRefTo()))
+            .collect(Collectors.joining(" AND "));
+
+    String keyEqualsOld =
+        references.stream()
+            .map(r -> "k." + name(r.getRefTo()) + "=o." + name(r.getRefTo()))
+            .collect(Collectors.joining(" AND "));
+
+    String errorValuesAsString =
+        references.stream()
+            .map(r -> "error_row." + name(r.getRefTo()))
+            .collect(Collectors.joining("||','||"));
+
+    String toColumns =
+        references.stream().map(r -> name(r.getName()).toString()).collect(Collectors.joining(","));
+
+    jooq.execute(
+        "CREATE OR REPLACE FUNCTION {0}() RETURNS trigger AS $BODY$ "
+            + "\nDECLARE error_row RECORD;"
+            + "\nBEGIN"
+            + "\n\tIF TG_LEVEL='ROW' THEN"
+            // deferred check of keys that were still referenced, unless added again
+            + "\n\t\tSELECT * INTO error_row FROM jsonb_populate_recordset(NULL::{11}, NEW.refs) AS o"
+            + "\n\t\t\tWHERE NOT EXISTS (SELECT 1 FROM {11} AS k WHERE {12})"
+            + "\n\t\t\tAND EXISTS (SELECT 1 FROM (SELECT {2} FROM {3}) AS r WHERE {9}) LIMIT 1;"
+            + "\n\t\tIF FOUND THEN"
+            + "\n\t\t\tRAISE EXCEPTION USING ERRCODE='23503', MESSAGE = 'delete on table \"'||{5}||'\" violates foreign key constraint'"
+            + " , DETAIL = 'Key ('||{6}||')=('|| {7} ||') is still referenced from table \"'||{8}||'\", column(s)('||{1}||')';"
+            + "\n\t\tEND IF;"
+            + "\n\t\tDELETE FROM {10} WHERE check_name=NEW.check_name AND refs=NEW.refs;"
+            // keys that were deleted, or changed into another key
+            + "\n\tELSIF TG_OP='DELETE' THEN"
+            + "\n\t\tINSERT INTO {10} SELECT {13}, jsonb_agg(to_jsonb(o)) FROM (SELECT {4} FROM oldtab) AS o"
+            + "\n\t\t\tWHERE EXISTS (SELECT 1 FROM (SELECT {2} FROM {3}) AS r WHERE {9}) HAVING count(*) > 0;"
+            + "\n\tELSE"
+            + "\n\t\tINSERT INTO {10} SELECT {13}, jsonb_agg(to_jsonb(o)) FROM (SELECT {4} FROM oldtab EXCEPT SELECT {4} FROM newtab) AS o"
+            + "\n\t\t\tWHERE EXISTS (SELECT 1 FROM (SELECT {2} FROM {3}) AS r WHERE {9}) HAVING count(*) > 0;"
+            + "\n\tEND IF;"
+            + "\n\tRETURN NULL;"
+            + "\nEND; $BODY$ LANGUAGE plpgsql;",
+        // 0 function name
+        name(ref.getSchemaName(), functionName),
+        // 1
+        inline(toColumns),
+        // 2
+        keyword(unnestRefs),
+        // 3
+        ref.getJooqTable(),
+        // 4 key columns of the refTable
+        keyword(keyColumns),
+        // 5 toTable
+        inline(ref.getRefTableName()),
+        // 6 toColumns
+        inline(keyColumns),
+        // 7 error_row values
+        keyword(errorValuesAsString),
+        // 8 inline fromTable
+        inline(ref.getTableName()),
+        // 9
+        keyword(refEqualsOld),
+        // 10
+        deferredChecks,
+        // 11 refTable
+        ref.getRefTable().getJooqTable(),
+        // 12
+        keyword(keyEqualsOld),
+        // 13
+        inline(functionName));
+
+    jooq.execute(
+        "CREATE TRIGGER {0} "
+            + "\n\tAFTER DELETE ON {1} "
+            + "\n\tREFERENCING OLD TABLE AS oldtab"
+            + "\n\tFOR EACH STATEMENT EXECUTE PROCEDURE {2}()",
+        name(functionName),
+        ref.getRefTable().getJooqTable(),
+        name(ref.getSchemaName(), functionName));
+    // transition tables cannot be combined with 'UPDATE OF', so this fires on any update
+    jooq.execute(
+        "CREATE TRIGGER {0} "
+            + "\n\tAFTER UPDATE ON {1} "
+            + "\n\tREFERENCING OLD TABLE AS oldtab NEW TABLE AS newtab"
+            + "\n\tFOR EACH STATEMENT EXECUTE PROCEDURE {2}()",
+        name("U" + functionName),
+        ref.getRefTable().getJooqTable(),
+        name(ref.getSchemaName(), functionName));
+    createDeferredCheckTrigger(jooq, deferredChecks, functionName, ref.getSchemaName());
+  }
+
   private static String getReferedCheckName(Column column) {
     // todo, might be longer then 63 bytes!
     return "DEL_" + column.getSchemaName() + "_" + column.getTableName() + "_" + column.getName();
@@ -297,6 +426,145 @@ class SqlColumnRefArrayExecutor {
         name(column.getTable().getSchema().getName(), functionName));
   }
 
+  /**
+   * same as {@link #createReferenceExistsCheck} but checks the references of all rows inserted or
+   * updated by a statement at once, using the transition table. Missing references are checked
+   * again via {@link #createDeferredChecksTable}, i.e. at commit when constraints are deferred.
+   */
+  private static void createReferenceExistsStatementCheck(DSLContext jooq, Column column) {
+    String schemaName = column.getSchema().getName();
+    Name thisTable = name(schemaName, column.getTable().getTableName());
+    Name toTable = name(column.getRefSchemaName(), column.getRefTableName());
+    String functionName = getReferenceExistsCheckName(column);
+    List<Reference> references = column.getReferences();
+    Table<Record> deferredChecks = createDeferredChecksTable(jooq, schemaName);
+
+    String fromColumns =
+        references.stream().map(r -> name(r.getName()).toString()).collect(Collectors.joining(","));
+
+    String toColumns =
+        references.stream()
+            .map(r -> name(r.getRefTo()).toString())
+            .collect(Collectors.joining(","));
+
+    String errorColumns =
+        references.stream()
+            .map(r -> "COALESCE(error_row." + name(r.getRefTo()).toString() + "::text,'NULL')")
+            .collect(Collectors.joining("||','||"));
+
+    String existsFilter =
+        references.stream()
+            .map(r -> "t." + name(r.getRefTo()) + "=n." + name(r.getRefTo()))
+            .collect(Collectors.joining(" AND "));
+
+    String unnestRefs =
+        references.stream()
+            .map(
+                r -> {
+                  // can be overlapping with non_array reference
+                  if (r.isOverlappingRef()) {
+                    return name(r.getName()) + " AS " + name(r.getRefTo());
+                  } else {
+                    return "UNNEST(" + name(r.getName()) + ") AS " + name(r.getRefTo());
+                  }
+                })
+            .collect(Collectors.joining(","));
+
+    String nonRefLinkFieldsAreNotNull =
+        references.stream()
+            .filter(r -> !r.isOverlapping())
+            .map(r2 -> "n." + name(r2.getRefTo()) + " IS NOT NULL ")
+            .collect(Collectors.joining(" OR "));
+
+    jooq.execute(
+        "CREATE OR REPLACE FUNCTION {0}() RETURNS trigger AS $BODY$ "
+            + "\nDECLARE error_row RECORD;"
+            + "\nBEGIN"
+            + "\n\tIF TG_LEVEL='ROW' THEN"
+            // deferred check of the references that were missing
+            + "\n\t\tSELECT * INTO error_row FROM jsonb_populate_recordset(NULL::{3}, NEW.refs) AS n"
+            + "\n\t\t\tWHERE NOT EXISTS (SELECT 1 FROM {3} AS t WHERE {10}) LIMIT 1;"
+            + "\n\t\tIF FOUND THEN"
+            + "\n\t\t\tRAISE EXCEPTION USING ERRCODE='23503', MESSAGE = 'insert or update on table \"'||{9}||'\" violates foreign key (ref_array) constraint'"
+            + " , DETAIL = 'Key ('||{6}||')=('|| {5} ||') is not present in table \"'||{7}||'\", column(s)('||{8}||')';"
+            + "\n\t\tEND IF;"
+            + "\n\t\tDELETE FROM {4} WHERE check_name=NEW.check_name AND refs=NEW.refs;"
+            + "\n\tELSE"
+            // exclude if only refLink fields are set
+            + "\n\t\tINSERT INTO {4} SELECT {2}, jsonb_agg(to_jsonb(n)) FROM (SELECT {1} FROM newtab) AS n"
+            + "\n\t\t\tWHERE ({11}) AND NOT EXISTS (SELECT 1 FROM {3} AS t WHERE {10}) HAVING count(*) > 0;"
+            + "\n\tEND IF;"
+            + "\n\tRETURN NULL;"
+            + "\nEND; $BODY$ LANGUAGE plpgsql;",
+        // 0
+        name(schemaName, functionName),
+        // 1
+        keyword(unnestRefs),
+        // 2
+        inline(functionName),
+        // 3
+        toTable,
+        // 4
+        deferredChecks,
+        // 5
+        keyword(errorColumns),
+        // 6
+        inline(fromColumns),
+        // 7
+        inline(column.getRefTableName()),
+        // 8
+        inline(toColumns),
+        // 9
+        inline(column.getTableName()),
+        // 10
+        keyword(existsFilter),
+        // 11
+        keyword(nonRefLinkFieldsAreNotNull));
+
+    // one trigger per event, because transition tables cannot be combined with multiple events
+    jooq.execute(
+        "CREATE TRIGGER {0} "
+            + "\n\tAFTER INSERT ON {1}"
+            + "\n\tREFERENCING NEW TABLE AS newtab"
+            + "\n\tFOR EACH STATEMENT EXECUTE PROCEDURE {2}()",
+        name(functionName), thisTable, name(schemaName, functionName));
+    jooq.execute(
+        "CREATE TRIGGER {0} "
+            + "\n\tAFTER UPDATE ON {1}"
+            + "\n\tREFERENCING NEW TABLE AS newtab"
+            + "\n\tFOR EACH STATEMENT EXECUTE PROCEDURE {2}()",
+        name("U" + functionName), thisTable, name(schemaName, functionName));
+    createDeferredCheckTrigger(jooq, deferredChecks, functionName, schemaName);
+  }
+
+  /**
+   * Statement triggers cannot be deferred. Therefore they add the values that fail their check to
+   * this table, where a deferrable constraint trigger checks them again, i.e. at the end of the
+   * statement or, when constraints are deferred, at commit.
+   */
+  private static Table<Record> createDeferredChecksTable(DSLContext jooq, String schemaName) {
+    Table<Record> deferredChecks = table(name(schemaName, MG_DEFERRED_CHECKS));
+    jooq.execute(
+        "CREATE TABLE IF NOT EXISTS {0}(check_name VARCHAR NOT NULL, refs JSONB NOT NULL)",
+        deferredChecks);
+    jooq.execute(
+        "GRANT SELECT, INSERT, DELETE ON {0} TO {1}, {2}",
+        deferredChecks,
+        name(getRolePrefix(schemaName) + EDITOR),
+        name(getRolePrefix(schemaName) + MANAGER));
+    return deferredChecks;
+  }
+
+  private static void createDeferredCheckTrigger(
+      DSLContext jooq, Table<Record> deferredChecks, String functionName, String schemaName) {
+    jooq.execute(
+        "CREATE CONSTRAINT TRIGGER {0} "
+            + "\n\tAFTER INSERT ON {1} "
+            + "\n\tDEFERRABLE INITIALLY IMMEDIATE "
+            + "\n\tFOR EACH ROW WHEN (NEW.check_name = {2}) EXECUTE PROCEDURE {3}()",
+        name(functionName), deferredChecks, inline(functionName), name(schemaName, functionName));
+  }
+
   private static String getReferenceExistsCheckName(Column column) {
     return "C_" + column.getSchemaName() + "_" + column.getTableName() + "_" + column.getName();
   }
@@ -268,7 +268,7 @@ class SqlColumnRefBackExecutor {
         // 23
         keyword(refBackFrom2));
 
-    // attach the trigger
+    // attach the trigger, per row also for statement triggers because it clears the NEW values
 
     jooq.execute(
         "CREATE TRIGGER {0} "
@@ -280,7 +280,15 @@ class SqlColumnRefBackExecutor {
         name(schemaName, updateTriggerName));
 
     // delete and truncate trigger
+    if (SqlDatabase.isStatementTriggers()) {
+      createDeleteStatementTriggerForRefArray(jooq, ref2);
+    } else {
+      createDeleteTriggerForRefArray(jooq, ref2);
+    }
+  }
 
+  private static void createDeleteTriggerForRefArray(DSLContext jooq, Column ref2) {
+    String schemaName = ref2.getTable().getSchema().getName();
     String deleteTriggerName = refBackDeleteTriggerName(ref2);
     jooq.execute(
         "CREATE FUNCTION {0}() RETURNS trigger AS"
@@ -311,6 +319,43 @@ class SqlColumnRefBackExecutor {
         name(schemaName, deleteTriggerName));
   }
 
+  /**
+   * same as the delete trigger of {@link #createTriggerForRefArray} but removes all deleted keys of
+   * a statement at once, using the transition table
+   */
+  private static void createDeleteStatementTriggerForRefArray(DSLContext jooq, Column ref2) {
+    String schemaName = ref2.getTable().getSchema().getName();
+    String deleteTriggerName = refBackDeleteTriggerName(ref2);
+    jooq.execute(
+        "CREATE FUNCTION {0}() RETURNS trigger AS"
+            + "\n$BODY$"
+            + "\nBEGIN"
+            // remove all refBack references to 'me' that are not valid anymore
+            + "\n\tUPDATE {1} set {2} = ARRAY(SELECT v FROM UNNEST({2}) AS v WHERE v IS NULL OR v NOT IN (SELECT {3} FROM oldtab))"
+            + "\n\t\tWHERE {2} && ARRAY(SELECT {3} FROM oldtab);"
+            + "\n\tRETURN NULL;"
+            + "\nEND;"
+            + "\n$BODY$ LANGUAGE plpgsql;",
+        name(schemaName, deleteTriggerName), // {0} function name
+        table(name(schemaName, ref2.getRefTableName())), // {1} this table
+        field(name(ref2.getRefBack())), // {2} refBack
+        field(
+            name(
+                ref2.getRefBackColumn()
+                    .getRefTable()
+                    .getPrimaryKeys()
+                    .get(0)))); // {3} key that refBack uses (might not be pkey)
+
+    jooq.execute(
+        "CREATE TRIGGER {0} "
+            + "\n\tAFTER DELETE ON {1}"
+            + "\n\tREFERENCING OLD TABLE AS oldtab"
+            + "\n\tFOR EACH STATEMENT EXECUTE PROCEDURE {2}()",
+        name(deleteTriggerName),
+        name(schemaName, ref2.getTableName()),
+        name(schemaName, deleteTriggerName));
+  }
+
   private static void createTriggerForRef(DSLContext jooq, Column column, boolean isUpdateTrigger) {
     // check if any refBack array has non-existing pkey
     // remove refs from other table if not any more in refBack array
@@ -326,7 +371,11 @@ class SqlColumnRefBackExecutor {
 
     // begin
     String sql =
-        "CREATE FUNCTION {0}() RETURNS trigger AS $BODY$ " + "\nDECLARE my_row RECORD;" + "\nBEGIN";
+        "CREATE FUNCTION {0}() RETURNS trigger AS $BODY$ "
+            + "\nDECLARE my_row RECORD;"
+            + "\nBEGIN"
+            // statement triggers also fire when nothing changed, e.g. on our own updates below
+            + "\n\tIF NOT EXISTS (SELECT 1 FROM newtab) THEN RETURN NEW; END IF;";
 
     // add check if the refs actually exist
     sql +=
@@ -341,21 +390,15 @@ class SqlColumnRefBackExecutor {
     if (isUpdateTrigger) {
       sql +=
           "\n\t-- remove ref to 'oldtable'.key if not anymore in refarray"
-              + "\n\tFOR my_row IN SELECT {13},{1} FROM oldtab EXCEPT (SELECT {13},{1} FROM newtab) LOOP"
-              + "\n\t\tUPDATE {3} set {9} WHERE {12};"
-              + "\n\tEND LOOP;";
+              + "\n\tUPDATE {3} AS t set {9} FROM (SELECT {13},{1} FROM oldtab EXCEPT (SELECT {13},{1} FROM newtab)) AS changed WHERE {12};";
       sql +=
           "\n\t-- set to ref to 'newtable'.key if in refBack values list"
-              + "\n\tFOR my_row IN SELECT {13},{1} FROM newtab EXCEPT (SELECT {13},{1} FROM oldtab) LOOP"
-              + "\n\t\tUPDATE {3} set {11} WHERE {12};"
-              + "\n\tEND LOOP;";
+              + "\n\tUPDATE {3} AS t set {11} FROM (SELECT {13},{1} FROM newtab EXCEPT (SELECT {13},{1} FROM oldtab)) AS changed WHERE {12};";
     } else {
       // in case of insert
       sql +=
           "\n\t-- set to ref to 'newtable'.key if in refBack values list"
-              + "\n\tFOR my_row IN SELECT {13},{1} FROM newtab LOOP"
-              + "\n\t\tUPDATE {3} set {11} WHERE {12};"
-              + "\n\tEND LOOP;";
+              + "\n\tUPDATE {3} AS t set {11} FROM (SELECT {13},{1} FROM newtab) AS changed WHERE {12};";
     }
 
     // end
@@ -410,12 +453,12 @@ class SqlColumnRefBackExecutor {
             // 11 set to point to this.key(s)
             keyword(
                 column.getRefBackColumn().getReferences().stream()
-                    .map(r -> name(r.getName()) + "=my_row." + name(r.getRefTo()))
+                    .map(r -> name(r.getName()) + "=changed." + name(r.getRefTo()))
                     .collect(Collectors.joining(","))),
             // 12 where reftable.key=refback
             keyword(
                 columns.stream()
-                    .map(r -> name(r.getRefTo()) + "=my_row." + name(r.getName()))
+                    .map(r -> "t." + name(r.getRefTo()) + "=changed." + name(r.getName()))
                     .collect(Collectors.joining(" AND "))),
             // 13 keys of this table
             keyword(
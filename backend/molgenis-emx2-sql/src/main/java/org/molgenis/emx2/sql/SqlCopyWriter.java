@@ -0,0 +1,78 @@
+package org.molgenis.emx2.sql;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * Writes values as records for 'COPY ... FROM STDIN (FORMAT CSV)'. All non-null values are quoted
+ * so empty strings and null can be distinguished, arrays are written as postgresql array literals
+ * and binaries using the bytea hex format.
+ */
+class SqlCopyWriter {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  private final Writer writer;
+
+  SqlCopyWriter(Writer writer) {
+    this.writer = writer;
+  }
+
+  void writeRecord(Collection<Object> values) throws IOException {
+    boolean first = true;
+    for (Object value : values) {
+      if (!first) {
+        writer.write(',');
+      }
+      first = false;
+      if (value != null) {
+        writeQuoted(toText(value));
+      }
+    }
+    writer.write('\n');
+  }
+
+  private void writeQuoted(String text) throws IOException {
+    writer.write('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"') {
+        writer.write('"');
+      }
+      writer.write(c);
+    }
+    writer.write('"');
+  }
+
+  private static String toText(Object value) {
+    if (value instanceof byte[] bytes) {
+      StringBuilder result = new StringBuilder(2 + bytes.length * 2).append("\\x");
+      for (byte b : bytes) {
+        result.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+      }
+      return result.toString();
+    } else if (value instanceof Object[] array) {
+      StringBuilder result = new StringBuilder("{");
+      for (int i = 0; i < array.length; i++) {
+        if (i > 0) {
+          result.append(',');
+        }
+        if (array[i] == null) {
+          result.append("NULL");
+        } else {
+          result.append('"');
+          String element = array[i].toString();
+          for (int j = 0; j < element.length(); j++) {
+            char c = element.charAt(j);
+            if (c == '"' || c == '\\') {
+              result.append('\\');
+            }
+            result.append(c);
+          }
+          result.append('"');
+        }
+      }
+      return result.append('}').toString();
+    }
+    return value.toString();
+  }
+}
@@ -1,6 +1,7 @@
 package org.molgenis.emx2.sql;
 
 import static org.jooq.impl.DSL.name;
+import static org.molgenis.emx2.ColumnType.BOOL;
 import static org.molgenis.emx2.ColumnType.STRING;
 import static org.molgenis.emx2.Constants.MG_USER_PREFIX;
 import static org.molgenis.emx2.sql.SqlDatabaseExecutor.*;
@@ -33,13 +34,25 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
 
   // shared between all instances
   private static DataSource source;
+  // null means that file contents are stored in the data tables
+  private static BlobStore blobStore = BlobStore.fromEnvironment();
+  private static boolean statementTriggers =
+      (Boolean)
+          EnvironmentProperty.getParameter(
+              org.molgenis.emx2.Constants.MOLGENIS_STATEMENT_TRIGGERS, false, BOOL);
 
   private Integer databaseVersion;
   private DSLContext jooq;
   private final SqlUserAwareConnectionProvider connectionProvider;
   private final Map<String, SqlSchemaMetadata> schemaCache = new LinkedHashMap<>(); // cache
+  // version of SchemaMetadataCache each cached schema was copied from
+  private final Map<String, Long> schemaCacheVersions = new HashMap<>();
+  // schemas with metadata changes in current transaction, invalidated in shared cache on commit
+  private final Set<String> schemasChangedInTx = new HashSet<>();
   private Collection<String> schemaNames = new ArrayList<>();
+  private long schemaNamesVersion;
   private Collection<SchemaInfo> schemaInfos = new ArrayList<>();
+  private long schemaInfosVersion;
   private boolean inTx;
   private static Logger logger = LoggerFactory.getLogger(SqlDatabase.class);
   private String initialAdminPassword =
@@ -82,7 +95,12 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
     this.schemaInfos.addAll(copy.schemaInfos);
     this.setSettingsWithoutReload(copy.getSettings());
     for (Map.Entry<String, SqlSchemaMetadata> schema : copy.schemaCache.entrySet()) {
-      this.schemaCache.put(schema.getKey(), new SqlSchemaMetadata(this, schema.getValue()));
+      // only copy if not outdated by commits of others
+      if (copy.isCachedSchemaCurrent(schema.getKey())) {
+        this.schemaCache.put(schema.getKey(), new SqlSchemaMetadata(this, schema.getValue()));
+        this.schemaCacheVersions.put(
+            schema.getKey(), copy.schemaCacheVersions.get(schema.getKey()));
+      }
     }
   }
 
@@ -109,6 +127,28 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
     logger.info("Database was created using version: {} ", this.databaseVersion);
   }
 
+  /** the store for new file contents, or null if they are stored in the database */
+  public static BlobStore getBlobStore() {
+    return blobStore;
+  }
+
+  public static void setBlobStore(BlobStore store) {
+    blobStore = store;
+  }
+
+  /**
+   * whether new ref_array, refback and changelog triggers fire once per statement, checking the
+   * changed rows as a set, instead of once per row. Statement triggers cannot be deferred, so
+   * references must then exist at the end of each statement instead of at commit.
+   */
+  public static boolean isStatementTriggers() {
+    return statementTriggers;
+  }
+
+  public static void setStatementTriggers(boolean enabled) {
+    statementTriggers = enabled;
+  }
+
   private static void initDataSource() {
     if (source == null) {
       String url =
@@ -149,6 +189,9 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
 
       Migrations.initOrMigrate(this);
 
+      // create the change log partitions of this month and drop expired ones
+      ChangeLogExecutor.executeMaintainChangeLogs(this);
+
       if (!hasUser(ANONYMOUS)) {
         addUser(ANONYMOUS); // used when not logged in
       }
@@ -281,19 +324,63 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
   @Override
   public SqlSchema getSchema(String name) {
     if (name == null) throw new MolgenisException("Schema name was null or empty");
-    if (schemaCache.containsKey(name)) {
+    // in transaction we keep using our own copy, it may contain uncommitted changes
+    if (schemaCache.containsKey(name) && (inTx || isCachedSchemaCurrent(name))) {
       return new SqlSchema(this, schemaCache.get(name));
-    } else {
+    } else if (inTx) {
       SqlSchemaMetadata metadata = new SqlSchemaMetadata(this, name);
       if (metadata.exists()) {
         SqlSchema schema = new SqlSchema(this, metadata);
         schemaCache.put(name, metadata); // cache
         return schema;
       }
+    } else {
+      // create a view for active user on the shared metadata
+      SchemaMetadataCache.Snapshot snapshot = SchemaMetadataCache.getSnapshot(this, name);
+      if (snapshot != null) {
+        String user = connectionProvider.getActiveUser();
+        // same as row level security on schema_metadata: members of any role can see the schema
+        if (ADMIN_USER.equals(user) || !snapshot.getInheritedRolesForUser(this, user).isEmpty()) {
+          SqlSchemaMetadata metadata = SqlSchemaMetadata.createView(this, snapshot.getMetadata());
+          schemaCache.put(name, metadata); // cache
+          schemaCacheVersions.put(name, snapshot.getVersion());
+          return new SqlSchema(this, metadata);
+        }
+      }
+      schemaCache.remove(name);
+      schemaCacheVersions.remove(name);
     }
     return null;
   }
 
+  private boolean isCachedSchemaCurrent(String name) {
+    return Objects.equals(schemaCacheVersions.get(name), SchemaMetadataCache.getVersion(name));
+  }
+
+  /**
+   * Version of the committed metadata of a schema as cached in this database, or null if the cached
+   * metadata is not current (e.g. changed in this database or in current transaction). Can be used
+   * as cache key for things derived from the metadata returned by getSchema, such as graphql.
+   */
+  public Long getSchemaVersion(String schemaName) {
+    if (inTx || !isCachedSchemaCurrent(schemaName)) {
+      return null;
+    }
+    return schemaCacheVersions.get(schemaName);
+  }
+
+  /**
+   * Marks metadata (including members) of a schema as changed so all databases will reload it. When
+   * in transaction, this is postponed until commit.
+   */
+  void schemaMetadataChanged(String schemaName) {
+    if (inTx) {
+      schemasChangedInTx.add(schemaName);
+    } else {
+      SchemaMetadataCache.invalidate(schemaName);
+    }
+  }
+
   @Override
   public void dropSchemaIfExists(String name) {
     if (getSchema(name) != null) {
@@ -311,6 +398,7 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
           sqlDatabase.schemaNames.remove(name);
           sqlDatabase.schemaInfos.clear();
           sqlDatabase.schemaCache.remove(name);
+          sqlDatabase.schemaMetadataChanged(name);
         });
 
     listener.schemaRemoved(name);
@@ -332,13 +420,17 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
           SqlSchemaMetadata metadata = new SqlSchemaMetadata(db, name, description);
           executeCreateSchema((SqlDatabase) db, metadata);
           ((SqlDatabase) db).schemaCache.put(name, new SqlSchemaMetadata(db, metadata));
+          ((SqlDatabase) db).schemaMetadataChanged(name);
         });
     return getSchema(name);
   }
 
   @Override
   public Collection<String> getSchemaNames() {
-    if (this.schemaNames.isEmpty()) {
+    // reload when schemas might have been added or removed by others
+    if (this.schemaNames.isEmpty()
+        || (!inTx && schemaNamesVersion != SchemaMetadataCache.getVersion())) {
+      this.schemaNamesVersion = SchemaMetadataCache.getVersion();
       this.schemaNames = MetadataUtils.loadSchemaNames(this);
     }
     return List.copyOf(this.schemaNames);
@@ -346,7 +438,9 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
 
   @Override
   public Collection<SchemaInfo> getSchemaInfos() {
-    if (this.schemaInfos.isEmpty()) {
+    if (this.schemaInfos.isEmpty()
+        || (!inTx && schemaInfosVersion != SchemaMetadataCache.getVersion())) {
+      this.schemaInfosVersion = SchemaMetadataCache.getVersion();
       this.schemaInfos = MetadataUtils.loadSchemaInfos(this);
     }
     return List.copyOf(this.schemaInfos);
@@ -449,6 +543,8 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
       throw new MolgenisException(
           "Remove user failed: User with name '" + user + "' doesn't exist");
     tx(db -> ((SqlDatabase) db).getJooq().execute("DROP ROLE {0}", name(MG_USER_PREFIX + user)));
+    // cached roles of this user might be anywhere
+    SchemaMetadataCache.invalidateAll();
     log(start, "removed user " + user);
   }
 
@@ -538,7 +634,10 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
               transaction.run(db);
               db.tableListenersExecutePostCommit();
             });
-        // only when commit succeeds we copy state to 'this'
+        // only when commit succeeds we copy state to 'this' and let others reload
+        db.schemasChangedInTx.forEach(SchemaMetadataCache::invalidate);
+        db.getListener().getSchemaChanged().forEach(SchemaMetadataCache::invalidate);
+        db.getListener().getSchemaRemoved().forEach(SchemaMetadataCache::invalidate);
         this.sync(db);
         if (!Objects.equals(db.getActiveUser(), getActiveUser())) {
           this.getListener().userChanged();
@@ -547,6 +646,7 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
           this.getListener().afterCommit();
         }
       } catch (Exception e) {
+        db.tableListeners.forEach(TableListener::discardPostCommit);
         throw new SqlMolgenisException("Transaction failed", e);
       }
     }
@@ -578,6 +678,10 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
         this.schemaCache.remove(key);
       }
 
+      // cached versions were from before the transaction, so changed ones will be reloaded
+      this.schemaCacheVersions.clear();
+      this.schemaCacheVersions.putAll(from.schemaCacheVersions);
+
       // sync the existing schema cache, add missing
       from.schemaCache
           .entrySet()
@@ -601,6 +705,7 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
   @Override
   public void clearCache() {
     this.schemaCache.clear();
+    this.schemaCacheVersions.clear();
     this.schemaNames.clear();
     this.schemaInfos.clear();
     // elevate privileges for loading settings
@@ -707,17 +812,11 @@ public class SqlDatabase extends HasSettings<Database> implements Database {
     this.tableListeners.add(tableListener);
   }
 
-  public TableListener getTableListener(String schemaName, String tableName) {
-    Optional<TableListener> result =
-        tableListeners.stream()
-            .filter(
-                tableListener ->
-                    tableListener.getTableName().equals(tableName)
-                        && tableListener.getSchemaName().equals(schemaName))
-            .findFirst();
-    if (result.isPresent()) {
-      return result.get();
-    }
-    return null;
+  /** the listeners that listen to the table, in the order they were added */
+  public List<TableListener> getTableListeners(String schemaName, String tableName) {
+    return tableListeners.stream()
+        .filter(tableListener -> tableListener.isListeningTo(schemaName, tableName))
+        .map(tableListener -> tableListener.forTable(schemaName, tableName))
+        .toList();
   }
 }
@@ -5,16 +5,20 @@ import static org.molgenis.emx2.Constants.*;
 import static org.molgenis.emx2.Operator.*;
 import static org.molgenis.emx2.Privileges.VIEWER;
 import static org.molgenis.emx2.SelectColumn.s;
-import static org.molgenis.emx2.sql.SqlTableMetadataExecutor.searchColumnName;
+import static org.molgenis.emx2.sql.SqlSearchIndexExecutor.searchColumnName;
 import static org.molgenis.emx2.utils.TypeUtils.*;
 
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.jooq.*;
 import org.jooq.Record;
 import org.jooq.Table;
 import org.jooq.conf.ParamType;
 import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConnectionProvider;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.Operator;
 import org.molgenis.emx2.Row;
@@ -32,6 +36,7 @@ public class SqlQuery extends QueryBean {
   public static final String UNNEST_0 = "UNNEST({0})";
 
   private static final String QUERY_FAILED = "Query failed: ";
+  private static final int STREAM_FETCH_SIZE = 1000;
   private static final String ANY_SQL = "{0} = ANY ({1})";
   private static final String JSON_AGG_SQL = "jsonb_agg(item)";
   private static final String ROW_TO_JSON_SQL = "to_jsonb(item)";
@@ -72,6 +77,113 @@ public class SqlQuery extends QueryBean {
 
   @Override
   public List<Row> retrieveRows() {
+    SelectConnectByStep<org.jooq.Record> query = rowQuery();
+
+    // execute
+    try {
+      List<Row> result = new ArrayList<>();
+      if (logger.isInfoEnabled()) {
+        logger.info(query.getSQL(ParamType.INLINED));
+      }
+      Result<org.jooq.Record> fetch = query.fetch();
+      List<String> blobColumns = getSelectedFileContents();
+      for (org.jooq.Record r : fetch) {
+        result.add(addBlobContents(new SqlRow(r), blobColumns));
+      }
+      return result;
+    } catch (Exception e) {
+      throw new SqlMolgenisException(QUERY_FAILED, e);
+    }
+  }
+
+  @Override
+  public Stream<Row> retrieveRowStream() {
+    SelectConnectByStep<org.jooq.Record> query = rowQuery();
+    SqlTableMetadata table = schema.getTableMetadata(getSelect().getColumn());
+    ConnectionProvider provider = table.getJooq().configuration().connectionProvider();
+    Connection connection = provider.acquire();
+    try {
+      if (logger.isInfoEnabled()) {
+        logger.info(query.getSQL(ParamType.INLINED));
+      }
+      // postgresql only uses a server side cursor outside auto commit, i.e. in a transaction
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      Cursor<org.jooq.Record> cursor =
+          table
+              .getJooq()
+              .configuration()
+              .derive(new DefaultConnectionProvider(connection))
+              .dsl()
+              .fetchLazy(query.fetchSize(STREAM_FETCH_SIZE));
+      List<String> blobColumns = getSelectedFileContents();
+      return cursor.stream()
+          .map(r -> addBlobContents(toRow(r), blobColumns))
+          .onClose(() -> closeRowStream(provider, connection, cursor, autoCommit));
+    } catch (Exception e) {
+      provider.release(connection);
+      throw new SqlMolgenisException(QUERY_FAILED, e);
+    }
+  }
+
+  private static void closeRowStream(
+      ConnectionProvider provider,
+      Connection connection,
+      Cursor<org.jooq.Record> cursor,
+      boolean autoCommit) {
+    try {
+      cursor.close();
+      if (autoCommit) {
+        // we only read, so nothing to commit
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      throw new SqlMolgenisException("Closing of row stream failed", e);
+    } finally {
+      provider.release(connection);
+    }
+  }
+
+  /** file columns of which the contents are selected */
+  private List<String> getSelectedFileContents() {
+    TableMetadata table = schema.getTableMetadata(getSelect().getColumn());
+    List<String> result = new ArrayList<>();
+    for (SelectColumn select : getSelect().getSubselect()) {
+      Column column = table.getColumn(select.getColumn());
+      if (column != null && column.isFile() && select.has("contents")) {
+        result.add(column.getName());
+      }
+    }
+    return result;
+  }
+
+  /** contents of files in the blob store are not in the table, so we add them here */
+  private static Row addBlobContents(Row row, List<String> fileColumns) {
+    for (String name : fileColumns) {
+      String fileId = row.getString(name);
+      String hash = fileId != null ? BlobStore.getHash(fileId) : null;
+      if (hash != null && row.getBinary(name + "_contents") == null) {
+        BlobStore store = SqlDatabase.getBlobStore();
+        if (store == null) {
+          throw new MolgenisException(
+              "Query failed: file id '" + fileId + "' is in a blob store, but none is configured");
+        }
+        row.set(name + "_contents", store.get(hash));
+      }
+    }
+    return row;
+  }
+
+  private static Row toRow(org.jooq.Record r) {
+    try {
+      return new SqlRow(r);
+    } catch (SQLException e) {
+      throw new SqlMolgenisException(QUERY_FAILED, e);
+    }
+  }
+
+  private SelectConnectByStep<org.jooq.Record> rowQuery() {
     SelectColumn select = getSelect();
     Filter filter = getFilter();
     String[] searchTerms = getSearchTerms();
@@ -106,6 +218,11 @@ public class SqlQuery extends QueryBean {
       }
     }
 
+    if (select.getOrderBy().containsKey(SEARCH_SCORE) && !select.has(SEARCH_SCORE)) {
+      // order by refers to the selected score
+      select.select(SEARCH_SCORE);
+    }
+
     // basequery
     SelectJoinStep<org.jooq.Record> from =
         table
@@ -119,22 +236,15 @@ public class SqlQuery extends QueryBean {
     // where
     Condition condition = whereConditions(table, tableAlias, filter, searchTerms);
     SelectConnectByStep<org.jooq.Record> where = condition != null ? from.where(condition) : from;
-    SelectConnectByStep<org.jooq.Record> query = limitOffsetOrderBy(table, select, where);
-
-    // execute
-    try {
-      List<Row> result = new ArrayList<>();
-      if (logger.isInfoEnabled()) {
-        logger.info(query.getSQL(ParamType.INLINED));
-      }
-      Result<org.jooq.Record> fetch = query.fetch();
-      for (org.jooq.Record r : fetch) {
-        result.add(new SqlRow(r));
-      }
-      return result;
-    } catch (Exception e) {
-      throw new SqlMolgenisException(QUERY_FAILED, e);
+    if (searchTerms.length > 0
+        && select.getOrderBy().isEmpty()
+        && !SqlQueryKeyset.isKeyset(select)) {
+      // best matches first
+      where =
+          (SelectConnectByStep<org.jooq.Record>)
+              where.orderBy(SqlQuerySearch.rank(table, alias(tableAlias), searchTerms).desc());
     }
+    return limitOffsetOrderBy(table, select, where);
   }
 
   private void checkHasViewPermission(SqlTableMetadata table) {
@@ -151,9 +261,14 @@ public class SqlQuery extends QueryBean {
     for (SelectColumn select : selection.getSubselect()) {
       Column column = getColumnByName(table, select.getColumn());
       String columnAlias = prefix.equals("") ? column.getName() : prefix + "-" + column.getName();
-      if (column.isFile()) {
+      if (SEARCH_SCORE.equals(select.getColumn())) {
+        // only the root rows are searched
+        String[] searchTerms = prefix.equals("") ? getSearchTerms() : new String[0];
+        fields.add(SqlQuerySearch.rank(table, alias(tableAlias), searchTerms).as(columnAlias));
+      } else if (column.isFile()) {
         // check what they want to get, contents, mimetype, size, filename and/or extension
-        if (select.getSubselect().isEmpty() || select.has("id")) {
+        // the id refers to the contents if they are in a blob store
+        if (select.getSubselect().isEmpty() || select.has("id") || select.has("contents")) {
           fields.add(field(name(column.getName())));
         }
         if (select.has("contents")) {
@@ -237,6 +352,56 @@ public class SqlQuery extends QueryBean {
 
   @Override
   public String retrieveJSON() {
+    return retrieveJSON(false);
+  }
+
+  @Override
+  public String retrieveJSONWithoutNulls() {
+    return retrieveJSON(true);
+  }
+
+  private String retrieveJSON(boolean withoutNulls) {
+    Select<Record1<Object>> query = jsonQuery(withoutNulls);
+    long start = System.currentTimeMillis();
+    String result = query.fetchOne().get(0, String.class);
+    if (logger.isInfoEnabled()) {
+      logger.info(
+          "query in {}ms: {}", System.currentTimeMillis() - start, query.getSQL(ParamType.INLINED));
+    }
+    return result;
+  }
+
+  /**
+   * Same as {@link #retrieveJSONWithoutNulls()} for each of the queries, but retrieved using one
+   * statement. The queries must be on the same database.
+   */
+  public static List<String> retrieveJSONWithoutNulls(
+      List<? extends org.molgenis.emx2.Query> queries) {
+    if (queries.isEmpty()) {
+      return List.of();
+    }
+    List<Field<?>> fields = new ArrayList<>();
+    for (org.molgenis.emx2.Query query : queries) {
+      fields.add(field(((SqlQuery) query).jsonQuery(true)));
+    }
+    Select<Record> query = ((SqlQuery) queries.get(0)).schema.getJooq().select(fields);
+    long start = System.currentTimeMillis();
+    Record record = query.fetchOne();
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < fields.size(); i++) {
+      result.add(record.get(i, String.class));
+    }
+    if (logger.isInfoEnabled()) {
+      logger.info(
+          "{} queries in {}ms: {}",
+          fields.size(),
+          System.currentTimeMillis() - start,
+          query.getSQL(ParamType.INLINED));
+    }
+    return result;
+  }
+
+  private Select<Record1<Object>> jsonQuery(boolean withoutNulls) {
     SelectColumn select = getSelect();
     List<Field<?>> fields = new ArrayList<>();
     DSLContext sql = schema.getJooq();
@@ -282,16 +447,9 @@ public class SqlQuery extends QueryBean {
     }
 
     // asemble final query
-    SelectJoinStep<Record1<Object>> query =
-        sql.select(field(ROW_TO_JSON_SQL)).from(table(sql.select(fields)).as(ITEM));
-
-    long start = System.currentTimeMillis();
-    String result = query.fetchOne().get(0, String.class);
-    if (logger.isInfoEnabled()) {
-      logger.info(
-          "query in {}ms: {}", System.currentTimeMillis() - start, query.getSQL(ParamType.INLINED));
-    }
-    return result;
+    return sql.select(
+            field(withoutNulls ? "jsonb_strip_nulls(" + ROW_TO_JSON_SQL + ")" : ROW_TO_JSON_SQL))
+        .from(table(sql.select(fields)).as(ITEM));
   }
 
   private Field<?> jsonSubselect(
@@ -323,7 +481,24 @@ public class SqlQuery extends QueryBean {
     // note: another optimization would be to only include fields needed instead of asterisk
     SelectConnectByStep<org.jooq.Record> filterQuery =
         jsonFilterQuery(
-            table, List.of(asterisk()), column, tableAlias, subAlias, filters, searchTerms);
+            table,
+            List.of(
+                asterisk(),
+                SqlQuerySearch.rank(table, alias(subAlias + "_filter"), searchTerms)
+                    .as(SEARCH_SCORE)),
+            column,
+            tableAlias,
+            subAlias,
+            filters,
+            searchTerms);
+    if (searchTerms.length > 0
+        && select.getOrderBy().isEmpty()
+        && !SqlQueryKeyset.isKeyset(select)) {
+      // best matches first
+      filterQuery =
+          (SelectConnectByStep<org.jooq.Record>)
+              filterQuery.orderBy(field(name(SEARCH_SCORE)).desc());
+    }
     filterQuery = limitOffsetOrderBy(table, select, filterQuery);
 
     // use filtered/sorted/limited/offsetted to produce json including only the joins needed
@@ -510,15 +685,16 @@ public class SqlQuery extends QueryBean {
 
   private Condition jsonSearchConditions(
       SqlTableMetadata table, String subAlias, String[] searchTerms) {
-    // create search
+    // create search, labels of referenced rows in same schema are part of the search columns
     List<Condition> search = new ArrayList<>();
+    Condition condition = SqlQuerySearch.condition(table, alias(subAlias), searchTerms);
+    if (condition != null) {
+      search.add(condition);
+    }
     for (String term : searchTerms) {
-      search.add(
-          field(name(alias(subAlias), searchColumnName(table.getTableName())))
-              .likeIgnoreCase("%" + term + "%"));
-      // also search in ontology tables linked to current table
+      // also search in ontology tables in other schemas linked to current table
       table.getColumns().stream()
-          .filter(Column::isOntology)
+          .filter(c -> c.isOntology() && !c.getRefSchemaName().equals(c.getSchemaName()))
           .forEach(
               ontologyColumn -> {
                 Table<Record> ontologyTable = ontologyColumn.getRefTable().getJooqTable();
@@ -554,14 +730,6 @@ public class SqlQuery extends QueryBean {
                                           .likeIgnoreCase("%" + term + "%"))));
                 }
               });
-
-      TableMetadata parent = table.getInheritedTable();
-      while (parent != null) {
-        search.add(
-            field(name(alias(subAlias), searchColumnName(parent.getTableName())))
-                .likeIgnoreCase("%" + term + "%"));
-        parent = parent.getInheritedTable();
-      }
     }
     return or(search);
   }
@@ -581,6 +749,14 @@ public class SqlQuery extends QueryBean {
     }
 
     for (SelectColumn select : selection.getSubselect()) {
+      if (select.getColumn().equals(MG_CURSOR)) {
+        fields.add(SqlQueryKeyset.cursorField(table, alias(tableAlias), selection).as(MG_CURSOR));
+        continue;
+      }
+      if (select.getColumn().equals(SEARCH_SCORE)) {
+        fields.add(field(name(alias(tableAlias), SEARCH_SCORE)).as(SEARCH_SCORE));
+        continue;
+      }
       Column column =
           select.getColumn().endsWith("_agg") || select.getColumn().endsWith("_groupBy")
               ? getColumnByName(
@@ -1033,7 +1209,7 @@ public class SqlQuery extends QueryBean {
 
   private Condition whereConditions(
       TableMetadata table, String tableAlias, Filter filter, String[] searchTerms) {
-    Condition searchCondition = whereConditionSearch(table, tableAlias, searchTerms);
+    Condition searchCondition = SqlQuerySearch.condition(table, alias(tableAlias), searchTerms);
     Condition filterCondition = whereConditionsFilter(table, tableAlias, filter);
 
     if (searchCondition != null && filterCondition != null) {
@@ -1369,32 +1545,13 @@ public class SqlQuery extends QueryBean {
     else return or(conditions);
   }
 
-  private Condition whereConditionSearch(
-      TableMetadata table, String tableAlias, String[] searchTerms) {
-    List<Condition> searchConditions = new ArrayList<>();
-    while (table != null) {
-      List<Condition> subConditions = new ArrayList<>();
-      // will get inherit tables too
-      for (String term : searchTerms) {
-        for (String subTerm : term.split(" ")) {
-          subTerm = subTerm.trim();
-          Field<Object> field =
-              field(name(alias(tableAlias), searchColumnName(table.getTableName())));
-          // short terms with 'like', longer with trigram
-          subConditions.add(field.likeIgnoreCase("%" + subTerm + "%"));
-        }
-      }
-      table = table.getInheritedTable();
-      if (!subConditions.isEmpty()) {
-        searchConditions.add(and(subConditions));
-      }
-    }
-    return searchConditions.isEmpty() ? null : or(searchConditions);
-  }
-
   private static SelectJoinStep<org.jooq.Record> limitOffsetOrderBy(
       TableMetadata table, SelectColumn select, SelectConnectByStep<org.jooq.Record> query) {
-    query = SqlQueryBuilderHelpers.orderBy(table, select, query);
+    if (SqlQueryKeyset.isKeyset(select)) {
+      query = SqlQueryKeyset.orderByAndAfter(table, select, query);
+    } else {
+      query = SqlQueryBuilderHelpers.orderBy(table, select, query);
+    }
     if (select.getLimit() > 0) {
       query = (SelectConditionStep) query.limit(select.getLimit());
     }
@@ -1414,6 +1571,9 @@ public class SqlQuery extends QueryBean {
     if (TEXT_SEARCH_COLUMN_NAME.equals(columnName)) {
       return new Column(table, searchColumnName(table.getTableName()));
     }
+    if (SEARCH_SCORE.equals(columnName)) {
+      return new Column(table, SEARCH_SCORE, true).setType(ColumnType.DECIMAL);
+    }
     // is scalar column
     Column column = table.getColumn(columnName);
     if (column == null || (isRowQuery && column.isReference())) {
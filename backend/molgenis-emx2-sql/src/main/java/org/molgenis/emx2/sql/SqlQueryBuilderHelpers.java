@@ -4,9 +4,10 @@ import static org.jooq.impl.DSL.field;
 import static org.jooq.impl.DSL.lower;
 import static org.molgenis.emx2.ColumnType.STRING;
 import static org.molgenis.emx2.ColumnType.TEXT;
+import static org.molgenis.emx2.Constants.SEARCH_SCORE;
 import static org.molgenis.emx2.Constants.TEXT_SEARCH_COLUMN_NAME;
 import static org.molgenis.emx2.Order.ASC;
-import static org.molgenis.emx2.sql.SqlTableMetadataExecutor.searchColumnName;
+import static org.molgenis.emx2.sql.SqlSearchIndexExecutor.searchColumnName;
 
 import java.util.List;
 import java.util.Map;
@@ -65,6 +66,10 @@ class SqlQueryBuilderHelpers {
     if (TEXT_SEARCH_COLUMN_NAME.equals(columnName)) {
       return new Column(table, searchColumnName(table.getTableName()));
     }
+    // is the rank of the search, selected as column
+    if (SEARCH_SCORE.equals(columnName)) {
+      return new Column(table, SEARCH_SCORE, true).setType(ColumnType.DECIMAL);
+    }
     // is scalar column
     Column column = table.getColumn(columnName);
     if (column == null) {
@@ -0,0 +1,165 @@
+package org.molgenis.emx2.sql;
+
+import static org.jooq.impl.DSL.*;
+import static org.molgenis.emx2.Constants.MG_CURSOR;
+import static org.molgenis.emx2.Constants.SEARCH_SCORE;
+import static org.molgenis.emx2.Order.ASC;
+import static org.molgenis.emx2.sql.SqlQueryBuilderHelpers.getColumnByName;
+import static org.molgenis.emx2.sql.SqlQueryBuilderHelpers.isCaseSensitiveField;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.jooq.*;
+import org.jooq.Record;
+import org.molgenis.emx2.*;
+import org.molgenis.emx2.Row;
+
+/**
+ * Keyset pagination: rows are sorted on the order by columns plus the primary key, and the cursor
+ * holds these values of the last row of a page. The next page then starts with 'WHERE (sort
+ * columns) > (cursor values)' instead of an OFFSET, so deep pages are as cheap as the first.
+ */
+class SqlQueryKeyset {
+  private static final ObjectMapper mapper = new ObjectMapper();
+
+  private SqlQueryKeyset() {
+    // hide constructor
+  }
+
+  private record KeyColumn(Column column, Order order, boolean lowerCase, boolean required) {
+    Field<Object> field() {
+      return lowerCase ? (Field) lower(column.getJooqField()) : column.getJooqField();
+    }
+
+    Field<Object> value(Object value) {
+      Field<Object> field = val(value, column.getJooqField());
+      return lowerCase ? (Field) lower((Field) field) : field;
+    }
+  }
+
+  /** keyset pagination is used when a cursor is requested or provided */
+  static boolean isKeyset(SelectColumn select) {
+    return select.getAfter() != null || select.has(MG_CURSOR);
+  }
+
+  /** order by the requested columns, then by primary key, and continue after the cursor */
+  static SelectConnectByStep<Record> orderByAndAfter(
+      TableMetadata table, SelectColumn select, SelectConnectByStep<Record> query) {
+    List<KeyColumn> keyColumns = keyColumns(table, select);
+    if (select.getAfter() != null) {
+      query.getQuery().addConditions(afterCondition(keyColumns, decode(table, select.getAfter())));
+    }
+    for (KeyColumn key : keyColumns) {
+      query =
+          (SelectConnectByStep<Record>)
+              query.orderBy(ASC.equals(key.order()) ? key.field().asc() : key.field().desc());
+    }
+    return query;
+  }
+
+  /** the cursor of each row, i.e. the key columns as json encoded in base64 */
+  static Field<String> cursorField(TableMetadata table, String tableAlias, SelectColumn select) {
+    List<JSONEntry<?>> values = new ArrayList<>();
+    for (KeyColumn key : keyColumns(table, select)) {
+      String name = key.column().getName();
+      values.add(key(name).value(field(name(tableAlias, name))));
+    }
+    return field(
+        "replace(encode(convert_to({0}::text, 'UTF8'), 'base64'), chr(10), '')",
+        String.class, jsonObject(values));
+  }
+
+  private static List<KeyColumn> keyColumns(TableMetadata table, SelectColumn select) {
+    Map<String, KeyColumn> result = new LinkedHashMap<>();
+    for (Map.Entry<String, Order> entry : select.getOrderBy().entrySet()) {
+      if (SEARCH_SCORE.equals(entry.getKey())) {
+        throw new MolgenisException(
+            "Cannot use a cursor when ordering by " + SEARCH_SCORE + ", use limit and offset");
+      }
+      Column column = getColumnByName(table, entry.getKey());
+      for (Column primitive : primitiveColumns(column)) {
+        result.putIfAbsent(
+            primitive.getName(),
+            new KeyColumn(
+                primitive,
+                entry.getValue(),
+                isCaseSensitiveField(primitive),
+                primitive.isRequired() || column.isPrimaryKey()));
+      }
+    }
+    // the primary key makes the order unique
+    for (Column column : table.getPrimaryKeyColumns()) {
+      for (Column primitive : primitiveColumns(column)) {
+        result.putIfAbsent(primitive.getName(), new KeyColumn(primitive, ASC, false, true));
+      }
+    }
+    return new ArrayList<>(result.values());
+  }
+
+  private static List<Column> primitiveColumns(Column column) {
+    if (column.isReference()) {
+      return column.getReferences().stream().map(Reference::toPrimitiveColumn).toList();
+    }
+    return List.of(column);
+  }
+
+  private static Row decode(TableMetadata table, String cursor) {
+    try {
+      String json = new String(Base64.getDecoder().decode(cursor), StandardCharsets.UTF_8);
+      return new Row(mapper.readValue(json, new TypeReference<Map<String, Object>>() {}));
+    } catch (IllegalArgumentException | JsonProcessingException e) {
+      throw new MolgenisException(
+          "Query failed: invalid cursor '" + cursor + "' for table " + table.getTableName());
+    }
+  }
+
+  private static Condition afterCondition(List<KeyColumn> keyColumns, Row cursor) {
+    List<Object> values = new ArrayList<>();
+    for (KeyColumn key : keyColumns) {
+      if (!cursor.containsName(key.column().getName())) {
+        throw new MolgenisException(
+            "Query failed: cursor doesn't match the order of the query, missing "
+                + key.column().getName());
+      }
+      values.add(SqlTypeUtils.getTypedValue(key.column(), cursor));
+    }
+
+    // simple row comparison if possible, so indexes can be used
+    boolean sameOrder = keyColumns.stream().allMatch(k -> k.order() == keyColumns.get(0).order());
+    boolean noNulls = keyColumns.stream().allMatch(KeyColumn::required) && !values.contains(null);
+    if (sameOrder && noNulls) {
+      List<Field<Object>> fields = new ArrayList<>();
+      List<Field<Object>> cursorValues = new ArrayList<>();
+      for (int i = 0; i < keyColumns.size(); i++) {
+        fields.add(keyColumns.get(i).field());
+        cursorValues.add(keyColumns.get(i).value(values.get(i)));
+      }
+      return ASC.equals(keyColumns.get(0).order())
+          ? row(fields).gt(row(cursorValues))
+          : row(fields).lt(row(cursorValues));
+    }
+
+    // otherwise (a after x) or (a = x and b after y) or ..., postgres sorts nulls as largest
+    List<Condition> alternatives = new ArrayList<>();
+    List<Condition> equals = new ArrayList<>();
+    for (int i = 0; i < keyColumns.size(); i++) {
+      KeyColumn key = keyColumns.get(i);
+      Object value = values.get(i);
+      Condition after;
+      if (ASC.equals(key.order())) {
+        after =
+            value == null
+                ? falseCondition()
+                : key.field().gt(key.value(value)).or(key.field().isNull());
+      } else {
+        after = value == null ? key.field().isNotNull() : key.field().lt(key.value(value));
+      }
+      alternatives.add(and(equals).and(after));
+      equals.add(key.field().isNotDistinctFrom(key.value(value)));
+    }
+    return or(alternatives);
+  }
+}
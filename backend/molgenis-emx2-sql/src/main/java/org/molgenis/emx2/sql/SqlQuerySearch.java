@@ -0,0 +1,109 @@
+package org.molgenis.emx2.sql;
+
+import static org.jooq.impl.DSL.*;
+import static org.molgenis.emx2.sql.SqlSearchIndexExecutor.SEARCH_CONFIG;
+import static org.molgenis.emx2.sql.SqlSearchIndexExecutor.searchColumnName;
+import static org.molgenis.emx2.sql.SqlSearchIndexExecutor.searchVectorName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.jooq.Condition;
+import org.jooq.Field;
+import org.jooq.impl.DSL;
+import org.jooq.impl.SQLDataType;
+import org.molgenis.emx2.TableMetadata;
+
+/**
+ * Search on the search columns of a table and its inherited tables. Terms that are words are
+ * matched as word prefix in the search vector, using its index, and are used for ranking. Other
+ * terms, such as 'c.19239T>G', are matched as substring of the search text. All terms must match.
+ */
+class SqlQuerySearch {
+  private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+  private SqlQuerySearch() {
+    // hide constructor
+  }
+
+  /** condition matching all terms, or null if there are none */
+  static Condition condition(TableMetadata table, String tableAlias, String[] searchTerms) {
+    List<String> words = words(searchTerms);
+    List<String> substrings = substrings(searchTerms);
+    if (words.isEmpty() && substrings.isEmpty()) {
+      return null;
+    }
+    List<Condition> searchConditions = new ArrayList<>();
+    // will get inherit tables too
+    while (table != null) {
+      List<Condition> subConditions = new ArrayList<>();
+      if (!words.isEmpty()) {
+        subConditions.add(DSL.condition("{0} @@ {1}", vector(table, tableAlias), query(words)));
+      }
+      for (String substring : substrings) {
+        subConditions.add(
+            field(name(tableAlias, searchColumnName(table.getTableName())))
+                .likeIgnoreCase("%" + substring + "%"));
+      }
+      searchConditions.add(and(subConditions));
+      table = table.getInheritedTable();
+    }
+    return or(searchConditions);
+  }
+
+  /** rank of the row for the words in the search terms, or null if there are none */
+  static Field<Double> rank(TableMetadata table, String tableAlias, String[] searchTerms) {
+    List<String> words = words(searchTerms);
+    if (words.isEmpty()) {
+      return castNull(SQLDataType.DOUBLE);
+    }
+    List<Field<Double>> ranks = new ArrayList<>();
+    while (table != null) {
+      ranks.add(
+          field(
+              "coalesce(ts_rank({0}, {1}), 0)::float8",
+              SQLDataType.DOUBLE, vector(table, tableAlias), query(words)));
+      table = table.getInheritedTable();
+    }
+    return ranks.size() == 1
+        ? ranks.get(0)
+        : greatest(ranks.get(0), ranks.subList(1, ranks.size()).toArray(new Field[0]));
+  }
+
+  private static Field<Object> vector(TableMetadata table, String tableAlias) {
+    return field(name(tableAlias, searchVectorName(table.getTableName())));
+  }
+
+  private static Field<Object> query(List<String> words) {
+    // words only contain letters and numbers, so are safe to use as prefix query
+    return field(
+        "to_tsquery({0}, {1})",
+        inline(SEARCH_CONFIG),
+        val(words.stream().map(word -> word + ":*").collect(Collectors.joining(" & "))));
+  }
+
+  private static List<String> words(String[] searchTerms) {
+    return split(searchTerms).stream()
+        .filter(term -> WORD.matcher(term).matches())
+        .map(term -> term.toLowerCase(Locale.ROOT))
+        .toList();
+  }
+
+  private static List<String> substrings(String[] searchTerms) {
+    return split(searchTerms).stream().filter(term -> !WORD.matcher(term).matches()).toList();
+  }
+
+  private static List<String> split(String[] searchTerms) {
+    List<String> result = new ArrayList<>();
+    for (String term : searchTerms) {
+      for (String subTerm : term.split("\\s+")) {
+        if (!subTerm.isBlank()) {
+          result.add(subTerm.trim());
+        }
+      }
+    }
+    return result;
+  }
+}
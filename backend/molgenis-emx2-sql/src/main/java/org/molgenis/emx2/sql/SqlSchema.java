@@ -5,6 +5,7 @@ import static org.molgenis.emx2.sql.SqlDatabase.ADMIN_USER;
 import static org.molgenis.emx2.sql.SqlSchemaMetadataExecutor.*;
 import static org.molgenis.emx2.utils.TableSort.sortTableByDependency;
 
+import java.sql.Timestamp;
 import java.util.*;
 import org.jooq.DSLContext;
 import org.molgenis.emx2.*;
@@ -23,7 +24,7 @@ public class SqlSchema implements Schema {
     SqlTableMetadata tableMetadata = getMetadata().getTableMetadata(name);
     if (tableMetadata == null) return getTableById(name);
     if (tableMetadata.exists()) {
-      return new SqlTable(db, tableMetadata, db.getTableListener(getName(), name));
+      return new SqlTable(db, tableMetadata, db.getTableListeners(getName(), name));
     } else return null;
   }
 
@@ -35,7 +36,7 @@ public class SqlSchema implements Schema {
     for (TableMetadata tm : tableMetadata) {
       result.add(
           new SqlTable(
-              db, (SqlTableMetadata) tm, db.getTableListener(getName(), tm.getTableName())));
+              db, (SqlTableMetadata) tm, db.getTableListeners(getName(), tm.getTableName())));
     }
     return result;
   }
@@ -399,6 +400,17 @@ public class SqlSchema implements Schema {
     return metadata.getChanges(limit);
   }
 
+  @Override
+  public List<Change> getChanges(
+      String tableName,
+      Timestamp since,
+      Timestamp until,
+      Timestamp afterStamp,
+      Long afterId,
+      int limit) {
+    return metadata.getChanges(tableName, since, until, afterStamp, afterId, limit);
+  }
+
   @Override
   public Integer getChangesCount() {
     return metadata.getChangesCount();
@@ -11,6 +11,7 @@ import static org.molgenis.emx2.sql.SqlSchemaMetadataExecutor.executeGetRoles;
 import static org.molgenis.emx2.sql.SqlTableMetadataExecutor.executeCreateTable;
 import static org.molgenis.emx2.utils.TableSort.sortTableByDependency;
 
+import java.sql.Timestamp;
 import java.util.*;
 import java.util.stream.Collectors;
 import org.jooq.DSLContext;
@@ -59,6 +60,28 @@ public class SqlSchemaMetadata extends SchemaMetadata {
     }
   }
 
+  // snapshot, not attached to any database, see SchemaMetadataCache
+  private SqlSchemaMetadata(String name) {
+    super(name);
+  }
+
+  /** loads schema without attaching it to a database, so it can be shared as snapshot */
+  static SqlSchemaMetadata loadSnapshot(DSLContext jooq, String name) {
+    SqlSchemaMetadata snapshot = new SqlSchemaMetadata(name);
+    MetadataUtils.loadSchemaMetadata(jooq, snapshot);
+    for (TableMetadata table : MetadataUtils.loadTables(jooq, snapshot)) {
+      snapshot.tables.put(table.getTableName(), new SqlTableMetadata(snapshot, table));
+    }
+    return snapshot;
+  }
+
+  /** creates private copy of a shared snapshot, to be used by one database instance */
+  static SqlSchemaMetadata createView(SqlDatabase db, SqlSchemaMetadata snapshot) {
+    SqlSchemaMetadata view = new SqlSchemaMetadata(db, snapshot);
+    view.setDescription(snapshot.getDescription());
+    return view;
+  }
+
   public SqlSchemaMetadata(Database db, String name, String description) {
     super(
         db,
@@ -203,6 +226,9 @@ public class SqlSchemaMetadata extends SchemaMetadata {
               }
             });
     schema.setSettingsWithoutReload(settings);
+    if (settings.containsKey(Constants.CHANGELOG_RETENTION_MONTHS)) {
+      ChangeLogExecutor.executeMaintainChangeLog(db.getJooq(), schema);
+    }
     MetadataUtils.saveSchemaMetadata(db.getJooq(), schema);
     return schema;
   }
@@ -298,6 +324,16 @@ public class SqlSchemaMetadata extends SchemaMetadata {
     return executeGetChanges(getJooq(), this, limit);
   }
 
+  public List<Change> getChanges(
+      String tableName,
+      Timestamp since,
+      Timestamp until,
+      Timestamp afterStamp,
+      Long afterId,
+      int limit) {
+    return executeGetChanges(getJooq(), this, tableName, since, until, afterStamp, afterId, limit);
+  }
+
   public Integer getChangesCount() {
     return executeGetChangesCount(getJooq(), this);
   }
@@ -100,6 +100,8 @@ class SqlSchemaMetadataExecutor {
         member,
         username,
         rolename);
+    // cached roles have changed
+    ((SqlDatabase) schema.getDatabase()).schemaMetadataChanged(schema.getMetadata().getName());
   }
 
   private static void updateMembershipForUser(
@@ -187,6 +189,8 @@ class SqlSchemaMetadataExecutor {
                   name(roleprefix + m.getRole()), name(userprefix + m.getUser()));
         }
       }
+      // cached roles have changed
+      db.schemaMetadataChanged(schemaName);
     } catch (DataAccessException dae) {
       throw new SqlMolgenisException("Remove of member failed", dae);
     }
@@ -212,11 +216,15 @@ class SqlSchemaMetadataExecutor {
       // remove changelog triggers + table
       ChangeLogExecutor.disableChangeLog(db, schema.getMetadata());
       ChangeLogExecutor.executeDropChangeLogTableForSchema(db, schema);
+      ReportCache.dropMaterializedReports(db.getJooq(), schemaName);
 
       // remove tables individually to trigger foreign key error if appropriate
       List<Table> tables = db.getSchema(schemaName).getTablesSorted();
       Collections.reverse(tables);
       tables.forEach(table -> executeDropTable(db.getJooq(), table.getMetadata()));
+      db.getJooq()
+          .dropTableIfExists(name(schemaName, SqlColumnRefArrayExecutor.MG_DEFERRED_CHECKS))
+          .execute();
 
       // drop schema
       db.getJooq().dropSchema(name(schemaName)).execute();
@@ -0,0 +1,351 @@
+package org.molgenis.emx2.sql;
+
+import static org.jooq.impl.DSL.*;
+import static org.molgenis.emx2.Constants.TEXT_SEARCH_COLUMN_NAME;
+import static org.molgenis.emx2.Constants.TEXT_SEARCH_VECTOR_NAME;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.jooq.DSLContext;
+import org.jooq.Name;
+import org.molgenis.emx2.*;
+
+/**
+ * Search columns of a table: a text column for substring search and a tsvector column for word
+ * search and ranking, with key columns weighted 'A', other columns 'B' and references 'C'. Both are
+ * filled by a trigger, including the labels of referenced rows in the same schema. These labels are
+ * kept up to date by a trigger on the referenced table that refreshes the referring rows.
+ */
+class SqlSearchIndexExecutor {
+  static final String SEARCH_CONFIG = "simple";
+  private static final Pattern LABEL_PLACEHOLDER = Pattern.compile("\\$\\{([^.}]+)}");
+
+  private SqlSearchIndexExecutor() {
+    // hide constructor
+  }
+
+  static String searchColumnName(String tableName) {
+    return tableName + TEXT_SEARCH_COLUMN_NAME;
+  }
+
+  static String searchVectorName(String tableName) {
+    return tableName + TEXT_SEARCH_VECTOR_NAME;
+  }
+
+  private static String getSearchTriggerName(String tableName) {
+    return tableName + "search_vector_trigger";
+  }
+
+  private static String getLabelTriggerName(String tableName) {
+    return tableName + "search_label_trigger";
+  }
+
+  static void executeEnableSearch(DSLContext jooq, TableMetadata table) {
+    org.jooq.Table<?> jooqTable = SqlTableMetadataExecutor.getJooqTable(table);
+    Name searchColumnName = name(searchColumnName(table.getTableName()));
+    Name searchVectorName = name(searchVectorName(table.getTableName()));
+
+    // 1. create columns
+    jooq.execute("ALTER TABLE {0} ADD COLUMN {1} TEXT", jooqTable, searchColumnName);
+    jooq.execute("ALTER TABLE {0} ADD COLUMN {1} TSVECTOR", jooqTable, searchVectorName);
+
+    // 2. create trigram index for substrings and inverted index for words
+    jooq.execute(
+        "CREATE INDEX {0} ON {1} USING GIN( {2} gin_trgm_ops)",
+        name(table.getTableName() + "_search_idx"), jooqTable, searchColumnName);
+    jooq.execute(
+        "CREATE INDEX {0} ON {1} USING GIN( {2} )",
+        name(table.getTableName() + "_search_vector_idx"), jooqTable, searchVectorName);
+
+    createSearchTrigger(jooq, table, table.getTableName());
+  }
+
+  /** adds the search vector to tables created before it existed, and fills it */
+  static void executeUpgradeSearch(DSLContext jooq, TableMetadata table) {
+    org.jooq.Table<?> jooqTable = SqlTableMetadataExecutor.getJooqTable(table);
+    Name searchVectorName = name(searchVectorName(table.getTableName()));
+    jooq.execute(
+        "ALTER TABLE {0} ADD COLUMN IF NOT EXISTS {1} TSVECTOR", jooqTable, searchVectorName);
+    jooq.execute(
+        "CREATE INDEX IF NOT EXISTS {0} ON {1} USING GIN( {2} )",
+        name(table.getTableName() + "_search_vector_idx"), jooqTable, searchVectorName);
+    updateSearchIndexTriggerFunction(jooq, table, table.getTableName());
+    // the search trigger recomputes both search columns; other triggers, such as the refback
+    // checks and the changelog, must not fire because the data itself doesn't change
+    List<String> otherTriggers =
+        jooq.fetch(
+                "SELECT tgname FROM pg_trigger WHERE tgrelid = {0}::regclass"
+                    + " AND NOT tgisinternal AND tgenabled = 'O' AND tgname <> {1}",
+                inline(jooq.render(jooqTable)), inline(searchColumnName(table.getTableName())))
+            .getValues(0, String.class);
+    for (String trigger : otherTriggers) {
+      jooq.execute("ALTER TABLE {0} DISABLE TRIGGER {1}", jooqTable, name(trigger));
+    }
+    jooq.execute("UPDATE {0} SET {1} = NULL", jooqTable, searchVectorName);
+    for (String trigger : otherTriggers) {
+      jooq.execute("ALTER TABLE {0} ENABLE TRIGGER {1}", jooqTable, name(trigger));
+    }
+  }
+
+  static void executeAlterName(DSLContext jooq, TableMetadata table, String newName) {
+    org.jooq.Table<?> jooqTable = SqlTableMetadataExecutor.getJooqTable(table);
+    dropSearchTrigger(jooq, table);
+    jooq.execute(
+        "ALTER TABLE {0} RENAME COLUMN {1} TO {2}",
+        jooqTable, name(searchColumnName(table.getTableName())), name(searchColumnName(newName)));
+    jooq.execute(
+        "ALTER TABLE {0} RENAME COLUMN {1} TO {2}",
+        jooqTable, name(searchVectorName(table.getTableName())), name(searchVectorName(newName)));
+  }
+
+  static void createSearchTrigger(DSLContext jooq, TableMetadata table, String tableName) {
+    // create the trigger function to automatically update the search columns
+    String triggerfunction = updateSearchIndexTriggerFunction(jooq, table, tableName);
+
+    // add trigger to update the search columns on each insert or update
+    jooq.execute(
+        "CREATE TRIGGER {0} BEFORE INSERT OR UPDATE ON {1} FOR EACH ROW EXECUTE FUNCTION "
+            + triggerfunction,
+        name(searchColumnName(tableName)),
+        name(table.getSchemaName(), tableName));
+  }
+
+  static void dropSearchTrigger(DSLContext jooq, TableMetadata table) {
+    String schemaName = table.getSchema().getName();
+    jooq.execute(
+        "DROP FUNCTION IF EXISTS {0} CASCADE",
+        name(schemaName, getSearchTriggerName(table.getTableName())));
+    // also drops the triggers on referenced tables
+    jooq.execute(
+        "DROP FUNCTION IF EXISTS {0} CASCADE",
+        name(schemaName, getLabelTriggerName(table.getTableName())));
+  }
+
+  static String updateSearchIndexTriggerFunction(
+      DSLContext jooq, TableMetadata table, String tableName) {
+    // TODO should also join in REFBACK column to make them searchable as part of 'mew'
+
+    String triggerName = getSearchTriggerName(tableName);
+    String triggerfunction =
+        String.format("\"%s\".\"%s\"()", table.getSchema().getName(), triggerName);
+
+    List<String> keyValues = new ArrayList<>();
+    List<String> values = new ArrayList<>();
+    List<String> refValues = new ArrayList<>();
+    for (Column c : table.getStoredColumns()) {
+      if (!c.isSystemColumn()) {
+        if (c.isFile()) {
+          // do nothing for now
+        } else if (c.isReference()) {
+          for (Reference r : c.getReferences()) {
+            (c.getKey() > 0 ? keyValues : refValues).add(textValue(r.getName()));
+          }
+          String labels = labelsExpression(c);
+          if (labels != null) {
+            refValues.add(labels);
+          }
+        } else {
+          (c.getKey() > 0 ? keyValues : values).add(textValue(c.getName()));
+        }
+      }
+    }
+
+    String functionBody =
+        String.format(
+            "CREATE OR REPLACE FUNCTION %s RETURNS trigger AS $$\n"
+                + "declare\n"
+                + "\tkeys text;\n"
+                + "\tvals text;\n"
+                + "\trefs text;\n"
+                + "begin\n"
+                + "\tkeys := %s;\n"
+                + "\tvals := %s;\n"
+                + "\trefs := %s;\n"
+                + "\tnew.%s := keys || vals || refs;\n"
+                + "\tnew.%s := setweight(to_tsvector('%7$s', keys), 'A')"
+                + " || setweight(to_tsvector('%7$s', vals), 'B')"
+                + " || setweight(to_tsvector('%7$s', refs), 'C');\n"
+                + "\treturn new;\n"
+                + "end\n"
+                + "$$ LANGUAGE plpgsql;",
+            triggerfunction,
+            concat(keyValues),
+            concat(values),
+            concat(refValues),
+            name(searchColumnName(tableName)),
+            name(searchVectorName(tableName)),
+            SEARCH_CONFIG);
+
+    jooq.execute(functionBody);
+    jooq.execute(
+        "ALTER FUNCTION " + triggerfunction + " OWNER TO {0}",
+        name(getRolePrefix(table) + Privileges.MANAGER));
+
+    updateLabelTriggers(jooq, table, tableName);
+    return triggerfunction;
+  }
+
+  /** the search triggers of referring tables use the labels of this table, so rebuild them */
+  static void updateSearchIndexOfReferringTables(DSLContext jooq, TableMetadata refTable) {
+    for (TableMetadata table : refTable.getSchema().getTables()) {
+      if (!table.getTableName().equals(refTable.getTableName())
+          && table.getStoredColumns().stream()
+              .anyMatch(c -> (c.isRef() || c.isRefArray()) && isReferenceTo(c, refTable))) {
+        updateSearchIndexTriggerFunction(jooq, table, table.getTableName());
+      }
+    }
+  }
+
+  /**
+   * When labels of referenced rows change, set the search vector of the referring rows to null so
+   * the search trigger recomputes them.
+   */
+  private static void updateLabelTriggers(DSLContext jooq, TableMetadata table, String tableName) {
+    String schemaName = table.getSchema().getName();
+    Name function = name(schemaName, getLabelTriggerName(tableName));
+    // drops the triggers on tables that are not referenced anymore
+    jooq.execute("DROP FUNCTION IF EXISTS {0} CASCADE", function);
+
+    Map<String, List<Column>> columnsByRefTable = new LinkedHashMap<>();
+    for (Column c : table.getStoredColumns()) {
+      if (!c.isSystemColumn() && labelsExpression(c) != null) {
+        columnsByRefTable.computeIfAbsent(c.getRefTableName(), k -> new ArrayList<>()).add(c);
+      }
+    }
+    if (columnsByRefTable.isEmpty()) {
+      return;
+    }
+
+    StringBuilder body = new StringBuilder();
+    for (List<Column> columns : columnsByRefTable.values()) {
+      TableMetadata refTable = columns.get(0).getRefTable();
+      Set<String> labels = new LinkedHashSet<>();
+      columns.forEach(c -> labels.addAll(getLabelColumns(c)));
+      body.append(
+          String.format(
+              // nested because fields of OLD and NEW only exist for their own table
+              "\tIF TG_TABLE_NAME = %s THEN\n"
+                  + "\t\tIF %s THEN\n"
+                  + "\t\t\tUPDATE %s SET %s = NULL WHERE %s;\n"
+                  + "\t\tEND IF;\n"
+                  + "\tEND IF;\n",
+              inline(refTable.getTableName()),
+              labels.stream()
+                  .map(l -> "OLD." + name(l) + " IS DISTINCT FROM NEW." + name(l))
+                  .collect(Collectors.joining(" OR ")),
+              name(schemaName, tableName),
+              name(searchVectorName(tableName)),
+              columns.stream()
+                  .map(c -> "(" + referenceCondition(c, "NEW", null) + ")")
+                  .collect(Collectors.joining(" OR "))));
+    }
+    jooq.execute(
+        "CREATE FUNCTION {0}() RETURNS trigger AS $$\nbegin\n"
+            + body
+            + "\treturn null;\nend\n$$ LANGUAGE plpgsql",
+        function);
+    jooq.execute(
+        "ALTER FUNCTION {0}() OWNER TO {1}",
+        function, name(getRolePrefix(table) + Privileges.MANAGER));
+    for (List<Column> columns : columnsByRefTable.values()) {
+      jooq.execute(
+          "CREATE TRIGGER {0} AFTER UPDATE ON {1} FOR EACH ROW EXECUTE FUNCTION {2}()",
+          name(getLabelTriggerName(tableName)),
+          name(schemaName, columns.get(0).getRefTableName()),
+          function);
+    }
+  }
+
+  /**
+   * Labels of rows referenced in other tables of the same schema: the columns in the refLabel, and
+   * label and code of ontology terms. Key values are already part of the referring row.
+   */
+  private static String labelsExpression(Column column) {
+    if (!(column.isRef() || column.isRefArray())
+        || !column.getRefSchemaName().equals(column.getSchemaName())
+        || column.getRefTableName().equals(column.getTableName())) {
+      return null;
+    }
+    List<String> labels = getLabelColumns(column);
+    if (labels.isEmpty()) {
+      return null;
+    }
+    String label =
+        "concat_ws(' ', "
+            + labels.stream().map(l -> "r." + name(l)).collect(Collectors.joining(", "))
+            + ")";
+    return String.format(
+        "coalesce((SELECT %s FROM %s r WHERE %s),'')",
+        column.isRefArray() ? "string_agg(" + label + ", ' ')" : label,
+        name(column.getSchemaName(), column.getRefTableName()),
+        referenceCondition(column, "r", "new"));
+  }
+
+  private static List<String> getLabelColumns(Column column) {
+    TableMetadata refTable = column.getRefTable();
+    if (refTable == null) {
+      return List.of();
+    }
+    Set<String> candidates = new LinkedHashSet<>();
+    if (column.getRefLabel() != null) {
+      Matcher matcher = LABEL_PLACEHOLDER.matcher(column.getRefLabel());
+      while (matcher.find()) {
+        candidates.add(matcher.group(1).trim());
+      }
+    }
+    if (TableType.ONTOLOGIES.equals(refTable.getTableType())) {
+      candidates.add("label");
+      candidates.add("code");
+    }
+    // only scalar columns stored in the referenced table itself
+    List<String> result = new ArrayList<>();
+    for (Column c : refTable.getStoredColumns()) {
+      if (candidates.contains(c.getName())
+          && c.getKey() == 0
+          && !c.isReference()
+          && !c.isFile()
+          && !c.isSystemColumn()) {
+        result.add(c.getName());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Matches a referenced row to the referring row. For arrays of composite keys this may match more
+   * rows than referenced, which is fine for labels.
+   */
+  private static String referenceCondition(Column column, String refRow, String row) {
+    return column.getReferences().stream()
+        .map(
+            r -> {
+              String refTo = (refRow != null ? refRow + "." : "") + name(r.getRefTo());
+              String from = (row != null ? row + "." : "") + name(r.getName());
+              return column.isRefArray() ? refTo + " = ANY(" + from + ")" : refTo + " = " + from;
+            })
+        .collect(Collectors.joining(" AND "));
+  }
+
+  private static boolean isReferenceTo(Column column, TableMetadata refTable) {
+    return column.getRefTableName().equals(refTable.getTableName())
+        && column.getRefSchemaName().equals(refTable.getSchemaName());
+  }
+
+  private static String textValue(String columnName) {
+    return String.format("coalesce(new.%s::text,'')", name(columnName));
+  }
+
+  private static String concat(List<String> values) {
+    StringBuilder result = new StringBuilder("' '");
+    for (String value : values) {
+      result.append(" || ").append(value).append(" || ' '");
+    }
+    return result.toString();
+  }
+
+  private static String getRolePrefix(TableMetadata table) {
+    return SqlSchemaMetadataExecutor.getRolePrefix(table.getSchema().getName());
+  }
+}
@@ -8,8 +8,12 @@ import static org.molgenis.emx2.sql.SqlDatabase.ADMIN_USER;
 import static org.molgenis.emx2.sql.SqlTypeUtils.applyValidationAndComputed;
 import static org.molgenis.emx2.sql.SqlTypeUtils.getTypedValue;
 
-import java.io.StringReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -20,6 +24,7 @@ import org.molgenis.emx2.Query;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Table;
 import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.PGCopyOutputStream;
 import org.postgresql.core.BaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,13 +32,18 @@ import org.slf4j.LoggerFactory;
 class SqlTable implements Table {
   private SqlDatabase db;
   private SqlTableMetadata metadata;
-  private TableListener tableListener;
+  private List<TableListener> tableListeners;
   private static Logger logger = LoggerFactory.getLogger(SqlTable.class);
+  private static final int BATCH_SIZE = 100;
+  // copy has little overhead per statement, but rows of a batch are kept in memory
+  private static final int COPY_BATCH_SIZE = 10000;
+  private static final String COPY_STAGING_TABLE = "mg_copy_staging";
+  private static final int FILE_CHUNK_SIZE = 1024 * 1024;
 
-  SqlTable(SqlDatabase db, SqlTableMetadata metadata, TableListener tableListener) {
+  SqlTable(SqlDatabase db, SqlTableMetadata metadata, List<TableListener> tableListeners) {
     this.db = db;
     this.metadata = metadata;
-    this.tableListener = tableListener;
+    this.tableListeners = tableListeners;
   }
 
   @Override
@@ -70,48 +80,78 @@ class SqlTable implements Table {
             });
   }
 
-  public void copyIn(Iterable<Row> rows) {
-    db.getJooq()
-        .connection(
-            connection -> {
-              try {
-                CopyManager cm = new CopyManager(connection.unwrap(BaseConnection.class));
-
-                // must be batched
-                StringBuilder tmp = new StringBuilder();
-                tmp.append(
-                    this.getMetadata().getLocalColumnNames().stream()
-                            .map(c -> "\"" + c + "\"")
-                            .collect(Collectors.joining(","))
-                        + "\n");
-                for (Row row : rows) {
-                  StringBuilder line = new StringBuilder();
-                  for (Column c : this.getMetadata().getStoredColumns()) {
-                    if (!row.containsName(c.getName())) {
-                      line.append(",");
-                    } else {
-                      Object value = getTypedValue(c, row);
-                      line.append(value + ",");
-                    }
-                  }
-                  tmp.append(line.substring(0, line.length() - 1) + "\n");
-                }
+  @Override
+  public int copyIn(Iterable<Row> rows) {
+    try {
+      return executeTransaction(db, getSchema().getName(), getName(), rows, SAVE, true);
+    } catch (Exception e) {
+      throw new SqlMolgenisException("Copy into table '" + getName() + "' failed", e);
+    }
+  }
 
-                String tableName =
-                    "\"" + getSchema().getMetadata().getName() + "\".\"" + getName() + "\"";
+  @Override
+  public long retrieveFileContents(
+      String columnName, String fileId, long offset, long length, OutputStream outputStream) {
+    Column column = metadata.getColumn(columnName);
+    if (column == null || !column.isFile()) {
+      throw new MolgenisException(
+          "Retrieve file failed: column '" + columnName + "' is not a file in table " + getName());
+    }
+    String hash = BlobStore.getHash(fileId);
+    if (hash != null) {
+      return retrieveBlobContents(column, fileId, hash, offset, length, outputStream);
+    }
+    Field<byte[]> contents = field(name(columnName + "_contents"), byte[].class);
+    long written = 0;
+    try {
+      while (written < length) {
+        int chunkSize = (int) Math.min(FILE_CHUNK_SIZE, length - written);
+        // each chunk is a separate query; the id changes when the file is replaced
+        Record1<byte[]> chunk =
+            db.getJooq()
+                .select(
+                    field(
+                        "substring({0} from {1} for {2})",
+                        byte[].class,
+                        contents,
+                        val(Math.toIntExact(offset + written + 1)),
+                        val(chunkSize)))
+                .from(column.getJooqTable())
+                .where(field(name(columnName)).eq(fileId))
+                .fetchOne();
+        if (chunk == null) {
+          throw new MolgenisException(
+              "Retrieve file failed: file id '" + fileId + "' not found in table " + getName());
+        }
+        byte[] bytes = chunk.value1() != null ? chunk.value1() : new byte[0];
+        outputStream.write(bytes);
+        written += bytes.length;
+        if (bytes.length < chunkSize) {
+          break;
+        }
+      }
+    } catch (IOException e) {
+      throw new MolgenisException("Retrieve file failed", e);
+    }
+    return written;
+  }
 
-                String columnNames =
-                    "("
-                        + this.getMetadata().getLocalColumnNames().stream()
-                            .map(c -> "\"" + c + "\"")
-                            .collect(Collectors.joining(","))
-                        + ")";
-                String sql = "COPY " + tableName + columnNames + " FROM STDIN (FORMAT CSV,HEADER )";
-                cm.copyIn(sql, new StringReader(tmp.toString()));
-              } catch (Exception e) {
-                throw new SqlMolgenisException("copyOut failed: ", e);
-              }
-            });
+  private long retrieveBlobContents(
+      Column column, String fileId, String hash, long offset, long length, OutputStream out) {
+    BlobStore store = SqlDatabase.getBlobStore();
+    // the query checks that the file is in this table and that we may view it
+    if (db.getJooq().fetchCount(column.getJooqTable(), field(name(column.getName())).eq(fileId))
+        == 0) {
+      throw new MolgenisException(
+          "Retrieve file failed: file id '" + fileId + "' not found in table " + getName());
+    }
+    if (store == null) {
+      throw new MolgenisException(
+          "Retrieve file failed: file id '"
+              + fileId
+              + "' is in a blob store, but none is configured");
+    }
+    return store.read(hash, offset, length, out);
   }
 
   @Override
@@ -122,7 +162,7 @@ class SqlTable implements Table {
   @Override
   public int insert(Iterable<Row> rows) {
     try {
-      return executeTransaction(db, getSchema().getName(), getName(), rows, INSERT);
+      return executeTransaction(db, getSchema().getName(), getName(), rows, INSERT, false);
     } catch (Exception e) {
       throw new SqlMolgenisException("Update into table '" + getName() + "' failed.", e);
     }
@@ -136,7 +176,7 @@ class SqlTable implements Table {
   @Override
   public int update(Iterable<Row> rows) {
     try {
-      return this.executeTransaction(db, getSchema().getName(), getName(), rows, UPDATE);
+      return this.executeTransaction(db, getSchema().getName(), getName(), rows, UPDATE, false);
     } catch (Exception e) {
       throw new SqlMolgenisException("Update into table '" + getName() + "' failed.", e);
     }
@@ -150,7 +190,7 @@ class SqlTable implements Table {
   @Override
   public int save(Iterable<Row> rows) {
     try {
-      return this.executeTransaction(db, getSchema().getName(), getName(), rows, SAVE);
+      return this.executeTransaction(db, getSchema().getName(), getName(), rows, SAVE, false);
     } catch (Exception e) {
       throw new SqlMolgenisException("Upsert into table '" + getName() + "' failed", e);
     }
@@ -195,7 +235,8 @@ class SqlTable implements Table {
       String schemaName,
       String tableName,
       Iterable<Row> rows,
-      MutationType transactionType) {
+      MutationType transactionType,
+      boolean copy) {
     long start = System.currentTimeMillis();
     final AtomicInteger count = new AtomicInteger(0);
     final Map<String, List<Row>> subclassRows = new LinkedHashMap<>();
@@ -204,6 +245,9 @@ class SqlTable implements Table {
     SqlSchema schema = (SqlSchema) db.getSchema(schemaName);
     SqlTable table = schema.getTable(tableName);
     String tableClass = getMgTableClass(table.getMetadata());
+    int batchSize = copy ? COPY_BATCH_SIZE : BATCH_SIZE;
+    // rows might be streamed, i.e. can only be iterated once, then notify listeners per batch
+    List<TableListener> batchListeners = copy ? table.getTableListeners() : List.of();
 
     // validate
     if (table.getMetadata().getPrimaryKeys().isEmpty())
@@ -266,14 +310,16 @@ class SqlTable implements Table {
 
             // execute batch; or columns provided changes
             if (columnsProvidedAreDifferent(columnsProvided.get(subclassName), row)
-                || subclassRows.get(subclassName).size() >= 100) {
+                || subclassRows.get(subclassName).size() >= batchSize) {
               executeBatch(
                   (SqlSchema) db2.getSchema(subclassName.split("\\.")[0]),
                   transactionType,
                   count,
                   subclassRows,
                   subclassName,
-                  columnsProvided.get(subclassName));
+                  columnsProvided.get(subclassName),
+                  copy,
+                  batchListeners);
               // reset columns provided
               columnsProvided.get(subclassName).clear();
               columnsProvided.get(subclassName).addAll(row.getColumnNames());
@@ -292,12 +338,14 @@ class SqlTable implements Table {
                   count,
                   subclassRows,
                   batch.getKey(),
-                  columnsProvided.get(batch.getKey()));
+                  columnsProvided.get(batch.getKey()),
+                  copy,
+                  batchListeners);
             }
           }
           // listeners
-          if (table.getTableListener() != null) {
-            table.getTableListener().preparePostSave(rows);
+          if (!copy) {
+            table.getTableListeners().forEach(listener -> listener.preparePostSave(rows));
           }
         });
 
@@ -320,7 +368,9 @@ class SqlTable implements Table {
       AtomicInteger count,
       Map<String, List<Row>> subclassRows,
       String subclassName,
-      Set<String> columnsProvided) {
+      Set<String> columnsProvided,
+      boolean copy,
+      List<TableListener> batchListeners) {
 
     // execute
     SqlTable table = schema.getTable(subclassName.split("\\.")[1]);
@@ -329,23 +379,53 @@ class SqlTable implements Table {
       List<Row> rows =
           applyValidationAndComputed(
               table.getMetadata().getColumns(), subclassRows.get(subclassName));
+      storeFileContents(table, rows);
       count.set(count.get() + table.updateBatch(table, rows, updateColumns));
     } else if (SAVE.equals(transactionType) || INSERT.equals(transactionType)) {
       List<Column> insertColumns = getInsertColumns(table, columnsProvided);
       List<Row> rows = applyValidationAndComputed(insertColumns, subclassRows.get(subclassName));
-      count.set(
-          count.get()
-              + table.insertBatch(table, rows, SAVE.equals(transactionType), insertColumns));
+      storeFileContents(table, rows);
+      if (copy) {
+        count.set(count.get() + table.copyBatch(table, rows, insertColumns));
+      } else {
+        count.set(
+            count.get()
+                + table.insertBatch(table, rows, SAVE.equals(transactionType), insertColumns));
+      }
     } else {
       throw new MolgenisException(
           "Internal error in executeBatch: transaction type "
               + transactionType
               + " not allowed here");
     }
+    if (!batchListeners.isEmpty()) {
+      List<Row> batch = new ArrayList<>(subclassRows.get(subclassName));
+      batchListeners.forEach(listener -> listener.preparePostSave(batch));
+    }
     // clear the list
     subclassRows.get(subclassName).clear();
   }
 
+  /** moves file contents to the blob store, if any, so the row only keeps a reference */
+  private static void storeFileContents(SqlTable table, List<Row> rows) {
+    BlobStore store = SqlDatabase.getBlobStore();
+    if (store == null) {
+      return;
+    }
+    for (Column column : table.getMetadata().getColumns()) {
+      if (column.isFile()) {
+        String contentsName = column.getName() + "_contents";
+        for (Row row : rows) {
+          byte[] contents = row.getBinary(contentsName);
+          if (contents != null && row.notNull(column.getName())) {
+            row.set(column.getName(), store.store(row.getString(column.getName()), contents));
+            row.set(contentsName, null);
+          }
+        }
+      }
+    }
+  }
+
   private static List<Column> getInsertColumns(SqlTable table, Set<String> columnsProvided) {
     return table.getMetadata().getColumns().stream()
         .filter(
@@ -371,8 +451,8 @@ class SqlTable implements Table {
         .toList();
   }
 
-  private TableListener getTableListener() {
-    return this.tableListener;
+  private List<TableListener> getTableListeners() {
+    return this.tableListeners;
   }
 
   private static int insertBatch(
@@ -429,6 +509,123 @@ class SqlTable implements Table {
     return step.execute();
   }
 
+  /**
+   * Upserts rows via a temporary staging table that is filled using COPY, so the rows need only one
+   * round trip to the server. Triggers on the target tables, e.g. for ref_array checks, still apply
+   * because the staging table is merged using 'insert into ... select ... on conflict'.
+   */
+  private static int copyBatch(SqlTable table, List<Row> rows, List<Column> updateColumns) {
+    // tables to merge into, from root of the inheritance tree down to this table
+    List<SqlTable> tables = new ArrayList<>();
+    for (SqlTable t = table; t != null; ) {
+      tables.add(0, t);
+      t = t.getMetadata().getInheritName() != null ? t.getInheritedTable() : null;
+    }
+
+    // staging has the columns of all tables, typed by the first table that stores them
+    Map<SqlTable, List<Column>> columnsPerTable = new LinkedHashMap<>();
+    Map<String, Column> stagingColumns = new LinkedHashMap<>();
+    List<String> stagingSelect = new ArrayList<>();
+    List<String> stagingFrom = new ArrayList<>();
+    for (SqlTable t : tables) {
+      String alias = "t" + stagingFrom.size();
+      stagingFrom.add(quote(t.getMetadata().getSchemaName(), t.getName()) + " " + alias);
+      List<Column> columns = getLocalStoredColumns(t, updateColumns);
+      columnsPerTable.put(t, columns);
+      for (Column c : columns) {
+        if (stagingColumns.putIfAbsent(c.getName(), c) == null) {
+          stagingSelect.add(alias + "." + quote(c.getName()));
+        }
+      }
+    }
+    if (stagingColumns.isEmpty()) return 0;
+    String staging = "pg_temp." + quote(COPY_STAGING_TABLE);
+    String stagingColumnNames =
+        stagingColumns.keySet().stream().map(SqlTable::quote).collect(Collectors.joining(","));
+    DSLContext jooq = table.getJooq();
+    jooq.execute("DROP TABLE IF EXISTS " + staging);
+    jooq.execute(
+        "CREATE TEMP TABLE "
+            + quote(COPY_STAGING_TABLE)
+            + " ON COMMIT DROP AS SELECT "
+            + String.join(",", stagingSelect)
+            + " FROM "
+            + String.join(",", stagingFrom)
+            + " WITH NO DATA");
+
+    // stream the rows into staging
+    String user = getActiveUser(table);
+    LocalDateTime now = LocalDateTime.now();
+    List<Column> columns = new ArrayList<>(stagingColumns.values());
+    jooq.connection(
+        connection -> {
+          BaseConnection pgConnection = connection.unwrap(BaseConnection.class);
+          String sql = "COPY " + staging + "(" + stagingColumnNames + ") FROM STDIN (FORMAT CSV)";
+          try (Writer out =
+              new BufferedWriter(
+                  new OutputStreamWriter(
+                      new PGCopyOutputStream(pgConnection, sql), StandardCharsets.UTF_8))) {
+            SqlCopyWriter writer = new SqlCopyWriter(out);
+            for (Row row : rows) {
+              Map<String, Object> values = getSelectedRowValues(columns, row);
+              values.replace(MG_INSERTEDBY, user);
+              values.replace(MG_INSERTEDON, now);
+              values.replace(MG_UPDATEDBY, user);
+              values.replace(MG_UPDATEDON, now);
+              writer.writeRecord(values.values());
+            }
+          }
+        });
+
+    // merge into the tables, root first
+    int count = 0;
+    for (Map.Entry<SqlTable, List<Column>> entry : columnsPerTable.entrySet()) {
+      SqlTable t = entry.getKey();
+      boolean inherit = t.getMetadata().getInheritName() != null;
+      if (entry.getValue().isEmpty()) continue;
+      String columnNames =
+          entry.getValue().stream().map(c -> quote(c.getName())).collect(Collectors.joining(","));
+      List<String> updates =
+          entry.getValue().stream()
+              .filter(
+                  c -> c.getName().equals(MG_TABLECLASS) || !Boolean.TRUE.equals(c.isReadonly()))
+              .map(c -> c.getName())
+              .collect(Collectors.toCollection(ArrayList::new));
+      if (!inherit) {
+        updates.add(MG_UPDATEDBY);
+        updates.add(MG_UPDATEDON);
+      }
+      String onConflict =
+          updates.stream()
+              .distinct()
+              .map(c -> quote(c) + "=excluded." + quote(c))
+              .collect(Collectors.joining(","));
+      count =
+          jooq.execute(
+              "INSERT INTO "
+                  + quote(t.getMetadata().getSchemaName(), t.getName())
+                  + "("
+                  + columnNames
+                  + ") SELECT "
+                  + columnNames
+                  + " FROM "
+                  + staging
+                  + " ON CONFLICT ("
+                  + t.getMetadata().getPrimaryKeyFields().stream()
+                      .map(f -> quote(f.getName()))
+                      .collect(Collectors.joining(","))
+                  + ") DO UPDATE SET "
+                  + onConflict);
+    }
+    return count;
+  }
+
+  private static String quote(String... names) {
+    return Arrays.stream(names)
+        .map(n -> "\"" + n.replace("\"", "\"\"") + "\"")
+        .collect(Collectors.joining("."));
+  }
+
   private static String getActiveUser(SqlTable table) {
     String user = table.getSchema().getDatabase().getActiveUser();
     if (user == null) {
@@ -531,9 +728,7 @@ class SqlTable implements Table {
             }
 
             // notify handlers
-            if (table.getTableListener() != null) {
-              table.getTableListener().preparePostDelete(rows);
-            }
+            table.getTableListeners().forEach(listener -> listener.preparePostDelete(rows));
           });
     } catch (Exception e) {
       throw new SqlMolgenisException("Delete into table " + getName() + " failed", e);
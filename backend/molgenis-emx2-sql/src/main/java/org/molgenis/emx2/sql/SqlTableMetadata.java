@@ -65,7 +65,7 @@ class SqlTableMetadata extends TableMetadata {
             newColumn.setPosition(position++);
           }
           executeCreateColumn(tm.getJooq(), newColumn);
-          tm.columns.put(c.getName(), newColumn);
+          tm.putLocalColumn(newColumn);
           if (newColumn.getKey() > 0) {
             createOrReplaceKey(
                 tm.getJooq(),
@@ -76,7 +76,7 @@ class SqlTableMetadata extends TableMetadata {
           executeCreateRefConstraints(tm.getJooq(), newColumn);
         } else {
           saveColumnMetadata(tm.getJooq(), newColumn);
-          tm.columns.put(c.getName(), newColumn);
+          tm.putLocalColumn(newColumn);
         }
         log(tm, start, "added column '" + newColumn.getName() + "' to table " + tm.getTableName());
       }
@@ -196,6 +196,8 @@ class SqlTableMetadata extends TableMetadata {
         (SqlTableMetadata) db.getSchema(schemaName).getMetadata().getTableMetadata(tableName);
     Column newColumn = new Column(tm, column);
     Column oldColumn = tm.getColumn(columnName);
+    // materialized reports would prevent altering the column they read
+    ReportCache.dropMaterializedReports(tm.getJooq(), schemaName);
 
     // primary keys by definition are required
     if (newColumn.getKey() == 1) {
@@ -253,12 +255,12 @@ class SqlTableMetadata extends TableMetadata {
     }
     // update the metadata so we can use it for new keys and references
     if (column.getPosition() == null) {
-      newColumn.setPosition(tm.columns.get(columnName).getPosition());
+      newColumn.setPosition(tm.getLocalColumn(columnName).getPosition());
     }
     // remove the old
-    tm.columns.remove(columnName);
+    tm.removeLocalColumn(columnName);
     // add the new
-    tm.columns.put(column.getName(), newColumn);
+    tm.putLocalColumn(newColumn);
 
     // reapply ref constrainst
     executeCreateRefConstraints(tm.getJooq(), newColumn);
@@ -316,8 +318,11 @@ class SqlTableMetadata extends TableMetadata {
     SqlTableMetadata tm =
         (SqlTableMetadata) db.getSchema(schemaName).getTable(tableName).getMetadata();
     DSLContext jooq = ((SqlDatabase) db).getJooq();
+    ReportCache.dropMaterializedReports(jooq, schemaName);
     SqlColumnExecutor.executeRemoveColumn(jooq, tm.getColumn(columnName));
-    tm.columns.remove(columnName);
+    tm.removeLocalColumn(columnName);
+    SqlSearchIndexExecutor.updateSearchIndexTriggerFunction(jooq, tm, tm.getTableName());
+    SqlSearchIndexExecutor.updateSearchIndexOfReferringTables(jooq, tm);
     return tm;
   }
 
@@ -508,6 +513,7 @@ class SqlTableMetadata extends TableMetadata {
   private static void dropTransaction(Database db, String schemaName, String tableName) {
     DSLContext jooq = ((SqlDatabase) db).getJooq();
     TableMetadata tm = db.getSchema(schemaName).getTable(tableName).getMetadata();
+    ReportCache.dropMaterializedReports(jooq, schemaName);
     executeDropTable(jooq, tm);
     MetadataUtils.deleteTable(jooq, tm);
   }
@@ -84,8 +84,8 @@ class SqlTableMetadataExecutor {
       }
     }
 
-    // add search column
-    executeEnableSearch(jooq, table);
+    // add search columns
+    SqlSearchIndexExecutor.executeEnableSearch(jooq, table);
 
     // add meta columns (only superclass table)
     if (table.getInheritName() == null) {
@@ -93,27 +93,19 @@ class SqlTableMetadataExecutor {
     }
 
     if (ChangeLogUtils.isChangeSchema(table.getSchema().getDatabase(), table.getSchemaName())) {
-      // setup trigger processing function
-      jooq.execute(
-          ChangeLogUtils.buildProcessAuditFunction(table.getSchemaName(), table.getTableName()));
-
-      // set audit trigger, logs insert, update and delete actions on table
-      jooq.execute(ChangeLogUtils.buildAuditTrigger(table.getSchemaName(), table.getTableName()));
+      ChangeLogExecutor.createAuditTrigger(jooq, table);
     }
   }
 
   static void executeAlterName(DSLContext jooq, TableMetadata table, String newName) {
-    // drop search trigger
-    dropSearchTrigger(jooq, table);
-
-    // rename search column
-    jooq.alterTable(table.getJooqTable()).renameTo(newName + "search_vector_trigger");
+    // drop search trigger and rename search columns
+    SqlSearchIndexExecutor.executeAlterName(jooq, table, newName);
 
     // rename table
     jooq.alterTable(table.getJooqTable()).renameTo(name(table.getSchemaName(), newName)).execute();
 
     // recreate search trigger
-    createSearchTrigger(jooq, table, newName);
+    SqlSearchIndexExecutor.createSearchTrigger(jooq, table, newName);
   }
 
   static void createOrReplaceKeys(DSLContext jooq, SqlTableMetadata table) {
@@ -270,10 +262,8 @@ class SqlTableMetadataExecutor {
       // disableChangeLog
       disableChangeLog((SqlDatabase) table.getSchema().getDatabase(), table);
 
-      // drop search trigger
-      jooq.execute(
-          "DROP FUNCTION IF EXISTS {0} CASCADE",
-          name(table.getSchema().getName(), getSearchTriggerName(table.getTableName())));
+      // drop search triggers
+      SqlSearchIndexExecutor.dropSearchTrigger(jooq, table);
 
       // drop trigger function if extended
       dropMgTableClassCannotUpdateCheck((SqlTableMetadata) table, jooq);
@@ -287,7 +277,7 @@ class SqlTableMetadataExecutor {
               table.getSchema().getName(), table.getTableName()));
 
       // drop all triggers from all columns
-      List<Column> columns = table.getStoredColumns();
+      List<Column> columns = new ArrayList<>(table.getStoredColumns());
       sortColumnsByDependency(columns);
       for (Column c : columns) {
         executeRemoveColumn(jooq, c);
@@ -305,78 +295,6 @@ class SqlTableMetadataExecutor {
     return SqlSchemaMetadataExecutor.getRolePrefix(table.getSchema().getName());
   }
 
-  static String updateSearchIndexTriggerFunction(
-      DSLContext jooq, TableMetadata table, String tableName) {
-    // TODO should also join in REFBACK column to make them searchable as part of 'mew'
-    //  TODO and then also should trigger indexing on update for tables with a REF to me so trigger
-    // on ref
-    // change
-    // then?
-
-    String triggerName = getSearchTriggerName(tableName);
-    String triggerfunction =
-        String.format("\"%s\".\"%s\"()", table.getSchema().getName(), triggerName);
-
-    StringBuilder mgSearchVector = new StringBuilder("' '");
-    for (Column c : table.getStoredColumns()) {
-      if (!c.isSystemColumn()) {
-        if (c.isFile()) {
-          // do nothing for now
-        } else if (c.isReference()) {
-          for (Reference r : c.getReferences()) {
-            mgSearchVector.append(
-                String.format(" || coalesce(new.\"%s\"::text,'') || ' '", r.getName()));
-          }
-        } else {
-          mgSearchVector.append(
-              String.format(" || coalesce(new.\"%s\"::text,'') || ' '", c.getName()));
-        }
-      }
-    }
-
-    String functionBody =
-        String.format(
-            "CREATE OR REPLACE FUNCTION %s RETURNS trigger AS $$\n"
-                + "begin\n"
-                + "\tnew.%s:= %s  ;\n"
-                + "\treturn new;\n"
-                + "end\n"
-                + "$$ LANGUAGE plpgsql;",
-            triggerfunction, name(searchColumnName(tableName)), mgSearchVector);
-
-    jooq.execute(functionBody);
-    jooq.execute(
-        "ALTER FUNCTION " + triggerfunction + " OWNER TO {0}",
-        name(getRolePrefix(table) + Privileges.MANAGER.toString()));
-    return triggerfunction;
-  }
-
-  static String searchColumnName(String tableName) {
-    return tableName + TEXT_SEARCH_COLUMN_NAME;
-  }
-
-  private static String getSearchTriggerName(String tableName) {
-    return tableName + "search_vector_trigger";
-  }
-
-  private static void dropSearchTrigger(DSLContext jooq, TableMetadata table) {
-    String triggerfunction = getSearchTriggerName(table.getTableName());
-    jooq.execute("DROP FUNCTION {0} CASCADE", name(table.getSchema().getName(), triggerfunction));
-  }
-
-  private static void createSearchTrigger(DSLContext jooq, TableMetadata table, String tableName) {
-    // 3. create the trigger function to automatically update the MG_SEARCH_INDEX_COLUMN_NAME
-    String triggerfunction = updateSearchIndexTriggerFunction(jooq, table, tableName);
-    Name searchColumnName = name(searchColumnName(tableName));
-
-    // 4. add trigger to update the tsvector on each insert or update
-    jooq.execute(
-        "CREATE TRIGGER {0} BEFORE INSERT OR UPDATE ON {1} FOR EACH ROW EXECUTE FUNCTION "
-            + triggerfunction,
-        searchColumnName,
-        name(table.getSchemaName(), tableName));
-  }
-
   private static void executeAddMetaColumns(TableMetadata table) {
     // negative positions so they don't interfere with the positions of user provided columns
     table.add(column(MG_DRAFT).setType(BOOL).setPosition(-5));
@@ -395,24 +313,6 @@ class SqlTableMetadataExecutor {
     if (table.getLocalColumn(MG_UPDATEDON) != null) table.dropColumn(MG_UPDATEDON);
   }
 
-  private static void executeEnableSearch(DSLContext jooq, TableMetadata table) {
-
-    Table jooqTable = getJooqTable(table);
-    Name searchColumnName = name(searchColumnName(table.getTableName()));
-    Name searchIndexName = name(table.getTableName() + "_search_idx");
-
-    // also add text search  column
-    // 1. create column
-    jooq.execute("ALTER TABLE {0} ADD COLUMN {1} TEXT", jooqTable, searchColumnName);
-
-    // 2. create trigram index
-    jooq.execute(
-        "CREATE INDEX {0} ON {1} USING GIN( {2} gin_trgm_ops)",
-        searchIndexName, jooqTable, searchColumnName);
-
-    createSearchTrigger(jooq, table, table.getTableName());
-  }
-
   static void checkNoColumnWithSameNameExistsInSubclass(
       String columnName, TableMetadata tm, DSLContext jooq) {
     String recursiveQuerySql =
@@ -1,22 +1,47 @@
 package org.molgenis.emx2.sql;
 
 import static org.jooq.impl.DSL.name;
+import static org.molgenis.emx2.ColumnType.BOOL;
 import static org.molgenis.emx2.Constants.MG_USER_PREFIX;
+import static org.molgenis.emx2.Constants.MOLGENIS_POSTGRES_TRACK_ROLES;
 import static org.molgenis.emx2.sql.SqlDatabase.ADMIN_USER;
 import static org.molgenis.emx2.sql.SqlDatabase.ANONYMOUS;
 
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.sql.DataSource;
 import org.jooq.SQLDialect;
 import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 import org.jooq.impl.DataSourceConnectionProvider;
+import org.molgenis.emx2.utils.EnvironmentProperty;
 
+/**
+ * Provides pooled connections that act as the active user, using SET ROLE.
+ *
+ * <p>By default each checkout resets the connection (role, jit, search_path) in separate
+ * statements. When {@link org.molgenis.emx2.Constants#MOLGENIS_POSTGRES_TRACK_ROLES} is enabled the
+ * role of each physical connection is remembered instead, so jit is only set once per connection,
+ * the role is only switched when another user checks out the connection, and the reset of the
+ * search_path on release is sent together with the first statement of the next checkout. This saves
+ * two to four round trips per checkout.
+ */
 public class SqlUserAwareConnectionProvider extends DataSourceConnectionProvider {
+  // role per physical connection, for connections set up in track roles mode
+  private static final Map<Connection, String> rolePerConnection =
+      Collections.synchronizedMap(new WeakHashMap<>());
+  // admin uses the session user, i.e. has no role
+  private static final String SESSION_USER = "";
+  private final boolean trackRoles;
   private String activeUser;
 
   public SqlUserAwareConnectionProvider(DataSource source) {
     super(source);
+    this.trackRoles =
+        (Boolean) EnvironmentProperty.getParameter(MOLGENIS_POSTGRES_TRACK_ROLES, false, BOOL);
   }
 
   @Override
@@ -24,31 +49,60 @@ public class SqlUserAwareConnectionProvider extends DataSourceConnectionProvider
     Connection connection = null;
     try {
       connection = super.acquire();
-      if (getActiveUser().equals(ADMIN_USER)) {
-        // as admin you are actually session user
-        DSL.using(connection, SQLDialect.POSTGRES).execute("RESET ROLE; SET jit='off';");
+      if (trackRoles) {
+        switchRoleIfNeeded(connection);
       } else {
-        // as non admin you are a current user
-        DSL.using(connection, SQLDialect.POSTGRES)
-            .execute(
-                "RESET ROLE; SET jit='off'; SET ROLE {0}", name(MG_USER_PREFIX + getActiveUser()));
+        // any role remembered for this connection is no longer valid
+        rolePerConnection.remove(connection.unwrap(Connection.class));
+        if (getActiveUser().equals(ADMIN_USER)) {
+          // as admin you are actually session user
+          DSL.using(connection, SQLDialect.POSTGRES).execute("RESET ROLE; SET jit='off';");
+        } else {
+          // as non admin you are a current user
+          DSL.using(connection, SQLDialect.POSTGRES)
+              .execute(
+                  "RESET ROLE; SET jit='off'; SET ROLE {0}",
+                  name(MG_USER_PREFIX + getActiveUser()));
+        }
       }
       return connection;
-    } catch (DataAccessException dae) {
+    } catch (DataAccessException | SQLException e) {
       super.release(connection);
       // if invalid user we will not return a connection, not even anonymous
-      throw new SqlMolgenisException("Set active user failed'", dae);
+      throw new SqlMolgenisException("Set active user failed'", e);
     }
   }
 
+  private void switchRoleIfNeeded(Connection connection) throws SQLException {
+    Connection physical = connection.unwrap(Connection.class);
+    String role =
+        getActiveUser().equals(ADMIN_USER) ? SESSION_USER : MG_USER_PREFIX + getActiveUser();
+    // unknown until this statement succeeds
+    String current = rolePerConnection.remove(physical);
+
+    // all in one round trip; sql reports might have changed the search_path since last checkout
+    StringBuilder sql = new StringBuilder();
+    if (current == null) {
+      sql.append("SET jit='off';");
+    }
+    sql.append("RESET search_path;");
+    if (!role.equals(current)) {
+      sql.append(role.equals(SESSION_USER) ? "RESET ROLE" : "SET ROLE {0}");
+    }
+    DSL.using(connection, SQLDialect.POSTGRES).execute(sql.toString(), name(role));
+    rolePerConnection.put(physical, role);
+  }
+
   @Override
   public void release(Connection connection) {
-    try {
-      DSL.using(connection, SQLDialect.POSTGRES).execute("RESET ROLE");
-      // sql reports might have changes this, therefore ensure always reset
-      DSL.using(connection, SQLDialect.POSTGRES).execute("RESET search_path");
-    } catch (DataAccessException dae) {
-      throw new SqlMolgenisException("release of connection failed ", dae);
+    if (!trackRoles) {
+      try {
+        DSL.using(connection, SQLDialect.POSTGRES).execute("RESET ROLE");
+        // sql reports might have changes this, therefore ensure always reset
+        DSL.using(connection, SQLDialect.POSTGRES).execute("RESET search_path");
+      } catch (DataAccessException dae) {
+        throw new SqlMolgenisException("release of connection failed ", dae);
+      }
     }
     super.release(connection);
   }
@@ -12,14 +12,15 @@ class ChangeLogUtilsTest {
                         CREATE OR REPLACE FUNCTION "pet store"."process_Pet_audit"() RETURNS TRIGGER AS $Pet_audit$
                                BEGIN
                                    IF (TG_OP = 'DELETE') THEN
-                                       INSERT INTO "pet store".mg_changelog
-                                       SELECT 'D', now(), user, TG_TABLE_NAME, row_to_json(OLD.*), row_to_json(NEW.*);
+                                       INSERT INTO "pet store".mg_changelog (operation, stamp, userid, tablename, old, new)
+                                       SELECT 'D', now(), user, TG_TABLE_NAME, to_jsonb(OLD.*), NULL;
                                    ELSIF (TG_OP = 'UPDATE') THEN
-                                       INSERT INTO "pet store".mg_changelog
-                                       SELECT 'U', now(), user, TG_TABLE_NAME, row_to_json(OLD.*), row_to_json(NEW.*);
+                                       INSERT INTO "pet store".mg_changelog (operation, stamp, userid, tablename, old, new)
+                                       SELECT 'U', now(), user, TG_TABLE_NAME, d.old, d.new
+                                       FROM "pet store".mg_changelog_diff(to_jsonb(OLD.*), to_jsonb(NEW.*), TG_RELID) d;
                                    ELSIF (TG_OP = 'INSERT') THEN
-                                       INSERT INTO "pet store".mg_changelog
-                                       SELECT 'I', now(), user, TG_TABLE_NAME, row_to_json(OLD.*), row_to_json(NEW.*);
+                                       INSERT INTO "pet store".mg_changelog (operation, stamp, userid, tablename, old, new)
+                                       SELECT 'I', now(), user, TG_TABLE_NAME, NULL, to_jsonb(NEW.*);
                                    END IF;
                                    RETURN NULL; -- result is ignored since this is an AFTER trigger
                                END;
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.molgenis.emx2.Column.column;
 import static org.molgenis.emx2.ColumnType.INT;
 import static org.molgenis.emx2.ColumnType.REF;
+import static org.molgenis.emx2.ColumnType.REFBACK;
+import static org.molgenis.emx2.ColumnType.REF_ARRAY;
 import static org.molgenis.emx2.TableMetadata.table;
 
 import java.sql.SQLException;
@@ -77,6 +79,65 @@ public class TestBatchRequestsForSpeed {
         "Retrieved", schema.getTable("TestBatchRequestsForSpeed").retrieveRows().size());
   }
 
+  @Test
+  public void testRowVersusStatementTriggers() {
+    boolean statementTriggers = SqlDatabase.isStatementTriggers();
+    try {
+      SqlDatabase.setStatementTriggers(false);
+      batchWithTriggers("testRowTriggers");
+      SqlDatabase.setStatementTriggers(true);
+      batchWithTriggers("testStatementTriggers");
+    } finally {
+      SqlDatabase.setStatementTriggers(statementTriggers);
+    }
+  }
+
+  private void batchWithTriggers(String schemaName) {
+    StopWatch.start(schemaName + " started");
+
+    Schema schema = db.dropCreateSchema(schemaName);
+    schema.getMetadata().setSetting(Constants.IS_CHANGELOG_ENABLED, Boolean.TRUE.toString());
+    Table parts = schema.create(table("Parts", column("partname").setPkey()));
+    Table products =
+        schema.create(
+            table(
+                "Products",
+                column("productname").setPkey(),
+                column("parts").setType(REF_ARRAY).setRefTable("Parts")));
+    parts
+        .getMetadata()
+        .add(column("products").setType(REFBACK).setRefTable("Products").setRefBack("parts"));
+    StopWatch.print("Schema created");
+
+    int size = 10000;
+    List<Row> partRows = new ArrayList<>();
+    List<Row> productRows = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      partRows.add(new Row().setString("partname", "part" + i));
+      productRows.add(
+          new Row()
+              .setString("productname", "product" + i)
+              .setStringArray("parts", "part" + i, "part" + (size - i - 1)));
+    }
+
+    parts.insert(partRows);
+    StopWatch.print("Inserted parts", size);
+
+    products.insert(productRows);
+    StopWatch.print("Inserted products", size);
+
+    for (Row r : productRows) {
+      r.setStringArray("parts", r.getStringArray("parts")[0]);
+    }
+    products.update(productRows);
+    StopWatch.print("Updated products", size);
+
+    products.delete(productRows);
+    StopWatch.print("Deleted products", size);
+
+    assertEquals(0, products.retrieveRows().size());
+  }
+
   @Test
   public void testCreate() {
 
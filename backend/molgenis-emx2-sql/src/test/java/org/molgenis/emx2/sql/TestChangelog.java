@@ -1,12 +1,22 @@
 package org.molgenis.emx2.sql;
 
+import static org.jooq.impl.DSL.name;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.molgenis.emx2.Column.column;
 import static org.molgenis.emx2.ColumnType.INT;
 import static org.molgenis.emx2.TableMetadata.table;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import org.jooq.DSLContext;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.molgenis.emx2.Change;
 import org.molgenis.emx2.Constants;
 import org.molgenis.emx2.Database;
 import org.molgenis.emx2.Row;
@@ -56,6 +66,83 @@ public class TestChangelog {
         });
   }
 
+  @Test
+  public void testPartitionedChangelog() {
+
+    database.tx(
+        // prevent side effect of user changes on other tests using tx
+        db -> {
+          db.dropSchemaIfExists("testSchemaChangesPartitioned");
+          db.becomeAdmin();
+          db.createSchema("testSchemaChangesPartitioned");
+          Schema schema = db.getSchema("testSchemaChangesPartitioned");
+          schema.getMetadata().setSetting(Constants.IS_CHANGELOG_ENABLED, Boolean.TRUE.toString());
+          schema = addTestData(schema);
+          DSLContext jooq = ((SqlDatabase) db).getJooq();
+          assertEquals(
+              List.of(
+                  "mg_changelog_" + YearMonth.now().format(DateTimeFormatter.ofPattern("yyyyMM")),
+                  "mg_changelog_"
+                      + YearMonth.now().plusMonths(1).format(DateTimeFormatter.ofPattern("yyyyMM")),
+                  "mg_changelog_default"),
+              getPartitions(jooq, schema.getName()));
+
+          // updates only log the primary key and the changed columns
+          schema
+              .getTable("Person")
+              .update(
+                  new Row()
+                      .setInt("ID", 3)
+                      .setString("First_Name", "Kwik")
+                      .setString("Last_Name", "Donald"));
+          Change update = schema.getChanges(1).get(0);
+          assertEquals('U', update.operation());
+          assertTrue(update.oldRowData().contains("\"Duck\""));
+          assertTrue(update.newRowData().contains("\"Donald\""));
+          assertTrue(update.newRowData().contains("\"ID\""));
+          assertFalse(update.newRowData().contains("First_Name"));
+
+          // keyset paging, changes of one transaction have the same stamp
+          List<Change> firstPage = schema.getChanges(null, null, null, null, null, 3);
+          Change last = firstPage.get(2);
+          List<Change> nextPage = schema.getChanges(null, null, null, last.stamp(), last.id(), 3);
+          assertEquals(1, nextPage.size());
+          assertTrue(nextPage.get(0).id() < last.id());
+
+          // filter on table and time window
+          assertEquals(4, schema.getChanges("Person", null, null, null, null, 100).size());
+          assertEquals(0, schema.getChanges("Pet", null, null, null, null, 100).size());
+          Timestamp tomorrow = Timestamp.valueOf(LocalDateTime.now().plusDays(1));
+          assertEquals(0, schema.getChanges(null, tomorrow, null, null, null, 100).size());
+          assertEquals(4, schema.getChanges(null, null, tomorrow, null, null, 100).size());
+
+          // retention drops the partitions and changes before the months to keep
+          YearMonth twoYearsAgo = YearMonth.now().minusMonths(24);
+          ChangeLogExecutor.createPartitions(jooq, schema.getName(), twoYearsAgo, twoYearsAgo);
+          jooq.execute(
+              "INSERT INTO {0} (operation, stamp, userid, tablename) VALUES"
+                  + " ('I', now() - interval '2 years', 'admin', 'Person'),"
+                  + " ('I', now() - interval '3 years', 'admin', 'Person')",
+              name(schema.getName(), ChangeLogExecutor.MG_CHANGLOG));
+          assertEquals(6, schema.getChangesCount());
+          schema.getMetadata().setSetting(Constants.CHANGELOG_RETENTION_MONTHS, "12");
+          assertEquals(4, schema.getChangesCount());
+          assertEquals(3, getPartitions(jooq, schema.getName()).size());
+        });
+  }
+
+  private static List<String> getPartitions(DSLContext jooq, String schemaName) {
+    return jooq
+        .fetchValues(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+                + " JOIN pg_class p ON p.oid = i.inhparent JOIN pg_namespace n ON n.oid = p.relnamespace"
+                + " WHERE n.nspname = {0} AND p.relname = {1} ORDER BY c.relname",
+            schemaName, ChangeLogExecutor.MG_CHANGLOG)
+        .stream()
+        .map(Object::toString)
+        .toList();
+  }
+
   private Schema addTestData(Schema s) {
     Table person =
         s.create(
@@ -1,18 +1,26 @@
 package org.molgenis.emx2.sql;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.*;
+import static org.molgenis.emx2.FilterBean.f;
+import static org.molgenis.emx2.Operator.EQUALS;
 import static org.molgenis.emx2.Row.row;
 import static org.molgenis.emx2.TableMetadata.table;
 
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.molgenis.emx2.ColumnType;
 import org.molgenis.emx2.Database;
+import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.Table;
+import org.molgenis.emx2.utils.StopWatch;
 
 public class TestCopy {
 
@@ -49,7 +57,9 @@ public class TestCopy {
 
     schema.create(table("test2", column("A").setPkey()));
     table = (SqlTable) schema.getTable("test2");
-    table.copyIn(rows);
+    // new rows, because insert has set mg_tableclass of the rows to 'test'
+    table.copyIn(
+        rows.stream().map(r -> row("A", r.getString("A"), "B", r.getStringArray("B"))).toList());
     writer = new StringWriter();
     table.copyOut(writer);
     System.out.println(writer);
@@ -57,25 +67,91 @@ public class TestCopy {
     assertEquals(2, schema.getTable("test2").retrieveRows().size());
   }
 
-  //  @Test
-  //  public void test2() {
-  //    schema.create(table("speed1", column("A")));
-  //    schema.create(table("speed2", column("A")));
-  //
-  //    int count = 1000000;
-  //    List<Row> rows = new ArrayList<>();
-  //    for (int i = 0; i < count; i++) {
-  //      rows.add(row("A", "a" + i));
-  //    }
-  //
-  //    SqlTable t = (SqlTable) schema.getTable("speed1");
-  //    StopWatch.start("speed1");
-  //    t.insert(rows);
-  //    StopWatch.print("normal", count);
-  //
-  //    t = (SqlTable) schema.getTable("speed2");
-  //    StopWatch.start("speed2");
-  //    t.copyIn(rows);
-  //    StopWatch.print("copy", count);
-  //  }
+  @Test
+  public void testEscapingAndUpsert() {
+    Table table =
+        schema.create(
+            table(
+                "escaping",
+                column("id").setPkey(),
+                column("text").setType(TEXT),
+                column("strings").setType(STRING_ARRAY),
+                column("number").setType(INT),
+                column("computed").setComputed("id + '!'")));
+
+    String text = "quote\" comma, newline\n backslash\\ tab\t";
+    table.copyIn(
+        List.of(
+            row("id", "1", "text", text, "strings", List.of("a\"b", "c,d", "e\\f", "{g}")),
+            row("id", "2", "text", "", "number", 2)));
+
+    Row first = table.where(f("id", EQUALS, "1")).retrieveRows().get(0);
+    assertEquals(text, first.getText("text"));
+    assertArrayEquals(new String[] {"a\"b", "c,d", "e\\f", "{g}"}, first.getStringArray("strings"));
+    assertNull(first.getInteger("number"));
+    assertEquals("1!", first.getString("computed"));
+    assertEquals(2, table.where(f("id", EQUALS, "2")).retrieveRows().get(0).getInteger("number"));
+
+    // copy again updates existing rows
+    table.copyIn(List.of(row("id", "2", "number", 3)));
+    assertEquals(2, table.retrieveRows().size());
+    assertEquals(3, table.where(f("id", EQUALS, "2")).retrieveRows().get(0).getInteger("number"));
+  }
+
+  @Test
+  public void testInheritanceAndRefArray() {
+    schema.create(table("Tag", column("name").setPkey()));
+    schema.getTable("Tag").insert(row("name", "red"), row("name", "green"));
+    schema.create(
+        table(
+            "Animal",
+            column("name").setPkey(),
+            column("tags").setType(REF_ARRAY).setRefTable("Tag")));
+    Table cat =
+        schema.create(table("Cat").setInheritName("Animal").add(column("lives").setType(INT)));
+
+    cat.copyIn(List.of(row("name", "tom", "tags", "red,green", "lives", 9)));
+    Row tom = cat.retrieveRows().get(0);
+    assertEquals(9, tom.getInteger("lives"));
+    assertArrayEquals(new String[] {"red", "green"}, tom.getStringArray("tags"));
+    assertEquals(
+        schema.getName() + ".Cat",
+        schema.getTable("Animal").retrieveRows().get(0).getString("mg_tableclass"));
+
+    // ref_array check still applies
+    assertThrows(
+        MolgenisException.class,
+        () -> cat.copyIn(List.of(row("name", "felix", "tags", "blue", "lives", 7))));
+    assertEquals(1, cat.retrieveRows().size());
+  }
+
+  @Test
+  @Tag("slow")
+  public void benchmarkSaveVersusCopyIn() {
+    int count = 100000;
+    Table saved =
+        schema.create(
+            table("speed1", column("id").setPkey(), column("text"), column("number").setType(INT)));
+    Table copied =
+        schema.create(
+            table("speed2", column("id").setPkey(), column("text"), column("number").setType(INT)));
+
+    StopWatch.start("save");
+    saved.save(createRows(count));
+    StopWatch.print("save", count);
+
+    StopWatch.start("copyIn");
+    copied.copyIn(createRows(count));
+    StopWatch.print("copyIn", count);
+
+    assertEquals(count, copied.query().retrieveRows().size());
+  }
+
+  private static List<Row> createRows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(row("id", "id" + i, "text", "text \"" + i + "\"", "number", i));
+    }
+    return rows;
+  }
 }
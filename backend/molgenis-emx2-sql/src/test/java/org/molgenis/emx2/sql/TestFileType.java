@@ -6,7 +6,9 @@ import static org.molgenis.emx2.ColumnType.FILE;
 import static org.molgenis.emx2.SelectColumn.s;
 import static org.molgenis.emx2.TableMetadata.table;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.Arrays;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.molgenis.emx2.*;
@@ -39,6 +41,30 @@ public class TestFileType {
     assertTrue(result.contains("37458"));
   }
 
+  @Test
+  public void testRetrieveFileContents() {
+    Table t = schema.create(table("test2", column("id").setPkey(), column("image").setType(FILE)));
+    t.insert(new Row("id", 1, "image", getFile()));
+    byte[] contents = new BinaryFileWrapper(getFile()).getContents();
+    String fileId = t.query().select(s("image", s("id"))).retrieveRows().get(0).getString("image");
+
+    ByteArrayOutputStream all = new ByteArrayOutputStream();
+    assertEquals(37458, t.retrieveFileContents("image", fileId, 0, Long.MAX_VALUE, all));
+    assertArrayEquals(contents, all.toByteArray());
+
+    ByteArrayOutputStream range = new ByteArrayOutputStream();
+    assertEquals(100, t.retrieveFileContents("image", fileId, 1000, 100, range));
+    assertArrayEquals(Arrays.copyOfRange(contents, 1000, 1100), range.toByteArray());
+
+    // reading beyond the end returns the remaining bytes
+    ByteArrayOutputStream end = new ByteArrayOutputStream();
+    assertEquals(58, t.retrieveFileContents("image", fileId, 37400, 1000, end));
+
+    assertThrows(
+        MolgenisException.class,
+        () -> t.retrieveFileContents("image", "unknown", 0, 10, new ByteArrayOutputStream()));
+  }
+
   @Test
   public void testBinaryFileWrapper() {
     BinaryFileWrapper w = new BinaryFileWrapper(getFile());
@@ -4,9 +4,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.molgenis.emx2.Column.column;
 import static org.molgenis.emx2.ColumnType.INT;
+import static org.molgenis.emx2.ColumnType.ONTOLOGY_ARRAY;
+import static org.molgenis.emx2.ColumnType.REF;
 import static org.molgenis.emx2.ColumnType.TEXT;
+import static org.molgenis.emx2.Constants.SEARCH_SCORE;
 import static org.molgenis.emx2.FilterBean.f;
 import static org.molgenis.emx2.FilterBean.or;
+import static org.molgenis.emx2.SelectColumn.s;
 import static org.molgenis.emx2.TableMetadata.table;
 
 import java.util.List;
@@ -74,6 +78,68 @@ public class TestFullTextSearch {
     // search accross join of xref
   }
 
+  @Test
+  public void testRankAndReferencedLabels() {
+    Schema schema = db.dropCreateSchema(TestFullTextSearch.class.getSimpleName() + "rank");
+    schema.create(
+        table("Species", column("name").setPkey(), column("label")),
+        table(
+            "Animal",
+            column("name").setPkey(),
+            column("description").setType(TEXT),
+            column("species").setType(REF).setRefTable("Species").setRefLabel("${label}"),
+            column("colors").setType(ONTOLOGY_ARRAY).setRefTable("Colors")));
+    schema.getTable("Species").insert(new Row("name", "felis", "label", "cat"));
+    schema
+        .getTable("Colors")
+        .insert(
+            new Row("name", "c1", "label", "black", "code", "BLK"),
+            new Row("name", "c2", "label", "white"));
+    Table animals = schema.getTable("Animal");
+    animals.insert(
+        new Row("name", "tom", "description", "a cat called tom", "species", "felis"),
+        new Row("name", "cat", "description", "tom is his friend", "colors", "c1,c2"));
+
+    // labels of referenced rows can be found
+    assertEquals(2, animals.search("cat").retrieveRows().size());
+    assertEquals(1, animals.search("white").retrieveRows().size());
+    assertEquals(1, animals.search("blk").retrieveRows().size());
+
+    // best match first, key matches weigh more than descriptions
+    List<Row> rows =
+        animals.query().select(s("name"), s(SEARCH_SCORE)).search("cat").retrieveRows();
+    assertEquals("cat", rows.get(0).getString("name"));
+    assertTrue(rows.get(0).getDecimal(SEARCH_SCORE) > rows.get(1).getDecimal(SEARCH_SCORE));
+    rows = animals.query().select(s("name")).search("tom").retrieveRows();
+    assertEquals("tom", rows.get(0).getString("name"));
+    String json = animals.query().select(s("name"), s(SEARCH_SCORE)).search("tom").retrieveJSON();
+    assertTrue(json.indexOf("\"tom\"") < json.indexOf("\"cat\""));
+    assertTrue(json.contains(SEARCH_SCORE));
+    rows =
+        animals
+            .query()
+            .select(s("name"))
+            .search("tom")
+            .orderBy(SEARCH_SCORE, Order.ASC)
+            .retrieveRows();
+    assertEquals("cat", rows.get(0).getString("name"));
+
+    // labels are refreshed when the referenced row changes
+    schema.getTable("Species").update(new Row("name", "felis", "label", "tiger"));
+    schema.getTable("Colors").update(new Row("name", "c2", "label", "grey"));
+    assertEquals(1, animals.search("tiger").retrieveRows().size());
+    assertEquals(1, animals.search("grey").retrieveRows().size());
+    assertEquals(0, animals.search("white").retrieveRows().size());
+
+    // search keeps working when the table is renamed
+    animals.getMetadata().alterName("Pet");
+    db.clearCache();
+    Table pets = db.getSchema(schema.getName()).getTable("Pet");
+    assertEquals(1, pets.search("tiger").retrieveRows().size());
+    pets.insert(new Row("name", "garfield", "species", "felis"));
+    assertEquals(2, pets.search("tiger").retrieveRows().size());
+  }
+
   @Test
   public void nestedSearch() {
     Schema schema = db.dropCreateSchema(TestFullTextSearch.class.getSimpleName() + "nested");
@@ -0,0 +1,121 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.INT;
+import static org.molgenis.emx2.Constants.MG_CURSOR;
+import static org.molgenis.emx2.Order.ASC;
+import static org.molgenis.emx2.Order.DESC;
+import static org.molgenis.emx2.SelectColumn.s;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.molgenis.emx2.*;
+
+public class TestKeysetPagination {
+  private static final int COUNT = 100;
+  private static final ObjectMapper mapper = new ObjectMapper();
+  static Table table;
+
+  @BeforeAll
+  public static void setUp() {
+    Database database = TestDatabaseFactory.getTestDatabase();
+    Schema schema = database.dropCreateSchema(TestKeysetPagination.class.getSimpleName());
+    table =
+        schema.create(
+            table(
+                "Item",
+                column("id").setType(INT).setPkey(),
+                column("name"),
+                column("group").setType(INT)));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      // duplicate names with different case, and nulls
+      rows.add(
+          new Row()
+              .setInt("id", i)
+              .setString("name", i % 7 == 0 ? null : (i % 2 == 0 ? "Name" : "name") + (i % 10))
+              .setInt("group", i % 3 == 0 ? null : i % 4));
+    }
+    table.insert(rows);
+  }
+
+  @Test
+  public void testPagesMatchSingleQuery() throws JsonProcessingException {
+    List<Map<String, Order>> orders =
+        List.of(
+            Map.of(),
+            Map.of("name", ASC),
+            Map.of("name", DESC),
+            Map.of("group", DESC),
+            orderBy("group", ASC, "name", DESC),
+            orderBy("name", DESC, "group", ASC));
+    for (Map<String, Order> order : orders) {
+      List<Integer> expected = ids(retrieve(order, 0, null));
+      assertEquals(COUNT, expected.size());
+      assertEquals(COUNT, expected.stream().distinct().count());
+
+      List<Integer> paged = new ArrayList<>();
+      String cursor = null;
+      JsonNode page;
+      do {
+        page = retrieve(order, 7, cursor);
+        paged.addAll(ids(page));
+        cursor = page.isEmpty() ? null : page.get(page.size() - 1).get(MG_CURSOR).asText();
+      } while (!page.isEmpty());
+      assertEquals(expected, paged, "paging ordered by " + order);
+    }
+  }
+
+  @Test
+  public void testOrderIsCaseInsensitiveAndUsesPrimaryKey() throws JsonProcessingException {
+    JsonNode rows = retrieve(Map.of("name", ASC), 0, null);
+    // 'Name0' sorts before 'name1', ties are sorted on id
+    assertEquals("Name0", rows.get(0).get("name").asText());
+    assertEquals(10, rows.get(0).get("id").asInt());
+    assertEquals(20, rows.get(1).get("id").asInt());
+  }
+
+  @Test
+  public void testInvalidCursor() {
+    assertThrows(MolgenisException.class, () -> retrieve(Map.of(), 5, "invalid!"));
+    // cursor from another order
+    String cursor =
+        assertDoesNotThrow(() -> retrieve(Map.of(), 1, null)).get(0).get(MG_CURSOR).asText();
+    assertThrows(MolgenisException.class, () -> retrieve(Map.of("name", ASC), 5, cursor));
+  }
+
+  private static Map<String, Order> orderBy(String a, Order orderA, String b, Order orderB) {
+    Map<String, Order> result = new LinkedHashMap<>();
+    result.put(a, orderA);
+    result.put(b, orderB);
+    return result;
+  }
+
+  private static JsonNode retrieve(Map<String, Order> order, int limit, String cursor)
+      throws JsonProcessingException {
+    Query query = table.query().select(s("id"), s("name"), s(MG_CURSOR)).orderBy(order);
+    if (limit > 0) {
+      query.limit(limit);
+    }
+    if (cursor != null) {
+      query.after(cursor);
+    }
+    JsonNode result = mapper.readTree(query.retrieveJSON()).get("Item");
+    return result.isNull() ? mapper.createArrayNode() : result;
+  }
+
+  private static List<Integer> ids(JsonNode rows) {
+    List<Integer> result = new ArrayList<>();
+    rows.forEach(row -> result.add(row.get("id").asInt()));
+    return result;
+  }
+}
@@ -0,0 +1,74 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.INT;
+import static org.molgenis.emx2.FilterBean.f;
+import static org.molgenis.emx2.Operator.EQUALS;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.molgenis.emx2.*;
+
+public class TestRetrieveRowStream {
+  private static final int COUNT = 2500;
+  static Database database;
+  static Table table;
+
+  @BeforeAll
+  public static void setUp() {
+    database = TestDatabaseFactory.getTestDatabase();
+    Schema schema = database.dropCreateSchema(TestRetrieveRowStream.class.getSimpleName());
+    table =
+        schema.create(
+            table("Item", column("id").setType(INT).setPkey(), column("group").setType(INT)));
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < COUNT; i++) {
+      rows.add(new Row().setInt("id", i).setInt("group", i % 5));
+    }
+    table.insert(rows);
+  }
+
+  @Test
+  public void testStreamMatchesRetrieveRows() {
+    // more rows than fetched per round trip
+    try (Stream<Row> rows = table.query().orderBy("id").retrieveRowStream()) {
+      assertEquals(
+          table.query().orderBy("id").retrieveRows().stream().map(r -> r.getInteger("id")).toList(),
+          rows.map(r -> r.getInteger("id")).toList());
+    }
+    try (Stream<Row> rows = table.query().where(f("group", EQUALS, 3)).retrieveRowStream()) {
+      assertEquals(COUNT / 5, rows.filter(r -> r.getInteger("group") == 3).count());
+    }
+  }
+
+  @Test
+  public void testConnectionReleasedOnClose() {
+    // would exhaust the connection pool if connections were not released
+    for (int i = 0; i < 100; i++) {
+      try (Stream<Row> rows = table.query().retrieveRowStream()) {
+        assertEquals(1, rows.limit(1).count());
+      }
+    }
+    assertEquals(COUNT, table.query().retrieveRows().size());
+  }
+
+  @Test
+  public void testStreamInTransaction() {
+    database.tx(
+        db -> {
+          Table txTable = db.getSchema(table.getSchema().getName()).getTable("Item");
+          txTable.insert(new Row().setInt("id", COUNT).setInt("group", 0));
+          // sees uncommitted rows and leaves the transaction usable
+          try (Stream<Row> rows = txTable.query().retrieveRowStream()) {
+            assertEquals(COUNT + 1, rows.count());
+          }
+          txTable.delete(new Row().setInt("id", COUNT));
+        });
+    assertEquals(COUNT, table.query().retrieveRows().size());
+  }
+}
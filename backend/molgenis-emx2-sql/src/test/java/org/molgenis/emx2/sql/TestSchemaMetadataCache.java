@@ -0,0 +1,96 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.TableMetadata.table;
+import static org.molgenis.emx2.sql.SqlDatabase.ANONYMOUS;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.molgenis.emx2.Database;
+import org.molgenis.emx2.Privileges;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.utils.StopWatch;
+
+public class TestSchemaMetadataCache {
+  private static final String SCHEMA_NAME = TestSchemaMetadataCache.class.getSimpleName();
+  private static final int REQUESTS = 1000;
+  private static Database db;
+
+  @BeforeAll
+  public static void setUp() {
+    db = TestDatabaseFactory.getTestDatabase();
+  }
+
+  @Test
+  @Tag("slow")
+  public void benchmarkMetadataLoadsPer1000Requests() {
+    Schema schema = db.dropCreateSchema(SCHEMA_NAME);
+    for (int i = 0; i < 20; i++) {
+      schema.create(table("Table" + i, column("id").setPkey(), column("name"), column("value")));
+    }
+    schema.addMember(ANONYMOUS, Privileges.VIEWER.toString());
+
+    // before: each request used its own database that loaded the metadata privately
+    StopWatch.start("metadata loads per " + REQUESTS + " requests, private schema cache");
+    for (int i = 0; i < REQUESTS; i++) {
+      SqlDatabase database = new SqlDatabase(false);
+      database.setActiveUser(ANONYMOUS);
+      assertEquals(20, new SqlSchemaMetadata(database, SCHEMA_NAME).getTables().size());
+    }
+    StopWatch.print("private schema cache: " + REQUESTS + " metadata loads", REQUESTS);
+
+    // after: each request creates a view on the shared snapshot
+    long loadsBefore = SchemaMetadataCache.getLoadCount();
+    StopWatch.start("metadata loads per " + REQUESTS + " requests, shared schema cache");
+    for (int i = 0; i < REQUESTS; i++) {
+      SqlDatabase database = new SqlDatabase(false);
+      database.setActiveUser(ANONYMOUS);
+      assertEquals(20, database.getSchema(SCHEMA_NAME).getMetadata().getTables().size());
+    }
+    long loads = SchemaMetadataCache.getLoadCount() - loadsBefore;
+    StopWatch.print("shared schema cache: " + loads + " metadata loads", REQUESTS);
+    assertTrue(loads <= 1);
+  }
+
+  @Test
+  public void testOnlyChangedSchemaIsReloaded() {
+    Schema schema1 = db.dropCreateSchema(SCHEMA_NAME + "1");
+    schema1.create(table("Person", column("name").setPkey()));
+    Schema schema2 = db.dropCreateSchema(SCHEMA_NAME + "2");
+    schema2.create(table("Pet", column("name").setPkey()));
+
+    Database other = TestDatabaseFactory.getTestDatabase();
+    assertNotNull(other.getSchema(SCHEMA_NAME + "1").getTable("Person"));
+    assertNotNull(other.getSchema(SCHEMA_NAME + "2").getTable("Pet"));
+
+    // change one schema in one database
+    long loadsBefore = SchemaMetadataCache.getLoadCount();
+    long version2 = SchemaMetadataCache.getVersion(SCHEMA_NAME + "2");
+    schema1.getTable("Person").getMetadata().add(column("age"));
+
+    // other database sees the change, without reloading the other schema
+    assertNotNull(
+        other.getSchema(SCHEMA_NAME + "1").getTable("Person").getMetadata().getColumn("age"));
+    assertNotNull(other.getSchema(SCHEMA_NAME + "2").getTable("Pet"));
+    assertEquals(version2, SchemaMetadataCache.getVersion(SCHEMA_NAME + "2"));
+    assertEquals(1, SchemaMetadataCache.getLoadCount() - loadsBefore);
+  }
+
+  @Test
+  public void testMembersChangeVisibility() {
+    Schema schema = db.dropCreateSchema(SCHEMA_NAME + "3");
+    schema.removeMember(ANONYMOUS);
+
+    Database other = new SqlDatabase(false);
+    other.setActiveUser(ANONYMOUS);
+    assertNull(other.getSchema(SCHEMA_NAME + "3"));
+
+    schema.addMember(ANONYMOUS, Privileges.VIEWER.toString());
+    assertNotNull(other.getSchema(SCHEMA_NAME + "3"));
+
+    schema.removeMember(ANONYMOUS);
+    assertNull(other.getSchema(SCHEMA_NAME + "3"));
+  }
+}
@@ -0,0 +1,121 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.ColumnType.REFBACK;
+import static org.molgenis.emx2.ColumnType.REF_ARRAY;
+import static org.molgenis.emx2.FilterBean.f;
+import static org.molgenis.emx2.Operator.EQUALS;
+import static org.molgenis.emx2.Row.row;
+import static org.molgenis.emx2.TableMetadata.table;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.molgenis.emx2.*;
+
+public class TestStatementTriggers {
+  private static Database db;
+  private static Schema schema;
+
+  @BeforeAll
+  public static void setUp() {
+    db = TestDatabaseFactory.getTestDatabase();
+    SqlDatabase.setStatementTriggers(true);
+    schema = db.dropCreateSchema(TestStatementTriggers.class.getSimpleName());
+    schema.getMetadata().setSetting(Constants.IS_CHANGELOG_ENABLED, Boolean.TRUE.toString());
+    schema.create(table("Parts").add(column("partname").setPkey()));
+    schema.create(
+        table("Products")
+            .add(column("productname").setPkey())
+            .add(column("parts").setType(REF_ARRAY).setRefTable("Parts")));
+  }
+
+  @AfterAll
+  public static void tearDown() {
+    SqlDatabase.setStatementTriggers(false);
+  }
+
+  @Test
+  public void testStatementTriggers() {
+    Table parts = schema.getTable("Parts");
+    Table products = schema.getTable("Products");
+    assertEquals(
+        List.of("STATEMENT"),
+        ((SqlDatabase) db)
+            .getJooq()
+            .fetchValues(
+                "SELECT DISTINCT action_orientation FROM information_schema.triggers"
+                    + " WHERE event_object_schema = {0} AND event_object_table = 'Products'"
+                    + " AND action_timing = 'AFTER'",
+                schema.getName()));
+
+    parts.insert(row("partname", "screen"), row("partname", "button"));
+    products.insert(row("productname", "phone", "parts", "screen,button"));
+
+    // missing reference
+    assertThrows(
+        MolgenisException.class,
+        () -> products.insert(row("productname", "watch", "parts", "screen,strap")));
+
+    // references are checked at commit, so can be added later in the transaction
+    db.tx(
+        tdb -> {
+          Schema s = tdb.getSchema(schema.getName());
+          s.getTable("Products").insert(row("productname", "watch", "parts", "screen,strap"));
+          s.getTable("Parts").insert(row("partname", "strap"));
+        });
+    assertEquals(2, products.retrieveRows().size());
+
+    // referenced key cannot be deleted, unless the reference is removed in the same transaction
+    assertThrows(MolgenisException.class, () -> parts.delete(row("partname", "strap")));
+    db.tx(
+        tdb -> {
+          Schema s = tdb.getSchema(schema.getName());
+          s.getTable("Parts").delete(row("partname", "strap"));
+          s.getTable("Products").update(row("productname", "watch", "parts", "screen"));
+        });
+
+    // refback updates the ref_array of all products at once
+    parts
+        .getMetadata()
+        .add(column("products").setType(REFBACK).setRefTable("Products").setRefBack("parts"));
+    parts.save(row("partname", "battery", "products", "phone,watch"));
+    String[] phoneParts =
+        products
+            .query()
+            .where(f("productname", EQUALS, "phone"))
+            .retrieveRows()
+            .get(0)
+            .getStringArray("parts");
+    Arrays.sort(phoneParts);
+    assertArrayEquals(new String[] {"battery", "button", "screen"}, phoneParts);
+    parts.delete(row("partname", "battery"));
+    assertArrayEquals(
+        new String[] {"screen"},
+        products
+            .query()
+            .where(f("productname", EQUALS, "watch"))
+            .retrieveRows()
+            .get(0)
+            .getStringArray("parts"));
+
+    // changelog has old and new of updated rows
+    Map<Character, List<Change>> changes =
+        schema.getChanges(100).stream().collect(Collectors.groupingBy(Change::operation));
+    assertTrue(changes.get('I').size() >= 5);
+    assertTrue(
+        changes.get('U').stream()
+            .anyMatch(
+                change ->
+                    change.oldRowData() != null
+                        && change.newRowData() != null
+                        && change.newRowData().contains("\"watch\"")));
+    assertTrue(
+        changes.get('D').stream().anyMatch(change -> change.oldRowData().contains("\"battery\"")));
+  }
+}
@@ -0,0 +1,86 @@
+package org.molgenis.emx2.sql;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.molgenis.emx2.Column.column;
+import static org.molgenis.emx2.Constants.MG_USER_PREFIX;
+import static org.molgenis.emx2.Constants.MOLGENIS_POSTGRES_TRACK_ROLES;
+import static org.molgenis.emx2.TableMetadata.table;
+import static org.molgenis.emx2.sql.SqlDatabase.ADMIN_USER;
+import static org.molgenis.emx2.sql.SqlDatabase.ANONYMOUS;
+
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.molgenis.emx2.Database;
+import org.molgenis.emx2.Privileges;
+import org.molgenis.emx2.Row;
+import org.molgenis.emx2.Schema;
+import org.molgenis.emx2.Table;
+import org.molgenis.emx2.utils.StopWatch;
+
+public class TestTrackRoles {
+  private static final String SCHEMA_NAME = TestTrackRoles.class.getSimpleName();
+  private static final String VIEWER = "trackroles_viewer";
+  private static final int REQUESTS = 2000;
+
+  @BeforeAll
+  public static void setUp() {
+    Database db = TestDatabaseFactory.getTestDatabase();
+    Schema schema = db.dropCreateSchema(SCHEMA_NAME);
+    Table table = schema.create(table("Pet", column("name").setPkey()));
+    table.insert(new Row().set("name", "pooky"), new Row().set("name", "spike"));
+    schema.addMember(VIEWER, Privileges.VIEWER.toString());
+    schema.addMember(ANONYMOUS, Privileges.VIEWER.toString());
+  }
+
+  @AfterEach
+  public void tearDown() {
+    System.clearProperty(MOLGENIS_POSTGRES_TRACK_ROLES);
+  }
+
+  @Test
+  public void testRoleSwitchedPerUser() {
+    System.setProperty(MOLGENIS_POSTGRES_TRACK_ROLES, "true");
+    SqlDatabase db = new SqlDatabase(false);
+    String sessionUser = db.getJooq().fetchValue("select session_user").toString();
+
+    for (String user : List.of(VIEWER, VIEWER, ADMIN_USER, ANONYMOUS, ADMIN_USER, VIEWER)) {
+      db.setActiveUser(user);
+      String expected = user.equals(ADMIN_USER) ? sessionUser : MG_USER_PREFIX + user;
+      assertEquals(expected, db.getJooq().fetchValue("select current_user"));
+    }
+
+    // search_path changed during a checkout is reset on next checkout
+    db.tx(
+        tdb -> ((SqlDatabase) tdb).getJooq().execute("SET search_path TO \"" + SCHEMA_NAME + "\""));
+    for (int i = 0; i < 10; i++) {
+      assertNotEquals(
+          "\"" + SCHEMA_NAME + "\"", db.getJooq().fetchValue("show search_path").toString());
+    }
+  }
+
+  @Test
+  @Tag("slow")
+  public void benchmarkRetrieveJsonPerSecond() {
+    // small queries, for which the round trips to set up the connection matter most
+    StopWatch.start("retrieveJSON with reset per checkout");
+    runRequests();
+    StopWatch.print("retrieveJSON with reset per checkout", REQUESTS);
+
+    System.setProperty(MOLGENIS_POSTGRES_TRACK_ROLES, "true");
+    StopWatch.start("retrieveJSON with track roles");
+    runRequests();
+    StopWatch.print("retrieveJSON with track roles", REQUESTS);
+  }
+
+  private void runRequests() {
+    Database db = new SqlDatabase(false);
+    db.setActiveUser(ANONYMOUS);
+    Table table = db.getSchema(SCHEMA_NAME).getTable("Pet");
+    for (int i = 0; i < REQUESTS; i++) {
+      assertTrue(table.query().retrieveJSON().contains("spike"));
+    }
+  }
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import org.molgenis.emx2.MolgenisException;
 import org.slf4j.Logger;
@@ -42,7 +43,8 @@ public class Task<T extends Task> implements Runnable, Iterable<Task> {
   // end time to calculate run time
   private long endTimeMilliseconds;
   // subtasks/steps in this task
-  private List<Task<?>> subTasks = new ArrayList<>();
+  // subtasks can be added concurrently, e.g. by parallel imports
+  private List<Task<?>> subTasks = new CopyOnWriteArrayList<>();
   // parent task
   @JsonIgnore private Task parentTask;
   // this parameter is used to indicate if steps should fail on unexpected state or should simply
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import org.molgenis.emx2.Database;
+import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.Table;
 import org.molgenis.emx2.beaconv2.endpoints.*;
@@ -86,7 +87,21 @@ public class BeaconApi {
   private static String getFilteringTerms(Request request, Response response) throws Exception {
     response.type(APPLICATION_JSON_MIME_TYPE);
     Database database = sessionManager.getSession(request).getDatabase();
-    return getWriter().writeValueAsString(new FilteringTerms(database));
+    int skip = getIntParam(request, "skip", 0);
+    int limit = getIntParam(request, "limit", Integer.MAX_VALUE);
+    return getWriter().writeValueAsString(new FilteringTerms(database, skip, limit));
+  }
+
+  private static int getIntParam(Request request, String name, int defaultValue) {
+    String value = request.queryParams(name);
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new MolgenisException("Parameter '" + name + "' should be a number, found: " + value);
+    }
   }
 
   private static String getDatasets(Request request, Response response) throws Exception {
@@ -9,19 +9,24 @@ import static spark.Spark.*;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.graphql.GraphqlConstants;
 import org.molgenis.emx2.io.emx2.Emx2;
 import org.molgenis.emx2.io.readers.CsvTableReader;
 import org.molgenis.emx2.io.readers.CsvTableWriter;
-import org.molgenis.emx2.io.tablestore.TableStoreForCsvInMemory;
 import spark.Request;
 import spark.Response;
 
@@ -89,13 +94,19 @@ public class CsvApi {
 
   private static String tableRetrieve(Request request, Response response) throws IOException {
     Table table = MolgenisWebservice.getTableById(request);
-    TableStoreForCsvInMemory store = new TableStoreForCsvInMemory(getSeperator(request));
-    store.writeTable(
-        table.getName(), getDownloadColumns(request, table), getDownloadRows(request, table));
+    Query query = getDownloadQuery(request, table);
     response.type(ACCEPT_CSV);
     response.header("Content-Disposition", "attachment; filename=\"" + table.getName() + ".csv\"");
     response.status(200);
-    return store.getCsvString(table.getName());
+    // stream from database cursor straight into the response, so large tables fit in memory
+    try (Stream<Row> rows = query.retrieveRowStream();
+        Writer writer =
+            new BufferedWriter(
+                new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8))) {
+      CsvTableWriter.write(
+          rows::iterator, getDownloadColumns(request, table), writer, getSeperator(request));
+    }
+    return "";
   }
 
   public static List<String> getDownloadColumns(Request request, Table table) {
@@ -106,7 +117,7 @@ public class CsvApi {
         .toList();
   }
 
-  public static List<Row> getDownloadRows(Request request, Table table)
+  public static Query getDownloadQuery(Request request, Table table)
       throws JsonProcessingException {
     Query q = table.query();
     // extract filter argument if exists
@@ -119,12 +130,21 @@ public class CsvApi {
               new ObjectMapper()
                   .readValue(request.queryParams(GraphqlConstants.FILTER_ARGUMENT), Map.class)));
     }
-    List<Row> rows = q.retrieveRows();
-    return rows;
+    return q;
   }
 
-  private static String tableUpdate(Request request, Response response) {
-    int count = MolgenisWebservice.getTableById(request).save(getRowList(request));
+  private static String tableUpdate(Request request, Response response) throws IOException {
+    Table table = MolgenisWebservice.getTableById(request);
+    int count;
+    if (request.queryParams("bulk") != null) {
+      // stream the body into the table using copy, for large uploads
+      count =
+          table.copyIn(
+              CsvTableReader.read(
+                  new InputStreamReader(request.raw().getInputStream(), StandardCharsets.UTF_8)));
+    } else {
+      count = table.save(getRowList(request));
+    }
     response.status(200);
     response.type(ACCEPT_CSV);
     return "" + count;
@@ -2,7 +2,7 @@ package org.molgenis.emx2.web;
 
 import static org.molgenis.emx2.io.FileUtils.getTempFile;
 import static org.molgenis.emx2.web.CsvApi.getDownloadColumns;
-import static org.molgenis.emx2.web.CsvApi.getDownloadRows;
+import static org.molgenis.emx2.web.CsvApi.getDownloadQuery;
 import static org.molgenis.emx2.web.DownloadApiUtils.includeSystemColumns;
 import static org.molgenis.emx2.web.MolgenisWebservice.getSchema;
 import static org.molgenis.emx2.web.ZipApi.generateReportsToStore;
@@ -14,15 +14,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.ServletException;
 import org.molgenis.emx2.*;
 import org.molgenis.emx2.io.ImportExcelTask;
 import org.molgenis.emx2.io.MolgenisIO;
-import org.molgenis.emx2.io.tablestore.TableStore;
-import org.molgenis.emx2.io.tablestore.TableStoreForXlsxFile;
+import org.molgenis.emx2.io.tablestore.TableStoreForXlsxStream;
 import spark.Request;
 import spark.Response;
 
@@ -72,61 +71,49 @@ public class ExcelApi {
   static String getExcel(Request request, Response response) throws IOException {
     Schema schema = getSchema(request);
     boolean includeSystemColumns = includeSystemColumns(request);
-    Path tempDir = Files.createTempDirectory(MolgenisWebservice.TEMPFILES_DELETE_ON_EXIT);
-    tempDir.toFile().deleteOnExit();
+    response.type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    response.header(
+        "Content-Disposition",
+        "attachment; filename="
+            + schema.getMetadata().getName()
+            + System.currentTimeMillis()
+            + ".xlsx");
+    // stream into the response, no temp file
     try (OutputStream outputStream = response.raw().getOutputStream()) {
-      Path excelFile = tempDir.resolve("download.xlsx");
       if (request.queryParams("emx1") != null) {
-        MolgenisIO.toEmx1ExcelFile(excelFile, schema);
+        MolgenisIO.toEmx1ExcelOutputStream(outputStream, schema);
       } else {
-        MolgenisIO.toExcelFile(excelFile, schema, includeSystemColumns);
+        MolgenisIO.toExcelOutputStream(outputStream, schema, includeSystemColumns);
       }
-
-      response.type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-      response.header(
-          "Content-Disposition",
-          "attachment; filename="
-              + schema.getMetadata().getName()
-              + System.currentTimeMillis()
-              + ".xlsx");
-      outputStream.write(Files.readAllBytes(excelFile));
       return "Export success";
     }
   }
 
   static String getExcelTable(Request request, Response response) throws IOException {
     Table table = MolgenisWebservice.getTableById(request);
-    Path tempDir = Files.createTempDirectory(MolgenisWebservice.TEMPFILES_DELETE_ON_EXIT);
-    tempDir.toFile().deleteOnExit();
-    try (OutputStream outputStream = response.raw().getOutputStream()) {
-      Path excelFile = tempDir.resolve("download.xlsx");
-      TableStore excelStore = new TableStoreForXlsxFile(excelFile);
-      excelStore.writeTable(
-          table.getName(), getDownloadColumns(request, table), getDownloadRows(request, table));
-      response.type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-      response.header(
-          "Content-Disposition",
-          "attachment; filename="
-              + table.getSchema().getMetadata().getName()
-              + "_"
-              + table.getName()
-              + System.currentTimeMillis()
-              + ".xlsx");
-      outputStream.write(Files.readAllBytes(excelFile));
+    response.type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    response.header(
+        "Content-Disposition",
+        "attachment; filename="
+            + table.getSchema().getMetadata().getName()
+            + "_"
+            + table.getName()
+            + System.currentTimeMillis()
+            + ".xlsx");
+    try (OutputStream outputStream = response.raw().getOutputStream();
+        TableStoreForXlsxStream excelStore = new TableStoreForXlsxStream(outputStream);
+        Stream<Row> rows = getDownloadQuery(request, table).retrieveRowStream()) {
+      excelStore.writeTable(table.getName(), getDownloadColumns(request, table), rows::iterator);
       return "Export success";
     }
   }
 
   static String getExcelReport(Request request, Response response) throws IOException {
-    Path tempDir = Files.createTempDirectory(MolgenisWebservice.TEMPFILES_DELETE_ON_EXIT);
-    tempDir.toFile().deleteOnExit();
-    try (OutputStream outputStream = response.raw().getOutputStream()) {
-      Path excelFile = tempDir.resolve("download.xlsx");
-      TableStore excelStore = new TableStoreForXlsxFile(excelFile);
+    response.type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+    response.header("Content-Disposition", "attachment; filename=report.xlsx");
+    try (OutputStream outputStream = response.raw().getOutputStream();
+        TableStoreForXlsxStream excelStore = new TableStoreForXlsxStream(outputStream)) {
       generateReportsToStore(request, excelStore);
-      response.type("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-      response.header("Content-Disposition", "attachment; filename=report.xlsx");
-      outputStream.write(Files.readAllBytes(excelFile));
       return "Export success";
     }
   }
@@ -9,6 +9,7 @@ import static spark.Spark.get;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
+import javax.servlet.http.HttpServletResponse;
 import org.molgenis.emx2.*;
 import spark.Request;
 import spark.Response;
@@ -46,33 +47,114 @@ public class FileApi {
                 t.getMetadata().getPrimaryKeyFields().stream()
                     .map(f -> s(f.getName()))
                     .toArray(SelectColumn[]::new))
-            // select file details
-            .select(s(columnName, s("contents"), s("mimetype"), s("filename"), s("extension")))
+            // select file details, contents are streamed separately
+            .select(s(columnName, s("id"), s("size"), s("mimetype"), s("filename"), s("extension")))
             .where(f(columnName, f("id", EQUALS, id)))
             .retrieveRows();
     if (result.size() != 1) {
       throw new MolgenisException(
           "Download failed: file id '" + id + "' not found in table " + tableName);
     }
-    addFileColumnToResponse(response, columnName, result.get(0));
+    addFileColumnToResponse(request, response, t, columnName, result.get(0));
     return "";
   }
 
-  public static void addFileColumnToResponse(Response response, String columnName, Row row)
+  /**
+   * Streams the file in chunks from the database. The file id is used as ETag because each upload
+   * gets a new id, so 'If-None-Match' results in 304 and a single byte 'Range' in 206.
+   */
+  public static void addFileColumnToResponse(
+      Request request, Response response, Table table, String columnName, Row row)
       throws IOException {
+    String fileId = row.getString(columnName);
     String fileName = row.getString(columnName + "_filename");
     String extension = row.getString(columnName + "_extension");
     String mimetype = row.getString(columnName + "_mimetype");
-    byte[] contents = row.getBinary(columnName + "_contents");
-    response
-        .raw()
-        .setHeader(
-            "Content-Disposition",
-            "attachment; filename=" + (fileName != null ? fileName : columnName + "." + extension));
-    response.raw().setContentType(mimetype);
-    try (OutputStream out = response.raw().getOutputStream()) {
-      out.write(contents); // autoclosing
+    Integer size = row.getInteger(columnName + "_size");
+    if (fileId == null) {
+      throw new MolgenisException("Download failed: no file in column " + columnName);
+    }
+    HttpServletResponse raw = response.raw();
+    String etag = "\"" + fileId + "\"";
+    raw.setHeader("ETag", etag);
+    if (etagMatches(request.headers("If-None-Match"), etag)) {
+      raw.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+
+    long offset = 0;
+    long length = size != null ? size : Long.MAX_VALUE;
+    if (size != null) {
+      raw.setHeader("Accept-Ranges", "bytes");
+      String ifRange = request.headers("If-Range");
+      ByteRange range = ByteRange.parse(request.headers("Range"), size);
+      if (range != null && (ifRange == null || ifRange.equals(etag))) {
+        if (range == ByteRange.UNSATISFIABLE) {
+          raw.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+          raw.setHeader("Content-Range", "bytes */" + size);
+          return;
+        }
+        offset = range.start();
+        length = range.end() - range.start() + 1;
+        raw.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        raw.setHeader("Content-Range", "bytes " + range.start() + "-" + range.end() + "/" + size);
+      }
+      raw.setContentLengthLong(length);
+    }
+    raw.setHeader(
+        "Content-Disposition",
+        "attachment; filename=" + (fileName != null ? fileName : columnName + "." + extension));
+    raw.setContentType(mimetype);
+    try (OutputStream out = raw.getOutputStream()) {
+      table.retrieveFileContents(columnName, fileId, offset, length, out);
       out.flush();
     }
   }
+
+  private static boolean etagMatches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** a single range of a 'Range: bytes=...' header, multiple ranges are not supported */
+  record ByteRange(long start, long end) {
+    static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    /** returns null if the full file should be sent */
+    static ByteRange parse(String header, long size) {
+      if (header == null || !header.startsWith("bytes=") || header.contains(",")) {
+        return null;
+      }
+      String[] parts = header.substring("bytes=".length()).trim().split("-", -1);
+      try {
+        if (parts.length != 2 || (parts[0].isEmpty() && parts[1].isEmpty())) {
+          return null;
+        }
+        if (parts[0].isEmpty()) {
+          // suffix, i.e. the last n bytes
+          long suffix = Long.parseLong(parts[1]);
+          if (suffix == 0 || size == 0) {
+            return UNSATISFIABLE;
+          }
+          return new ByteRange(Math.max(0, size - suffix), size - 1);
+        }
+        long start = Long.parseLong(parts[0]);
+        long end = parts[1].isEmpty() ? size - 1 : Math.min(Long.parseLong(parts[1]), size - 1);
+        if (start >= size) {
+          return UNSATISFIABLE;
+        }
+        return end < start ? null : new ByteRange(start, end);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+  }
 }
@@ -6,7 +6,6 @@ import static spark.Spark.post;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import graphql.ExecutionInput;
 import graphql.ExecutionResult;
 import graphql.GraphQL;
 import graphql.parser.Parser;
@@ -22,6 +21,7 @@ import org.molgenis.emx2.email.EmailMessage;
 import org.molgenis.emx2.email.EmailService;
 import org.molgenis.emx2.email.EmailSettings;
 import org.molgenis.emx2.email.EmailValidator;
+import org.molgenis.emx2.graphql.GraphqlApiFactory;
 import org.molgenis.emx2.web.actions.SendMessageAction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,7 +82,9 @@ public class MessageApi {
     GraphQL gql = session.getGraphqlForSchema(schema.getName());
 
     final ExecutionResult executionResult =
-        gql.execute(ExecutionInput.newExecutionInput(recipientsQuery).variables(validationFilter));
+        gql.execute(
+            GraphqlApiFactory.newExecutionInput(recipientsQuery, schema)
+                .variables(validationFilter));
     if (!executionResult.getErrors().isEmpty()) {
       response.status(500);
       String msg =
@@ -1,12 +1,12 @@
 package org.molgenis.emx2.web;
 
 import graphql.GraphQL;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Collection;
 import org.molgenis.emx2.Database;
 import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.graphql.GraphqlApiFactory;
+import org.molgenis.emx2.graphql.GraphqlSchemaCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,7 +14,6 @@ public class MolgenisSession {
   private static final Logger logger = LoggerFactory.getLogger(MolgenisSession.class);
   private Database database;
   private GraphQL graphqlForDatabase;
-  private Map<String, GraphQL> graphqlPerSchema = new LinkedHashMap<>();
 
   public MolgenisSession(Database database) {
     this.database = database;
@@ -29,21 +28,19 @@ public class MolgenisSession {
     return graphqlForDatabase;
   }
 
+  /**
+   * Returns graphql for the schema that is shared with all sessions having the same roles, so it
+   * must be executed using {@link GraphqlApiFactory#newExecutionInput(String, Schema)}.
+   */
   public GraphQL getGraphqlForSchema(String schemaName) {
     logger.info("getting graphql schema '{}' for user '{}'", schemaName, getSessionUser());
-    if (graphqlPerSchema.get(schemaName) == null) {
-      Schema schema = database.getSchema(schemaName);
-      if (schema == null)
-        throw new MolgenisException(
-            "Schema not found: Schema with name '"
-                + schemaName
-                + "' does not exist or permission denied");
-      graphqlPerSchema.put(
-          schemaName, new GraphqlApiFactory().createGraphqlForSchema(schema, TaskApi.taskService));
-      logger.info("created graphql schema '{}' for user '{}'", schemaName, getSessionUser());
-    }
-    logger.info("return graphql schema '{}' for user '{}'", schemaName, getSessionUser());
-    return graphqlPerSchema.get(schemaName);
+    Schema schema = database.getSchema(schemaName);
+    if (schema == null)
+      throw new MolgenisException(
+          "Schema not found: Schema with name '"
+              + schemaName
+              + "' does not exist or permission denied");
+    return GraphqlSchemaCache.getInstance().getGraphqlForSchema(schema, TaskApi.taskService);
   }
 
   public Database getDatabase() {
@@ -55,9 +52,13 @@ public class MolgenisSession {
   }
 
   public void clearCache() {
-    this.graphqlPerSchema.clear();
     this.graphqlForDatabase = null;
     this.database.clearCache();
     logger.info("cleared database and caches for user {}", getSessionUser());
   }
+
+  public void clearCache(Collection<String> schemaNames) {
+    // graphql per schema is keyed on metadata version so only the schema list might have changed
+    this.graphqlForDatabase = null;
+  }
 }
@@ -1,5 +1,6 @@
 package org.molgenis.emx2.web;
 
+import java.util.Collection;
 import java.util.EventListener;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -8,7 +9,9 @@ import javax.servlet.http.HttpSessionListener;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.util.thread.ThreadPool;
 import org.molgenis.emx2.MolgenisException;
+import org.molgenis.emx2.beaconv2.endpoints.filteringterms.FilteringTermsTableListener;
 import org.molgenis.emx2.sql.JWTgenerator;
+import org.molgenis.emx2.sql.ReportCacheTableListener;
 import org.molgenis.emx2.sql.SqlDatabase;
 import org.molgenis.emx2.tasks.ScriptTableListener;
 import org.slf4j.Logger;
@@ -57,9 +60,16 @@ public class MolgenisSessionManager {
     return session;
   }
 
+  /** listeners of data changes */
+  static void addTableListeners(SqlDatabase database) {
+    database.addTableListener(new ScriptTableListener(TaskApi.taskSchedulerService));
+    database.addTableListener(new FilteringTermsTableListener());
+    database.addTableListener(new ReportCacheTableListener());
+  }
+
   private MolgenisSession getNonPersistedSessionBasedOnToken(Request request, String authTokenKey) {
     SqlDatabase database = new SqlDatabase(false);
-    database.addTableListener(new ScriptTableListener(TaskApi.taskSchedulerService));
+    addTableListeners(database);
     String user = JWTgenerator.getUserFromToken(database, request.headers(authTokenKey));
     database.setActiveUser(user);
     return new MolgenisSession(database);
@@ -90,6 +100,13 @@ public class MolgenisSessionManager {
     }
   }
 
+  /** this method is used to reset the caches of all sessions for specific schemas */
+  public void clearCaches(Collection<String> schemaNames) {
+    for (MolgenisSession session : sessions.values()) {
+      session.clearCache(schemaNames);
+    }
+  }
+
   /**
    * Because we cannot access jetty outside spark, we override SparkJava EmbeddedServersFactory to
    * add custom session listener for session create/destroy logic
@@ -147,7 +164,7 @@ public class MolgenisSessionManager {
         // create private database wrapper to session
         SqlDatabase database = new SqlDatabase(false);
         database.setActiveUser("anonymous"); // set default use to "anonymous"
-        database.addTableListener(new ScriptTableListener(TaskApi.taskSchedulerService));
+        addTableListeners(database);
 
         // create session and add to sessions lists so we can also access all active
         // sessions
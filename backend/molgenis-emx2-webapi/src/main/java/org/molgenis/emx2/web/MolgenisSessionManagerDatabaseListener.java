@@ -1,5 +1,7 @@
 package org.molgenis.emx2.web;
 
+import java.util.HashSet;
+import java.util.Set;
 import org.molgenis.emx2.DatabaseListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,9 +27,17 @@ public class MolgenisSessionManagerDatabaseListener extends DatabaseListener {
 
   @Override
   public void afterCommit() {
+    Set<String> schemaNames = new HashSet<>(getSchemaChanged());
+    schemaNames.addAll(getSchemaRemoved());
     super.afterCommit();
-    sessionManager.clearAllCaches();
-    logger.info(
-        "cleared all caches after commit that may include changes on schema(s) or permissions");
+    if (schemaNames.isEmpty()) {
+      // e.g. database settings changed
+      sessionManager.clearAllCaches();
+      logger.info("cleared all caches after commit that may include changes on database");
+    } else {
+      // schema metadata itself is versioned in SqlDatabase, only graphql needs to be rebuild
+      sessionManager.clearCaches(schemaNames);
+      logger.info("cleared caches of schema(s) {} after commit", schemaNames);
+    }
   }
 }
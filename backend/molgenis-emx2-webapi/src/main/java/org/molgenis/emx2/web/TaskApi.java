@@ -133,7 +133,7 @@ public class TaskApi {
               .getTable("Jobs")
               .query()
               // make sure we include all file metadata
-              .select(s("output", s("contents"), s("mimetype"), s("filename"), s("extension")))
+              .select(s("output", s("id"), s("size"), s("mimetype"), s("filename"), s("extension")))
               .where(f("id", Operator.EQUALS, jobId))
               .retrieveRows()
               .get(0);
@@ -143,7 +143,8 @@ public class TaskApi {
             "Get output for task failed: couldn't find task with id " + jobId);
       }
       // reuse implementation from FileApi
-      addFileColumnToResponse(response, "output", jobMetadata);
+      addFileColumnToResponse(
+          request, response, adminSchema.getTable("Jobs"), "output", jobMetadata);
       return "";
     }
     throw new MolgenisException("Schema doesn't exist or permission denied");
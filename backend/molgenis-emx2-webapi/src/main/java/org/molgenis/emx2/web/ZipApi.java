@@ -13,22 +13,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.*;
-import java.util.stream.Stream;
 import javax.servlet.MultipartConfigElement;
 import javax.servlet.ServletException;
 import org.jetbrains.annotations.NotNull;
+import org.molgenis.emx2.Database;
 import org.molgenis.emx2.MolgenisException;
 import org.molgenis.emx2.Row;
 import org.molgenis.emx2.Schema;
 import org.molgenis.emx2.Table;
-import org.molgenis.emx2.io.FileUtils;
 import org.molgenis.emx2.io.ImportCsvZipTask;
 import org.molgenis.emx2.io.MolgenisIO;
 import org.molgenis.emx2.io.tablestore.TableStore;
-import org.molgenis.emx2.io.tablestore.TableStoreForCsvInZipFile;
+import org.molgenis.emx2.io.tablestore.TableStoreForCsvInZipStream;
+import org.molgenis.emx2.sql.SqlDatabase;
 import spark.Request;
 import spark.Response;
 
@@ -57,24 +56,14 @@ public class ZipApi {
 
   static String getZip(Request request, Response response) throws IOException {
     boolean includeSystemColumns = includeSystemColumns(request);
-    Path tempDir = Files.createTempDirectory(MolgenisWebservice.TEMPFILES_DELETE_ON_EXIT);
-    tempDir.toFile().deleteOnExit();
+    Schema schema = getSchema(request);
+    String fileName = schema.getMetadata().getName() + System.currentTimeMillis() + ".zip";
+    response.type(APPLICATION_ZIP_MIME_TYPE);
+    response.header(CONTENT_DISPOSITION, "attachment; filename=" + fileName);
+    // stream into the response, no temp file
     try (OutputStream outputStream = response.raw().getOutputStream()) {
-      Schema schema = getSchema(request);
-      String fileName = schema.getMetadata().getName() + System.currentTimeMillis() + ".zip";
-
-      response.type(APPLICATION_ZIP_MIME_TYPE);
-      response.header(CONTENT_DISPOSITION, "attachment; filename=" + fileName);
-
-      Path zipFile = tempDir.resolve("download.zip");
-      MolgenisIO.toZipFile(zipFile, schema, includeSystemColumns);
-      outputStream.write(Files.readAllBytes(zipFile));
-
+      MolgenisIO.toZipOutputStream(outputStream, schema, includeSystemColumns);
       return "Export success";
-    } finally {
-      try (Stream<Path> files = Files.walk(tempDir)) {
-        files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
-      }
     }
   }
 
@@ -96,11 +85,18 @@ public class ZipApi {
       String fileName = request.raw().getPart("file").getSubmittedFileName();
 
       if (fileName.endsWith(".zip")) {
+        // bulk uses copy, faster for large tables
+        ImportCsvZipTask task = new ImportCsvZipTask(tempFile.toPath(), schema, false);
+        task.setBulk(request.queryParams("bulk") != null);
+        // parallel imports independent tables concurrently, each table in its own transaction
+        if (request.queryParams("parallel") != null) {
+          task.setParallel(ZipApi::createParallelDatabase);
+        }
         if (request.queryParams("async") != null) {
-          String id = TaskApi.submit(new ImportCsvZipTask(tempFile.toPath(), schema, false));
+          String id = TaskApi.submit(task);
           return new TaskReference(id, schema).toString();
         } else {
-          MolgenisIO.fromZipFile(tempFile.toPath(), schema, false);
+          task.run();
         }
       } else if (fileName.endsWith(".xlsx")) {
         MolgenisIO.importFromExcelFile(tempFile.toPath(), schema, false);
@@ -120,56 +116,38 @@ public class ZipApi {
     }
   }
 
+  private static Database createParallelDatabase() {
+    SqlDatabase database = new SqlDatabase(false);
+    MolgenisSessionManager.addTableListeners(database);
+    return database;
+  }
+
   static String getZipTable(Request request, Response response) throws IOException {
     Table table = MolgenisWebservice.getTableById(request);
     boolean includeSystemColumns = includeSystemColumns(request);
     if (table == null) throw new MolgenisException("Table " + request.params(TABLE) + " unknown");
-    Path tempDir = Files.createTempDirectory(MolgenisWebservice.TEMPFILES_DELETE_ON_EXIT);
-    tempDir.toFile().deleteOnExit();
+    String tableName =
+        table.getSchema().getMetadata().getName()
+            + "_"
+            + table.getName()
+            + System.currentTimeMillis()
+            + ".zip";
+    response.type(APPLICATION_ZIP_MIME_TYPE);
+    response.header(CONTENT_DISPOSITION, "attachment; filename=" + tableName);
     try (OutputStream outputStream = response.raw().getOutputStream()) {
-      String tableName =
-          table.getSchema().getMetadata().getName()
-              + "_"
-              + table.getName()
-              + System.currentTimeMillis()
-              + ".zip";
-      response.type(APPLICATION_ZIP_MIME_TYPE);
-      response.header(CONTENT_DISPOSITION, "attachment; filename=" + tableName);
-
-      Path zipFile = tempDir.resolve("download.zip");
-      MolgenisIO.toZipFile(zipFile, table, includeSystemColumns);
-      outputStream.write(Files.readAllBytes(zipFile));
-
+      MolgenisIO.toZipOutputStream(outputStream, table, includeSystemColumns);
       return "Export success";
-    } finally {
-      try (Stream<Path> files = Files.walk(tempDir)) {
-        files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
-      }
     }
   }
 
   static String getZippedReports(Request request, Response response) throws IOException {
-    Path tempDir =
-        Files.createTempDirectory(MolgenisWebservice.TEMPFILES_DELETE_ON_EXIT); // NOSONAR
-    tempDir.toFile().deleteOnExit();
-    try (OutputStream outputStream = response.raw().getOutputStream()) {
-      response.type(APPLICATION_ZIP_MIME_TYPE);
-      response.header(CONTENT_DISPOSITION, "attachment; filename=reports.zip");
-
-      FileUtils.getTempFile("download", ".zip");
-      Path zipFile = tempDir.resolve("download.zip");
-      TableStoreForCsvInZipFile store = new TableStoreForCsvInZipFile(zipFile);
-
+    response.type(APPLICATION_ZIP_MIME_TYPE);
+    response.header(CONTENT_DISPOSITION, "attachment; filename=reports.zip");
+    try (OutputStream outputStream = response.raw().getOutputStream();
+        TableStoreForCsvInZipStream store = new TableStoreForCsvInZipStream(outputStream)) {
       // take all the queries
       generateReportsToStore(request, store);
-
-      // copy the zip to output
-      outputStream.write(Files.readAllBytes(zipFile));
       return "Export success";
-    } finally {
-      try (Stream<Path> files = Files.walk(tempDir)) {
-        files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
-      }
     }
   }
 
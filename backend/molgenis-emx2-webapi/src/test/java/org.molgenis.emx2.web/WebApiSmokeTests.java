@@ -390,6 +390,68 @@ public class WebApiSmokeTests {
     assertEquals(schemaYaml, schemaYaml2.replace("pet store yaml", PET_STORE_SCHEMA));
   }
 
+  @Test
+  public void testFileApi_rangeAndETag() {
+    Table table =
+        schema.create(
+            table("FileTest", column("id").setPkey(), column("file").setType(ColumnType.FILE)));
+    table.insert(
+        row(
+            "id",
+            "1",
+            "file",
+            new BinaryFileWrapper(
+                "text/plain", "test.txt", "0123456789".getBytes(StandardCharsets.UTF_8))));
+    String fileId = table.query().retrieveRows().get(0).getString("file");
+    String url = "/pet store/api/file/FileTest/file/" + fileId;
+
+    Response response = given().sessionId(SESSION_ID).when().get(url);
+    assertEquals(200, response.getStatusCode());
+    assertEquals("0123456789", response.asString());
+    assertEquals("bytes", response.getHeader("Accept-Ranges"));
+    String etag = response.getHeader("ETag");
+    assertEquals("\"" + fileId + "\"", etag);
+
+    given()
+        .sessionId(SESSION_ID)
+        .header("If-None-Match", etag)
+        .when()
+        .get(url)
+        .then()
+        .statusCode(304);
+
+    response = given().sessionId(SESSION_ID).header("Range", "bytes=2-4").when().get(url);
+    assertEquals(206, response.getStatusCode());
+    assertEquals("234", response.asString());
+    assertEquals("bytes 2-4/10", response.getHeader("Content-Range"));
+
+    response = given().sessionId(SESSION_ID).header("Range", "bytes=-3").when().get(url);
+    assertEquals(206, response.getStatusCode());
+    assertEquals("789", response.asString());
+
+    // outdated If-Range results in the full file
+    response =
+        given()
+            .sessionId(SESSION_ID)
+            .header("Range", "bytes=2-4")
+            .header("If-Range", "\"other\"")
+            .when()
+            .get(url);
+    assertEquals(200, response.getStatusCode());
+    assertEquals("0123456789", response.asString());
+
+    given()
+        .sessionId(SESSION_ID)
+        .header("Range", "bytes=20-")
+        .when()
+        .get(url)
+        .then()
+        .statusCode(416)
+        .header("Content-Range", "bytes */10");
+
+    schema.dropTable("FileTest");
+  }
+
   @Test
   public void testExcelApi() throws IOException, InterruptedException {
 
@@ -2,10 +2,15 @@ package org.molgenis.emx2;
 
 import java.sql.Timestamp;
 
+/**
+ * Change logged for a table. For updates, old and new row data only contain the primary key and the
+ * changed columns. The id orders changes with the same stamp, e.g. of one transaction.
+ */
 public record Change(
     char operation,
     Timestamp stamp,
     String userId,
     String tableName,
     String oldRowData,
-    String newRowData) {}
+    String newRowData,
+    long id) {}
@@ -23,6 +23,8 @@ public class Constants {
   public static final String VISIBLE_EXPRESSION = "visible";
   public static final String DESCRIPTION = "description";
   public static final String IS_CHANGELOG_ENABLED = "isChangelogEnabled";
+  // number of months before the current month of which changes are kept, keep all if not set
+  public static final String CHANGELOG_RETENTION_MONTHS = "changelogRetentionMonths";
   public static final String TEMPLATE = "template";
   public static final String INCLUDE_DEMO_DATA = "includeDemoData";
   public static final String SEMANTICS = "semantics";
@@ -36,8 +38,11 @@ public class Constants {
   public static final String MG_INSERTEDON = "mg_insertedOn";
   public static final String MG_UPDATEDBY = "mg_updatedBy";
   public static final String MG_UPDATEDON = "mg_updatedOn";
+  public static final String MG_CURSOR = "mg_cursor";
+  public static final String SEARCH_SCORE = "_score";
 
   public static final String TEXT_SEARCH_COLUMN_NAME = "_TEXT_SEARCH_COLUMN";
+  public static final String TEXT_SEARCH_VECTOR_NAME = "_TEXT_SEARCH_VECTOR";
   public static final String SETTINGS_TABLE = "molgenis_settings";
   public static final String SETTINGS = "settings";
   public static final String SETTINGS_NAME = "key";
@@ -47,6 +52,7 @@ public class Constants {
   public static final String MOLGENIS_POSTGRES_URI = "MOLGENIS_POSTGRES_URI";
   public static final String MOLGENIS_POSTGRES_USER = "MOLGENIS_POSTGRES_USER";
   public static final String MOLGENIS_POSTGRES_PASS = "MOLGENIS_POSTGRES_PASS";
+  public static final String MOLGENIS_POSTGRES_TRACK_ROLES = "MOLGENIS_POSTGRES_TRACK_ROLES";
   public static final String MOLGENIS_HTTP_PORT = "MOLGENIS_HTTP_PORT";
   public static final String MOLGENIS_ADMIN_PW = "MOLGENIS_ADMIN_PW";
 
@@ -61,6 +67,16 @@ public class Constants {
   public static final String MOLGENIS_EXCLUDE_PETSTORE_DEMO = "MOLGENIS_EXCLUDE_PETSTORE_DEMO";
 
   public static final String MOLGENIS_JWT_SHARED_SECRET = "MOLGENIS_JWT_SHARED_SECRET";
+  public static final String MOLGENIS_GRAPHQL_CACHE_SIZE = "MOLGENIS_GRAPHQL_CACHE_SIZE";
+  public static final String MOLGENIS_REPORT_CACHE_SIZE = "MOLGENIS_REPORT_CACHE_SIZE";
+  public static final String MOLGENIS_STATEMENT_TRIGGERS = "MOLGENIS_STATEMENT_TRIGGERS";
+  public static final String MOLGENIS_BLOB_STORE_DIR = "MOLGENIS_BLOB_STORE_DIR";
+  public static final String MOLGENIS_BLOB_STORE_S3_URL = "MOLGENIS_BLOB_STORE_S3_URL";
+  public static final String MOLGENIS_BLOB_STORE_S3_REGION = "MOLGENIS_BLOB_STORE_S3_REGION";
+  public static final String MOLGENIS_BLOB_STORE_S3_ACCESS_KEY =
+      "MOLGENIS_BLOB_STORE_S3_ACCESS_KEY";
+  public static final String MOLGENIS_BLOB_STORE_S3_SECRET_KEY =
+      "MOLGENIS_BLOB_STORE_S3_SECRET_KEY";
 
   public static final String OIDC_LOGIN_PATH = "_login";
   public static final String OIDC_CALLBACK_PATH = "_callback";
@@ -2,6 +2,7 @@ package org.molgenis.emx2;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface Query {
 
@@ -15,6 +16,12 @@ public interface Query {
 
   Query offset(int offset);
 
+  /**
+   * Keyset pagination: only return rows after the row with this cursor, as retrieved via the
+   * mg_cursor field. Unlike offset, the cost doesn't grow with the depth of the page.
+   */
+  Query after(String cursor);
+
   Query orderBy(Map<String, Order> values);
 
   Query orderBy(String column);
@@ -23,8 +30,21 @@ public interface Query {
 
   List<Row> retrieveRows();
 
+  /**
+   * Same as retrieveRows, but fetches the rows in chunks using a database cursor so memory use
+   * stays constant for large tables. The stream holds a database connection and therefore must be
+   * closed, e.g. using try-with-resources.
+   */
+  Stream<Row> retrieveRowStream();
+
   String retrieveJSON();
 
+  /**
+   * Same as retrieveJSON, but leaves out fields that are null, like graphql responses do, so the
+   * json can be used in a response as is.
+   */
+  String retrieveJSONWithoutNulls();
+
   Filter getFilter();
 
   SelectColumn getSelect();
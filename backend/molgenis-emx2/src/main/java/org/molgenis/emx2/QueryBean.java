@@ -39,11 +39,21 @@ public class QueryBean implements Query {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public Stream<Row> retrieveRowStream() {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public String retrieveJSON() {
     throw new UnsupportedOperationException();
   }
 
+  @Override
+  public String retrieveJSONWithoutNulls() {
+    throw new UnsupportedOperationException();
+  }
+
   @Override
   public Query search(String... terms) {
     if (this.searchTerms == null || this.searchTerms.length == 0) {
@@ -67,6 +77,12 @@ public class QueryBean implements Query {
     return this;
   }
 
+  @Override
+  public Query after(String cursor) {
+    this.select.setAfter(cursor);
+    return this;
+  }
+
   @Override
   public Filter getFilter() {
     return filter;
@@ -1,5 +1,6 @@
 package org.molgenis.emx2;
 
+import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +65,18 @@ public interface Schema {
 
   List<Change> getChanges(int limit);
 
+  /**
+   * Changes, newest first, optionally of one table and within [since, until). For the next page
+   * pass the stamp and id of the last change of the previous page as afterStamp and afterId.
+   */
+  List<Change> getChanges(
+      String tableName,
+      Timestamp since,
+      Timestamp until,
+      Timestamp afterStamp,
+      Long afterId,
+      int limit);
+
   Integer getChangesCount();
 
   String getSettingValue(String key);
@@ -11,6 +11,7 @@ public class SelectColumn {
   private Map<String, SelectColumn> children = new LinkedHashMap<>();
   private int limit = 0;
   private int offset = 0;
+  private String after;
   private Filter filter;
   private Map<String, Order> orderBy = new LinkedHashMap<>();
 
@@ -82,6 +83,15 @@ public class SelectColumn {
     return offset;
   }
 
+  /** cursor of the row after which to continue, as returned in the mg_cursor field */
+  public void setAfter(String after) {
+    this.after = after;
+  }
+
+  public String getAfter() {
+    return after;
+  }
+
   public void setOrderBy(Map<String, Order> values) {
     this.orderBy.putAll(values);
   }
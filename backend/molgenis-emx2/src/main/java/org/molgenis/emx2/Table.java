@@ -1,5 +1,6 @@
 package org.molgenis.emx2;
 
+import java.io.OutputStream;
 import java.util.List;
 
 public interface Table {
@@ -22,12 +23,26 @@ public interface Table {
 
   int save(Iterable<Row> rows);
 
+  /**
+   * Same as save, but using postgresql COPY in large batches. Use for bulk loading of large or
+   * streamed sets of rows.
+   */
+  int copyIn(Iterable<Row> rows);
+
   int delete(Row... row);
 
   int delete(Iterable<Row> rows);
 
   void truncate();
 
+  /**
+   * Writes length bytes of a file, starting at offset, to the output stream. Contents are read in
+   * chunks so large files are never loaded in memory as a whole. Returns the number of bytes
+   * written, which is less than length when the end of the file is reached.
+   */
+  long retrieveFileContents(
+      String columnName, String fileId, long offset, long length, OutputStream outputStream);
+
   Query select(SelectColumn... columns);
 
   Query agg(SelectColumn columns);
@@ -0,0 +1,121 @@
+package org.molgenis.emx2;
+
+import static org.molgenis.emx2.ColumnType.HEADING;
+
+import java.util.*;
+
+/**
+ * Frozen column lists of a {@link TableMetadata}, computed once per version of the table and of the
+ * tables it inherits from. The lists are unmodifiable and shared between callers, so columns from
+ * them should not be changed; use {@link TableMetadata#getColumn(String)} to get a copy to alter.
+ */
+final class TableColumns {
+  final long version;
+  // the view of the inherited table this view was computed from, if any
+  final TableColumns inherited;
+  final List<Column> columns;
+  final List<String> columnNames;
+  // local columns take precedence over inherited columns with the same name
+  final Map<String, Column> columnsByName;
+  final List<Column> localColumns;
+  final List<Column> storedColumns;
+  final List<String> primaryKeys;
+  final List<Column> primaryKeyColumns;
+
+  TableColumns(TableMetadata table, long version, TableColumns inherited) {
+    this.version = version;
+    this.inherited = inherited;
+    this.localColumns = List.copyOf(computeLocalColumns(table, inherited));
+    this.storedColumns =
+        localColumns.stream().filter(c -> !HEADING.equals(c.getColumnType())).toList();
+    this.columns = List.copyOf(computeColumns(table, inherited, localColumns));
+    this.columnNames = columns.stream().map(Column::getName).toList();
+
+    Map<String, Column> byName = new HashMap<>();
+    if (inherited != null) {
+      byName.putAll(inherited.columnsByName);
+    }
+    byName.putAll(table.getLocalColumnMap());
+    this.columnsByName = Collections.unmodifiableMap(byName);
+
+    this.primaryKeys = columns.stream().filter(c -> c.getKey() == 1).map(Column::getName).toList();
+    this.primaryKeyColumns = storedColumns.stream().filter(c -> c.getKey() == 1).toList();
+  }
+
+  private static List<Column> computeColumns(
+      TableMetadata table, TableColumns inherited, List<Column> localColumns) {
+    // we want to sort on position,
+    // first external schema (because their positions local to that schema)
+    // last we attach the 'meta
+    Map<String, Column> external = new LinkedHashMap<>(); // external schema has own ordering
+    Map<String, Column> internal = new LinkedHashMap<>();
+    Map<String, Column> meta = new LinkedHashMap<>();
+
+    if (inherited != null) {
+      for (Column col : inherited.columns) {
+        if (col.isSystemColumn()) {
+          meta.put(col.getName(), col);
+          // sorting of external schema is seperate from internal schema
+        } else if (!Objects.equals(col.getTable().getSchemaName(), table.getSchemaName())) {
+          external.put(col.getName(), col);
+        } else {
+          internal.put(col.getName(), col);
+        }
+      }
+    }
+
+    // ignore primary key from child class because that is same as in inheritedTable
+    for (Column col : localColumns) {
+      if (!internal.containsKey(col.getName()) && !external.containsKey(col.getName())) {
+        // we create copies so we don't need worry on changes
+        if (col.isSystemColumn()) {
+          meta.put(col.getName(), new Column(col.getTable(), col));
+        } else {
+          internal.put(col.getName(), new Column(col.getTable(), col));
+        }
+      }
+    }
+
+    // sort by position
+    List<Column> externalList = new ArrayList<>(external.values());
+    List<Column> internalList = new ArrayList<>(internal.values());
+    List<Column> metaList = new ArrayList<>(meta.values());
+
+    Collections.sort(externalList);
+    Collections.sort(internalList);
+    Collections.sort(metaList);
+
+    List<Column> finalResult = new ArrayList<>();
+    finalResult.addAll(externalList);
+    finalResult.addAll(internalList);
+    finalResult.addAll(metaList);
+    return finalResult;
+  }
+
+  private static List<Column> computeLocalColumns(TableMetadata table, TableColumns inherited) {
+    Map<String, Column> result = new LinkedHashMap<>();
+    // get primary key from parent, always first
+    if (inherited != null) {
+      for (Column pkey : inherited.primaryKeyColumns) {
+        // rewrite metadata to point to current table instead of parent table
+        result.put(pkey.getName(), new Column(pkey).setTable(table));
+      }
+    }
+
+    // get all implemented columns (keep superclass because of type)
+    Collection<Column> local = table.getLocalColumnMap().values();
+    List<Column> columnList =
+        new ArrayList<>(local.stream().filter(c -> !c.isSystemColumn()).toList());
+    Collections.sort(columnList);
+
+    // add meta behind non-meta
+    columnList.addAll(local.stream().filter(Column::isSystemColumn).toList());
+
+    for (Column c : columnList) {
+      if (!result.containsKey(c.getName())) {
+        result.put(c.getName(), c);
+      }
+    }
+    return new ArrayList<>(result.values());
+  }
+}
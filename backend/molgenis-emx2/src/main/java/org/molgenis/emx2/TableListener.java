@@ -3,17 +3,42 @@ package org.molgenis.emx2;
 import java.util.ArrayList;
 import java.util.List;
 
-/** we collect change handlers from 'afterSave' and 'afterDelete' and execute those on commit */
+/**
+ * we collect change handlers from 'afterSave' and 'afterDelete' and execute those on commit. A
+ * listener with schemaName or tableName null listens to all schemas or tables, see {@link
+ * #forTable}.
+ */
 public abstract class TableListener {
-  final List<Runnable> postCommitActions = new ArrayList<>();
+  final List<Runnable> postCommitActions;
   final String schemaName;
   final String tablenName;
 
   public TableListener(String schemaName, String tableName) {
+    this.postCommitActions = new ArrayList<>();
     this.schemaName = schemaName;
     this.tablenName = tableName;
   }
 
+  /** listener for one table that shares the post commit actions of a listener for many tables */
+  protected TableListener(TableListener parent, String schemaName, String tableName) {
+    this.postCommitActions = parent.postCommitActions;
+    this.schemaName = schemaName;
+    this.tablenName = tableName;
+  }
+
+  public boolean isListeningTo(String schemaName, String tableName) {
+    return (this.schemaName == null || this.schemaName.equals(schemaName))
+        && (this.tablenName == null || this.tablenName.equals(tableName));
+  }
+
+  /**
+   * Listener to use for one table. Listeners for many tables can override this to know the table,
+   * using {@link #TableListener(TableListener, String, String)}.
+   */
+  public TableListener forTable(String schemaName, String tableName) {
+    return this;
+  }
+
   public final void preparePostSave(Iterable<Row> saved) {
     saved.forEach(save -> postCommitActions.add(afterSave(save)));
   }
@@ -34,6 +59,11 @@ public abstract class TableListener {
     }
   }
 
+  /** on rollback, so actions of a failed transaction are not executed on a later commit */
+  public void discardPostCommit() {
+    postCommitActions.clear();
+  }
+
   public String getSchemaName() {
     return schemaName;
   }
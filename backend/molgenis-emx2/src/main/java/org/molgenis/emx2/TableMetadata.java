@@ -7,6 +7,7 @@ import static org.molgenis.emx2.utils.TypeUtils.convertToPascalCase;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import org.javers.core.metamodel.annotation.DiffIgnore;
 import org.jooq.Field;
 import org.jooq.Record;
 import org.jooq.impl.DSL;
@@ -23,7 +24,10 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
   // for refenence to another schema (rare use)
   protected String importSchema = null;
   // columns of the table (required)
-  protected Map<String, Column> columns = new LinkedHashMap<>();
+  private Map<String, Column> columns = new LinkedHashMap<>();
+  // increased on each change of the columns, to know when to recompute the view
+  @DiffIgnore private long version;
+  @DiffIgnore private TableColumns view;
   // link to the schema this table is part of (optional)
   private SchemaMetadata schema;
   // name unique within this schema (required)
@@ -111,6 +115,7 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
       for (Column c : metadata.columns.values()) {
         this.columns.put(c.getName(), new Column(this, c));
       }
+      this.version++;
       this.inheritName = metadata.getInheritName();
       this.importSchema = metadata.getImportSchema();
       this.semantics = metadata.getSemantics();
@@ -135,54 +140,36 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
     this.schema = schemaMetadata;
   }
 
+  /** columns including inherited columns, sorted on position; unmodifiable */
   public List<Column> getColumns() {
-    // we want to sort on position,
-    // first external schema (because their positions local to that schema)
-    // last we attach the 'meta
-    Map<String, Column> external = new LinkedHashMap<>(); // external schema has own ordering
-    Map<String, Column> internal = new LinkedHashMap<>();
-    Map<String, Column> meta = new LinkedHashMap<>();
-
-    if (getInheritedTable() != null) {
-      // we create copies so we don't need worry on changes
-      for (Column col : getInheritedTable().getColumns()) {
-        if (col.isSystemColumn()) {
-          meta.put(col.getName(), col);
-          // sorting of external schema is seperate from internal schema
-        } else if (!Objects.equals(col.getTable().getSchemaName(), getSchemaName())) {
-          external.put(col.getName(), col);
-        } else {
-          internal.put(col.getName(), col);
-        }
-      }
-    }
+    return getView().columns;
+  }
 
-    // ignore primary key from child class because that is same as in inheritedTable
-    for (Column col : getLocalColumns()) {
-      if (!internal.containsKey(col.getName()) && !external.containsKey(col.getName())) {
-        if (col.isSystemColumn()) {
-          meta.put(col.getName(), new Column(col.getTable(), col));
-          // sorting of external schema is seperate from internal schema
-        } else {
-          internal.put(col.getName(), new Column(col.getTable(), col));
-        }
-      }
+  private TableColumns getView() {
+    TableMetadata inheritedTable = getInheritedTable();
+    TableColumns inherited = inheritedTable != null ? inheritedTable.getView() : null;
+    TableColumns current = view;
+    if (current == null || current.version != version || current.inherited != inherited) {
+      current = new TableColumns(this, version, inherited);
+      view = current;
     }
+    return current;
+  }
 
-    // sort by position
-    List<Column> externalList = new ArrayList<>(external.values());
-    List<Column> internalList = new ArrayList<>(internal.values());
-    List<Column> metaList = new ArrayList<>(meta.values());
+  /** the columns defined in this table, excluding inherited columns */
+  Map<String, Column> getLocalColumnMap() {
+    return columns;
+  }
 
-    Collections.sort(externalList);
-    Collections.sort(internalList);
-    Collections.sort(metaList);
+  /** puts a column without further checks, e.g. after it was created in the database */
+  protected void putLocalColumn(Column column) {
+    columns.put(column.getName(), column);
+    version++;
+  }
 
-    List<Column> finalResult = new ArrayList<>();
-    finalResult.addAll(externalList);
-    finalResult.addAll(internalList);
-    finalResult.addAll(metaList);
-    return finalResult;
+  protected void removeLocalColumn(String name) {
+    columns.remove(name);
+    version++;
   }
 
   public List<Column> getColumnsWithoutHeadings() {
@@ -190,13 +177,7 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
   }
 
   public List<String> getPrimaryKeys() {
-    List<String> primaryKey = new ArrayList<>();
-    for (Column c : getColumns()) {
-      if (c.getKey() == 1) {
-        primaryKey.add(c.getName());
-      }
-    }
-    return primaryKey;
+    return getView().primaryKeys;
   }
 
   public List<Column> getDownloadColumnNames() {
@@ -261,46 +242,15 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
   }
 
   public List<Column> getStoredColumns() {
-    return getLocalColumns().stream()
-        .filter(c -> !HEADING.equals(c.getColumnType()))
-        .collect(Collectors.toList());
+    return getView().storedColumns;
   }
 
   public List<Column> getLocalColumns() {
-    Map<String, Column> result = new LinkedHashMap<>();
-    // get primary key from parent, always first
-    if (getInheritedTable() != null) {
-      for (Column pkey : getInheritedTable().getPrimaryKeyColumns()) {
-        // rewrite metadata to point to current table instead of parent table
-        result.put(pkey.getName(), new Column(pkey).setTable(this));
-      }
-    }
-
-    // get all implemented columns (keep superclass because of type)
-    List<Column> columnList =
-        new ArrayList<>(
-            columns.values().stream()
-                .filter(c -> !c.isSystemColumn())
-                .collect(Collectors.toList()));
-    Collections.sort(columnList);
-
-    // add meta behind non-meta
-    List<Column> metaList =
-        new ArrayList<>(
-            columns.values().stream().filter(c -> c.isSystemColumn()).collect(Collectors.toList()));
-    columnList.addAll(metaList);
-
-    for (Column c : columnList) {
-      if (!result.containsKey(c.getName())) {
-        result.put(c.getName(), c);
-      }
-    }
-
-    return new ArrayList<>(result.values());
+    return getView().localColumns;
   }
 
   public List<String> getColumnNames() {
-    return getColumns().stream().map(c -> c.getName()).collect(Collectors.toList());
+    return getView().columnNames;
   }
 
   public List<String> getLocalColumnNames() {
@@ -332,13 +282,10 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
     return result;
   }
 
+  /** returns a copy of the column, which can be changed and passed to alterColumn */
   public Column getColumn(String name) {
-    if (columns.containsKey(name)) return new Column(this, columns.get(name));
-    if (getInheritedTable() != null) {
-      Column c = getInheritedTable().getColumn(name);
-      if (c != null) return new Column(c.getTable(), c);
-    }
-    return null;
+    Column c = getView().columnsByName.get(name);
+    return c != null ? new Column(c.getTable(), c) : null;
   }
 
   public TableMetadata add(Column... column) {
@@ -362,6 +309,7 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
       columns.put(c.getName(), new Column(this, c));
       c.setTable(this);
     }
+    version++;
     return this;
   }
 
@@ -379,6 +327,7 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
     // add the new
     columns.put(column.getName(), new Column(this, column));
     column.setTable(this);
+    version++;
     return this;
   }
 
@@ -388,6 +337,7 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
     if (columns.get(name) == null)
       throw new MolgenisException("Remove column failed: Column '" + name + "' unknown");
     columns.remove(name);
+    version++;
   }
 
   public String getInheritName() {
@@ -450,6 +400,7 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
 
   public void clearCache() {
     columns = new LinkedHashMap<>();
+    version++;
     inheritName = null;
     importSchema = null;
   }
@@ -472,6 +423,9 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
   }
 
   public List<Column> getKey(int key) {
+    if (key == 1) {
+      return getView().primaryKeyColumns;
+    }
     List<Column> keyColumns = new ArrayList<>();
     for (Column c : getStoredColumns()) {
       if (c.getKey() == key) {
@@ -515,6 +469,7 @@ public class TableMetadata extends HasLabelsDescriptionsAndSettings<TableMetadat
         c.removeKey();
       }
     }
+    version++;
   }
 
   public Column getLocalColumn(String name) {
@@ -33,27 +33,7 @@ public class TableSort {
       int size = todo.size();
       for (int i = 0; i < todo.size(); i++) {
         TableMetadata current = todo.get(i);
-        boolean depends = false;
-
-        for (int j = 0; j < todo.size(); j++) {
-          if (current.getInheritName() != null
-              && current.getImportSchema() == null
-              && todo.get(j).equals(current.getInheritedTable())) {
-            depends = true;
-            break;
-          }
-        }
-        if (!depends)
-          for (Column c : current.getColumns()) {
-            if (c.getRefTableName() != null && !c.isRefback()) {
-              for (int j = 0; j < todo.size(); j++) {
-                if (i != j && (todo.get(j).getTableName().equals(c.getRefTableName()))) {
-                  depends = true;
-                  break;
-                }
-              }
-            }
-          }
+        boolean depends = todo.stream().anyMatch(other -> dependsOn(current, other));
         if (!depends) {
           result.add(todo.get(i));
           todo.remove(i);
@@ -69,4 +49,29 @@ public class TableSort {
     tableList.clear();
     tableList.addAll(result);
   }
+
+  /** Returns the tables from the list that the table depends on, via foreign keys or inheritance */
+  public static List<TableMetadata> getDependencies(
+      TableMetadata table, List<TableMetadata> tableList) {
+    return tableList.stream().filter(other -> dependsOn(table, other)).toList();
+  }
+
+  private static boolean dependsOn(TableMetadata table, TableMetadata other) {
+    if (table.getTableName().equals(other.getTableName())) {
+      return false;
+    }
+    if (table.getInheritName() != null
+        && table.getImportSchema() == null
+        && other.equals(table.getInheritedTable())) {
+      return true;
+    }
+    for (Column c : table.getColumns()) {
+      if (c.getRefTableName() != null
+          && !c.isRefback()
+          && other.getTableName().equals(c.getRefTableName())) {
+        return true;
+      }
+    }
+    return false;
+  }
 }